@@ -0,0 +1,210 @@
+package denoptim.benchmarks;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ * 
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.List;
+
+import denoptim.exception.DENOPTIMException;
+import denoptim.fitness.FitnessParameters;
+import denoptim.fragspace.FragmentSpaceParameters;
+import denoptim.graph.DGraph;
+import denoptim.graph.rings.RingClosureParameters;
+import denoptim.programs.RunTimeParameters.ParametersType;
+import denoptim.programs.denovo.GAParameters;
+
+/**
+ * Realistic settings for benchmarks. Each fixture is derived from one of 
+ * the examples in the <code>test</code> folder and defines the space of 
+ * building blocks, the way graphs are grown, and an internal fitness 
+ * function. Pathnames are relative to the root of the project, which is 
+ * where benchmarks are run from.
+ * 
+ * @author Marco Foscato
+ */
+
+public enum BenchmarkFixture
+{
+    /**
+     * Organometallic complexes with many symmetric ligands.
+     */
+    PTCOLX2(new String[] {
+            "FS-ScaffoldLibFile=test/PtCOLX2/data/TCFS-1_scaff.sdf",
+            "FS-FragmentLibFile=test/PtCOLX2/data/TCFS-1_frags.sdf",
+            "FS-CappingFragmentLibFile=test/PtCOLX2/data/TCFS-1_caps.sdf",
+            "FS-CompMatrixFile=test/PtCOLX2/data/TCFS-1_CPMap.par",
+            "FS-MaxMW=3000",
+            "GA-SymmetryProbability=0.0",
+            "GA-LevelGrowthProbScheme=sigma",
+            "GA-LevelGrowthSigmaSteepness=3.0",
+            "GA-LevelGrowthSigmaMiddle=2.5"}),
+    
+    /**
+     * Long chains of amino acids.
+     */
+    CYCLICPEPTIDE(new String[] {
+            "FS-ScaffoldLibFile=test/cyclicpeptide/data/lib_scaff.sdf",
+            "FS-FragmentLibFile=test/cyclicpeptide/data/lib_frags.sdf",
+            "FS-CompMatrixFile=test/cyclicpeptide/data/CPMap",
+            "FS-MaxHeavyAtom=1000",
+            "FS-MaxMW=6000",
+            "FS-MaxRotatableBond=500",
+            "GA-SymmetryProbability=0.0",
+            "GA-MolGrowthProbScheme=SIGMA",
+            "GA-MolGrowthSigmaSteepness=0.2",
+            "GA-MolGrowthSigmaMiddle=20"}),
+    
+    /**
+     * Small organic molecules with ring-closing vertexes.
+     */
+    POLYCYCLE(new String[] {
+            "FS-ScaffoldLibFile=test/polycycle/data/lib_scaff.sdf",
+            "FS-FragmentLibFile=test/polycycle/data/lib_frags.sdf",
+            "FS-CappingFragmentLibFile=test/polycycle/data/lib_cap.sdf",
+            "FS-CompMatrixFile=test/polycycle/data/CPMap.par",
+            "FS-RCCompMatrixFile=test/polycycle/data/RC-CPMap",
+            "FS-MaxHeavyAtom=25",
+            "FS-MaxMW=350",
+            "FS-MaxRotatableBond=50",
+            "RC-CloseRings",
+            "RC-MaxSizeNewRings=8",
+            "RC-EvaluationClosabilityMode=Ring_size",
+            "RC-MaxNumberRingClosures=3",
+            "GA-SymmetryProbability=0.5",
+            "GA-MolGrowthProbScheme=SIGMA",
+            "GA-MolGrowthSigmaSteepness=0.2",
+            "GA-MolGrowthSigmaMiddle=20.0",
+            "GA-CrowdProbScheme=SIGMA",
+            "GA-CrowdSigmaSteepness=2.8",
+            "GA-CrowdSigmaMiddle=1.8"});
+    
+    /**
+     * Internal fitness used for all fixtures: it needs no external file and
+     * involves both atom-based and topological descriptors.
+     */
+    public static final String FITNESSEQUATION = 
+            "FP-Equation=${nHBAcc + 0.2*nAtom + 3*Zagreb}";
+    
+    /**
+     * Seed making the construction of graphs reproducible.
+     */
+    public static final long SEED = 123456789L;
+    
+    private final String[] parameters;
+    
+//------------------------------------------------------------------------------
+    
+    private BenchmarkFixture(String[] parameters)
+    {
+        this.parameters = parameters;
+    }
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * Creates the settings for this fixture. The settings include 
+     * fragment space, ring-closure, and fitness parameters, all processed
+     * and ready to use. No file is written.
+     * @return the settings.
+     * @throws DENOPTIMException
+     */
+    public GAParameters makeSettings() throws DENOPTIMException
+    {
+        GAParameters settings = new GAParameters();
+        for (String line : parameters)
+        {
+            settings.readParameterLine(line);
+        }
+        settings.readParameterLine(FITNESSEQUATION);
+        
+        // We do not process the GA parameters because that would create a 
+        // working directory.
+        for (ParametersType type : new ParametersType[] {
+                ParametersType.FS_PARAMS, 
+                ParametersType.RC_PARAMS,
+                ParametersType.FIT_PARAMS})
+        {
+            if (settings.containsParameters(type))
+            {
+                settings.getParameters(type).checkParameters();
+                settings.getParameters(type).processParameters();
+            }
+        }
+        
+        // Graph construction needs the archive of ring closures even when
+        // rings are not used.
+        if (!settings.containsParameters(ParametersType.RC_PARAMS))
+        {
+            RingClosureParameters rcParams = new RingClosureParameters();
+            rcParams.processParameters();
+            settings.setParameters(rcParams);
+        }
+        settings.startRandomizer(SEED);
+        return settings;
+    }
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * Builds graphs from scratch according to this fixture.
+     * @param settings the settings made by {@link #makeSettings()}.
+     * @param num the number of graphs.
+     * @return the graphs.
+     * @throws DENOPTIMException
+     */
+    public List<DGraph> makeGraphs(GAParameters settings, int num) 
+            throws DENOPTIMException
+    {
+        List<DGraph> graphs = RandomGraphs.build(settings, num);
+        if (graphs.isEmpty())
+        {
+            throw new DENOPTIMException("Could not build any graph for "
+                    + "fixture " + this);
+        }
+        return graphs;
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * @param settings the settings made by {@link #makeSettings()}.
+     * @return the fragment space parameters.
+     */
+    public static FragmentSpaceParameters getFragmentSpaceParameters(
+            GAParameters settings)
+    {
+        return (FragmentSpaceParameters) settings.getParameters(
+                ParametersType.FS_PARAMS);
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * @param settings the settings made by {@link #makeSettings()}.
+     * @return the fitness parameters.
+     */
+    public static FitnessParameters getFitnessParameters(
+            GAParameters settings)
+    {
+        return (FitnessParameters) settings.getParameters(
+                ParametersType.FIT_PARAMS);
+    }
+    
+//------------------------------------------------------------------------------
+    
+}
@@ -0,0 +1,151 @@
+package denoptim.benchmarks;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ * 
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import denoptim.fragmenter.CuttingRulesMatcher;
+import denoptim.fragmenter.FragmenterTools;
+import denoptim.graph.Vertex;
+import denoptim.io.DenoptimIO;
+import denoptim.programs.fragmenter.CuttingRule;
+import denoptim.utils.ManySMARTSQuery;
+import denoptim.utils.MoleculeUtils;
+
+/**
+ * Benchmarks the matching of the default cutting rules (i.e., the SMARTS 
+ * queries) on a set of molecules, and the fragmentation of the same 
+ * molecules. The molecules are read from the file given by system property
+ * <code>denoptim.bench.molecules</code> or, by default, from one of the
+ * functional tests.
+ * 
+ * @author Marco Foscato
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class CuttingRulesBenchmark
+{
+    /**
+     * Default source of molecules.
+     */
+    public static final String DEFAULTMOLS = 
+            "test/functional_tests/t30/data/mols-15.sdf";
+    
+    private List<CuttingRule> rules = new ArrayList<CuttingRule>();
+    
+    private Map<String,String> smarts = new HashMap<String,String>();
+    
+    private List<IAtomContainer> mols = new ArrayList<IAtomContainer>();
+    
+    private Logger logger = Logger.getLogger("CuttingRulesBenchmark");
+    
+//------------------------------------------------------------------------------
+    
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                this.getClass().getClassLoader().getResourceAsStream(
+                        "data/cutting_rules")));
+        DenoptimIO.readCuttingRules(reader, rules, "bundled jar");
+        for (CuttingRule rule : rules)
+        {
+            smarts.put(rule.getName(), rule.getWholeSMARTSRule());
+        }
+        
+        logger.setLevel(java.util.logging.Level.OFF);
+        
+        String pathname = System.getProperty("denoptim.bench.molecules", 
+                DEFAULTMOLS);
+        for (IAtomContainer mol : DenoptimIO.readAllAtomContainers(
+                new File(pathname)))
+        {
+            MoleculeUtils.setZeroImplicitHydrogensToAllAtoms(mol);
+            MoleculeUtils.ensureNoUnsetBondOrders(mol);
+            mols.add(mol);
+        }
+    }
+    
+//------------------------------------------------------------------------------
+    
+    @Benchmark
+    public void matchCuttingRules(Blackhole bh)
+    {
+        for (IAtomContainer mol : mols)
+        {
+            ManySMARTSQuery msq = new ManySMARTSQuery(mol, smarts);
+            bh.consume(msq.getAllMatches());
+        }
+    }
+    
+//------------------------------------------------------------------------------
+    
+    @Benchmark
+    public void matchCuttingRulesIndexed(Blackhole bh)
+    {
+        CuttingRulesMatcher matcher = new CuttingRulesMatcher(rules);
+        for (IAtomContainer mol : mols)
+        {
+            bh.consume(matcher.getMatchingBonds(mol, logger));
+        }
+    }
+    
+//------------------------------------------------------------------------------
+    
+    @Benchmark
+    public void fragmentation(Blackhole bh) throws Exception
+    {
+        for (IAtomContainer mol : mols)
+        {
+            List<Vertex> frags = FragmenterTools.fragmentation(mol, rules, 
+                    logger);
+            bh.consume(frags);
+        }
+    }
+    
+//------------------------------------------------------------------------------
+    
+}
@@ -0,0 +1,159 @@
+package denoptim.benchmarks;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ * 
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import denoptim.fragspace.FragmentSpace;
+import denoptim.ga.GraphOperations;
+import denoptim.graph.DGraph;
+import denoptim.programs.denovo.GAParameters;
+
+/**
+ * Benchmarks the operations on graphs that are performed most often during
+ * an evolutionary experiment: cloning, isomorphism checks, search for 
+ * crossover sites, and JSON serialization and deserialization. Graphs are
+ * built from scratch, with a fixed seed, according to each 
+ * {@link BenchmarkFixture}.
+ * 
+ * @author Marco Foscato
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GraphBenchmark
+{
+    /**
+     * Number of graphs used in each benchmark invocation.
+     */
+    public static final int NUMGRAPHS = 20;
+    
+    @Param({"PTCOLX2", "CYCLICPEPTIDE", "POLYCYCLE"})
+    public BenchmarkFixture fixture;
+    
+    private GAParameters settings;
+    
+    private FragmentSpace fragSpace;
+    
+    private List<DGraph> graphs;
+    
+    private List<DGraph> clones = new ArrayList<DGraph>();
+    
+    private List<String> jsons = new ArrayList<String>();
+    
+//------------------------------------------------------------------------------
+    
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        settings = fixture.makeSettings();
+        fragSpace = BenchmarkFixture.getFragmentSpaceParameters(settings)
+                .getFragmentSpace();
+        graphs = fixture.makeGraphs(settings, NUMGRAPHS);
+        for (DGraph graph : graphs)
+        {
+            clones.add(graph.clone());
+            jsons.add(graph.toJson());
+        }
+    }
+    
+//------------------------------------------------------------------------------
+    
+    @Benchmark
+    public void cloneGraph(Blackhole bh)
+    {
+        for (DGraph graph : graphs)
+        {
+            bh.consume(graph.clone());
+        }
+    }
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * Compares each graph with its clone, which is the most expensive case
+     * because the search for an isomorphism cannot end early.
+     */
+    @Benchmark
+    public void isIsomorphicTo(Blackhole bh)
+    {
+        for (int i=0; i<graphs.size(); i++)
+        {
+            bh.consume(graphs.get(i).isIsomorphicTo(clones.get(i)));
+        }
+    }
+    
+//------------------------------------------------------------------------------
+    
+    @Benchmark
+    public void locateCompatibleXOverPoints(Blackhole bh) throws Exception
+    {
+        for (int i=1; i<graphs.size(); i++)
+        {
+            bh.consume(GraphOperations.locateCompatibleXOverPoints(
+                    graphs.get(i-1), graphs.get(i), fragSpace, 
+                    settings.maxXOverableSubGraphSize));
+        }
+    }
+    
+//------------------------------------------------------------------------------
+    
+    @Benchmark
+    public void toJson(Blackhole bh)
+    {
+        for (DGraph graph : graphs)
+        {
+            bh.consume(graph.toJson());
+        }
+    }
+    
+//------------------------------------------------------------------------------
+    
+    @Benchmark
+    public void fromJson(Blackhole bh)
+    {
+        for (String json : jsons)
+        {
+            bh.consume(DGraph.fromJson(json));
+        }
+    }
+    
+//------------------------------------------------------------------------------
+    
+}
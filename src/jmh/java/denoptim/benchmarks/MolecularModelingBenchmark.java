@@ -0,0 +1,127 @@
+package denoptim.benchmarks;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ * 
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import denoptim.fitness.FitnessParameters;
+import denoptim.fitness.FitnessProvider;
+import denoptim.graph.DGraph;
+import denoptim.molecularmodeling.ThreeDimTreeBuilder;
+import denoptim.programs.denovo.GAParameters;
+
+/**
+ * Benchmarks the conversion of graphs into molecular models and the 
+ * calculation of the internal fitness on such models. Graphs are
+ * built from scratch, with a fixed seed, according to each 
+ * {@link BenchmarkFixture}.
+ * 
+ * @author Marco Foscato
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class MolecularModelingBenchmark
+{
+    /**
+     * Number of graphs used in each benchmark invocation.
+     */
+    public static final int NUMGRAPHS = 10;
+    
+    @Param({"PTCOLX2", "CYCLICPEPTIDE", "POLYCYCLE"})
+    public BenchmarkFixture fixture;
+    
+    private List<DGraph> graphs;
+    
+    private List<IAtomContainer> mols = new ArrayList<IAtomContainer>();
+    
+    private ThreeDimTreeBuilder t3d;
+    
+    private FitnessProvider fitnessProvider;
+    
+    private Logger logger = Logger.getLogger("MolecularModelingBenchmark");
+    
+//------------------------------------------------------------------------------
+    
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        logger.setLevel(java.util.logging.Level.OFF);
+        
+        GAParameters settings = fixture.makeSettings();
+        graphs = fixture.makeGraphs(settings, NUMGRAPHS);
+        t3d = new ThreeDimTreeBuilder(logger, settings.getRandomizer());
+        for (DGraph graph : graphs)
+        {
+            mols.add(t3d.convertGraphTo3DAtomContainer(graph, true));
+        }
+        
+        FitnessParameters fitParams = 
+                BenchmarkFixture.getFitnessParameters(settings);
+        fitnessProvider = new FitnessProvider(fitParams.getDescriptors(),
+                fitParams.getFitnessExpression(), logger);
+    }
+    
+//------------------------------------------------------------------------------
+    
+    @Benchmark
+    public void convertGraphTo3DAtomContainer(Blackhole bh) throws Exception
+    {
+        for (DGraph graph : graphs)
+        {
+            bh.consume(t3d.convertGraphTo3DAtomContainer(graph, true));
+        }
+    }
+    
+//------------------------------------------------------------------------------
+    
+    @Benchmark
+    public void getFitness(Blackhole bh) throws Exception
+    {
+        for (IAtomContainer mol : mols)
+        {
+            bh.consume(fitnessProvider.getFitness(mol));
+        }
+    }
+    
+//------------------------------------------------------------------------------
+    
+}
@@ -0,0 +1,66 @@
+package denoptim.benchmarks;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ * 
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+
+import denoptim.exception.DENOPTIMException;
+import denoptim.ga.EAUtils;
+import denoptim.graph.DGraph;
+import denoptim.programs.denovo.GAParameters;
+
+/**
+ * Builds sets of graphs from scratch as done by the genetic algorithm.
+ * 
+ * @author Marco Foscato
+ */
+
+public class RandomGraphs
+{
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * Builds graphs from scratch. The outcome is reproducible as long as the
+     * randomizer of the settings is started with the same seed.
+     * @param settings the configuration of the genetic algorithm, including 
+     * the fragment space.
+     * @param num the number of graphs to build.
+     * @return the graphs. There may be fewer than requested if too many 
+     * attempts to build a graph fail.
+     * @throws DENOPTIMException
+     */
+    public static List<DGraph> build(GAParameters settings, int num) 
+            throws DENOPTIMException
+    {
+        List<DGraph> graphs = new ArrayList<DGraph>();
+        int maxAttempts = 100 * num;
+        for (int i=0; i<maxAttempts && graphs.size()<num; i++)
+        {
+            DGraph graph = EAUtils.buildGraph(settings);
+            if (graph != null)
+                graphs.add(graph);
+        }
+        return graphs;
+    }
+    
+//------------------------------------------------------------------------------
+    
+}
@@ -0,0 +1,148 @@
+package denoptim.benchmarks;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ * 
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import javax.vecmath.Point3d;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.interfaces.IAtom;
+
+import denoptim.graph.rings.RingClosureFinder;
+import denoptim.graph.rings.RingClosureParameters;
+
+/**
+ * Benchmarks the search for ring-closing conformations of a chain of atoms.
+ * The chain is an all-trans saturated chain that is closable once 
+ * sufficiently long, as the chains connecting ring-closing vertexes in 
+ * the <code>polycycle</code> example. The first and last points play the
+ * role of the ring-closing attractors. Both the search stopping at the 
+ * first closable conformation and the exhaustive search are measured.
+ * 
+ * @author Marco Foscato
+ */
+
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RingClosureBenchmark
+{
+    /**
+     * Number of atoms in the chain, including the two ends.
+     */
+    @Param({"6", "7", "8"})
+    public int chainLength;
+    
+    private List<IAtom> path = new ArrayList<IAtom>();
+    
+    private ArrayList<Boolean> rotatability = new ArrayList<Boolean>();
+    
+    private ArrayList<ArrayList<Point3d>> dihRefs = 
+            new ArrayList<ArrayList<Point3d>>();
+    
+    private RingClosureParameters settings;
+    
+    private RingClosureParameters exhaustiveSettings;
+    
+//------------------------------------------------------------------------------
+    
+    @Setup(Level.Trial)
+    public void setup() throws Exception
+    {
+        // Zig-zag chain with tetrahedral angles and 1.54 A long bonds
+        double dx = 1.54 * Math.sin(Math.toRadians(109.5 / 2.0));
+        double dy = 1.54 * Math.cos(Math.toRadians(109.5 / 2.0));
+        List<Point3d> pts = new ArrayList<Point3d>();
+        for (int i=0; i<chainLength; i++)
+        {
+            Point3d p = new Point3d(i * dx, (i % 2) * dy, 0.0);
+            pts.add(p);
+            path.add(new Atom("C", new Point3d(p)));
+        }
+        
+        // Bonds to the ends are not rotatable
+        for (int i=0; i<chainLength-1; i++)
+        {
+            rotatability.add(i>0 && i<chainLength-2);
+        }
+        for (int i=3; i<chainLength; i++)
+        {
+            ArrayList<Point3d> refs = new ArrayList<Point3d>();
+            for (int j=i-3; j<=i; j++)
+            {
+                refs.add(new Point3d(pts.get(j)));
+            }
+            dihRefs.add(refs);
+        }
+        
+        settings = new RingClosureParameters();
+        settings.readParameterLine("RC-CloseRings");
+        exhaustiveSettings = new RingClosureParameters();
+        exhaustiveSettings.readParameterLine("RC-CloseRings");
+        exhaustiveSettings.readParameterLine("RC-ExhaustiveConfSearch");
+    }
+    
+//------------------------------------------------------------------------------
+    
+    @Benchmark
+    public void evaluateClosability(Blackhole bh)
+    {
+        ArrayList<ArrayList<Double>> closableConfs = 
+                new ArrayList<ArrayList<Double>>();
+        bh.consume(RingClosureFinder.evaluateClosability(path, 
+                new ArrayList<Boolean>(rotatability), dihRefs, closableConfs, 
+                settings));
+        bh.consume(closableConfs);
+    }
+    
+//------------------------------------------------------------------------------
+    
+    @Benchmark
+    public void evaluateClosabilityExhaustive(Blackhole bh)
+    {
+        ArrayList<ArrayList<Double>> closableConfs = 
+                new ArrayList<ArrayList<Double>>();
+        bh.consume(RingClosureFinder.evaluateClosability(path, 
+                new ArrayList<Boolean>(rotatability), dihRefs, closableConfs, 
+                exhaustiveSettings));
+        bh.consume(closableConfs);
+    }
+    
+//------------------------------------------------------------------------------
+    
+}
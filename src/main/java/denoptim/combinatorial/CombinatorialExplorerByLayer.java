@@ -37,6 +37,7 @@ import org.apache.commons.lang3.time.StopWatch;
 
 import denoptim.constants.DENOPTIMConstants;
 import denoptim.exception.DENOPTIMException;
+import denoptim.fitness.FitnessParameters;
 import denoptim.fragspace.FragmentSpaceParameters;
 import denoptim.fragspace.FragsCombination;
 import denoptim.fragspace.FragsCombinationIterator;
@@ -561,6 +562,15 @@ public class CombinatorialExplorerByLayer
 
         // shutdown thread pool
         tpe.shutdown();
+        
+        if (settings.containsParameters(ParametersType.FIT_PARAMS))
+        {
+            FitnessParameters fitParams = (FitnessParameters) 
+                    settings.getParameters(ParametersType.FIT_PARAMS);
+            fitParams.closeFitnessCache();
+            fitParams.closeFitnessFarm();
+            fitParams.closeFitnessWorkerPool();
+        }
 
         // closing messages
         watch.stop();
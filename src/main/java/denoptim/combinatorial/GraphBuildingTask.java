@@ -102,6 +102,11 @@ public class GraphBuildingTask extends FitnessTask
      * The fragment space
      */
     private FragmentSpace fragSpace;
+
+    /**
+     * The settings defining the fragment space
+     */
+    private FragmentSpaceParameters fsParams;
     
 //------------------------------------------------------------------------------
    
@@ -123,6 +128,7 @@ public class GraphBuildingTask extends FitnessTask
             fsParams = (FragmentSpaceParameters)settings.getParameters(
                     ParametersType.FS_PARAMS);
         }
+        this.fsParams = fsParams;
         this.fragSpace = fsParams.getFragmentSpace();
         
         dGraph.setGraphId(GraphUtils.getUniqueGraphIndex());
@@ -285,12 +291,23 @@ public class GraphBuildingTask extends FitnessTask
                 }
             }
 
-            Object[] res = dGraph.checkConsistency(ceblSettings);
+            // Graphs exceeding the size limits cannot lead to acceptable
+            // graphs by further growth, so there is no need to build their
+            // molecular representation, nor to store them for the next level.
+            boolean tooLarge = dGraph.exceedsSizeLimits(fsParams);
+            Object[] res = null;
+            if (!tooLarge)
+            {
+                res = dGraph.checkConsistency(ceblSettings);
+            }
             if (res == null) // null is used to indicate an unacceptable graph
             {
                 nSubTasks = 1;
-                CEBLUtils.storeGraphOfLevel(ceblSettings, dGraph.clone(), level,
-                        rootId, nextIds);
+                if (!tooLarge)
+                {
+                    CEBLUtils.storeGraphOfLevel(ceblSettings, dGraph.clone(), 
+                            level, rootId, nextIds);
+                }
             }
             else
             {
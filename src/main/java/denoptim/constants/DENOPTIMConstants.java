@@ -214,6 +214,16 @@ public final class DENOPTIMConstants
      */
     public static final String GAGENDIRNAMEROOT = "Gen";
     
+    /**
+     * Name of the folder collecting the database of the candidates of a run
+     */
+    public static final String GARUNDBDIRNAME = "RunDatabase";
+    
+    /**
+     * Name of the file indexing the output of a run for its inspection
+     */
+    public static final String RUNINDEXFILENAME = "RunIndex.jsonl";
+    
     /**
      * Header of text files collection generation details
      */
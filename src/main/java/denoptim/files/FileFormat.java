@@ -36,7 +36,8 @@ public enum FileFormat {
     FSE_RUN, GA_RUN,
     
     GA_PARAM, FSE_PARAM, FR_PARAM, COMP_MAP, GO_PARAM, CLG_PARAM, GE_PARAM, 
-    GI_PARAM, B3D_PARAM, FRG_RUN, FRG_PARAM, CUTRULE, M2G_PARAM,
+    GI_PARAM, B3D_PARAM, FRG_RUN, FRG_PARAM, CUTRULE, M2G_PARAM, BENCH_PARAM,
+    FARM_PARAM,
     
     TXT, GRAPHTXT, GENSUMMARY,
     UNRECOGNIZED;
@@ -215,6 +216,18 @@ public enum FileFormat {
         
         //------------------------------------
         
+        BENCH_PARAM.extension = "";
+        BENCH_PARAM.definingRegex = new HashSet<String>(Arrays.asList(
+                "^" + ParametersType.BENCH_PARAMS.getKeywordRoot() + ".*"));
+        
+        //------------------------------------
+        
+        FARM_PARAM.extension = "";
+        FARM_PARAM.definingRegex = new HashSet<String>(Arrays.asList(
+                "^" + ParametersType.FARM_PARAMS.getKeywordRoot() + ".*"));
+        
+        //------------------------------------
+        
         TXT.extension = "";
         
         //------------------------------------
@@ -238,7 +251,7 @@ public enum FileFormat {
     public enum DataKind {GRAPH, VERTEX, GA_RUN, FSE_RUN, GA_PARAM, FSE_PARAM,
         FR_PARAM, GO_PARAM, CLG_PARAM, GE_PARAM, GI_PARAM, COMP_MAP, B3D_PARAM,
         M2G_PARAM,
-        FRG_RUN, FRG_PARAM}
+        FRG_RUN, FRG_PARAM, BENCH_PARAM, FARM_PARAM}
     
 //------------------------------------------------------------------------------
 
@@ -337,6 +350,12 @@ public enum FileFormat {
                     case B3D_PARAM:
                         ff = B3D_PARAM;
                         break;
+                    case BENCH_PARAM:
+                        ff = BENCH_PARAM;
+                        break;
+                    case FARM_PARAM:
+                        ff = FARM_PARAM;
+                        break;
                     default:
                         break;
                 }
@@ -376,6 +395,8 @@ public enum FileFormat {
             FileFormat.CLG_PARAM,
             FileFormat.GI_PARAM, 
             FileFormat.B3D_PARAM,
+            FileFormat.BENCH_PARAM,
+            FileFormat.FARM_PARAM,
          // GA must come after others that might use GA parameters, for example 
          // the setting of the random seed)
             FileFormat.GA_PARAM,  
@@ -0,0 +1,454 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.fitness;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonSyntaxException;
+
+import denoptim.exception.DENOPTIMException;
+
+/**
+ * Persistent collection of the results of fitness evaluations.
+ * <p>Results are identified by the unique identifier (UID) of the candidate
+ * and by a key that identifies the settings used to calculate the fitness
+ * (see {@link FitnessParameters#getFitnessCacheKey()}). Therefore, the same
+ * file can be used by runs using different fitness settings, and results
+ * are reused only when both the candidate and the settings are the same.</p>
+ * <p>Results are appended to a text file that contains one JSON record per
+ * line. When opening an existing file, an index mapping each key to the
+ * position of the latest record with such key is built, and records are read
+ * from the file only upon request. Any incomplete record at the end of the
+ * file, e.g., because of an abrupt termination of a previous run, is
+ * discarded. The file is locked so that only one process at a time can use
+ * it.</p>
+ *
+ * @author Marco Foscato
+ */
+
+public class FitnessCache
+{
+    /**
+     * The file containing the records.
+     */
+    private final File file;
+
+    /**
+     * Access to the file.
+     */
+    private final RandomAccessFile raf;
+
+    /**
+     * The lock on the file.
+     */
+    private final FileLock lock;
+
+    /**
+     * Position of the record for each key.
+     */
+    private final Map<String,Long> index = new ConcurrentHashMap<String,Long>();
+
+    /**
+     * Converter of records to and from JSON.
+     */
+    private final Gson jsonConverter = new Gson();
+
+    /**
+     * Number of successful lookups.
+     */
+    private final AtomicLong hits = new AtomicLong();
+
+    /**
+     * Number of unsuccessful lookups.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Number of records added by this instance.
+     */
+    private final AtomicLong stored = new AtomicLong();
+
+    /**
+     * Separator between the key of the settings and the UID.
+     */
+    private static final String SEP = "|";
+
+    /**
+     * Separator between records.
+     */
+    private static final byte EOR = '\n';
+
+
+//------------------------------------------------------------------------------
+
+    /**
+     * A record of the results of the evaluation of the fitness of one
+     * candidate.
+     */
+    public static class Entry
+    {
+        /**
+         * The key identifying the record.
+         */
+        private String key;
+
+        /**
+         * The value of the fitness, or <code>null</code>.
+         */
+        private Double fitness;
+
+        /**
+         * The error that prevented the calculation of the fitness, or
+         * <code>null</code>.
+         */
+        private String error;
+
+        /**
+         * Descriptor values and other properties produced by the fitness
+         * provider.
+         */
+        private Map<String,String> properties = new HashMap<String,String>();
+
+    //--------------------------------------------------------------------------
+
+        /**
+         * Constructs a record of a successful fitness evaluation.
+         * @param fitness the value of the fitness.
+         * @param properties the properties produced by the fitness provider.
+         */
+        public Entry(double fitness, Map<String,String> properties)
+        {
+            this.fitness = fitness;
+            this.properties.putAll(properties);
+        }
+
+    //--------------------------------------------------------------------------
+
+        /**
+         * Constructs a record of a failed fitness evaluation.
+         * @param error the error tag.
+         * @param properties the properties produced by the fitness provider.
+         */
+        public Entry(String error, Map<String,String> properties)
+        {
+            this.error = error;
+            this.properties.putAll(properties);
+        }
+
+    //--------------------------------------------------------------------------
+
+        /**
+         * @return <code>true</code> if this record contains a fitness value.
+         */
+        public boolean hasFitness()
+        {
+            return fitness != null;
+        }
+
+    //--------------------------------------------------------------------------
+
+        /**
+         * @return the fitness value.
+         */
+        public double getFitness()
+        {
+            return fitness;
+        }
+
+    //--------------------------------------------------------------------------
+
+        /**
+         * @return the error or <code>null</code>.
+         */
+        public String getError()
+        {
+            return error;
+        }
+
+    //--------------------------------------------------------------------------
+
+        /**
+         * @return the properties produced by the fitness provider.
+         */
+        public Map<String,String> getProperties()
+        {
+            return properties;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Opens a cache file, or creates it if it does not exist.
+     * @param file the file collecting the records.
+     * @throws DENOPTIMException if the file cannot be read, written, or if it
+     * is in use by another process.
+     */
+    public FitnessCache(File file) throws DENOPTIMException
+    {
+        this.file = file;
+        try
+        {
+            raf = new RandomAccessFile(file, "rw");
+            lock = raf.getChannel().tryLock();
+        } catch (IOException e)
+        {
+            throw new DENOPTIMException("Could not open fitness cache file '"
+                    + file + "'.", e);
+        }
+        if (lock == null)
+        {
+            throw new DENOPTIMException("Fitness cache file '" + file + "' is "
+                    + "in use by another process.");
+        }
+        buildIndex();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Reads the file and records the position of each record.
+     */
+    private void buildIndex() throws DENOPTIMException
+    {
+        try
+        {
+            raf.seek(0);
+            long lastGoodEnd = 0;
+            byte[] buffer = new byte[65536];
+            ByteArrayOutputStream line = new ByteArrayOutputStream();
+            long pos = 0;
+            long lineStart = 0;
+            int n;
+            while ((n = raf.read(buffer)) > 0)
+            {
+                for (int i=0; i<n; i++)
+                {
+                    if (buffer[i] == EOR)
+                    {
+                        Entry entry = parse(line.toByteArray());
+                        if (entry != null)
+                        {
+                            index.put(entry.key, lineStart);
+                        }
+                        line.reset();
+                        lastGoodEnd = pos + i + 1;
+                        lineStart = lastGoodEnd;
+                    } else {
+                        line.write(buffer[i]);
+                    }
+                }
+                pos += n;
+            }
+            // Discard any incomplete record
+            if (lastGoodEnd < raf.length())
+            {
+                raf.setLength(lastGoodEnd);
+            }
+        } catch (IOException e)
+        {
+            throw new DENOPTIMException("Could not read fitness cache file '"
+                    + file + "'.", e);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private Entry parse(byte[] bytes)
+    {
+        try
+        {
+            Entry entry = jsonConverter.fromJson(
+                    new String(bytes, StandardCharsets.UTF_8), Entry.class);
+            if (entry == null || entry.key == null)
+                return null;
+            if (entry.properties == null)
+                entry.properties = new HashMap<String,String>();
+            return entry;
+        } catch (JsonSyntaxException e)
+        {
+            return null;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Looks for the results of a previous evaluation of the fitness.
+     * @param settingsKey the key identifying the fitness settings.
+     * @param uid the unique identifier of the candidate.
+     * @return the record or <code>null</code> if none is found.
+     * @throws DENOPTIMException if the file cannot be read.
+     */
+    public Entry lookup(String settingsKey, String uid)
+            throws DENOPTIMException
+    {
+        Long position = index.get(settingsKey + SEP + uid);
+        if (position == null)
+        {
+            misses.incrementAndGet();
+            return null;
+        }
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        synchronized (this)
+        {
+            try
+            {
+                raf.seek(position);
+                byte[] buffer = new byte[4096];
+                int n;
+                boolean found = false;
+                while (!found && (n = raf.read(buffer)) > 0)
+                {
+                    for (int i=0; i<n; i++)
+                    {
+                        if (buffer[i] == EOR)
+                        {
+                            found = true;
+                            break;
+                        }
+                        line.write(buffer[i]);
+                    }
+                }
+            } catch (IOException e)
+            {
+                throw new DENOPTIMException("Could not read fitness cache "
+                        + "file '" + file + "'.", e);
+            }
+        }
+        Entry entry = parse(line.toByteArray());
+        if (entry == null)
+        {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+        }
+        return entry;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Appends a record to the file.
+     * @param settingsKey the key identifying the fitness settings.
+     * @param uid the unique identifier of the candidate.
+     * @param entry the record to store.
+     * @throws DENOPTIMException if the file cannot be written.
+     */
+    public void store(String settingsKey, String uid, Entry entry)
+            throws DENOPTIMException
+    {
+        entry.key = settingsKey + SEP + uid;
+        byte[] bytes = (jsonConverter.toJson(entry) + (char) EOR).getBytes(
+                StandardCharsets.UTF_8);
+        synchronized (this)
+        {
+            try
+            {
+                long position = raf.length();
+                raf.seek(position);
+                raf.write(bytes);
+                index.put(entry.key, position);
+            } catch (IOException e)
+            {
+                throw new DENOPTIMException("Could not write fitness cache "
+                        + "file '" + file + "'.", e);
+            }
+        }
+        stored.incrementAndGet();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of successful lookups.
+     */
+    public long getHits()
+    {
+        return hits.get();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of unsuccessful lookups.
+     */
+    public long getMisses()
+    {
+        return misses.get();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of records in the cache.
+     */
+    public int size()
+    {
+        return index.size();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return a human readable summary of the use of this cache.
+     */
+    public String getStatistics()
+    {
+        long h = hits.get();
+        long tot = h + misses.get();
+        double rate = 0.0;
+        if (tot > 0)
+            rate = 100.0 * h / tot;
+        return "Fitness cache '" + file + "': " + h + " hits out of " + tot
+                + " lookups (" + String.format("%.1f", rate) + "%), "
+                + stored.get() + " new records, " + index.size()
+                + " records in total.";
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Releases the file.
+     */
+    public synchronized void close()
+    {
+        try
+        {
+            lock.release();
+            raf.close();
+        } catch (IOException e)
+        {
+            // nothing to do
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
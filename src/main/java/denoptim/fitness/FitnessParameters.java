@@ -18,13 +18,24 @@
 
 package denoptim.fitness;
 
+import java.io.File;
+import java.io.IOException;
 import java.lang.reflect.Field;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.logging.Level;
 
 import denoptim.exception.DENOPTIMException;
 import denoptim.files.FileUtils;
 import denoptim.programs.RunTimeParameters;
+import denoptim.task.ExternalFitnessWorkerPool;
+import denoptim.task.ExternalWaitExecutor;
+import denoptim.task.FitnessFarm;
 
 /**
  * Settings defining the calculation of fitness.
@@ -106,6 +117,90 @@ public class FitnessParameters extends RunTimeParameters
      */
     private boolean writeCandidatesOnDisk = true;
     
+    /**
+     * Number of persistent worker processes running the external fitness 
+     * provider. Zero means that a new process is launched for each candidate.
+     */
+    private int numFitnessWorkers = 0;
+    
+    /**
+     * Maximum time (seconds) a persistent worker is given to evaluate a 
+     * candidate. Non-positive values mean no time limit.
+     */
+    private int fitnessWorkerTimeout = 0;
+    
+    /**
+     * The pool of persistent workers, which is created when first needed.
+     */
+    private ExternalFitnessWorkerPool fitnessWorkerPool = null;
+    
+    /**
+     * Maximum number of evaluations that can be in execution at any time,
+     * including those waiting for the external fitness provider. 
+     * Zero means that evaluations are run by as many threads as CPUs.
+     */
+    private int maxExternalEvaluations = 0;
+    
+    /**
+     * Port where to listen for fitness farm workers. Negative values mean
+     * that no fitness farm is used.
+     */
+    private int farmPort = -1;
+    
+    /**
+     * Address of the local interface where to listen for fitness farm 
+     * workers. Empty means the loopback interface, and <code>*</code> means
+     * any interface.
+     */
+    private String farmBindAddress = "";
+    
+    /**
+     * Token that fitness farm workers must present to be accepted. Empty 
+     * means no token is required.
+     */
+    private String farmToken = "";
+    
+    /**
+     * Maximum time (seconds) a fitness farm worker is given to complete an
+     * evaluation before the worker is considered dead. Non-positive values 
+     * mean no time limit.
+     */
+    private int farmJobTimeout = 0;
+    
+    /**
+     * Maximum time (seconds) without any message from a fitness farm worker
+     * before the worker is considered dead.
+     */
+    private int farmHeartbeatTimeout = 60;
+    
+    /**
+     * Maximum number of times a fitness evaluation is re-assigned after the
+     * death of the fitness farm worker it was assigned to.
+     */
+    private int farmMaxRetries = 3;
+    
+    /**
+     * The fitness farm, which is created when first needed.
+     */
+    private FitnessFarm fitnessFarm = null;
+    
+    /**
+     * Pathname of the file collecting the results of fitness evaluations
+     * for reuse in this and future runs. Empty means no such file is used.
+     */
+    private String fitnessCacheFile = "";
+    
+    /**
+     * The persistent cache of fitness results, which is opened when first 
+     * needed.
+     */
+    private FitnessCache fitnessCache = null;
+    
+    /**
+     * The key identifying these fitness settings in the fitness cache.
+     */
+    private String fitnessCacheKey = null;
+    
     
 //------------------------------------------------------------------------------
 
@@ -246,6 +341,78 @@ public class FitnessParameters extends RunTimeParameters
                 checkPreFitnessUID = readYesNoTrueFalse(value);
                 checkPreFitnessUIDFromInput = true;
                 break;
+                
+            case "PERSISTENTWORKERS=":
+                try
+                {
+                    numFitnessWorkers = Integer.parseInt(value);
+                } catch (NumberFormatException e)
+                {
+                    msg = "Unable to understand value " + key + "'" + value 
+                            + "'";
+                    throw new DENOPTIMException(msg);
+                }
+                break;
+                
+            case "MAXEXTERNALEVALUATIONS=":
+                try
+                {
+                    maxExternalEvaluations = Integer.parseInt(value);
+                } catch (NumberFormatException e)
+                {
+                    msg = "Unable to understand value " + key + "'" + value 
+                            + "'";
+                    throw new DENOPTIMException(msg);
+                }
+                break;
+                
+            case "FARMBINDADDRESS=":
+                farmBindAddress = value.trim();
+                break;
+                
+            case "FARMTOKEN=":
+                farmToken = value.trim();
+                break;
+                
+            case "FARMPORT=":
+            case "FARMHEARTBEATTIMEOUT=":
+            case "FARMJOBTIMEOUT=":
+            case "FARMMAXRETRIES=":
+                int intValue = 0;
+                try
+                {
+                    intValue = Integer.parseInt(value);
+                } catch (NumberFormatException e)
+                {
+                    msg = "Unable to understand value " + key + "'" + value 
+                            + "'";
+                    throw new DENOPTIMException(msg);
+                }
+                if (key.equalsIgnoreCase("FARMPORT="))
+                    farmPort = intValue;
+                else if (key.equalsIgnoreCase("FARMHEARTBEATTIMEOUT="))
+                    farmHeartbeatTimeout = intValue;
+                else if (key.equalsIgnoreCase("FARMJOBTIMEOUT="))
+                    farmJobTimeout = intValue;
+                else
+                    farmMaxRetries = intValue;
+                break;
+                
+            case "CACHEFILE=":
+                fitnessCacheFile = value;
+                break;
+                
+            case "WORKERTIMEOUT=":
+                try
+                {
+                    fitnessWorkerTimeout = Integer.parseInt(value);
+                } catch (NumberFormatException e)
+                {
+                    msg = "Unable to understand value " + key + "'" + value 
+                            + "'";
+                    throw new DENOPTIMException(msg);
+                }
+                break;
     
             default:
                  msg = "Keyword " + key + " is not a known fitness-related "
@@ -265,6 +432,28 @@ public class FitnessParameters extends RunTimeParameters
             msg = "Cannot find the fitness provider: " + externalExe;
             throw new DENOPTIMException(msg);
         }
+        if (numFitnessWorkers < 0)
+        {
+            msg = "Number of persistent fitness workers cannot be negative.";
+            throw new DENOPTIMException(msg);
+        }
+        if (farmPort > 65535)
+        {
+            msg = "Port of the fitness farm must be lower than 65536.";
+            throw new DENOPTIMException(msg);
+        }
+        if (farmMaxRetries < 0)
+        {
+            msg = "Maximum number of retries in the fitness farm cannot be "
+                    + "negative.";
+            throw new DENOPTIMException(msg);
+        }
+        if (maxExternalEvaluations < 0)
+        {
+            msg = "Maximum number of external fitness evaluations cannot be "
+                    + "negative.";
+            throw new DENOPTIMException(msg);
+        }
         checkOtherParameters();
     }
 
@@ -300,8 +489,11 @@ public class FitnessParameters extends RunTimeParameters
         {
             try
             {
+                Object value = f.get(this);
+                if (f.getName().equals("farmToken") && !farmToken.isEmpty())
+                    value = "********";
                 sb.append(f.getName()).append(" = ").append(
-                            f.get(this)).append(NL);
+                            value).append(NL);
             }
             catch (Throwable t)
             {
@@ -328,6 +520,244 @@ public class FitnessParameters extends RunTimeParameters
         return writeCandidatesOnDisk;
     }
     
+//------------------------------------------------------------------------------
+
+    /**
+     * @return <code>true</code> if the external fitness provider is to be run
+     * by persistent worker processes rather than by launching a new process
+     * for each candidate.
+     */
+    public boolean usePersistentFitnessWorkers()
+    {
+        return numFitnessWorkers > 0;
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the pool of persistent workers running the external fitness
+     * provider. The pool is created the first time this method is called.
+     * @return the pool of workers.
+     */
+    public synchronized ExternalFitnessWorkerPool getFitnessWorkerPool()
+    {
+        if (fitnessWorkerPool == null)
+        {
+            fitnessWorkerPool = new ExternalFitnessWorkerPool(
+                    interpreterExternalExe, externalExe, numFitnessWorkers,
+                    fitnessWorkerTimeout * 1000L, getLogger());
+        }
+        return fitnessWorkerPool;
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * Stops the persistent workers running the external fitness provider, if 
+     * any pool of workers has been started.
+     */
+    public synchronized void closeFitnessWorkerPool()
+    {
+        if (fitnessWorkerPool != null)
+        {
+            fitnessWorkerPool.shutdown();
+            fitnessWorkerPool = null;
+        }
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * @return <code>true</code> if fitness evaluations are to be sent to
+     * the workers of a {@link FitnessFarm}.
+     */
+    public boolean useFitnessFarm()
+    {
+        return farmPort >= 0;
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * Makes these settings not use any fitness farm, for example, because 
+     * they are used by a worker of a fitness farm.
+     */
+    public void disableFitnessFarm()
+    {
+        farmPort = -1;
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the fitness farm, which starts listening for workers the first
+     * time this method is called. Only workers with the same fitness settings
+     * (see {@link #getFitnessCacheKey()}) as these are accepted, unless these
+     * settings do not define any fitness provider.
+     * @return the fitness farm.
+     * @throws DENOPTIMException if the farm cannot be started.
+     */
+    public synchronized FitnessFarm getFitnessFarm() throws DENOPTIMException
+    {
+        if (fitnessFarm == null)
+        {
+            String key = null;
+            if (!externalExe.isEmpty() || !fitnessExpression.isEmpty())
+                key = getFitnessCacheKey();
+            fitnessFarm = new FitnessFarm(farmBindAddress, farmPort, 
+                    farmHeartbeatTimeout * 1000L, farmJobTimeout * 1000L, 
+                    farmMaxRetries, key, farmToken, getLogger());
+        }
+        return fitnessFarm;
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * Stops the workers of the fitness farm, if any farm has been started.
+     */
+    public synchronized void closeFitnessFarm()
+    {
+        if (fitnessFarm != null)
+        {
+            fitnessFarm.shutdown();
+            fitnessFarm = null;
+        }
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * @return <code>true</code> if fitness evaluations are to be run by an
+     * {@link ExternalWaitExecutor}, i.e., with a limit on the number of
+     * evaluations waiting for the external fitness provider that is 
+     * independent from the number of CPUs.
+     */
+    public boolean useExternalWaitExecutor()
+    {
+        return (useExternalFitness || useFitnessFarm()) 
+                && maxExternalEvaluations > 0;
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the maximum number of evaluations that can be in execution at 
+     * any time, including those waiting for the external fitness provider.
+     */
+    public int getMaxExternalEvaluations()
+    {
+        return maxExternalEvaluations;
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * @return <code>true</code> if the results of fitness evaluations are to
+     * be collected in a persistent cache and reused.
+     */
+    public boolean useFitnessCache()
+    {
+        return !fitnessCacheFile.isEmpty();
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the persistent cache of fitness results. The cache file is 
+     * opened the first time this method is called.
+     * @return the cache or <code>null</code> if no cache is to be used.
+     * @throws DENOPTIMException if the cache file cannot be used.
+     */
+    public synchronized FitnessCache getFitnessCache() throws DENOPTIMException
+    {
+        if (fitnessCache == null && useFitnessCache())
+        {
+            fitnessCache = new FitnessCache(new File(fitnessCacheFile));
+        }
+        return fitnessCache;
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns a string that identifies the way fitness is calculated 
+     * according to these settings. For internal fitness provider, this 
+     * depends on the fitness expression and on the definition of the 
+     * variables. For external fitness providers, this depends on the 
+     * interpreter and on the content (not the pathname) of the source file.
+     * @return the key (a hexadecimal digest).
+     * @throws DENOPTIMException if the source of the external fitness 
+     * provider cannot be read.
+     */
+    public synchronized String getFitnessCacheKey() throws DENOPTIMException
+    {
+        if (fitnessCacheKey != null)
+            return fitnessCacheKey;
+        
+        StringBuilder sb = new StringBuilder();
+        if (useExternalFitness)
+        {
+            sb.append("EXTERNAL").append("\n");
+            sb.append(interpreterExternalExe).append("\n");
+            try
+            {
+                sb.append(digest(Files.readAllBytes(Paths.get(externalExe))));
+            } catch (IOException e)
+            {
+                throw new DENOPTIMException("Could not read fitness provider '" 
+                        + externalExe + "'.", e);
+            }
+        } else {
+            sb.append("INTERNAL").append("\n");
+            sb.append(fitnessExpression).append("\n");
+            for (String varDef : customVarDescExpressions)
+            {
+                sb.append(varDef).append("\n");
+            }
+        }
+        fitnessCacheKey = digest(sb.toString().getBytes(
+                StandardCharsets.UTF_8));
+        return fitnessCacheKey;
+    }
+    
+//------------------------------------------------------------------------------
+
+    private static String digest(byte[] bytes)
+    {
+        MessageDigest md;
+        try
+        {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e)
+        {
+            // Every Java platform is required to support SHA-256
+            throw new Error("SHA-256 not available", e);
+        }
+        StringBuilder sb = new StringBuilder();
+        for (byte b : md.digest(bytes))
+        {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * Reports on the use of the fitness cache and releases the cache file, 
+     * if any cache has been used.
+     */
+    public synchronized void closeFitnessCache()
+    {
+        if (fitnessCache != null)
+        {
+            getLogger().log(Level.INFO, fitnessCache.getStatistics() + NL);
+            fitnessCache.close();
+            fitnessCache = null;
+        }
+    }
+    
 //------------------------------------------------------------------------------
 
 }
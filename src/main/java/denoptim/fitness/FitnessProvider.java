@@ -19,6 +19,7 @@
 package denoptim.fitness;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -30,7 +31,6 @@ import org.openscience.cdk.exception.CDKException;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IBond;
-import org.openscience.cdk.isomorphism.Mappings;
 import org.openscience.cdk.qsar.DescriptorEngine;
 import org.openscience.cdk.qsar.DescriptorValue;
 import org.openscience.cdk.qsar.IAtomPairDescriptor;
@@ -234,7 +234,8 @@ public class FitnessProvider
         		}
         	}
         	
-        	Map<String, Mappings> allMatches = new HashMap<String, Mappings>();
+        	Map<String, List<int[]>> allMatches = 
+        	        new HashMap<String, List<int[]>>();
         	if (smarts.size() != 0)
         	{
 	        	ManySMARTSQuery msq = new ManySMARTSQuery(iac, smarts);
@@ -268,7 +269,7 @@ public class FitnessProvider
         	    for (Variable variable : descriptor.getVariables())
                 {
                     String varName = variable.getName();
-        			Mappings hits = allMatches.get(varName);
+        			List<int[]> hits = allMatches.get(varName);
         			if (hits==null)
         			{
         				String msg = "No hits for SMARTS of " + varName + ": "
@@ -278,8 +279,9 @@ public class FitnessProvider
         				continue;
         			}
         			logger.log(Level.FINE, "-AtomIDs contributing to " 
-        			        + varName + ":" + hits);
-        			if (hits.count() > 1)
+        			        + varName + ":" + hits.stream().map(
+        			                a -> Arrays.toString(a)).toList());
+        			if (hits.size() > 1)
         			{
         				String msg = "Multiple hits with SMARTS identifier for "
         						+ varName + ". Taking average of all values.";
@@ -317,7 +319,7 @@ public class FitnessProvider
         	    for (Variable variable : descriptor.getVariables())
                 {
                     String varName = variable.getName();
-        			Mappings hits = allMatches.get(varName);
+        			List<int[]> hits = allMatches.get(varName);
         			if (hits==null)
         			{
         				String msg = "No hits for SMARTS of " + varName + ": "
@@ -327,8 +329,9 @@ public class FitnessProvider
         				continue;
         			}
         			logger.log(Level.FINE, "-AtomIDs contributing to " 
-        			        + varName + ":" + hits);
-        			if (hits.count() > 1)
+        			        + varName + ":" + hits.stream().map(
+        			                a -> Arrays.toString(a)).toList());
+        			if (hits.size() > 1)
         			{
         				String msg = "Multiple hits with SMARTS identifier for "
         						+ varName + ". Taking average of all values.";
@@ -420,9 +420,8 @@ public class ConformerExtractorTask extends Task
             {
                 if (logger !=null)
                     logger.log(Level.WARNING, "Skipping fragment " + fragId 
-                        + " because no "
-                        + "isomorphism could be found with the first "
-                        + "fragment in the sample.");
+                        + " because it could not be aligned to the first "
+                        + "fragment in the sample: " + e.getMessage());
                 return false;
             }
             
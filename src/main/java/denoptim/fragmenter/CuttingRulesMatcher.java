@@ -0,0 +1,343 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.fragmenter;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.smarts.SmartsPattern;
+
+import denoptim.programs.fragmenter.CuttingRule;
+import denoptim.programs.fragmenter.MatchedBond;
+import denoptim.utils.ManySMARTSQuery;
+import denoptim.utils.MoleculeUtils;
+
+/**
+ * Finds the bonds matching any of a list of {@link CuttingRule}s in a single
+ * pass over the bonds of a molecule.
+ * <p>The rules are indexed by the SMARTS queries of the two atoms defining
+ * the central bond, so that each distinct atom query is evaluated at most
+ * once per molecule, even when shared by many rules, and only when needed.
+ * Then, the bonds of the molecule are enumerated once to find out which rules
+ * have at least one candidate bond, i.e., a bond between atoms matching the
+ * two atom queries of the rule (and, for rules that require the bond to
+ * be acyclic, a bond that is not in a ring).
+ * Only for such rules the complete SMARTS query is run to
+ * verify the matches. Therefore, the resulting list of {@link MatchedBond}s
+ * is the same as the one obtained by matching the complete SMARTS of each
+ * rule, but the number of complete substructure searches is limited to
+ * the rules that can possibly match.</p>
+ * <p>An instance can be reused for any number of molecules, also from
+ * multiple threads.</p>
+ *
+ * @author Marco Foscato
+ */
+
+public class CuttingRulesMatcher
+{
+    /**
+     * The priority-sorted list of rules.
+     */
+    private List<CuttingRule> rules;
+
+    /**
+     * The distinct SMARTS queries for single atoms. The index in this list
+     * is used to identify the atom query.
+     */
+    private List<String> atomQueries = new ArrayList<String>();
+
+    /**
+     * Index of the query matching atom 0 for each rule. Same order as
+     * {@link #rules}.
+     */
+    private int[] atm0QueryIds;
+
+    /**
+     * Index of the query matching atom 1 for each rule. Same order as
+     * {@link #rules}.
+     */
+    private int[] atm1QueryIds;
+
+    /**
+     * Flag defining whether the bond matched by each rule is required to
+     * be acyclic. Same order as {@link #rules}.
+     */
+    private boolean[] requiresAcyclicBond;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor that indexes the given rules.
+     * @param rules the priority-sorted list of cutting rules.
+     */
+    public CuttingRulesMatcher(List<CuttingRule> rules)
+    {
+        this.rules = rules;
+        atm0QueryIds = new int[rules.size()];
+        atm1QueryIds = new int[rules.size()];
+        requiresAcyclicBond = new boolean[rules.size()];
+
+        Map<String,Integer> queryIds = new HashMap<String,Integer>();
+        for (int iRule=0; iRule<rules.size(); iRule++)
+        {
+            CuttingRule rule = rules.get(iRule);
+            atm0QueryIds[iRule] = getQueryId(rule.getSMARTSAtom0(), queryIds);
+            atm1QueryIds[iRule] = getQueryId(rule.getSMARTSAtom1(), queryIds);
+            requiresAcyclicBond[iRule] = isAcyclicBondQuery(
+                    rule.getSMARTSBnd());
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the priority-sorted list of rules this matcher was built for.
+     */
+    public List<CuttingRule> getRules()
+    {
+        return rules;
+    }
+
+//------------------------------------------------------------------------------
+
+    private int getQueryId(String smarts, Map<String,Integer> queryIds)
+    {
+        Integer id = queryIds.get(smarts);
+        if (id == null)
+        {
+            id = atomQueries.size();
+            atomQueries.add(smarts);
+            queryIds.put(smarts, id);
+        }
+        return id;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Checks if a SMARTS query for a bond is a conjunction that includes
+     * the requirement of the bond being acyclic, i.e., <code>!@</code>
+     * applies to the entire bond query.
+     * We only detect the simple queries used by cutting rules, e.g.,
+     * <code>-!@</code> or <code>~!@</code>. Any other query returns
+     * <code>false</code>, which is always a safe answer as it implies
+     * that any bond must be considered.
+     * @param bondSmarts the query to analyze.
+     * @return <code>true</code> if the query matches only acyclic bonds.
+     */
+    static boolean isAcyclicBondQuery(String bondSmarts)
+    {
+        if (!bondSmarts.endsWith("!@"))
+            return false;
+        String orderPart = bondSmarts.substring(0, bondSmarts.length()-2);
+        return orderPart.matches("[-=#~:]?");
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Identification of the bonds matching the cutting rules.
+     * @param mol the chemical system to be analyzed.
+     * @param logger where to log messages, or <code>null</code>.
+     * @return the matched bonds collected per rule name. Rules that do not
+     * match any bond are not present in the map.
+     */
+    public Map<String, List<MatchedBond>> getMatchingBonds(IAtomContainer mol,
+            Logger logger)
+    {
+        Map<String, List<MatchedBond>> bondsMatchingRules =
+                new HashMap<String, List<MatchedBond>>();
+
+        // Get all the matches of the rules that can possibly match
+        Map<CuttingRule,int[][]> allMatches = 
+                new LinkedHashMap<CuttingRule,int[][]>();
+        String currentQuery = "";
+        try {
+            // WARNING: assumptions on implicit H count and bond orders!
+            MoleculeUtils.setZeroImplicitHydrogensToAllAtoms(mol);
+            MoleculeUtils.ensureNoUnsetBondOrdersSilent(mol);
+            SmartsPattern.prepare(mol);
+            
+            // Enumerate the bonds only once
+            int[] bondBegin = new int[mol.getBondCount()];
+            int[] bondEnd = new int[mol.getBondCount()];
+            boolean[] bondInRing = new boolean[mol.getBondCount()];
+            int iBnd = 0;
+            for (IBond bond : mol.bonds())
+            {
+                if (bond.getAtomCount() != 2)
+                {
+                    // Multi-center bonds: we cannot prefilter
+                    bondBegin = null;
+                    break;
+                }
+                bondBegin[iBnd] = mol.indexOf(bond.getBegin());
+                bondEnd[iBnd] = mol.indexOf(bond.getEnd());
+                bondInRing[iBnd] = bond.isInRing();
+                iBnd++;
+            }
+
+            // Lazily evaluated matches of each atom query
+            BitSet[] atomMatches = new BitSet[atomQueries.size()];
+            boolean[] evaluated = new boolean[atomQueries.size()];
+
+            for (int iRule=0; iRule<rules.size(); iRule++)
+            {
+                CuttingRule rule = rules.get(iRule);
+                currentQuery = rule.getName();
+
+                if (bondBegin != null)
+                {
+                    BitSet matches0 = getAtomMatches(atm0QueryIds[iRule], mol,
+                            atomMatches, evaluated);
+                    if (matches0 != null && matches0.isEmpty())
+                        continue;
+                    BitSet matches1 = getAtomMatches(atm1QueryIds[iRule], mol,
+                            atomMatches, evaluated);
+                    if (matches1 != null && matches1.isEmpty())
+                        continue;
+                    if (!hasCandidateBond(bondBegin, bondEnd, bondInRing, 
+                            matches0, matches1, requiresAcyclicBond[iRule]))
+                        continue;
+                }
+                
+                // Verify candidates by running the complete query
+                int[][] pairs = ManySMARTSQuery.getCompiledPattern(
+                        rule.getWholeSMARTSRule()).matchAll(mol).toArray();
+                if (pairs.length > 0)
+                    allMatches.put(rule, pairs);
+            }
+        } catch (Throwable t) {
+            if (logger!=null)
+            {
+                logger.log(Level.WARNING, "Problem matching SMARTS: "
+                        + "WARNING! For query " + currentQuery
+                        + " => Exception returned: " + t.getMessage());
+            }
+            return bondsMatchingRules;
+        }
+
+        for (Map.Entry<CuttingRule,int[][]> e : allMatches.entrySet())
+        {
+            CuttingRule rule = e.getKey();
+            String ruleName = rule.getName();
+            
+            // Evaluate subclass membership and eventually store target bonds
+            ArrayList<MatchedBond> bondsMatched = new ArrayList<MatchedBond>();
+            for (int[] pair : e.getValue())
+            {
+                if (pair.length!=2)
+                {
+                    throw new Error("Cutting rule: " + ruleName
+                            + " has identified " + pair.length + " atoms "
+                            + "instead of 2. Modify rule to make it find a "
+                            + "pair of atoms.");
+                }
+                MatchedBond tb = new MatchedBond(mol.getAtom(pair[0]),
+                        mol.getAtom(pair[1]), rule);
+
+                // Apply any further option of the cutting rule
+                if (tb.satisfiesRuleOptions(logger))
+                    bondsMatched.add(tb);
+            }
+
+            if (!bondsMatched.isEmpty())
+                bondsMatchingRules.put(ruleName, bondsMatched);
+        }
+        return bondsMatchingRules;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Gets the indexes of the atoms matching an atom query, and evaluates
+     * the query if not already done.
+     * @return the indexes of the atoms matching the query, or
+     * <code>null</code> if the query cannot be used to identify single atoms,
+     * which means that any atom should be considered a candidate.
+     */
+    private BitSet getAtomMatches(int queryId, IAtomContainer mol,
+            BitSet[] atomMatches, boolean[] evaluated)
+    {
+        if (evaluated[queryId])
+            return atomMatches[queryId];
+
+        BitSet matches = new BitSet(mol.getAtomCount());
+        int[][] hits = ManySMARTSQuery.getCompiledPattern(
+                atomQueries.get(queryId)).matchAll(mol).toArray();
+        for (int[] hit : hits)
+        {
+            if (hit.length != 1)
+            {
+                // Not a single-atom query: cannot be used as a prefilter.
+                matches = null;
+                break;
+            }
+            matches.set(hit[0]);
+        }
+        atomMatches[queryId] = matches;
+        evaluated[queryId] = true;
+        return matches;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Checks if any bond connects an atom matching the query for the first
+     * atom with an atom matching the query for the second atom.
+     * @param bondBegin index of the first atom of each bond.
+     * @param bondEnd index of the second atom of each bond.
+     * @param bondInRing flags defining whether each bond is in a ring.
+     * @param matches0 atoms matching the first atom query, or
+     * <code>null</code> meaning any atom.
+     * @param matches1 atoms matching the second atom query, or
+     * <code>null</code> meaning any atom.
+     * @param acyclicOnly if <code>true</code> bonds in rings are ignored.
+     */
+    private static boolean hasCandidateBond(int[] bondBegin, int[] bondEnd,
+            boolean[] bondInRing, BitSet matches0, BitSet matches1, 
+            boolean acyclicOnly)
+    {
+        for (int iBnd=0; iBnd<bondBegin.length; iBnd++)
+        {
+            if (acyclicOnly && bondInRing[iBnd])
+                continue;
+            int idA = bondBegin[iBnd];
+            int idB = bondEnd[iBnd];
+            if ((matches0 == null || matches0.get(idA))
+                    && (matches1 == null || matches1.get(idB)))
+                return true;
+            if ((matches0 == null || matches0.get(idB))
+                    && (matches1 == null || matches1.get(idA)))
+                return true;
+        }
+        return false;
+    }
+
+//------------------------------------------------------------------------------
+
+}
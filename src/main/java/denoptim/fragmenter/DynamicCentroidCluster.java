@@ -141,7 +141,7 @@ public class DynamicCentroidCluster
     public void removeAll(Collection<ClusterableFragment> points)
     {
         updateCentroid = true;
-        points.removeAll(points);
+        this.points.removeAll(points);
     }
     
 //------------------------------------------------------------------------------
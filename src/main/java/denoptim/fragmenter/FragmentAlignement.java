@@ -1,20 +1,43 @@
 package denoptim.fragmenter;
 
-import java.util.Iterator;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
 
 import javax.vecmath.Point3d;
 
-import org.biojava.nbio.structure.geometry.SuperPositionSVD;
+import org.jgrapht.Graph;
 import org.jgrapht.GraphMapping;
+import org.jgrapht.graph.DefaultGraphMapping;
 
 import denoptim.exception.DENOPTIMException;
 import denoptim.graph.FragIsomorphEdge;
 import denoptim.graph.FragIsomorphNode;
 import denoptim.graph.Fragment;
 import denoptim.graph.FragmentIsomorphismInspector;
+import denoptim.utils.SuperpositionUtils;
 
 /**
- * Class performing the alignment of {@link Fragment}s
+ * Class performing the alignment of {@link Fragment}s.
+ * <p>Among all the isomorphic mappings of the nodes (i.e., atoms and
+ * attachment points) of one fragment onto the nodes of the other, we search
+ * for the mapping leading to the lowest RMSD upon superposition. Instead of
+ * enumerating all mappings, which grow factorially for fragments with
+ * locally symmetric groups, the search builds mappings one node at a time
+ * and abandons any partial mapping that cannot lead to an RMSD lower than the
+ * best found so far. Nodes are mapped only to nodes of the same topological
+ * symmetry class, and the lower bound of the RMSD is accumulated from the
+ * distances of the mapped nodes from the geometric center of each
+ * fragment.</p>
+ * <p>The search for isomorphism and the search for the lowest RMSD share 
+ * the same time limit, and the latter can also be limited by a maximum 
+ * number of partial mappings. Alignments that exceed either limit are 
+ * abandoned.</p>
  * @author marcof
  *
  */
@@ -24,75 +47,485 @@ public class FragmentAlignement
      * Lowest RMSD upon alignment
      */
     private double minRMSD = Double.MAX_VALUE;
-    
+
     /**
      * Mapping of nodes leading to lowest RMSD upon alignment.
      */
     private GraphMapping<FragIsomorphNode, FragIsomorphEdge> bestMapping = null;
-    
+
+    /**
+     * Tolerance used when comparing the lower bound with the best RMSD.
+     */
+    private static final double TOLERANCE = 1.0e-10;
+
+    /**
+     * Graph representation of the first fragment.
+     */
+    private Graph<FragIsomorphNode, FragIsomorphEdge> graphA;
+
+    /**
+     * Graph representation of the second fragment.
+     */
+    private Graph<FragIsomorphNode, FragIsomorphEdge> graphB;
+
+    /**
+     * Nodes of the first fragment in the order they are mapped.
+     */
+    private FragIsomorphNode[] orderA;
+
+    /**
+     * Coordinates of the nodes of the first fragment in the order they are
+     * mapped.
+     */
+    private double[] coordsA;
+
+    /**
+     * Coordinates of the nodes of the second fragment in the order of their
+     * counterparts in {@link #orderA}. Filled as the mapping grows.
+     */
+    private double[] coordsB;
+
+    /**
+     * Distance of each node from the geometric center of its fragment.
+     */
+    private Map<FragIsomorphNode,Double> radii =
+            new IdentityHashMap<FragIsomorphNode,Double>();
+
+    /**
+     * Symmetry class of each node of either fragment.
+     */
+    private Map<FragIsomorphNode,Integer> symClass =
+            new IdentityHashMap<FragIsomorphNode,Integer>();
+
+    /**
+     * Nodes of the second fragment grouped by symmetry class.
+     */
+    private Map<Integer,List<FragIsomorphNode>> nodesBBySymClass =
+            new HashMap<Integer,List<FragIsomorphNode>>();
+
+    /**
+     * Current (partial) mapping from first to second fragment.
+     */
+    private Map<FragIsomorphNode,FragIsomorphNode> aToB =
+            new IdentityHashMap<FragIsomorphNode,FragIsomorphNode>();
+
+    /**
+     * Current (partial) mapping from second to first fragment.
+     */
+    private Map<FragIsomorphNode,FragIsomorphNode> bToA =
+            new IdentityHashMap<FragIsomorphNode,FragIsomorphNode>();
+
+    /**
+     * Best mapping found so far, from first to second fragment.
+     */
+    private Map<FragIsomorphNode,FragIsomorphNode> bestAToB = null;
+
+    /**
+     * Time (nanoseconds as given by {@link System#nanoTime()}) beyond which
+     * the search is abandoned.
+     */
+    private long deadline;
+
+    /**
+     * Maximum number of partial mappings explored by the search.
+     */
+    private long maxNodes;
+
+    /**
+     * Number of partial mappings explored so far.
+     */
+    private long numNodes = 0;
+
+    /**
+     * Default time limit (milliseconds) of the alignment.
+     */
+    public static final int DEFAULTTIMEOUT = 60000;
+
 //------------------------------------------------------------------------------
-    
+
     /**
-     * Constructor for an alignment of two fragments. 
+     * Constructor for an alignment of two fragments with the default time
+     * limit (see {@link #DEFAULTTIMEOUT}).
      * Note we first have to find an ordering of the atoms/AP that is consistent.
      * Thus we check for isomorphism between the fragments.
      * @param fragA
      * @param fragB
-     * @throws DENOPTIMException if an isomorphism is not found.
+     * @throws DENOPTIMException if an isomorphism is not found, or if the
+     * alignment exceeds the time limit.
+     */
+    public FragmentAlignement(Fragment fragA, Fragment fragB) throws DENOPTIMException
+    {
+        this(fragA, fragB, DEFAULTTIMEOUT, Long.MAX_VALUE);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor for an alignment of two fragments with custom limits.
+     * @param fragA
+     * @param fragB
+     * @param timeout maximum amount of time (milliseconds) given to the 
+     * search for isomorphism and, separately, to the search for the lowest
+     * RMSD.
+     * @param maxNodes maximum number of partial mappings explored by the 
+     * search for the lowest RMSD.
+     * @throws DENOPTIMException if an isomorphism is not found, or if the
+     * alignment exceeds any limit.
      */
-    public FragmentAlignement(Fragment fragA, Fragment fragB) throws DENOPTIMException 
+    public FragmentAlignement(Fragment fragA, Fragment fragB, int timeout,
+            long maxNodes) throws DENOPTIMException
     {
         // Map graph nodes (atom and APs)
-        FragmentIsomorphismInspector fii = 
-                new FragmentIsomorphismInspector(fragA, fragB);
+        FragmentIsomorphismInspector fii =
+                new FragmentIsomorphismInspector(fragA, fragB, timeout, false);
         if(!fii.isomorphismExists())
         {
             throw new DENOPTIMException("Failed to find isomorphism.");
         }
 
-        int nPoints = fragA.getJGraphFragIsomorphism().vertexSet().size();
-        
+        graphA = fragA.getJGraphFragIsomorphism();
+        graphB = fragB.getJGraphFragIsomorphism();
+        int nPoints = graphA.vertexSet().size();
+
+        assignSymmetryClasses();
+
+        computeRadii(graphA);
+        computeRadii(graphB);
+        for (FragIsomorphNode nB : graphB.vertexSet())
+        {
+            nodesBBySymClass.computeIfAbsent(symClass.get(nB),
+                    k -> new ArrayList<FragIsomorphNode>()).add(nB);
+        }
+
+        orderA = getSearchOrder();
+        coordsA = new double[nPoints*3];
+        coordsB = new double[nPoints*3];
+        for (int i=0; i<nPoints; i++)
+        {
+            Point3d p = orderA[i].getPoint3d();
+            coordsA[i*3] = p.x;
+            coordsA[i*3+1] = p.y;
+            coordsA[i*3+2] = p.z;
+        }
+
         // Get lowest RMSD among all mappings
-        Iterator<GraphMapping<FragIsomorphNode, FragIsomorphEdge>> 
-            mapingIterator = fii.getMappings();
-        if (mapingIterator == null)
-        {
-            throw new DENOPTIMException("Mapping of isomorphism timed-out!");
-        }
-        
-        while (mapingIterator.hasNext())
-        {
-            GraphMapping<FragIsomorphNode, FragIsomorphEdge> mapping = 
-                    mapingIterator.next();
-            
-            // Translate graph nodes/vertexes into points to align
-            Point3d[] ptsA = new Point3d[nPoints];
-            Point3d[] ptsB = new Point3d[nPoints];
-            int index = -1;
-            for (FragIsomorphNode nA : fragA.getJGraphFragIsomorphism().vertexSet())
-            {
-                index++;
-                FragIsomorphNode nB = mapping.getVertexCorrespondence(nA,
-                        true);
-                ptsA[index] = nA.getPoint3d();
-                ptsB[index] = nB.getPoint3d();
-            }
-            
-            // Align atoms
-            SuperPositionSVD svd = new SuperPositionSVD(false);
-            double rmsd = svd.getRmsd(ptsA,ptsB);
+        this.maxNodes = maxNodes;
+        deadline = System.nanoTime() + timeout * 1000000L;
+        extendMapping(0, 0.0);
+
+        if (bestAToB == null)
+        {
+            throw new DENOPTIMException("Failed to find isomorphism.");
+        }
+        Map<FragIsomorphNode,FragIsomorphNode> bestBToA =
+                new IdentityHashMap<FragIsomorphNode,FragIsomorphNode>();
+        for (Map.Entry<FragIsomorphNode,FragIsomorphNode> e :
+            bestAToB.entrySet())
+        {
+            bestBToA.put(e.getValue(), e.getKey());
+        }
+        bestMapping = new DefaultGraphMapping<FragIsomorphNode,FragIsomorphEdge>(
+                bestAToB, bestBToA, graphA, graphB);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Tries all compatible counterparts of the i-th node in
+     * {@link #orderA}. The optimal superposition brings the geometric
+     * centers of the two fragments onto each other, so the distance between
+     * two superposed nodes is never smaller than the difference of their
+     * distances from the respective center. The sum of the squares of such
+     * differences over the mapped nodes is, therefore, a lower bound of
+     * the sum of square deviations of any complete mapping.
+     * @param i the index of the node to map.
+     * @param lowerBound the lower bound of the sum of square deviations for
+     * the current partial mapping.
+     * @throws DENOPTIMException if the search exceeds the time limit or the
+     * maximum number of partial mappings.
+     */
+    private void extendMapping(int i, double lowerBound) 
+            throws DENOPTIMException
+    {
+        if (++numNodes > maxNodes)
+        {
+            throw new DENOPTIMException("Alignment of fragments abandoned "
+                    + "after exploring " + maxNodes + " partial mappings.");
+        }
+        if (System.nanoTime() - deadline > 0)
+        {
+            throw new DENOPTIMException("Alignment of fragments abandoned "
+                    + "because it exceeded the time limit.");
+        }
+        int n = orderA.length;
+        if (i == n)
+        {
+            double rmsd = SuperpositionUtils.rmsdUponSuperposition(coordsA,
+                    coordsB);
             if (rmsd < minRMSD)
             {
                 minRMSD = rmsd;
-                bestMapping = mapping;
+                bestAToB = new IdentityHashMap<FragIsomorphNode,
+                        FragIsomorphNode>(aToB);
             }
+            return;
         }
+
+        FragIsomorphNode nA = orderA[i];
+        double rA = radii.get(nA);
+        List<FragIsomorphNode> candidates = getCandidates(nA);
+        // Most promising first, so that we find a low RMSD early
+        candidates.sort((b1, b2) -> Double.compare(
+                Math.abs(rA - radii.get(b1)), Math.abs(rA - radii.get(b2))));
+        for (FragIsomorphNode nB : candidates)
+        {
+            double diff = rA - radii.get(nB);
+            double newBound = lowerBound + diff*diff;
+            if (minRMSD < Double.MAX_VALUE
+                    && newBound > n*minRMSD*minRMSD + TOLERANCE)
+            {
+                // Candidates are sorted, so no other can do better
+                break;
+            }
+            if (!isConsistent(nA, nB))
+                continue;
+
+            aToB.put(nA, nB);
+            bToA.put(nB, nA);
+            Point3d p = nB.getPoint3d();
+            coordsB[i*3] = p.x;
+            coordsB[i*3+1] = p.y;
+            coordsB[i*3+2] = p.z;
+
+            extendMapping(i+1, newBound);
+
+            aToB.remove(nA);
+            bToA.remove(nB);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Collects the unmapped nodes of the second fragment that have the same
+     * symmetry class of the given node and, if any neighbor of the given node
+     * is already mapped, are neighbors of the image of such neighbor.
+     */
+    private List<FragIsomorphNode> getCandidates(FragIsomorphNode nA)
+    {
+        List<FragIsomorphNode> candidates = new ArrayList<FragIsomorphNode>();
+        int cls = symClass.get(nA);
+        FragIsomorphNode mappedNbrImage = null;
+        for (FragIsomorphEdge e : graphA.edgesOf(nA))
+        {
+            FragIsomorphNode nbr = graphA.getEdgeSource(e) == nA ?
+                    graphA.getEdgeTarget(e) : graphA.getEdgeSource(e);
+            if (aToB.containsKey(nbr))
+            {
+                mappedNbrImage = aToB.get(nbr);
+                break;
+            }
+        }
+        if (mappedNbrImage != null)
+        {
+            for (FragIsomorphEdge e : graphB.edgesOf(mappedNbrImage))
+            {
+                FragIsomorphNode nbr = graphB.getEdgeSource(e) == mappedNbrImage
+                        ? graphB.getEdgeTarget(e) : graphB.getEdgeSource(e);
+                if (!bToA.containsKey(nbr) && symClass.get(nbr) == cls)
+                    candidates.add(nbr);
+            }
+        } else {
+            for (FragIsomorphNode nB : nodesBBySymClass.getOrDefault(cls,
+                    new ArrayList<FragIsomorphNode>()))
+            {
+                if (!bToA.containsKey(nB))
+                    candidates.add(nB);
+            }
+        }
+        return candidates;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Checks that mapping the given nodes onto each other preserves the
+     * edges (and their labels) towards the nodes that are already mapped.
+     */
+    private boolean isConsistent(FragIsomorphNode nA, FragIsomorphNode nB)
+    {
+        int mappedNbrsA = 0;
+        for (FragIsomorphEdge eA : graphA.edgesOf(nA))
+        {
+            FragIsomorphNode nbrA = graphA.getEdgeSource(eA) == nA ?
+                    graphA.getEdgeTarget(eA) : graphA.getEdgeSource(eA);
+            FragIsomorphNode nbrB = aToB.get(nbrA);
+            if (nbrB == null)
+                continue;
+            mappedNbrsA++;
+            FragIsomorphEdge eB = graphB.getEdge(nB, nbrB);
+            if (eB == null || !eA.getLabel().equals(eB.getLabel()))
+                return false;
+        }
+        int mappedNbrsB = 0;
+        for (FragIsomorphEdge eB : graphB.edgesOf(nB))
+        {
+            FragIsomorphNode nbrB = graphB.getEdgeSource(eB) == nB ?
+                    graphB.getEdgeTarget(eB) : graphB.getEdgeSource(eB);
+            if (bToA.containsKey(nbrB))
+                mappedNbrsB++;
+        }
+        return mappedNbrsA == mappedNbrsB;
     }
-    
+
 //------------------------------------------------------------------------------
 
     /**
-     * Returns the mapping leading to the lowest RMSD that could be found among 
+     * Defines the order in which nodes of the first fragment are mapped:
+     * breadth-first from the node belonging to the smallest symmetry class,
+     * so that each node, but the first of each connected component, has a
+     * neighbor that is already mapped.
+     */
+    private FragIsomorphNode[] getSearchOrder()
+    {
+        Map<Integer,Integer> classSize = new HashMap<Integer,Integer>();
+        for (FragIsomorphNode nA : graphA.vertexSet())
+            classSize.merge(symClass.get(nA), 1, Integer::sum);
+
+        List<FragIsomorphNode> seeds = new ArrayList<FragIsomorphNode>(
+                graphA.vertexSet());
+        seeds.sort((n1, n2) -> Integer.compare(
+                classSize.get(symClass.get(n1)),
+                classSize.get(symClass.get(n2))));
+
+        List<FragIsomorphNode> order = new ArrayList<FragIsomorphNode>();
+        Map<FragIsomorphNode,Boolean> visited =
+                new IdentityHashMap<FragIsomorphNode,Boolean>();
+        for (FragIsomorphNode seed : seeds)
+        {
+            if (visited.containsKey(seed))
+                continue;
+            Deque<FragIsomorphNode> queue = new ArrayDeque<FragIsomorphNode>();
+            queue.add(seed);
+            visited.put(seed, true);
+            while (!queue.isEmpty())
+            {
+                FragIsomorphNode n = queue.poll();
+                order.add(n);
+                for (FragIsomorphEdge e : graphA.edgesOf(n))
+                {
+                    FragIsomorphNode nbr = graphA.getEdgeSource(e) == n ?
+                            graphA.getEdgeTarget(e) : graphA.getEdgeSource(e);
+                    if (!visited.containsKey(nbr))
+                    {
+                        visited.put(nbr, true);
+                        queue.add(nbr);
+                    }
+                }
+            }
+        }
+        return order.toArray(new FragIsomorphNode[order.size()]);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Assigns topological symmetry classes to the nodes of both fragments by
+     * iterative refinement of the node labels with the labels of the
+     * neighbors and of the edges. Two nodes can be mapped onto each other
+     * only if they belong to the same class.
+     */
+    private void assignSymmetryClasses()
+    {
+        List<FragIsomorphNode> allNodes = new ArrayList<FragIsomorphNode>();
+        allNodes.addAll(graphA.vertexSet());
+        allNodes.addAll(graphB.vertexSet());
+
+        Map<FragIsomorphNode,String> labels =
+                new IdentityHashMap<FragIsomorphNode,String>();
+        for (FragIsomorphNode n : allNodes)
+            labels.put(n, n.getLabel());
+        int numClasses = indexLabels(allNodes, labels);
+
+        for (int iter=0; iter<allNodes.size(); iter++)
+        {
+            Map<FragIsomorphNode,String> newLabels =
+                    new IdentityHashMap<FragIsomorphNode,String>();
+            for (FragIsomorphNode n : allNodes)
+            {
+                Graph<FragIsomorphNode, FragIsomorphEdge> g =
+                        graphA.containsVertex(n) ? graphA : graphB;
+                List<String> nbrLabels = new ArrayList<String>();
+                for (FragIsomorphEdge e : g.edgesOf(n))
+                {
+                    FragIsomorphNode nbr = g.getEdgeSource(e) == n ?
+                            g.getEdgeTarget(e) : g.getEdgeSource(e);
+                    nbrLabels.add(e.getLabel() + "-" + symClass.get(nbr));
+                }
+                String[] sorted = nbrLabels.toArray(new String[0]);
+                Arrays.sort(sorted);
+                newLabels.put(n, symClass.get(n) + ":"
+                        + String.join(",", sorted));
+            }
+            int newNumClasses = indexLabels(allNodes, newLabels);
+            if (newNumClasses == numClasses)
+                break;
+            numClasses = newNumClasses;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Assigns an integer identifier to each distinct label and records it as
+     * the symmetry class of the nodes.
+     * @return the number of distinct labels.
+     */
+    private int indexLabels(List<FragIsomorphNode> nodes,
+            Map<FragIsomorphNode,String> labels)
+    {
+        Map<String,Integer> ids = new HashMap<String,Integer>();
+        for (FragIsomorphNode n : nodes)
+        {
+            Integer id = ids.get(labels.get(n));
+            if (id == null)
+            {
+                id = ids.size();
+                ids.put(labels.get(n), id);
+            }
+            symClass.put(n, id);
+        }
+        return ids.size();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Computes the distance of each node from the geometric center of the
+     * nodes in the given graph.
+     */
+    private void computeRadii(Graph<FragIsomorphNode, FragIsomorphEdge> g)
+    {
+        double cx = 0.0, cy = 0.0, cz = 0.0;
+        for (FragIsomorphNode n : g.vertexSet())
+        {
+            Point3d p = n.getPoint3d();
+            cx += p.x;
+            cy += p.y;
+            cz += p.z;
+        }
+        int n = g.vertexSet().size();
+        Point3d center = new Point3d(cx/n, cy/n, cz/n);
+        for (FragIsomorphNode node : g.vertexSet())
+        {
+            radii.put(node, node.getPoint3d().distance(center));
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the mapping leading to the lowest RMSD that could be found among
      * all isomorphic mappings.
      * @return
      */
@@ -100,7 +533,7 @@ public class FragmentAlignement
     {
         return bestMapping;
     }
-    
+
 //------------------------------------------------------------------------------
 
     /**
@@ -111,7 +544,7 @@ public class FragmentAlignement
     {
         return minRMSD;
     }
-    
+
 //------------------------------------------------------------------------------
 
 }
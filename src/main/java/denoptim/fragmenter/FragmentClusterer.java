@@ -3,24 +3,27 @@ package denoptim.fragmenter;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
 
 import javax.vecmath.Point3d;
 
 import org.apache.commons.math3.exception.DimensionMismatchException;
 import org.apache.commons.math3.ml.distance.DistanceMeasure;
 import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
-import org.biojava.nbio.structure.geometry.CalcPoint;
-import org.biojava.nbio.structure.geometry.SuperPositionSVD;
 
 import denoptim.exception.DENOPTIMException;
 import denoptim.graph.Fragment;
 import denoptim.programs.fragmenter.FragmenterParameters;
 import denoptim.utils.MathUtils;
 import denoptim.utils.Randomizer;
+import denoptim.utils.SuperpositionUtils;
 
 /**
  * <p>This tool clusters fragments based on geometry features. For each fragment 
@@ -41,6 +44,15 @@ import denoptim.utils.Randomizer;
  * <p>The factor x above, the size of the noise-distorted population, and the
  * max amount of noise are parameters that are defined via the 
  * {@link FragmenterParameters} object given to the constructor.</p>
+ * <p>Since the threshold depends only on the centroid, it is computed once 
+ * per centroid and re-used until the centroid changes. The comparison of one 
+ * cluster with all the others runs in parallel, and the superposition of 
+ * centroids is skipped whenever the difference between their radii of 
+ * gyration, which is a lower bound of the RMSD upon superposition, is 
+ * sufficient to exclude merging.</p>
+ * <p>All fragments are compared using the same mapping of points, i.e., we
+ * assume that one isomorphism is suitable to align all members of the 
+ * sample (see {@link FragmentAlignement}).</p>
  * 
  * @author Marco Foscato
  */
@@ -60,6 +72,12 @@ public class FragmentClusterer
     private List<DynamicCentroidCluster> clusters =
             new ArrayList<DynamicCentroidCluster>();
 
+    /**
+     * Data computed for the current centroid of each cluster.
+     */
+    private Map<DynamicCentroidCluster,CentroidData> centroidData = 
+            new IdentityHashMap<DynamicCentroidCluster,CentroidData>();
+    
     /**
      * Settings from the user
      */
@@ -202,14 +220,168 @@ public class FragmentClusterer
         
     }
     
+//------------------------------------------------------------------------------
+    
+    /**
+     * Data derived from the current centroid of a cluster. This data is 
+     * expensive to compute, so we keep it until the centroid changes.
+     */
+    private static class CentroidData
+    {
+        /**
+         * Copy of the coordinates of the centroid when this data was computed.
+         */
+        final double[] centroidCoords;
+        
+        /**
+         * Radius of gyration of the centroid.
+         */
+        final double radiusOfGyration;
+        
+        /**
+         * RMSD threshold for merging, or <code>NaN</code> if not yet computed.
+         */
+        double rmsdThreshold = Double.NaN;
+        
+        CentroidData(double[] centroidCoords)
+        {
+            this.centroidCoords = Arrays.copyOf(centroidCoords, 
+                    centroidCoords.length);
+            this.radiusOfGyration = SuperpositionUtils.radiusOfGyration(
+                    centroidCoords);
+        }
+    }
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * Gets the data related to the current centroid of a cluster, possibly 
+     * re-using what was computed for the same centroid before.
+     */
+    private CentroidData getCentroidData(DynamicCentroidCluster cluster)
+    {
+        double[] coords = cluster.getCentroid().getPoint();
+        CentroidData cd = centroidData.get(cluster);
+        if (cd == null || !Arrays.equals(cd.centroidCoords, coords))
+        {
+            cd = new CentroidData(coords);
+            centroidData.put(cluster, cd);
+        }
+        return cd;
+    }
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * Gets the RMSD threshold used to decide if a cluster should absorb 
+     * another one. The value depends only on the coordinates of the centroid,
+     * so it is computed only once for any given centroid.
+     */
+    private double getRMSDThreshold(CentroidData cd)
+    {
+        if (Double.isNaN(cd.rmsdThreshold))
+        {
+            SummaryStatistics refRMSDStats = getRMSDStatsOfNoisyDistorsions(
+                    cd.centroidCoords,
+                    settings.getSizeUnimodalPop(),
+                    settings.getMaxNoiseUnimodalPop());
+            cd.rmsdThreshold = refRMSDStats.getMean() 
+                    + settings.getFactorForSDOnStatsOfUnimodalPop() 
+                    * refRMSDStats.getStandardDeviation();
+        }
+        return cd.rmsdThreshold;
+    }
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * The outcome of the comparison of one cluster (J) with the cluster 
+     * that is absorbing other clusters or their members (I). 
+     */
+    private static class ComparisonOutcome
+    {
+        /**
+         * RMSD between the centroids, or <code>NaN</code> if not computed 
+         * because the lower bound was sufficient to exclude merging.
+         */
+        double rmsd = Double.NaN;
+        
+        /**
+         * <code>true</code> if the entire cluster J is to be merged into I.
+         */
+        boolean merge = false;
+        
+        /**
+         * The members of J to be moved into I.
+         */
+        List<ClusterableFragment> toMove = new ArrayList<ClusterableFragment>();
+        
+        /**
+         * The coordinates of the members to move after superposition onto 
+         * the centroid of I.
+         */
+        List<double[]> newCoords = new ArrayList<double[]>();
+    }
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * Compares cluster J with the centroid of cluster I. This method 
+     * does not change any cluster or cluster member, so comparisons with 
+     * different J clusters can run in parallel.
+     */
+    private ComparisonOutcome compare(CentroidData cdI, double rmsdThreshold,
+            DynamicCentroidCluster clusterJ, CentroidData cdJ)
+    {
+        ComparisonOutcome outcome = new ComparisonOutcome();
+        
+        // The RMSD upon superposition is never smaller than the difference 
+        // of the radii of gyration.
+        if (Math.abs(cdI.radiusOfGyration - cdJ.radiusOfGyration) 
+                < rmsdThreshold)
+        {
+            outcome.rmsd = SuperpositionUtils.rmsdUponSuperposition(
+                    cdI.centroidCoords, cdJ.centroidCoords);
+            outcome.merge = outcome.rmsd < rmsdThreshold;
+        }
+        
+        if (outcome.merge)
+        {
+            for (ClusterableFragment pointJ : clusterJ.getPoints())
+            {
+                outcome.toMove.add(pointJ);
+                outcome.newCoords.add(SuperpositionUtils.superpose(
+                        cdI.centroidCoords, pointJ.getPoint()));
+            }
+        } else {
+            // J looks like a cluster distinct from I. Try to move members that
+            // are closer to the centroid of I than to that of J. Both the 
+            // centroid of J and the member are aligned to the centroid of I.
+            double[] centroidJOnI = SuperpositionUtils.superpose(
+                    cdI.centroidCoords, cdJ.centroidCoords);
+            for (ClusterableFragment pointJ : clusterJ.getPoints())
+            {
+                double[] coords = SuperpositionUtils.superpose(
+                        cdI.centroidCoords, pointJ.getPoint());
+                double rmsdJ = SuperpositionUtils.rmsd(centroidJOnI, coords);
+                double rmsdI = SuperpositionUtils.rmsd(cdI.centroidCoords, 
+                        coords);
+                if (rmsdI < rmsdJ)
+                {
+                    outcome.toMove.add(pointJ);
+                    outcome.newCoords.add(coords);
+                }
+            }
+        }
+        return outcome;
+    }
+    
 //------------------------------------------------------------------------------
     
     private boolean mergeClusters()
     {
         boolean somethingMoved = false;
         
-        SuperPositionSVD svd = new SuperPositionSVD(false);
-        
         Set<DynamicCentroidCluster> toRemoveClusters = 
                 new HashSet<DynamicCentroidCluster>();
         for (int i=0; i<clusters.size(); i++)
@@ -224,93 +396,65 @@ public class FragmentClusterer
                 logger.log(Level.FINE,"Clustering around centroid "+i+"...");
             }
             
-            ClusterableFragment centroidI = 
-                    (ClusterableFragment) clusterI.getCentroid();
-            
             // Define a distance (RMSD upon superposition) for discriminating
             // this geometry from the others.
-            SummaryStatistics refRMSDStats = getRMSDStatsOfNoisyDistorsions(
-                    centroidI.getPoint(),
-                    settings.getSizeUnimodalPop(),
-                    settings.getMaxNoiseUnimodalPop());
-            double rmsdThreshold = refRMSDStats.getMean() 
-                    + settings.getFactorForSDOnStatsOfUnimodalPop() 
-                    * refRMSDStats.getStandardDeviation();
+            CentroidData cdI = getCentroidData(clusterI);
+            double rmsdThreshold = getRMSDThreshold(cdI);
             
+            // The centroid of I is not updated while comparing it with the 
+            // other clusters, and each J cluster is affected only by its
+            // comparison with I. Therefore, we can compare I with all the J
+            // clusters in parallel, and then apply the outcomes in order.
+            List<Integer> indexesJ = new ArrayList<Integer>();
+            List<CentroidData> cdJs = new ArrayList<CentroidData>();
             for (int j=i+1; j<clusters.size(); j++)
             {
-                DynamicCentroidCluster clusterJ = 
-                        clusters.get(j);
-                
-                if (toRemoveClusters.contains(clusterJ))
+                if (toRemoveClusters.contains(clusters.get(j)))
+                    continue;
+                indexesJ.add(j);
+                cdJs.add(getCentroidData(clusters.get(j)));
+            }
+            List<ComparisonOutcome> outcomes = IntStream.range(0, 
+                    indexesJ.size())
+                    .parallel()
+                    .mapToObj(k -> compare(cdI, rmsdThreshold, 
+                            clusters.get(indexesJ.get(k)), cdJs.get(k)))
+                    .collect(Collectors.toList());
+            
+            for (int k=0; k<indexesJ.size(); k++)
+            {
+                int j = indexesJ.get(k);
+                DynamicCentroidCluster clusterJ = clusters.get(j);
+                ComparisonOutcome outcome = outcomes.get(k);
+                if (outcome.toMove.size()==0)
                     continue;
                 
-                //TODO: consider re-aligning to test alternative mappings. This
-                // because the mapping is done once against the first item in 
-                // the sample, but to distinguish sample members N!=1 and M!=1
-                // a different mapping (i.e., a different isomorphism) might be
-                // preferable.
-                // Essentially, this means "get rid of the assumption that one 
-                // isomorphism is suitable to align all members of the sample.
-                
-                ClusterableFragment centroidJ = (ClusterableFragment) 
-                        clusterJ.getCentroid();
-                
-                Point3d[] ptsCentroidI = ClusterableFragment.convertToPointArray(
-                        centroidI.getPoint());
-                Point3d[] ptsCentroidJ = ClusterableFragment.convertToPointArray(
-                        centroidJ.getPoint());
-                svd.superposeAndTransform(ptsCentroidI, ptsCentroidJ);
-                double rmsd = CalcPoint.rmsd(ptsCentroidI, ptsCentroidJ);
-                if (rmsd < rmsdThreshold)
+                somethingMoved = true;
+                for (int m=0; m<outcome.toMove.size(); m++)
+                {
+                    ClusterableFragment pointJ = outcome.toMove.get(m);
+                    pointJ.setCoordsVector(outcome.newCoords.get(m));
+                    clusterI.addPoint(pointJ);
+                }
+                if (outcome.merge)
                 {
-                    somethingMoved = true;
                     toRemoveClusters.add(clusterJ);
                     if (logger!=null)
                     {
                         logger.log(Level.FINEST,"Merging cluster " + j + " into "
                                 + "cluster " + i + " (RMSD " 
-                                + String.format("%.4f", rmsd) + "<"
+                                + String.format("%.4f", outcome.rmsd) + "<"
                                 + String.format("%.4f", rmsdThreshold) + ").");
                     }
-                    for (ClusterableFragment pointJ : clusterJ.getPoints())
-                    {
-                        Point3d[] ptsPointJ = ClusterableFragment.convertToPointArray(
-                                pointJ.getPoint());
-                        svd.superposeAndTransform(ptsCentroidI, ptsPointJ);
-                        pointJ.setCoordsVector(ptsPointJ);
-                        clusterI.addPoint(pointJ);
-                    }
                 } else {
-                    // J looks like a cluster distinct from I. Try to move members
-                    Set<ClusterableFragment> toRemoveFromJ = 
-                            new HashSet<ClusterableFragment>();
-                    for (ClusterableFragment pointJ : clusterJ.getPoints())
+                    if (logger!=null)
                     {
-                        
-                        Point3d[] ptsPointJ = ClusterableFragment.convertToPointArray(
-                                pointJ.getPoint());
-                        svd.superposeAndTransform(ptsCentroidI, ptsPointJ);
-                        double rmsdJ = CalcPoint.rmsd(ptsCentroidJ, ptsPointJ);
-                        svd.superposeAndTransform(ptsCentroidI, ptsPointJ);
-                        double rmsdI = CalcPoint.rmsd(ptsCentroidI, ptsPointJ);
-                        if (rmsdI < rmsdJ)
-                        {
-                            somethingMoved = true;
-                            pointJ.setCoordsVector(ptsPointJ);
-                            clusterI.addPoint(pointJ);
-                            toRemoveFromJ.add(pointJ);
-                            if (logger!=null)
-                            {
-                                logger.log(Level.FINEST,"Moving one fragment "
-                                        + "from cluster " + j + " to "
-                                        + "cluster " + i + " (RMSD " 
-                                        + String.format("%.4f", rmsd) + ">="
-                                        + String.format("%.4f", rmsdThreshold) + ").");
-                            }
-                        }
+                        logger.log(Level.FINEST,"Moving " 
+                                + outcome.toMove.size() + " fragments "
+                                + "from cluster " + j + " to "
+                                + "cluster " + i + ".");
                     }
-                    clusterJ.removeAll(toRemoveFromJ);
+                    clusterJ.removeAll(outcome.toMove);
                     if (clusterJ.getPoints().size()==0)
                         toRemoveClusters.add(clusterJ);
                 }
@@ -318,6 +462,10 @@ public class FragmentClusterer
         }
         
         clusters.removeAll(toRemoveClusters);
+        for (DynamicCentroidCluster removed : toRemoveClusters)
+        {
+            centroidData.remove(removed);
+        }
         
         return somethingMoved;
     }
@@ -386,29 +534,17 @@ public class FragmentClusterer
         public double compute(double[] coordsA, double[] coordsB)
                 throws DimensionMismatchException
         {
-            Point3d[] ptsA = new Point3d[coordsA.length/3];
-            Point3d[] ptsB = new Point3d[coordsB.length/3];
-            for (int i=0; i<coordsA.length/3; i++)
-            {
-                int j = i*3;
-                ptsA[i] = new Point3d(coordsA[j],
-                        coordsA[j+1],
-                        coordsA[j+2]);
-                ptsB[i] = new Point3d(coordsB[j],
-                        coordsB[j+1],
-                        coordsB[j+2]);
-            }
-            SuperPositionSVD svd = new SuperPositionSVD(false);
-            double rmsd = svd.getRmsd(ptsA,ptsB);
-            return rmsd;
+            if (coordsA.length != coordsB.length)
+                throw new DimensionMismatchException(coordsB.length, 
+                        coordsA.length);
+            return SuperpositionUtils.rmsdUponSuperposition(coordsA, coordsB);
         }
         
         public double compute(Point3d[] ptsA, Point3d[] ptsB)
                 throws DimensionMismatchException
         {
-            SuperPositionSVD svd = new SuperPositionSVD(false);
-            double rmsd = svd.getRmsd(ptsA,ptsB);
-            return rmsd;
+            return compute(ClusterableFragment.convertToCoordsVector(ptsA),
+                    ClusterableFragment.convertToCoordsVector(ptsB));
         }
     }
   
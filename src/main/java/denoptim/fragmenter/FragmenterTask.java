@@ -18,14 +18,30 @@
 
 package denoptim.fragmenter;
 
+import java.io.BufferedWriter;
 import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
+import java.io.StringWriter;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
 import java.util.logging.FileHandler;
 import java.util.logging.Handler;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import java.util.logging.SimpleFormatter;
 
+import org.openscience.cdk.exception.CDKException;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.io.SDFWriter;
+
+import denoptim.exception.DENOPTIMException;
+import denoptim.graph.DGraph;
+import denoptim.graph.Fragment;
+import denoptim.graph.Vertex;
+import denoptim.graph.Vertex.BBType;
 import denoptim.io.DenoptimIO;
 import denoptim.programs.fragmenter.FragmenterParameters;
 import denoptim.task.Task;
@@ -36,30 +52,33 @@ import denoptim.utils.TaskUtils;
  * structured to be chopped, chops them, and post-process the resulting 
  * fragments. Each of the steps may or may not be part of the actual workflow,
  * depending on the configurations given upon construction of the task.
- * Note that preliminary adaptation of the molecular representations is
- * expected to be done before calling this task. So the systems to fragment
- * should have been already be processed by 
- * {@link FragmenterTools#prepareMolToFragmentation(org.openscience.cdk.interfaces.IAtomContainer, FragmenterParameters, int)}
- * before starting this task.
+ * The task takes chunks of structures from a queue that is shared with other 
+ * tasks, so that the workload is distributed dynamically among tasks, and 
+ * processes one structure at a time: each structure is first prepared (see
+ * {@link FragmenterTools#prepareMolToFragmentation(IAtomContainer, FragmenterParameters, int)}),
+ * and then goes through the steps of the workflow. The results obtained from 
+ * each chunk are converted to text by the task itself, and then appended in 
+ * one go to the file collecting the results of all tasks (see 
+ * {@link ResultsCollector}), so that tasks wait for each other only for the 
+ * time needed to write text that is ready to be written.
  */
 
 public class FragmenterTask extends Task
 {   
     /**
-     * File containing the input for this task (i.e., a structure file)
+     * Source of the chunks of structures to work with.
      */
-    private File inputFile;
+    private BlockingQueue<StructuresChunk> inputQueue;
     
     /**
-     * File containing the latest results, though not the final results. For
-     * instance, the results of an intermediate step in the task.
+     * Collector of the results of all tasks.
      */
-    private File preliminaryResults;
+    private ResultsCollector output;
     
     /**
-     * The data structure holding the results of this task.
+     * Number of structures processed by this task.
      */
-    protected String results = null;
+    protected int numProcessed = 0;
    
     /**
      * Settings for the calculation of the fitness
@@ -75,25 +94,137 @@ public class FragmenterTask extends Task
      * Pathname to thread-specific log.
      */
     private String logFilePathname = "unset";
-
+    
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * A chunk of structures to be processed by a single task.
+     */
+    static class StructuresChunk
+    {
+        /**
+         * Index of the first structure of this chunk in the input.
+         */
+        final int firstIndex;
+        
+        /**
+         * The structures.
+         */
+        final List<IAtomContainer> mols;
+        
+        StructuresChunk(int firstIndex, List<IAtomContainer> mols)
+        {
+            this.firstIndex = firstIndex;
+            this.mols = mols;
+        }
+    }
+    
+    /**
+     * Marker of the end of the input. One such marker is meant to be given to
+     * each task.
+     */
+    static final StructuresChunk ENDOFINPUT = new StructuresChunk(-1, 
+            new ArrayList<IAtomContainer>());
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * Collects the results of all tasks into a single file. The file is 
+     * created upon writing the first results, and is kept open until 
+     * {@link #close()} is called.
+     */
+    static class ResultsCollector
+    {
+        /**
+         * The file collecting the results.
+         */
+        private final File file;
+        
+        /**
+         * Writer of the file. Opened upon writing the first results.
+         */
+        private BufferedWriter writer = null;
+        
+        /**
+         * Number of entries written in the file.
+         */
+        private int numResults = 0;
+        
+        ResultsCollector(File file)
+        {
+            this.file = file;
+        }
+        
+        /**
+         * Appends text that is already formatted as the content of the file.
+         * @param text the text to append.
+         * @param num the number of entries in the text.
+         * @throws IOException if the file cannot be written.
+         */
+        synchronized void append(String text, int num) throws IOException
+        {
+            if (writer == null)
+            {
+                writer = new BufferedWriter(new FileWriter(file));
+            }
+            writer.write(text);
+            numResults += num;
+        }
+        
+        /**
+         * @return the file collecting the results. The file exists only if 
+         * any result has been collected, see {@link #getNumResults()}.
+         */
+        File getFile()
+        {
+            return file;
+        }
+        
+        /**
+         * @return the number of entries written in the file.
+         */
+        synchronized int getNumResults()
+        {
+            return numResults;
+        }
+        
+        /**
+         * Closes the file, if it was ever opened.
+         * @throws IOException if the file cannot be closed.
+         */
+        synchronized void close() throws IOException
+        {
+            if (writer != null)
+            {
+                writer.close();
+                writer = null;
+            }
+        }
+    }
+    
 //------------------------------------------------------------------------------
     
     /**
-     * Create a task by giving the input file (i.e., containing structures to 
-     * work with) and the configuration of the task. Note  we start a 
+     * Create a task by giving the source of structures to work with, 
+     * and the configuration of the task. 
+     * Note  we start a 
      * task-specific logger that prints to a task-specific file.
-     * @param inputFile the source of structures to work with.
+     * @param inputQueue the source of structures to work with.
+     * @param output the collector of the results of all tasks.
      * @param settings the configuration of the task.
      * @param id identifier of the thread running this task.
      * @throws SecurityException
      * @throws IOException
      */
-    public FragmenterTask(File inputFile, FragmenterParameters settings,
-            int id) throws SecurityException, IOException
+    public FragmenterTask(BlockingQueue<StructuresChunk> inputQueue, 
+            ResultsCollector output, FragmenterParameters settings, int id) 
+                    throws SecurityException, IOException
     {
     	super(TaskUtils.getUniqueTaskIndex());
     	this.id = id;
-    	this.inputFile = inputFile;
+    	this.inputQueue = inputQueue;
+    	this.output = output;
     	this.settings = settings;
     	this.logger = Logger.getLogger("FragmenterTask-"+id);
     	
@@ -115,21 +246,6 @@ public class FragmenterTask extends Task
         logger.log(Level.INFO,header);
     }
     
-//------------------------------------------------------------------------------
-
-    /**
-     * Builds the pathname of the structure file meant to be the input for this
-     * task.
-     * @param settings settings we work with.
-     * @param i the index of the thread
-     * @return the pathname
-     */
-    static String getInputFileName(FragmenterParameters settings, int i)
-    {
-        return settings.getWorkDirectory() + DenoptimIO.FS 
-                + "structuresBatch-" + i + ".sdf";
-    }
-    
 //------------------------------------------------------------------------------
     
     /**
@@ -139,63 +255,7 @@ public class FragmenterTask extends Task
     {
         return logFilePathname;
     }
-    
-//------------------------------------------------------------------------------
-    
-    /**
-     * @return the pathname to the file collecting results
-     */
-    public String getResultFile()
-    {
-        return results;
-    }
-    
-//------------------------------------------------------------------------------
-
-    /**
-     * Builds the pathname of the structure file meant to hold structures
-     * that survive the comparison of structure's elemental analysis against the
-     * declared molecular formula.
-     * @param settings settings we work with.
-     * @param i the index of the thread
-     * @return the pathname
-     */
-    static String getConfirmedFormulaFileName(FragmenterParameters settings, int i)
-    {
-        return settings.getWorkDirectory() + DenoptimIO.FS 
-                + "structuresNoMissingAtoms-" + i + ".sdf";
-    }
-    
-//------------------------------------------------------------------------------
-
-    /**
-     * Builds the pathname of the structure file meant to hold structures
-     * that survive the pre-filtering step, if any.
-     * @param settings settings we work with.
-     * @param i the index of the thread
-     * @return the pathname
-     */
-    static String getPreFilteredFileName(FragmenterParameters settings, int i)
-    {
-        return settings.getWorkDirectory() + DenoptimIO.FS 
-                + "structuresPreFiltered-" + i + ".sdf";
-    }
-    
-//------------------------------------------------------------------------------
 
-    /**
-     * Builds the pathname of the structure file meant to hold fragments 
-     * resulting from this task.
-     * @param settings settings we work with.
-     * @param i the index of the thread
-     * @return the pathname
-     */
-    static String getFragmentsFileName(FragmenterParameters settings, int i)
-    {
-        return settings.getWorkDirectory() + DenoptimIO.FS 
-                + "Fragments-" + i + ".sdf";
-    }
-    
 //------------------------------------------------------------------------------
 
     /**
@@ -224,6 +284,40 @@ public class FragmenterTask extends Task
                 + "Results.sdf";
     }
     
+//------------------------------------------------------------------------------
+
+    /**
+     * Appends structures to the file collecting the results of all tasks.
+     * The structures are converted to text before acquiring the lock on the 
+     * shared file.
+     * @param mols the structures to write.
+     * @throws DENOPTIMException if the file cannot be written.
+     */
+    private void appendResults(List<IAtomContainer> mols) 
+            throws DENOPTIMException
+    {
+        StringWriter text = new StringWriter();
+        try (SDFWriter sdfWriter = new SDFWriter(text))
+        {
+            for (IAtomContainer mol : mols)
+            {
+                sdfWriter.write(mol);
+            }
+        } catch (CDKException | IOException e)
+        {
+            throw new DENOPTIMException("Could not convert results to SDF "
+                    + "format.", e);
+        }
+        try
+        {
+            output.append(text.toString(), mols.size());
+        } catch (IOException e)
+        {
+            throw new DENOPTIMException("Could not write results to '" 
+                    + output.getFile() + "'.", e);
+        }
+    }
+
 //------------------------------------------------------------------------------
 
     /**
@@ -242,89 +336,126 @@ public class FragmenterTask extends Task
     
     /**
      * Performs the whatever work has to be done by this task.
+     * @return the number of structures processed by this task.
      */
  
     @Override
     public Object call() throws Exception
     {
-        // Preliminary check for missing atoms by elemental analysis
-        if (settings.doCheckFormula())
-        {
-            logger.log(Level.INFO,"Starting elemental analysis");
-            File newResultsFile = new File(getConfirmedFormulaFileName(settings,
-                    id));
-            FragmenterTools.checkElementalAnalysisAgainstFormula(inputFile,
-                    newResultsFile, logger);
-            preliminaryResults = newResultsFile;
-        } else {
-            preliminaryResults = inputFile;
-        }
-
-        // Pre-fragmentation filter
+        Map<String, String> smartsMap = null;
         if (settings.doPreFilter())
         {
-            logger.log(Level.INFO,"Pre-filtering structures");
-            File newResultsFile = new File(getPreFilteredFileName(settings, id));
-            FragmenterTools.filterStrucutresBySMARTS(inputFile, 
-                    settings.getPreFiltrationSMARTS(), newResultsFile, logger);
-            preliminaryResults = newResultsFile;
+            smartsMap = FragmenterTools.getPreFiltrationSMARTSMap(
+                    settings.getPreFiltrationSMARTS());
         }
-
-        // Fragmentation of structures
-        if (settings.doFragmentation())
+        
+        int totalProd = 0;
+        int totalKept = 0;
+        try
         {
-            logger.log(Level.INFO,"Fragmentation of structures");
-            File newResultsFile = new File(getFragmentsFileName(settings, id));
-            boolean producedSomething = FragmenterTools.fragmentation(inputFile, 
-                    settings, newResultsFile,logger);
-            if (!producedSomething)
+            while (true)
             {
-                completed = true;
-                return null;
+                StructuresChunk chunk = inputQueue.take();
+                if (chunk == ENDOFINPUT)
+                    break;
+                
+                List<Vertex> keptFragments = new ArrayList<Vertex>();
+                List<IAtomContainer> keptMols = new ArrayList<IAtomContainer>();
+                for (int j=0; j<chunk.mols.size(); j++)
+                {
+                    int index = chunk.firstIndex + j;
+                    IAtomContainer mol = chunk.mols.get(j);
+                    numProcessed++;
+                    logger.log(Level.FINE,"Processing structure " + index);
+                    
+                    // Adjust molecular representation to our settings
+                    if (!FragmenterTools.prepareMolToFragmentation(mol, 
+                            settings, index))
+                        continue;
+                    
+                    // Preliminary check for missing atoms by elemental analysis
+                    if (settings.doCheckFormula() 
+                            && !FragmenterTools.checkElementalAnalysisAgainstFormula(
+                                    mol, index, logger))
+                        continue;
+                    
+                    // Pre-fragmentation filter
+                    if (settings.doPreFilter() 
+                            && FragmenterTools.matchesAnySMARTS(mol, 
+                                    smartsMap, index, logger))
+                        continue;
+                    
+                    if (settings.doFragmentation())
+                    {
+                        totalProd += FragmenterTools.fragmentation(mol, index,
+                                settings, keptFragments, logger);
+                    } else if (settings.doFragExtractionFromGraphs()) {
+                        DGraph graph = DenoptimIO.readGraphFromSDFileIAC(mol,
+                                index);
+                        totalProd += graph.getVertexCount();
+                        FragmenterTools.fragmentationFromGraph(graph, settings,
+                                keptFragments, logger);
+                    } else if (settings.doFiltering()) {
+                        totalProd++;
+                        FragmenterTools.manageFragmentCollection(
+                                new Fragment(mol, BBType.UNDEFINED), index, 
+                                settings, keptFragments, logger);
+                    } else {
+                        keptMols.add(mol);
+                    }
+                }
+                
+                totalKept += keptFragments.size();
+                // With management of isomorphic families, the fragments are
+                // collected in the files of the MW slots.
+                if (!settings.doManageIsomorphicFamilies())
+                {
+                    for (Vertex v : keptFragments)
+                    {
+                        keptMols.add(v.getIAtomContainer());
+                    }
+                }
+                if (keptMols.size()>0)
+                {
+                    appendResults(keptMols);
+                }
             }
-            preliminaryResults = newResultsFile;
-        } else if (settings.doFragExtractionFromGraphs()) {
-            logger.log(Level.INFO,"Extraction of fragments from graphs");
-            File newResultsFile = new File(getFragmentsFileName(settings, id));
-            boolean producedSomething = FragmenterTools.fragmentationFromGraphs(inputFile, 
-                    settings, newResultsFile, logger);
-            if (!producedSomething)
+            
+            if (settings.doFragmentation() 
+                    || settings.doFragExtractionFromGraphs())
             {
-                completed = true;
-                return null;
+                if (totalProd==0)
+                {
+                    logger.log(Level.WARNING,"No fragment produced. Cutting "
+                            + "rules were ineffective on the given "
+                            + "structures.");
+                } else if (totalKept==0) {
+                    logger.log(Level.WARNING,"No fragment kept out of " 
+                            + totalProd + " produced fragments. Filtering "
+                            + "criteria might be too restrictive.");
+                }
             }
-            preliminaryResults = newResultsFile;
-        }
-        
-        if (!settings.doFragmentation() && !settings.doFragExtractionFromGraphs() && settings.doFiltering())
-        {
-            logger.log(Level.INFO,"Filtering fragments");
-            File newResultsFile = new File(getFragmentsFileName(settings, id));
-            FragmenterTools.manageFragmentCollection(inputFile, settings, 
-                    newResultsFile, logger);
-            preliminaryResults = newResultsFile;
-        }
-        
-        // Final message
-        results = preliminaryResults.getAbsolutePath();
-        if (settings.getNumTasks()>1)
-        {
-            logger.log(Level.INFO,"Fragmenter task " + id + " completed.");
-        } else {
-            logger.log(Level.INFO,"Results available in "+results);
-        }
-        
-        // We stop the logger's file handler to remove the lock file.
-        for (Handler h : logger.getHandlers()) 
-        {
-            if (h instanceof FileHandler) {
-                logger.removeHandler(h);
-                h.close();
+            
+            // Final message
+            logger.log(Level.INFO,"Fragmenter task " + id + " completed ("
+                    + numProcessed + " structures processed).");
+        } catch (Throwable t) {
+            hasException = true;
+            thrownExc = t;
+            throw t;
+        } finally {
+            // We stop the logger's file handler to remove the lock file.
+            for (Handler h : logger.getHandlers()) 
+            {
+                if (h instanceof FileHandler) {
+                    logger.removeHandler(h);
+                    h.close();
+                }
             }
         }
         
         completed = true;
-        return results;
+        return numProcessed;
     }
 
 //------------------------------------------------------------------------------
@@ -27,7 +27,6 @@ import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IBond;
 import org.openscience.cdk.interfaces.IIsotope;
 import org.openscience.cdk.io.iterator.IteratingSDFReader;
-import org.openscience.cdk.isomorphism.Mappings;
 import org.openscience.cdk.isomorphism.Pattern;
 import org.openscience.cdk.silent.SilentChemObjectBuilder;
 import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
@@ -107,21 +106,9 @@ public class FragmenterTools
                             + input + ". Cannot compare formula with elemental"
                             + "analysis.");
                 }
-                String formula = mol.getProperty(DENOPTIMConstants.FORMULASTR)
-                        .toString();
-                
-                if (FormulaUtils.compareFormulaAndElementalAnalysis(formula, 
-                        mol, logger))
+                if (checkElementalAnalysisAgainstFormula(mol, index, logger))
                 {
                     buffer.add(mol);
-                } else {
-                    if (logger!=null)
-                    {
-                        logger.log(Level.INFO,"Inconsistency between elemental "
-                                + "analysis of structure and molecular formula."
-                                + " Rejecting structure " + index + ": " 
-                                + mol.getTitle());
-                    }
                 }
                 
                 // If max buffer size is reached, then bump to file
@@ -143,6 +130,46 @@ public class FragmenterTools
         }
     }
     
+//------------------------------------------------------------------------------
+    
+    /**
+     * Compares the composition of the chemical representation with the
+     * molecular formula declared in the {@link DENOPTIMConstants#FORMULASTR}
+     * property.
+     * @param mol the structure to analyze.
+     * @param index identifies the structure in a collection of structures. 
+     * This is used only for logging.
+     * @param logger a task-dedicated logger where we print messages for the 
+     * user.
+     * @return <code>true</code> if the declared formula matches the 
+     * composition of the chemical representation.
+     */
+    public static boolean checkElementalAnalysisAgainstFormula(
+            IAtomContainer mol, int index, Logger logger)
+    {
+        if (mol.getProperty(DENOPTIMConstants.FORMULASTR)==null)
+        {
+            throw new Error("Property '" + DENOPTIMConstants.FORMULASTR 
+                    + "' not found in molecule " + index + ". Cannot compare "
+                    + "formula with elemental analysis.");
+        }
+        String formula = mol.getProperty(DENOPTIMConstants.FORMULASTR)
+                .toString();
+        if (FormulaUtils.compareFormulaAndElementalAnalysis(formula, 
+                mol, logger))
+        {
+            return true;
+        }
+        if (logger!=null)
+        {
+            logger.log(Level.INFO,"Inconsistency between elemental "
+                    + "analysis of structure and molecular formula."
+                    + " Rejecting structure " + index + ": " 
+                    + mol.getTitle());
+        }
+        return false;
+    }
+    
 //------------------------------------------------------------------------------
     
 
@@ -238,13 +265,7 @@ public class FragmenterTools
         IteratingSDFReader reader = new IteratingSDFReader(fis, 
                 DefaultChemObjectBuilder.getInstance());
 
-        int i = -1;
-        Map<String, String> smartsMap = new HashMap<String, String>();
-        for (String s : smarts)
-        {
-            i++;
-            smartsMap.put("prefilter-"+i, s);
-        }
+        Map<String, String> smartsMap = getPreFiltrationSMARTSMap(smarts);
         
         int index = -1;
         int maxBufferSize = 2000;
@@ -258,30 +279,9 @@ public class FragmenterTools
                     logger.log(Level.FINE,"Prefiltering structure " + index);
                 }
                 IAtomContainer mol = reader.next();
-                
-                ManySMARTSQuery msq = new ManySMARTSQuery(mol, smartsMap);
-                if (msq.hasProblems())
-                {
-                    String msg = "WARNING! Problems while searching for "
-                            + "specific atoms/bonds using SMARTS: " 
-                            + msq.getMessage();
-                    throw new DENOPTIMException(msg,msq.getProblem());
-                }
-                Map<String, Mappings> allMatches = msq.getAllMatches();
-                
-                if (allMatches.size()==0)
+                if (!matchesAnySMARTS(mol, smartsMap, index, logger))
                 {
                     buffer.add(mol);
-                } else {
-                    String hits = "";
-                    for (String s : allMatches.keySet())
-                        hits = hits + DenoptimIO.NL + smartsMap.get(s);
-                    if (logger!=null)
-                    {
-                        logger.log(Level.INFO,"Found match for " + hits
-                                + "Rejecting structure " + index + ": " 
-                                + mol.getTitle());
-                    }
                 }
                 
                 // If max buffer size is reached, then bump to file
@@ -302,6 +302,71 @@ public class FragmenterTools
         }
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Assigns an identifier to each of the SMARTS queries used to pre-filter
+     * structures.
+     * @param smarts the queries leading to rejection.
+     * @return the map of the queries by identifier.
+     */
+    public static Map<String, String> getPreFiltrationSMARTSMap(
+            Set<String> smarts)
+    {
+        int i = -1;
+        Map<String, String> smartsMap = new HashMap<String, String>();
+        for (String s : smarts)
+        {
+            i++;
+            smartsMap.put("prefilter-"+i, s);
+        }
+        return smartsMap;
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * Checks if a structure matches any of the given SMARTS queries, and
+     * should therefore be rejected.
+     * @param mol the structure to analyze.
+     * @param smartsMap the queries leading to rejection, as produced by
+     * {@link #getPreFiltrationSMARTSMap(Set)}.
+     * @param index identifies the structure in a collection of structures. 
+     * This is used only for logging.
+     * @param logger a task-dedicated logger where we print messages for the 
+     * user.
+     * @return <code>true</code> if any query matches the structure.
+     * @throws DENOPTIMException if the queries cannot be used.
+     */
+    public static boolean matchesAnySMARTS(IAtomContainer mol, 
+            Map<String, String> smartsMap, int index, Logger logger) 
+                    throws DENOPTIMException
+    {
+        ManySMARTSQuery msq = new ManySMARTSQuery(mol, smartsMap);
+        if (msq.hasProblems())
+        {
+            String msg = "WARNING! Problems while searching for "
+                    + "specific atoms/bonds using SMARTS: " 
+                    + msq.getMessage();
+            throw new DENOPTIMException(msg,msq.getProblem());
+        }
+        Map<String, List<int[]>> allMatches = msq.getAllMatches();
+        if (allMatches.size()==0)
+        {
+            return false;
+        }
+        String hits = "";
+        for (String s : allMatches.keySet())
+            hits = hits + DenoptimIO.NL + smartsMap.get(s);
+        if (logger!=null)
+        {
+            logger.log(Level.INFO,"Found match for " + hits
+                    + "Rejecting structure " + index + ": " 
+                    + mol.getTitle());
+        }
+        return true;
+    }
+
 //------------------------------------------------------------------------------
 
     /**
@@ -326,24 +391,8 @@ public class FragmenterTools
         int totalProd = 0;
         for (DGraph graph : DenoptimIO.readDENOPTIMGraphsFromFile(input))
         {
-            List<Vertex> fragments = graph.getVertexList();
-
-            // Post-fragmentation processing of fragments
             List<Vertex> keptFragments = new ArrayList<Vertex>();
-            int fragCounter = 0;
-            for (Vertex frag : fragments)
-            {
-                // Add metadata
-                fragCounter++;
-                manageFragmentCollection(frag, fragCounter, settings,
-                        keptFragments, logger);
-            }
-            if (logger!=null)
-            {
-                logger.log(Level.FINE,"Fragments surviving post-"
-                        + "processing: " + keptFragments.size());
-            }
-
+            fragmentationFromGraph(graph, settings, keptFragments, logger);
             if (keptFragments.size()>0)
             {
                 totalProd += keptFragments.size();
@@ -354,6 +403,44 @@ public class FragmenterTools
         return totalProd>0;
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Extracts the fragments of a single graph, i.e., its vertexes, and 
+     * submits them to the management of the collection of fragments (see
+     * {@link #manageFragmentCollection(Vertex, int, FragmenterParameters, List, Logger)}).
+     * @param graph the graph to take fragments from.
+     * @param settings configurations including filtration criteria.
+     * @param keptFragments collector of the fragments that survive 
+     * post-processing.
+     * @param logger where to direct log messages.
+     * @throws DENOPTIMException
+     * @throws IllegalArgumentException
+     * @throws UndetectedFileFormatException
+     * @throws IOException
+     */
+    public static void fragmentationFromGraph(DGraph graph, 
+            FragmenterParameters settings, List<Vertex> keptFragments, 
+            Logger logger) throws DENOPTIMException, IllegalArgumentException,
+                UndetectedFileFormatException, IOException
+    {
+        // Post-fragmentation processing of fragments
+        int fragCounter = 0;
+        int numKeptBefore = keptFragments.size();
+        for (Vertex frag : graph.getVertexList())
+        {
+            // Add metadata
+            fragCounter++;
+            manageFragmentCollection(frag, fragCounter, settings,
+                    keptFragments, logger);
+        }
+        if (logger!=null)
+        {
+            logger.log(Level.FINE,"Fragments surviving post-"
+                    + "processing: " + (keptFragments.size()-numKeptBefore));
+        }
+    }
+
 //------------------------------------------------------------------------------
 
     /**
@@ -374,7 +461,7 @@ public class FragmenterTools
                 settings.getMaxBufferShellSize(),
                 settings.getRandomizer(), settings.getLogger());
         } else {
-            fragments = fragmentation(mol, settings.getCuttingRules(), 
+            fragments = fragmentation(mol, settings.getCuttingRulesMatcher(), 
                 settings.getLogger());
         }
         return fragments;
@@ -420,36 +507,9 @@ public class FragmenterTools
                     logger.log(Level.FINE,"Fragmenting structure " + index);
                 }
                 IAtomContainer mol = iterator.next();
-                String molName = "noname-mol" + index;
-                if (mol.getTitle()!=null && !mol.getTitle().isBlank())
-                    molName = mol.getTitle();
-                
-                // Generate the fragments
-                List<Vertex> fragments = fragmentation(mol, settings);
-                if (logger!=null)
-                {
-                    logger.log(Level.FINE,"Fragmentation produced " 
-                            + fragments.size() + " fragments.");
-                }
-                totalProd += fragments.size();
-                
-                // Post-fragmentation processing of fragments
                 List<Vertex> keptFragments = new ArrayList<Vertex>();
-                int fragCounter = 0;
-                for (Vertex frag : fragments)
-                {
-                    // Add metadata
-                    String fragIdStr = "From_" + molName + "_" + fragCounter;
-                    frag.setProperty("cdk:Title", fragIdStr);
-                    fragCounter++;
-                    manageFragmentCollection(frag, fragCounter, settings,
-                            keptFragments, logger);
-                }
-                if (logger!=null)
-                {
-                    logger.log(Level.FINE,"Fragments surviving post-"
-                            + "processing: " + keptFragments.size());
-                }
+                totalProd += fragmentation(mol, index, settings, keptFragments,
+                        logger);
                 totalKept += keptFragments.size();
                 if (!settings.doManageIsomorphicFamilies() && totalKept>0)
                 {
@@ -483,6 +543,65 @@ public class FragmenterTools
         return true;
     }
     
+//------------------------------------------------------------------------------
+    
+    /**
+     * Fragments one chemical structure according to the given settings, and
+     * submits the resulting fragments to the management of the collection of 
+     * fragments (see
+     * {@link #manageFragmentCollection(Vertex, int, FragmenterParameters, List, Logger)}).
+     * @param mol the molecule to fragment.
+     * @param index identifies the structure in a collection of structures. 
+     * This is used to name fragments from structures with no title.
+     * @param settings configurations including cutting rules and filtration 
+     * criteria.
+     * @param keptFragments collector of the fragments that survive 
+     * post-processing.
+     * @param logger where to direct log messages.
+     * @return the number of fragments produced, including those that did not
+     * survive post-processing.
+     * @throws DENOPTIMException
+     * @throws IllegalArgumentException
+     * @throws UndetectedFileFormatException
+     * @throws IOException
+     */
+    public static int fragmentation(IAtomContainer mol, int index, 
+            FragmenterParameters settings, List<Vertex> keptFragments, 
+            Logger logger) throws DENOPTIMException, IllegalArgumentException,
+                UndetectedFileFormatException, IOException
+    {
+        String molName = "noname-mol" + index;
+        if (mol.getTitle()!=null && !mol.getTitle().isBlank())
+            molName = mol.getTitle();
+        
+        // Generate the fragments
+        List<Vertex> fragments = fragmentation(mol, settings);
+        if (logger!=null)
+        {
+            logger.log(Level.FINE,"Fragmentation produced " 
+                    + fragments.size() + " fragments.");
+        }
+        
+        // Post-fragmentation processing of fragments
+        int numKeptBefore = keptFragments.size();
+        int fragCounter = 0;
+        for (Vertex frag : fragments)
+        {
+            // Add metadata
+            String fragIdStr = "From_" + molName + "_" + fragCounter;
+            frag.setProperty("cdk:Title", fragIdStr);
+            fragCounter++;
+            manageFragmentCollection(frag, fragCounter, settings,
+                    keptFragments, logger);
+        }
+        if (logger!=null)
+        {
+            logger.log(Level.FINE,"Fragments surviving post-"
+                    + "processing: " + (keptFragments.size()-numKeptBefore));
+        }
+        return fragments.size();
+    }
+    
 //------------------------------------------------------------------------------
     
     /**
@@ -957,13 +1076,33 @@ public class FragmenterTools
      */
     public static List<Vertex> fragmentation(IAtomContainer mol, 
             List<CuttingRule> rules, Logger logger) throws DENOPTIMException
+    {
+        return fragmentation(mol, new CuttingRulesMatcher(rules), logger);
+    }
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * Chops one chemical structure by applying the cutting rules of the given
+     * matcher. Use this method to chop many structures with the same matcher,
+     * thus avoiding to index the same rules for each structure.
+     * @param mol the structure to chop.
+     * @param matcher the matcher of the priority-sorted list of cutting rules.
+     * @param logger
+     * @return the list of fragments
+     * @throws DENOPTIMException 
+     */
+    public static List<Vertex> fragmentation(IAtomContainer mol, 
+            CuttingRulesMatcher matcher, Logger logger) 
+                    throws DENOPTIMException
     {   
+        List<CuttingRule> rules = matcher.getRules();
         Fragment masterFrag = new Fragment(mol,BBType.UNDEFINED);
         IAtomContainer fragsMol = masterFrag.getIAtomContainer();
         
         // Identify bonds
         Map<String, List<MatchedBond>> matchingbonds = 
-                FragmenterTools.getMatchingBondsAllInOne(fragsMol,rules,logger);
+                matcher.getMatchingBonds(fragsMol, logger);
         
         // Select bonds to cut and what rule to use for cutting them
         int cutId = -1;
@@ -1242,70 +1381,13 @@ public class FragmenterTools
      * @param rules priority-sorted list of cutting rules.
      * @param logger
      * @return the list of matches.
+     * @see CuttingRulesMatcher
      */
 
     static Map<String, List<MatchedBond>> getMatchingBondsAllInOne(
             IAtomContainer mol, List<CuttingRule> rules, Logger logger)
     {
-        // Collect all SMARTS queries
-        Map<String,String> smarts = new HashMap<String,String>();
-        for (CuttingRule rule : rules)
-        {
-            smarts.put(rule.getName(),rule.getWholeSMARTSRule());
-        }
-
-        // Prepare a data structure for the return value
-        Map<String, List<MatchedBond>> bondsMatchingRules = 
-                new HashMap<String, List<MatchedBond>>();
-
-        // Get all the matches to the SMARTS queries
-        ManySMARTSQuery msq = new ManySMARTSQuery(mol, smarts);
-        if (msq.hasProblems())
-        {
-            if (logger!=null)
-            {
-                logger.log(Level.WARNING, "Problem matching SMARTS: " 
-                        + msq.getMessage());
-            }
-            return bondsMatchingRules;
-        }
-
-        for (CuttingRule rule : rules)
-        {
-            String ruleName = rule.getName();
-
-            if (msq.getNumMatchesOfQuery(ruleName) == 0)
-            {
-                continue;
-            }
-           
-            // Get atoms matching cutting rule queries
-            Mappings purgedPairs = msq.getMatchesOfSMARTS(ruleName);
-            
-            // Evaluate subclass membership and eventually store target bonds
-            ArrayList<MatchedBond> bondsMatched = new ArrayList<MatchedBond>();
-            for (int[] pair : purgedPairs) 
-            {
-                if (pair.length!=2)
-                {
-                    throw new Error("Cutting rule: " + ruleName 
-                            + " has identified " + pair.length + " atoms "
-                            + "instead of 2. Modify rule to make it find a "
-                            + "pair of atoms.");
-                }
-                MatchedBond tb = new MatchedBond(mol.getAtom(pair[0]),
-                        mol.getAtom(pair[1]), rule);
-                
-                // Apply any further option of the cutting rule
-                if (tb.satisfiesRuleOptions(logger))
-                    bondsMatched.add(tb);
-            }
-
-            if (!bondsMatched.isEmpty())
-                bondsMatchingRules.put(ruleName, bondsMatched);
-        }
-
-        return bondsMatchingRules;
+        return new CuttingRulesMatcher(rules).getMatchingBonds(mol, logger);
     }
     
 //------------------------------------------------------------------------------
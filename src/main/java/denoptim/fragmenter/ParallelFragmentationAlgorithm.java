@@ -20,13 +20,16 @@ package denoptim.fragmenter;
 
 import java.io.File;
 import java.io.FileFilter;
-import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
 import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BooleanSupplier;
 import java.util.logging.Level;
 import java.util.stream.Collectors;
 
@@ -36,8 +39,8 @@ import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.io.iterator.IteratingSMILESReader;
 
 import denoptim.constants.DENOPTIMConstants;
-import denoptim.exception.DENOPTIMException;
-import denoptim.files.FileFormat;
+import denoptim.fragmenter.FragmenterTask.ResultsCollector;
+import denoptim.fragmenter.FragmenterTask.StructuresChunk;
 import denoptim.io.DenoptimIO;
 import denoptim.io.IteratingAtomContainerReader;
 import denoptim.programs.fragmenter.FragmenterParameters;
@@ -52,11 +55,25 @@ import denoptim.task.ParallelAsynchronousTaskExecutor;
 
 public class ParallelFragmentationAlgorithm extends ParallelAsynchronousTaskExecutor
 {   
+    /**
+     * Number of structures in each chunk of work given to the tasks.
+     */
+    static final int CHUNKSIZE = 20;
+    
+    /**
+     * Reader of the input structures.
+     */
+    private IteratingAtomContainerReader reader;
     
     /**
-     * Collection of files with input
+     * Queue of chunks of structures waiting to be processed by the tasks.
      */
-    private File[] structures;
+    private BlockingQueue<StructuresChunk> inputQueue;
+    
+    /**
+     * Collector of the results of all tasks.
+     */
+    private ResultsCollector output;
     
     /**
      * All settings controlling the tasks executed by this class.
@@ -80,7 +97,6 @@ public class ParallelFragmentationAlgorithm extends ParallelAsynchronousTaskExec
 
     protected boolean doPreFlightOperations()
     {
-        IteratingAtomContainerReader reader;
         try
         {
             reader =  new IteratingAtomContainerReader
@@ -96,22 +112,25 @@ public class ParallelFragmentationAlgorithm extends ParallelAsynchronousTaskExec
         {
             settings.setWorkingIn3D(false);
         }
-        // Split data in batches for parallelization
         
-        // This is the collector of the mutating pathname to the file collecting
-        // the input structures for each thread.
-        structures = new File[settings.getNumTasks()];
-        structures[0] = new File(settings.getStructuresFile());
+        // The input is given to the tasks in small chunks as soon as they are 
+        // read. The bounded queue prevents reading the input much faster than
+        // the tasks can consume it.
+        inputQueue = new ArrayBlockingQueue<StructuresChunk>(
+                2 * settings.getNumTasks());
         
-        // WARNING while splitting the molecules we also do the preprocessing of
-        // the molecules. This to avoid having to read them once again. Yet,
-        // if we have no checks to be done, we are effectively copy-pasting
-        // the file with the list of molecules to chop.
-        splitInputForThreads(settings, reader);
-        for (int i=0; i<settings.getNumTasks(); i++)
+        File outFile = null;
+        if (settings.doFragmentation())
         {
-            structures[i] = new File(getStructureFileNameBatch(settings, i));
+            outFile = new File(FragmenterTask.getFragmentsFileName(settings));
+        } else {
+            outFile = new File(FragmenterTask.getResultsFileName(settings));
         }
+        if (outFile.exists())
+        {
+            outFile.delete();
+        }
+        output = new ResultsCollector(outFile);
         return true;
     }
         
@@ -124,22 +143,52 @@ public class ParallelFragmentationAlgorithm extends ParallelAsynchronousTaskExec
             FragmenterTask task;
             try
             {
-                task = new FragmenterTask(structures[i], settings, i);
+                task = new FragmenterTask(inputQueue, output, settings, i);
             } catch (SecurityException | IOException e)
             {
+                closeOutput();
                 throw new Error("Unable to start fragmentation thread.",e);
             }
             submitTask(task, task.getLogFilePathname());
         }
+        
+        // The tasks are now waiting for input, which we feed from this thread
+        streamInputToQueue(settings, reader, inputQueue, CHUNKSIZE, 
+                () -> subtaskHasException());
+        
+        if (subtaskHasException())
+        {
+            closeOutput();
+            throw new Error("Fragmentation task failed. ",
+                    getExceptionFromSubTask());
+        }
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * Closes the file collecting the results of all tasks.
+     */
+    private void closeOutput()
+    {
+        try
+        {
+            output.close();
+        } catch (IOException e)
+        {
+            throw new Error("Unable to close file '" + output.getFile() 
+                + "'", e);
+        }
     }
     
 //------------------------------------------------------------------------------
 
     protected boolean doPostFlightOperations()
     {
+        closeOutput();
+        
         // Identify (and possibly collect) final results. The files collecting
-        // results change depending on the task we have done, and on whether
-        // we ran them in a parallelized fashion or not.
+        // results change depending on the task we have done.
         List<File> resultFiles = new ArrayList<File>();
         if (settings.doExtactRepresentativeConformer())
         {
@@ -157,22 +206,17 @@ public class ParallelFragmentationAlgorithm extends ParallelAsynchronousTaskExec
             {
                 resultFiles.add(new File(pathname));
             }
+        } else if (settings.doManageIsomorphicFamilies()) {
+            // We collect only the unique champion of each isomorphic family.
+            resultFiles = getFilesCollectingIsomorphicFamilyChampions(
+                    new File(settings.getWorkDirectory()));
         } else {
-            if (settings.doManageIsomorphicFamilies())
+            // The tasks have already written their results in the final file
+            if (output.getNumResults() > 0)
             {
-                // We collect only the unique champion of each isomorphic family.
-                resultFiles = getFilesCollectingIsomorphicFamilyChampions(
-                        new File(settings.getWorkDirectory()));
-            } else if (settings.getNumTasks()>1) {
-                resultFiles = results.stream()
-                        .map(obj -> (String) obj)
-                        .map(pathname -> new File(pathname))
-                        .collect(Collectors.toList());
-            } else if (settings.getNumTasks()==1) {
-                // We should be here only when we run on single thread with no
-                // handling of isomorphic families (i.e., no removal of 
-                // duplicates)
-                resultFiles.add(new File ((String) results.get(0)));
+                settings.getLogger().log(Level.INFO, "Results "
+                        + "collected in file " + output.getFile());
+                return true;
             }
         }
         
@@ -185,64 +229,19 @@ public class ParallelFragmentationAlgorithm extends ParallelAsynchronousTaskExec
         }
         
         // If we did produce something, we go ahead
-        File allFragsFile;
-        FileFormat outputFormat = null;
-        if (settings.doFragmentation())
+        File allFragsFile = output.getFile();
+        try
         {
-            allFragsFile = new File(FragmenterTask.getFragmentsFileName(
-                    settings));
-            outputFormat = DENOPTIMConstants.TMPFRAGFILEFORMAT;
-        } else {
-            allFragsFile = new File(FragmenterTask.getResultsFileName(
-                    settings));
-            outputFormat = FileFormat.MOLSDF;
-        }
-        
-        switch (outputFormat)
+            FileUtils.copyFile(resultFiles.get(0), allFragsFile);
+            if (resultFiles.size()>1)
+            {
+                DenoptimIO.appendTxtFiles(allFragsFile, 
+                        resultFiles.subList(1,resultFiles.size()));
+            }
+        } catch (IOException e)
         {
-            case MOLSDF:
-                try
-                {
-                    FileUtils.copyFile(resultFiles.get(0), allFragsFile);
-                    if (resultFiles.size()>1)
-                    {
-                        DenoptimIO.appendTxtFiles(allFragsFile, 
-                                resultFiles.subList(1,resultFiles.size()));
-                    }
-                } catch (IOException e)
-                {
-                    throw new Error("Unable to create new file '" 
-                            + allFragsFile + "'",e);
-                }
-                break;
-            
-            case VRTXSDF:
-                try
-                {
-                    FileUtils.copyFile(resultFiles.get(0), allFragsFile);
-                    if (resultFiles.size()>1)
-                    {
-                        DenoptimIO.appendTxtFiles(allFragsFile, 
-                                resultFiles.subList(1,resultFiles.size()));
-                    }
-                } catch (IOException e)
-                {
-                    throw new Error("Unable to create new file '" 
-                            + allFragsFile + "'",e);
-                }
-                break;
-                
-            case VRTXJSON:
-                //TODO
-                // also check allFragsFile: it already contains extension.
-                throw new Error("NOT IMPLEMENTED YET!");
-                
-            
-                
-            default:
-                throw new Error("Unexpected format "
-                        + DENOPTIMConstants.TMPFRAGFILEFORMAT + " for "
-                        + "for final collection of fragments");
+            throw new Error("Unable to create new file '" 
+                    + allFragsFile + "'",e);
         }
         
         settings.getLogger().log(Level.INFO, "Results "
@@ -291,22 +290,26 @@ public class ParallelFragmentationAlgorithm extends ParallelAsynchronousTaskExec
 //------------------------------------------------------------------------------
     
     /**
-     * Splits the input data (from {@link FragmenterParameters}) into batches 
-     * suitable for parallel batch processing. Since we have to read all the 
-     * atom containers, we use this chance to do any preparation of the 
-     * molecular representation (see 
-     * {@link FragmenterTools#prepareMolToFragmentation(IAtomContainer, FragmenterParameters, int)}) 
-     * and store the molecular formula in 
-     * the property {@link DENOPTIMConstants#FORMULASTR}.
-     * @throws DENOPTIMException
-     * @throws FileNotFoundException
+     * Reads the input structures (from {@link FragmenterParameters}) and 
+     * puts them in the given queue in chunks of the given size. If needed, 
+     * we use this chance to store the molecular formula in 
+     * the property {@link DENOPTIMConstants#FORMULASTR}. Once all 
+     * structures have been queued, or as soon as the given condition 
+     * signals that we should stop, 
+     * one {@link FragmenterTask#ENDOFINPUT} marker per task is put in the 
+     * queue. The reader is closed in any case.
+     * @param settings settings we work with.
+     * @param reader the source of structures.
+     * @param queue the queue where to put chunks of structures.
+     * @param chunkSize the maximum number of structures in each chunk.
+     * @param stopCondition checked while waiting for space in the queue. 
+     * When it returns <code>true</code> we stop reading the input.
      */
-    static void splitInputForThreads(FragmenterParameters settings, 
-            IteratingAtomContainerReader reader)
+    static void streamInputToQueue(FragmenterParameters settings, 
+            IteratingAtomContainerReader reader, 
+            BlockingQueue<StructuresChunk> queue, int chunkSize,
+            BooleanSupplier stopCondition)
     {
-        int maxBuffersSize = 50000;
-        int numBatches = settings.getNumTasks();
-        
         //If available we record CSD formula in properties of atom container
         LinkedHashMap<String,String> formulae = settings.getFormulae();
         
@@ -316,60 +319,61 @@ public class ParallelFragmentationAlgorithm extends ParallelAsynchronousTaskExec
                 + "formulae...");
         }
         int index = -1;
-        int batchId = 0;
-        int buffersSize = 0;
+        int firstIndex = 0;
         boolean relyingOnListSize = false;
-        List<ArrayList<IAtomContainer>> batches = 
-                new ArrayList<ArrayList<IAtomContainer>>();
-        for (int i=0; i<numBatches; i++)
-        {
-            batches.add(new ArrayList<IAtomContainer>());
-        }
+        boolean stopped = false;
+        List<IAtomContainer> chunk = new ArrayList<IAtomContainer>();
         try
         {
             while (reader.hasNext())
             {
                 index++;
-                buffersSize++;
                 IAtomContainer mol = reader.next();
                 
-                // Adjust molecular representation to our settings
-                if (!FragmenterTools.prepareMolToFragmentation(mol, settings, 
-                        index))
-                    continue;
-                
                 // It is convenient to place the formula in the atom container
                 if (formulae!=null && settings.doCheckFormula())
                 {
                     getFormulaForMol(mol, index, formulae);
                 }
                 
-                batches.get(batchId).add(mol);
-                
-                // Update batch ID for next mol
-                batchId++;
-                if (batchId >= numBatches)
-                    batchId = 0;
-                
-                // If max buffer size is reached, then bump to file
-                if (buffersSize >= maxBuffersSize)
+                chunk.add(mol);
+                if (chunk.size() >= chunkSize)
                 {
-                    buffersSize = 0;
-                    for (int i=0; i<numBatches; i++)
+                    if (!enqueue(queue, new StructuresChunk(firstIndex, chunk),
+                            stopCondition))
                     {
-                        String filename = getStructureFileNameBatch(settings, i);
-                        try
-                        {
-                            DenoptimIO.writeSDFFile(filename, batches.get(i), true);
-                        } catch (DENOPTIMException e)
-                        {
-                            throw new Error("Cannot write to '" + filename + "'.");
-                        }
-                        batches.get(i).clear();
+                        stopped = true;
+                        break;
                     }
+                    firstIndex = index + 1;
+                    chunk = new ArrayList<IAtomContainer>();
                 }
             }
+            if (!stopped && chunk.size() > 0)
+            {
+                stopped = !enqueue(queue, new StructuresChunk(firstIndex, 
+                        chunk), stopCondition);
+            }
         } finally {
+            if (stopped)
+            {
+                // Nobody will take the remaining input
+                queue.clear();
+            }
+            for (int i=0; i<settings.getNumTasks(); i++)
+            {
+                if (!enqueue(queue, FragmenterTask.ENDOFINPUT, stopCondition))
+                {
+                    // Make room: whatever is still queued will not be 
+                    // processed anyway.
+                    queue.clear();
+                    for (int j=0; j<settings.getNumTasks(); j++)
+                    {
+                        queue.offer(FragmenterTask.ENDOFINPUT);
+                    }
+                    break;
+                }
+            }
             try {
                 reader.close();
             } catch (IOException e1)
@@ -379,24 +383,8 @@ public class ParallelFragmentationAlgorithm extends ParallelAsynchronousTaskExec
             }
         }
         
-        if (buffersSize < maxBuffersSize)
-        {
-            for (int i=0; i<numBatches; i++)
-            {
-                String filename = getStructureFileNameBatch(settings, i);
-                try
-                {
-                    DenoptimIO.writeSDFFile(filename, batches.get(i), true);
-                } catch (DENOPTIMException e)
-                {
-                    throw new Error("Cannot write to '" + filename + "'.");
-                }
-                batches.get(i).clear();
-            }
-        }
-        
         // Check for consistency in the list of formulae
-        if (formulae!=null && relyingOnListSize 
+        if (!stopped && formulae!=null && relyingOnListSize 
                 && index != (formulae.size()-1))
         {
             throw new Error("Inconsistent number of formulae "
@@ -410,17 +398,26 @@ public class ParallelFragmentationAlgorithm extends ParallelAsynchronousTaskExec
 //------------------------------------------------------------------------------
 
     /**
-     * Builds the pathname of the structure file generated for one of the
-     * parallel threads.
-     * @param settings settings we work with.
-     * @param i the index of the thread
-     * @return the pathname
+     * Puts a chunk in the queue, waiting for space to become available unless
+     * the given condition signals that we should stop waiting.
+     * @return <code>true</code> if the chunk was queued.
      */
-    static String getStructureFileNameBatch(
-            FragmenterParameters settings, int i)
+    private static boolean enqueue(BlockingQueue<StructuresChunk> queue, 
+            StructuresChunk chunk, BooleanSupplier stopCondition)
     {
-        return settings.getWorkDirectory() + DenoptimIO.FS 
-                + "structuresBatch-" + i + ".sdf";
+        try
+        {
+            while (!queue.offer(chunk, 1, TimeUnit.SECONDS))
+            {
+                if (stopCondition.getAsBoolean())
+                    return false;
+            }
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+        return true;
     }
     
 //------------------------------------------------------------------------------
@@ -0,0 +1,178 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.fragspace;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import denoptim.graph.APClass;
+import denoptim.graph.AttachmentPoint;
+import denoptim.graph.Vertex;
+
+/**
+ * Inverted index from {@link APClass} to the building blocks, identified by
+ * their index in a library, that have a given minimum number of
+ * {@link AttachmentPoint}s of that class. Queries defined by an
+ * AP-fingerprint, i.e., a minimum number of APs for each of one or more
+ * {@link APClass}es, are answered by intersecting the sets of indexes of
+ * each class and threshold, and the answers are cached until the index is
+ * changed. This class is not thread safe: the caller is responsible for
+ * synchronizing the access to it.
+ *
+ * @author Marco Foscato
+ */
+
+public class APClassIndex
+{
+    /**
+     * For each APClass, the sets of building block indexes. The set at
+     * position <i>t</i> contains the building blocks with more than <i>t</i>
+     * APs of the APClass.
+     */
+    private Map<APClass, List<IndexBitmap>> levels =
+            new HashMap<APClass, List<IndexBitmap>>();
+
+    /**
+     * Maximum number of fingerprints for which we keep the answer.
+     */
+    private static final int MAXCACHESIZE = 1000;
+
+    /**
+     * Answers to previous queries, with least recently used first.
+     */
+    private Map<Map<APClass,Integer>, IndexBitmap> cache =
+            new LinkedHashMap<Map<APClass,Integer>, IndexBitmap>(16, 0.75f,
+                    true) {
+        private static final long serialVersionUID = 1L;
+
+        @Override
+        protected boolean removeEldestEntry(
+                Map.Entry<Map<APClass,Integer>, IndexBitmap> eldest)
+        {
+            return size() > MAXCACHESIZE;
+        }
+    };
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Adds a building block to this index. All attachment points are
+     * considered irrespectively of whether they are available or not.
+     * @param index the index of the building block in its library.
+     * @param bb the building block.
+     */
+    public void add(int index, Vertex bb)
+    {
+        Map<APClass,Integer> counts = new HashMap<APClass,Integer>();
+        for (AttachmentPoint ap : bb.getAttachmentPoints())
+        {
+            if (ap.getAPClass() != null)
+                counts.merge(ap.getAPClass(), 1, Integer::sum);
+        }
+        for (Map.Entry<APClass,Integer> e : counts.entrySet())
+        {
+            List<IndexBitmap> lst = levels.get(e.getKey());
+            if (lst == null)
+            {
+                lst = new ArrayList<IndexBitmap>();
+                levels.put(e.getKey(), lst);
+            }
+            for (int t=0; t<e.getValue(); t++)
+            {
+                if (lst.size() == t)
+                    lst.add(new IndexBitmap());
+                lst.get(t).add(index);
+            }
+        }
+        if (!counts.isEmpty())
+            cache.clear();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Finds the building blocks that have at least the given number of
+     * attachment points for each of the given {@link APClass}es. A building
+     * block must have at least one attachment point of each given class, even
+     * if the required number is lower than one.
+     * @param apcCounts the minimum number of attachment points per
+     * {@link APClass}.
+     * @return the indexes of the matching building blocks in ascending
+     * order. The returned set is shared with the cache and must not be
+     * modified.
+     */
+    public IndexBitmap getMatches(Map<APClass,Integer> apcCounts)
+    {
+        if (apcCounts.isEmpty())
+            return new IndexBitmap();
+
+        IndexBitmap result = cache.get(apcCounts);
+        if (result != null)
+            return result;
+
+        List<IndexBitmap> sets = new ArrayList<IndexBitmap>();
+        for (Map.Entry<APClass,Integer> e : apcCounts.entrySet())
+        {
+            List<IndexBitmap> lst = levels.get(e.getKey());
+            int t = Math.max(1, e.getValue()) - 1;
+            if (lst == null || t >= lst.size())
+            {
+                sets.clear();
+                break;
+            }
+            sets.add(lst.get(t));
+        }
+
+        if (sets.isEmpty())
+        {
+            result = new IndexBitmap();
+        } else {
+            // Start from the smallest set to keep intermediates small
+            sets.sort((a, b) -> Integer.compare(a.getCardinality(),
+                    b.getCardinality()));
+            result = sets.get(0);
+            for (int i=1; i<sets.size() && !result.isEmpty(); i++)
+            {
+                result = result.and(sets.get(i));
+            }
+            // Never expose the sets of the index, which change upon addition
+            if (sets.size() == 1)
+                result = result.and(result);
+        }
+        cache.put(new HashMap<APClass,Integer>(apcCounts), result);
+        return result;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Removes all entries from this index.
+     */
+    public void clear()
+    {
+        levels.clear();
+        cache.clear();
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -20,6 +20,7 @@ package denoptim.fragspace;
 
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Set;
@@ -55,11 +56,10 @@ public class APMapFinder
     private List<APMapping> allAPMappings = new ArrayList<APMapping>();
     
     /**
-     * Maximum number of combinations. This prevents combinatorial explosion, 
-     * but it is ignored if the constructor is required to screen all.
-     * Remember that the combinations are anyway randomized, so even with the 
-     * maximum limit on the number of combination to consider, there is no
-     * systematic exclusion of specific combinations.
+     * Maximum number of mappings to collect. This prevents combinatorial 
+     * explosion, but it is ignored if the constructor is required to screen 
+     * all. The chosen mapping is anyway chosen among all the valid mappings,
+     * so there is no systematic exclusion of specific mappings.
      */
     private static int maxCombs = 250;
     
@@ -288,94 +288,33 @@ public class APMapFinder
             }
         }
         
-        // Get all possible combinations of compatible AP pairs
-        int currentKey = 0;
+        // Needy APs are hard constraints of the search, so only valid
+        // mappings are generated.
         APMapping currentMapping = new APMapping();
         if (fixedRootAPs!=null)
         {
             currentMapping = fixedRootAPs.clone(); //shallow
         }
-        // We try the comprehensive approach, but if that is too demanding
-        // and gets stopped, then we run a series of simplified attempts
-        // to hit a decent combination with "lucky shots".
-        Boolean stopped = false;
-        if (keys.size()>0)
+        APMappingSearch search = new APMappingSearch(keys, apCompatilities,
+                currentMapping, needyAPsA, needyAPsB);
+        Iterator<APMapping> iter = search.iterator();
+        boolean stopped = false;
+        while (iter.hasNext())
         {
-            stopped = FragmentSpaceUtils.recursiveCombiner(keys, 
-                    currentKey, apCompatilities, currentMapping, allAPMappings, 
-                    screenAll, maxCombs);
-        } else {
-            // This would have been done by the recursive combiner
-            allAPMappings.add(currentMapping);
-        }
-        
-        // Purge according to lists of APs that needs a mapping
-        List<APMapping> toRemove = new ArrayList<APMapping>();
-        for (APMapping c : allAPMappings)
-        {
-            if (!c.containsAllKeys(needyAPsA))
-            {
-                toRemove.add(c);
-            }
-            if (!c.containsAllValues(needyAPsB))
+            allAPMappings.add(iter.next());
+            if (!screenAll && allAPMappings.size() >= maxCombs)
             {
-                toRemove.add(c);
+                stopped = iter.hasNext();
+                break;
             }
         }
-        allAPMappings.removeAll(toRemove);
         
-        // If we where interrupted, we try to get a proper mapping again.
-        // This time we ignore all the possibilities and try a more direct 
-        // approach, which, however, cannot account for all possible combs.
-        if (stopped && allAPMappings.isEmpty())
+        // If we did not collect all mappings, we choose among all of them
+        // and not only among those we have collected.
+        if (stopped)
         {
-            for (int iTry = 0; iTry < maxCombs; iTry++)
-            {
-                APMapping apMap = new APMapping();
-                List<AttachmentPoint> used = 
-                        new ArrayList<AttachmentPoint>();
-                List<AttachmentPoint> availKeys = 
-                        new ArrayList<AttachmentPoint>();
-                availKeys.addAll(needyAPsA);
-                boolean abandon = false;
-                for (int jj=0; jj<needyAPsA.size(); jj++)
-                {
-                    AttachmentPoint ap = 
-                            fragSpace.getRandomizer().randomlyChooseOne(
-                                    availKeys);
-                    availKeys.remove(ap);
-                    List<AttachmentPoint> availPartners = 
-                            new ArrayList<AttachmentPoint>();
-                    availPartners.addAll(apCompatilities.get(ap));
-                    boolean done = false;
-                    for (int j=0; j<apCompatilities.get(ap).size(); j++)
-                    {
-                        AttachmentPoint chosenAvail = 
-                                fragSpace.getRandomizer().randomlyChooseOne(
-                                        availPartners);
-                        availPartners.remove(chosenAvail);
-                        if (used.contains(chosenAvail))
-                        {
-                            continue;
-                        }
-                        used.add(chosenAvail);
-                        apMap.put(ap,chosenAvail);
-                        done = true;
-                        break;
-                    }
-                    if (!done)
-                    {
-                        abandon = true;
-                        break;
-                    }
-                }
-                
-                if (!abandon)
-                {
-                    allAPMappings.add(apMap);
-                    break;
-                }
-            }
+            chosenAPMap = search.getRandomMapping(fragSpace.getRandomizer());
+            return;
         }
         if (allAPMappings.size() > 0)
             chosenAPMap = fragSpace.getRandomizer().randomlyChooseOne(
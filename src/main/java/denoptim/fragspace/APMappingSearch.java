@@ -0,0 +1,648 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.fragspace;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+
+import denoptim.graph.APMapping;
+import denoptim.graph.AttachmentPoint;
+import denoptim.utils.Randomizer;
+
+/**
+ * The space of {@link AttachmentPoint}-{@link AttachmentPoint} mappings that
+ * satisfy a set of constraints. Each AP of a list of keys is mapped to one of
+ * its compatible APs, or, if allowed, to nothing, and no AP can be used twice.
+ * Some keys and some of the compatible APs are "needy", i.e.,
+ * they must be part of any valid mapping.
+ * <p>
+ * Needy APs are treated as hard constraints: at each step of the search
+ * we verify that the remaining keys can still be matched with all the
+ * remaining needy APs (forward checking by bipartite matching). Therefore, the
+ * search never explores branches that do not lead to a valid mapping, and
+ * valid mappings can be generated lazily by {@link #iterator()},
+ * or sampled uniformly by {@link #getRandomMapping(Randomizer)}.
+ * </p>
+ * Mappings are generated in the same order as they would be found by a
+ * depth-first exploration of the options given for each key, in the given
+ * order.
+ *
+ * @author Marco Foscato
+ */
+
+public class APMappingSearch implements Iterable<APMapping>
+{
+    /**
+     * Maximum number of states for which we remember the number of valid
+     * completions. Beyond this limit random sampling is not uniform anymore.
+     */
+    private static final int MAXMEMOSIZE = 100000;
+
+    /**
+     * Placeholder for keys that have not been given any partner yet.
+     */
+    private static final int UNSET = -2;
+
+    /**
+     * Placeholder for keys that are intentionally left without partner.
+     */
+    private static final int NONE = -1;
+
+    /**
+     * The APs to be mapped, i.e., the keys of the mappings.
+     */
+    private final List<AttachmentPoint> keys;
+
+    /**
+     * All the APs that can be mapped to any key.
+     */
+    private final List<AttachmentPoint> partners =
+            new ArrayList<AttachmentPoint>();
+
+    /**
+     * Options for each key as indexes in the list of partners, or
+     * {@value #NONE} for the possibility of leaving the key unmapped.
+     */
+    private final int[][] options;
+
+    /**
+     * The keys that can be mapped by each partner.
+     */
+    private final int[][] keysOfPartner;
+
+    /**
+     * Flags identifying keys that must be mapped.
+     */
+    private final boolean[] mandatoryKey;
+
+    /**
+     * Flags identifying partners that must be used.
+     */
+    private final boolean[] needyPartner;
+
+    /**
+     * The mapping that is included in any mapping of this space.
+     */
+    private final APMapping fixedMapping;
+
+    /**
+     * Flag requesting that at least one key is mapped, which is the case when
+     * there is no fixed mapping.
+     */
+    private final boolean requireNonEmpty;
+
+    /**
+     * Flag signaling that some needy AP is neither among the keys, nor among
+     * the options, nor in the fixed mapping, so no mapping can be valid.
+     */
+    private final boolean unsatisfiable;
+
+    /**
+     * Number of valid completions of a partial mapping.
+     */
+    private Map<PartialMapping,Long> memo = null;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor defining the space of mappings.
+     * @param keys the APs to be mapped.
+     * @param options for each key, the ordered list of APs that can be mapped
+     * to it. A <code>null</code> entry defines the possibility of leaving the
+     * key out of the mapping.
+     * @param fixedMapping a mapping that is included in all mappings, or
+     * <code>null</code>.
+     * @param needyKeys APs that must be among the keys of any mapping,
+     * either from the list of keys or from the fixed mapping.
+     * @param needyPartners APs that must be among the values of any mapping,
+     * either from the options or from the fixed mapping.
+     */
+    public APMappingSearch(List<AttachmentPoint> keys,
+            Map<AttachmentPoint,List<AttachmentPoint>> options,
+            APMapping fixedMapping,
+            Collection<AttachmentPoint> needyKeys,
+            Collection<AttachmentPoint> needyPartners)
+    {
+        this.keys = new ArrayList<AttachmentPoint>(keys);
+        this.fixedMapping = fixedMapping==null ? new APMapping() : fixedMapping;
+        this.requireNonEmpty = keys.size()>0 && this.fixedMapping.isEmpty();
+
+        Map<AttachmentPoint,Integer> partnerIds =
+                new LinkedHashMap<AttachmentPoint,Integer>();
+        int n = keys.size();
+        this.options = new int[n][];
+        this.mandatoryKey = new boolean[n];
+        for (int i=0; i<n; i++)
+        {
+            AttachmentPoint key = keys.get(i);
+            boolean needy = needyKeys.contains(key);
+            List<AttachmentPoint> keyOptions = options.get(key);
+            if (keyOptions == null)
+                keyOptions = new ArrayList<AttachmentPoint>();
+            List<Integer> ids = new ArrayList<Integer>();
+            boolean canStayUnmapped = false;
+            for (AttachmentPoint partner : keyOptions)
+            {
+                if (partner == null)
+                {
+                    canStayUnmapped = true;
+                    if (!needy)
+                        ids.add(NONE);
+                    continue;
+                }
+                if (this.fixedMapping.containsValue(partner))
+                    continue;
+                Integer id = partnerIds.get(partner);
+                if (id == null)
+                {
+                    id = partnerIds.size();
+                    partnerIds.put(partner, id);
+                    partners.add(partner);
+                }
+                if (!ids.contains(id))
+                    ids.add(id);
+            }
+            mandatoryKey[i] = needy || !canStayUnmapped;
+            this.options[i] = ids.stream().mapToInt(Integer::intValue).toArray();
+        }
+
+        int m = partners.size();
+        this.needyPartner = new boolean[m];
+        List<List<Integer>> tmpKeysOfPartner = new ArrayList<List<Integer>>();
+        for (int p=0; p<m; p++)
+        {
+            needyPartner[p] = needyPartners.contains(partners.get(p));
+            tmpKeysOfPartner.add(new ArrayList<Integer>());
+        }
+        for (int i=0; i<n; i++)
+        {
+            for (int p : this.options[i])
+            {
+                if (p != NONE)
+                    tmpKeysOfPartner.get(p).add(i);
+            }
+        }
+        this.keysOfPartner = new int[m][];
+        for (int p=0; p<m; p++)
+        {
+            keysOfPartner[p] = tmpKeysOfPartner.get(p).stream()
+                    .mapToInt(Integer::intValue).toArray();
+        }
+
+        // Needy APs that cannot be mapped at all make the space empty
+        this.unsatisfiable = !this.fixedMapping.keySet().containsAll(
+                filterOut(needyKeys, keys))
+                || !this.fixedMapping.values().containsAll(
+                filterOut(needyPartners, partners));
+    }
+
+//------------------------------------------------------------------------------
+
+    private static List<AttachmentPoint> filterOut(
+            Collection<AttachmentPoint> aps, List<AttachmentPoint> toRemove)
+    {
+        List<AttachmentPoint> result = new ArrayList<AttachmentPoint>(aps);
+        result.removeAll(toRemove);
+        return result;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Checks if any valid mapping exists. This does not require the
+     * enumeration of any mapping.
+     * @return <code>true</code> if there is at least one valid mapping.
+     */
+    public boolean hasAnyMapping()
+    {
+        return isFeasible(0, new boolean[partners.size()], 0);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Checks if a partial mapping, where the keys before the given index have
+     * been assigned, can be completed into a valid mapping.
+     * @param depth the index of the first key not assigned.
+     * @param used flags identifying the partners already in use.
+     * @param mappedCount the number of keys that have been given a partner.
+     * @return <code>true</code> if there is at least one valid completion.
+     */
+    private boolean isFeasible(int depth, boolean[] used, int mappedCount)
+    {
+        if (unsatisfiable)
+            return false;
+
+        // By the Mendelsohn-Dulmage theorem, if there is a matching covering
+        // the mandatory keys and one covering the needy partners, then there
+        // is also one covering both.
+        int n = keys.size();
+        int m = partners.size();
+        int[] keyOfPartner = new int[m];
+        Arrays.fill(keyOfPartner, -1);
+        boolean anyMandatoryKey = false;
+        for (int i=depth; i<n; i++)
+        {
+            if (!mandatoryKey[i])
+                continue;
+            anyMandatoryKey = true;
+            if (!augmentFromKey(i, depth, used, keyOfPartner, new boolean[m]))
+                return false;
+        }
+
+        int[] partnerOfKey = new int[n];
+        Arrays.fill(partnerOfKey, -1);
+        boolean anyNeedyPartner = false;
+        for (int p=0; p<m; p++)
+        {
+            if (!needyPartner[p] || used[p])
+                continue;
+            anyNeedyPartner = true;
+            if (!augmentFromPartner(p, depth, partnerOfKey, new boolean[n]))
+                return false;
+        }
+
+        if (requireNonEmpty && mappedCount==0 && !anyMandatoryKey
+                && !anyNeedyPartner)
+        {
+            for (int i=depth; i<n; i++)
+            {
+                for (int p : options[i])
+                {
+                    if (p != NONE && !used[p])
+                        return true;
+                }
+            }
+            return false;
+        }
+        return true;
+    }
+
+//------------------------------------------------------------------------------
+
+    private boolean augmentFromKey(int key, int depth, boolean[] used,
+            int[] keyOfPartner, boolean[] visited)
+    {
+        for (int p : options[key])
+        {
+            if (p == NONE || used[p] || visited[p])
+                continue;
+            visited[p] = true;
+            if (keyOfPartner[p] < 0 || augmentFromKey(keyOfPartner[p], depth,
+                    used, keyOfPartner, visited))
+            {
+                keyOfPartner[p] = key;
+                return true;
+            }
+        }
+        return false;
+    }
+
+//------------------------------------------------------------------------------
+
+    private boolean augmentFromPartner(int partner, int depth,
+            int[] partnerOfKey, boolean[] visited)
+    {
+        for (int i : keysOfPartner[partner])
+        {
+            if (i < depth || visited[i])
+                continue;
+            visited[i] = true;
+            if (partnerOfKey[i] < 0 || augmentFromPartner(partnerOfKey[i],
+                    depth, partnerOfKey, visited))
+            {
+                partnerOfKey[i] = partner;
+                return true;
+            }
+        }
+        return false;
+    }
+
+//------------------------------------------------------------------------------
+
+    private APMapping makeMapping(int[] assigned)
+    {
+        APMapping mapping = fixedMapping.clone();
+        for (int i=0; i<assigned.length; i++)
+        {
+            if (assigned[i] >= 0)
+                mapping.put(keys.get(i), partners.get(assigned[i]));
+        }
+        return mapping;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns an iterator that generates the valid mappings lazily.
+     * Since the search never enters branches without valid mappings, the cost
+     * of generating the next mapping does not depend on the number of
+     * invalid combinations.
+     * @return the iterator over all the valid mappings.
+     */
+    @Override
+    public Iterator<APMapping> iterator()
+    {
+        return new MappingIterator();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Depth-first generation of mappings.
+     */
+    private class MappingIterator implements Iterator<APMapping>
+    {
+        private final int n = keys.size();
+        private final boolean[] used = new boolean[partners.size()];
+        private final int[] assigned = new int[n];
+        private final int[] optionId = new int[n];
+        private int mappedCount = 0;
+        private int depth = 0;
+        private APMapping next = null;
+        private boolean exhausted = false;
+
+        MappingIterator()
+        {
+            Arrays.fill(assigned, UNSET);
+            Arrays.fill(optionId, -1);
+            if (!isFeasible(0, used, 0))
+            {
+                exhausted = true;
+            } else if (n == 0) {
+                next = makeMapping(assigned);
+                exhausted = true;
+            } else {
+                advance();
+            }
+        }
+
+        private void unassign(int i)
+        {
+            if (assigned[i] >= 0)
+            {
+                used[assigned[i]] = false;
+                mappedCount--;
+            }
+            assigned[i] = UNSET;
+        }
+
+        private void advance()
+        {
+            next = null;
+            while (!exhausted)
+            {
+                unassign(depth);
+                boolean descended = false;
+                while (++optionId[depth] < options[depth].length)
+                {
+                    int p = options[depth][optionId[depth]];
+                    if (p != NONE && used[p])
+                        continue;
+                    assigned[depth] = p;
+                    if (p != NONE)
+                    {
+                        used[p] = true;
+                        mappedCount++;
+                    }
+                    if (isFeasible(depth+1, used, mappedCount))
+                    {
+                        descended = true;
+                        break;
+                    }
+                    unassign(depth);
+                }
+                if (descended)
+                {
+                    if (depth == n-1)
+                    {
+                        next = makeMapping(assigned);
+                        return;
+                    }
+                    depth++;
+                    optionId[depth] = -1;
+                } else {
+                    optionId[depth] = -1;
+                    if (depth == 0)
+                    {
+                        exhausted = true;
+                    } else {
+                        depth--;
+                    }
+                }
+            }
+        }
+
+        @Override
+        public boolean hasNext()
+        {
+            return next != null;
+        }
+
+        @Override
+        public APMapping next()
+        {
+            if (next == null)
+                throw new NoSuchElementException();
+            APMapping result = next;
+            if (exhausted)
+                next = null;
+            else
+                advance();
+            return result;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Chooses one valid mapping with uniform probability among all the valid
+     * mappings. The number of valid completions of each partial
+     * mapping is counted to weight the choice of each AP-AP pair. If the
+     * space is too large to count the completions, the choice of each AP-AP
+     * pair is made uniformly among those that allow completing a valid
+     * mapping, which always yields a valid mapping, though not with uniform
+     * probability.
+     * @param rng the random number generator to use.
+     * @return the chosen mapping, or <code>null</code> if there is no valid
+     * mapping.
+     */
+    public APMapping getRandomMapping(Randomizer rng)
+    {
+        int n = keys.size();
+        boolean[] used = new boolean[partners.size()];
+        int[] assigned = new int[n];
+        Arrays.fill(assigned, UNSET);
+        if (!isFeasible(0, used, 0))
+            return null;
+
+        if (memo == null)
+            memo = new HashMap<PartialMapping,Long>();
+        boolean countable = countCompletions(0, used, 0) >= 0;
+
+        int mappedCount = 0;
+        for (int depth=0; depth<n; depth++)
+        {
+            List<Integer> feasibleOptions = new ArrayList<Integer>();
+            List<Long> weights = new ArrayList<Long>();
+            double total = 0.0;
+            for (int p : options[depth])
+            {
+                if (p != NONE && used[p])
+                    continue;
+                int newMappedCount = mappedCount;
+                if (p != NONE)
+                {
+                    used[p] = true;
+                    newMappedCount++;
+                }
+                long weight = 0;
+                if (countable)
+                {
+                    weight = countCompletions(depth+1, used, newMappedCount);
+                } else if (isFeasible(depth+1, used, newMappedCount)) {
+                    weight = 1;
+                }
+                if (p != NONE)
+                    used[p] = false;
+                if (weight > 0)
+                {
+                    feasibleOptions.add(p);
+                    weights.add(weight);
+                    total += weight;
+                }
+            }
+            // Feasibility of the parent guarantees we have some option
+            double threshold = rng.nextDouble() * total;
+            int chosen = feasibleOptions.get(feasibleOptions.size()-1);
+            double cumulative = 0.0;
+            for (int j=0; j<feasibleOptions.size(); j++)
+            {
+                cumulative += weights.get(j);
+                if (threshold < cumulative)
+                {
+                    chosen = feasibleOptions.get(j);
+                    break;
+                }
+            }
+            assigned[depth] = chosen;
+            if (chosen != NONE)
+            {
+                used[chosen] = true;
+                mappedCount++;
+            }
+        }
+        return makeMapping(assigned);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Counts the valid completions of a partial mapping. Counts exceeding
+     * the range of <code>long</code> are saturated.
+     * @return the number of valid completions, or -1 if the number of
+     * partial mappings to consider is too large.
+     */
+    private long countCompletions(int depth, boolean[] used, int mappedCount)
+    {
+        if (!isFeasible(depth, used, mappedCount))
+            return 0;
+        if (depth == keys.size())
+            return 1;
+
+        PartialMapping state = new PartialMapping(depth, used, mappedCount>0);
+        Long known = memo.get(state);
+        if (known != null)
+            return known;
+        if (memo.size() >= MAXMEMOSIZE)
+            return -1;
+
+        long total = 0;
+        for (int p : options[depth])
+        {
+            if (p != NONE && used[p])
+                continue;
+            if (p != NONE)
+                used[p] = true;
+            long count = countCompletions(depth+1, used,
+                    p != NONE ? mappedCount+1 : mappedCount);
+            if (p != NONE)
+                used[p] = false;
+            if (count < 0)
+                return -1;
+            total = total > Long.MAX_VALUE - count ? Long.MAX_VALUE
+                    : total + count;
+        }
+        memo.put(state, total);
+        return total;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Identifies the state of a partial mapping for the purpose of counting
+     * its valid completions.
+     */
+    private static class PartialMapping
+    {
+        private final int depth;
+        private final BitSet used;
+        private final boolean anyMapped;
+
+        PartialMapping(int depth, boolean[] used, boolean anyMapped)
+        {
+            this.depth = depth;
+            this.used = new BitSet(used.length);
+            for (int p=0; p<used.length; p++)
+            {
+                if (used[p])
+                    this.used.set(p);
+            }
+            this.anyMapped = anyMapped;
+        }
+
+        @Override
+        public boolean equals(Object o)
+        {
+            if (!(o instanceof PartialMapping))
+                return false;
+            PartialMapping other = (PartialMapping) o;
+            return depth == other.depth && anyMapped == other.anyMapped
+                    && used.equals(other.used);
+        }
+
+        @Override
+        public int hashCode()
+        {
+            return Objects.hash(depth, used, anyMapped);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
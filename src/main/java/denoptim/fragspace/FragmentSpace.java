@@ -142,6 +142,12 @@ public class FragmentSpace
     private HashMap<APClass, ArrayList<ArrayList<Integer>>> fragsApsPerApClass =
             new HashMap<APClass,ArrayList<ArrayList<Integer>>>();
     
+    /**
+     * Inverted index of fragments by the number of APs per APClass. Used to
+     * answer AP-fingerprint queries.
+     */
+    private APClassIndex apClassIndex = new APClassIndex();
+    
     /**
      * Lock for synchronizing tasks
      */
@@ -642,6 +648,9 @@ public class FragmentSpace
                 settings.getLogger().log(Level.SEVERE, msg);
                 throw new DENOPTIMException(msg);
         }
+        // Additive descriptors are calculated once for each building block
+        // in the library, and then inherited by all its clones.
+        originalVrtx.getAdditiveDescriptors();
         Vertex clone = originalVrtx.clone();
         
         clone.setVertexId(GraphUtils.getUniqueVertexIndex());
@@ -1030,30 +1039,10 @@ public class FragmentSpace
 
     public List<Vertex> getVerticesWithAPClasses(Set<APClass> apcs)
     {
-        List<Vertex> lst = new ArrayList<Vertex>();
-        
-        synchronized (LOCK)
-        {
-            for (APClass apc : apcs)
-            {
-                if (!fragsApsPerApClass.containsKey(apc))
-                {
-                    break;
-                }
-                
-                // NB: the list is over APs, so there can be duplicate vertexes
-                for (List<Integer> idxs : fragsApsPerApClass.get(apc))
-                {
-                    Vertex v = fragmentLib.get(idxs.get(0));
-                    if (!lst.contains(v) && v.getAllAPClasses().containsAll(apcs))
-                        lst.add(v);
-                }
-                
-                // NB: we mean to do only one loop
-                break;
-            }
-        }
-        return lst;
+        Map<APClass,Integer> apcCounts = new HashMap<APClass,Integer>();
+        for (APClass apc : apcs)
+            apcCounts.put(apc, 1);
+        return getVerticesWithAPFingerprint(apcCounts);
     }
     
 //------------------------------------------------------------------------------
@@ -1063,28 +1052,21 @@ public class FragmentSpace
      * {@link AttachmentPoint}s with the given {@link APClass}es.
      * @param apcCounts specifies for each {@link APClass} the desired minimum
      * number of {@link AttachmentPoint}s.
-     * @return the list of matching vertexes from the library.
+     * @return the list of matching vertexes from the library, in the order
+     * they have in the library. Answers are taken from an inverted index of
+     * the fragments that is kept up to date with the library.
      */
 
     public List<Vertex> getVerticesWithAPFingerprint(
             Map<APClass,Integer> apcCounts)
     {
         List<Vertex> matches = new ArrayList<Vertex>();
-        for (Vertex candidate : getVerticesWithAPClasses(apcCounts.keySet()))
+        synchronized (LOCK)
         {
-            boolean isMatch = true;
-            for (APClass apc : apcCounts.keySet())
+            for (int fragId : apClassIndex.getMatches(apcCounts).toArray())
             {
-                if (apcCounts.get(apc) > 
-                        candidate.getAttachmentPoints().stream().filter(
-                                ap -> ap.getAPClass().equals(apc)).count())
-                {
-                    isMatch = false;
-                    break;
-                }
+                matches.add(fragmentLib.get(fragId));
             }
-            if (isMatch)
-                matches.add(candidate);
         }
         return matches;
     }
@@ -1558,6 +1540,7 @@ public class FragmentSpace
         fragPoolPerNumAP = new HashMap<Integer,ArrayList<Integer>>();
         apClassesPerFrag = new HashMap<Integer,ArrayList<APClass>>();
         fragsApsPerApClass = new HashMap<APClass,ArrayList<ArrayList<Integer>>>();
+        apClassIndex = new APClassIndex();
         symmConstraints = null;
         isValid = false;
     }
@@ -1948,6 +1931,7 @@ public class FragmentSpace
     	    synchronized (LOCK)
             {
     	        apClassesPerFrag.put(fragId,lstAPC);
+    	        apClassIndex.add(fragId,frg);
             }
             
     	    // Classify according to AP-Classes
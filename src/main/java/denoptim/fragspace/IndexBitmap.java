@@ -0,0 +1,394 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.fragspace;
+
+import java.util.Arrays;
+
+/**
+ * Compressed set of non-negative integers meant to collect indexes of
+ * building blocks in a library. The indexes are split in chunks according to
+ * their 16 most significant bits, and each chunk stores the 16 least
+ * significant bits either in a sorted array, when the chunk is sparse, or in
+ * a fixed-size bitmap, when the chunk is dense. This makes intersections
+ * cheap irrespectively of the density of the sets.
+ *
+ * @author Marco Foscato
+ */
+
+public class IndexBitmap
+{
+    /**
+     * Maximum number of entries in a chunk stored as sorted array. Above this
+     * number the bitmap representation is more compact.
+     */
+    private static final int MAXARRAYSIZE = 4096;
+
+    /**
+     * Sorted 16 most significant bits of the indexes in each chunk.
+     */
+    private char[] keys = new char[0];
+
+    /**
+     * Chunks in the same order of the keys.
+     */
+    private Chunk[] chunks = new Chunk[0];
+
+    /**
+     * Number of chunks in use.
+     */
+    private int numChunks = 0;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Adds an index to this set.
+     * @param index the index to add. Must not be negative.
+     */
+    public void add(int index)
+    {
+        if (index < 0)
+            throw new IllegalArgumentException("Negative index " + index);
+        char high = (char) (index >>> 16);
+        char low = (char) (index & 0xFFFF);
+        int pos = Arrays.binarySearch(keys, 0, numChunks, high);
+        if (pos >= 0)
+        {
+            chunks[pos] = chunks[pos].add(low);
+            return;
+        }
+        pos = -pos - 1;
+        if (numChunks == keys.length)
+        {
+            int newSize = Math.max(4, 2 * numChunks);
+            keys = Arrays.copyOf(keys, newSize);
+            chunks = Arrays.copyOf(chunks, newSize);
+        }
+        System.arraycopy(keys, pos, keys, pos + 1, numChunks - pos);
+        System.arraycopy(chunks, pos, chunks, pos + 1, numChunks - pos);
+        keys[pos] = high;
+        chunks[pos] = new ArrayChunk().add(low);
+        numChunks++;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param index the index to look for.
+     * @return <code>true</code> if this set contains the given index.
+     */
+    public boolean contains(int index)
+    {
+        if (index < 0)
+            return false;
+        int pos = Arrays.binarySearch(keys, 0, numChunks,
+                (char) (index >>> 16));
+        if (pos < 0)
+            return false;
+        return chunks[pos].contains((char) (index & 0xFFFF));
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of indexes in this set.
+     */
+    public int getCardinality()
+    {
+        int tot = 0;
+        for (int i=0; i<numChunks; i++)
+            tot += chunks[i].getCardinality();
+        return tot;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return <code>true</code> if this set contains no index.
+     */
+    public boolean isEmpty()
+    {
+        return numChunks == 0;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Computes the intersection between this and another set. Neither set is
+     * modified.
+     * @param other the other set.
+     * @return a new set with the indexes that are contained in both sets.
+     */
+    public IndexBitmap and(IndexBitmap other)
+    {
+        IndexBitmap result = new IndexBitmap();
+        int n = Math.min(numChunks, other.numChunks);
+        result.keys = new char[n];
+        result.chunks = new Chunk[n];
+        int i = 0;
+        int j = 0;
+        while (i < numChunks && j < other.numChunks)
+        {
+            if (keys[i] < other.keys[j])
+            {
+                i++;
+            } else if (keys[i] > other.keys[j])
+            {
+                j++;
+            } else {
+                Chunk c = chunks[i].and(other.chunks[j]);
+                if (c != null)
+                {
+                    result.keys[result.numChunks] = keys[i];
+                    result.chunks[result.numChunks] = c;
+                    result.numChunks++;
+                }
+                i++;
+                j++;
+            }
+        }
+        return result;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the indexes in this set in ascending order.
+     */
+    public int[] toArray()
+    {
+        int[] result = new int[getCardinality()];
+        int pos = 0;
+        for (int i=0; i<numChunks; i++)
+        {
+            pos = chunks[i].fill(result, pos, keys[i] << 16);
+        }
+        return result;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * A portion of the set sharing the same 16 most significant bits.
+     */
+    private static abstract class Chunk
+    {
+        /**
+         * Adds a value and returns the chunk that contains the value, which
+         * may be a new chunk with a different representation.
+         */
+        abstract Chunk add(char value);
+
+        abstract boolean contains(char value);
+
+        abstract int getCardinality();
+
+        /**
+         * Returns the intersection with another chunk, or <code>null</code>
+         * if the intersection is empty.
+         */
+        abstract Chunk and(Chunk other);
+
+        /**
+         * Writes the values in ascending order into the given array.
+         * @return the position following the last written value.
+         */
+        abstract int fill(int[] dest, int pos, int offset);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Chunk storing the values in a sorted array.
+     */
+    private static class ArrayChunk extends Chunk
+    {
+        private char[] values = new char[4];
+        private int card = 0;
+
+        @Override
+        Chunk add(char value)
+        {
+            int pos = Arrays.binarySearch(values, 0, card, value);
+            if (pos >= 0)
+                return this;
+            if (card >= MAXARRAYSIZE)
+            {
+                BitmapChunk bc = new BitmapChunk();
+                for (int i=0; i<card; i++)
+                    bc.add(values[i]);
+                return bc.add(value);
+            }
+            pos = -pos - 1;
+            if (card == values.length)
+                values = Arrays.copyOf(values, Math.min(MAXARRAYSIZE, 2*card));
+            System.arraycopy(values, pos, values, pos + 1, card - pos);
+            values[pos] = value;
+            card++;
+            return this;
+        }
+
+        @Override
+        boolean contains(char value)
+        {
+            return Arrays.binarySearch(values, 0, card, value) >= 0;
+        }
+
+        @Override
+        int getCardinality()
+        {
+            return card;
+        }
+
+        @Override
+        Chunk and(Chunk other)
+        {
+            ArrayChunk result = new ArrayChunk();
+            result.values = new char[card];
+            if (other instanceof ArrayChunk)
+            {
+                ArrayChunk o = (ArrayChunk) other;
+                int i = 0;
+                int j = 0;
+                while (i < card && j < o.card)
+                {
+                    if (values[i] < o.values[j])
+                    {
+                        i++;
+                    } else if (values[i] > o.values[j])
+                    {
+                        j++;
+                    } else {
+                        result.values[result.card++] = values[i];
+                        i++;
+                        j++;
+                    }
+                }
+            } else {
+                for (int i=0; i<card; i++)
+                {
+                    if (other.contains(values[i]))
+                        result.values[result.card++] = values[i];
+                }
+            }
+            return result.card == 0 ? null : result;
+        }
+
+        @Override
+        int fill(int[] dest, int pos, int offset)
+        {
+            for (int i=0; i<card; i++)
+                dest[pos++] = offset | values[i];
+            return pos;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Chunk storing the values as bits in a fixed-size bitmap.
+     */
+    private static class BitmapChunk extends Chunk
+    {
+        private final long[] words = new long[1024];
+        private int card = 0;
+
+        @Override
+        Chunk add(char value)
+        {
+            long mask = 1L << value;
+            int w = value >>> 6;
+            if ((words[w] & mask) == 0)
+            {
+                words[w] |= mask;
+                card++;
+            }
+            return this;
+        }
+
+        @Override
+        boolean contains(char value)
+        {
+            return (words[value >>> 6] & (1L << value)) != 0;
+        }
+
+        @Override
+        int getCardinality()
+        {
+            return card;
+        }
+
+        @Override
+        Chunk and(Chunk other)
+        {
+            if (other instanceof ArrayChunk)
+                return other.and(this);
+
+            BitmapChunk o = (BitmapChunk) other;
+            BitmapChunk result = new BitmapChunk();
+            for (int i=0; i<words.length; i++)
+            {
+                result.words[i] = words[i] & o.words[i];
+                result.card += Long.bitCount(result.words[i]);
+            }
+            if (result.card == 0)
+                return null;
+            if (result.card > MAXARRAYSIZE)
+                return result;
+
+            ArrayChunk ac = new ArrayChunk();
+            ac.values = new char[result.card];
+            result.fillChars(ac.values);
+            ac.card = result.card;
+            return ac;
+        }
+
+        private void fillChars(char[] dest)
+        {
+            int pos = 0;
+            for (int i=0; i<words.length; i++)
+            {
+                long w = words[i];
+                while (w != 0)
+                {
+                    dest[pos++] = (char) (i * 64 + Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+            }
+        }
+
+        @Override
+        int fill(int[] dest, int pos, int offset)
+        {
+            for (int i=0; i<words.length; i++)
+            {
+                long w = words[i];
+                while (w != 0)
+                {
+                    dest[pos++] = offset | (i * 64
+                            + Long.numberOfTrailingZeros(w));
+                    w &= w - 1;
+                }
+            }
+            return pos;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -25,6 +25,7 @@ import java.text.DecimalFormat;
 import java.text.NumberFormat;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -42,7 +43,6 @@ import org.apache.commons.io.FilenameUtils;
 import org.openscience.cdk.graph.ShortestPaths;
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
-import org.openscience.cdk.isomorphism.Mappings;
 
 import java.util.stream.IntStream;
 
@@ -77,6 +77,7 @@ import denoptim.graph.rings.RingClosuresArchive;
 import denoptim.io.DenoptimIO;
 import denoptim.logging.CounterID;
 import denoptim.logging.Monitor;
+import denoptim.logging.PipelineStage;
 import denoptim.molecularmodeling.ThreeDimTreeBuilder;
 import denoptim.programs.RunTimeParameters.ParametersType;
 import denoptim.programs.denovo.GAParameters;
@@ -129,6 +130,20 @@ public class EAUtils
         CROSSOVER, MUTATION, CONSTRUCTION, MANUAL;
     }
     
+    /**
+     * Topology defining which islands exchange migrants in the island model
+     * of the evolutionary algorithm.
+     * <ul>
+     * <li>RING: each island sends migrants to the next island.</li>
+     * <li>FULL: each island sends migrants to all other islands.</li>
+     * <li>RANDOM: each island sends migrants to one other island chosen at
+     * random at each migration.</li>
+     * </ul>
+     */
+    public enum MigrationTopology {
+        RING, FULL, RANDOM;
+    }
+    
     private static final String NL =System.getProperty("line.separator");
     private static final String FSEP = System.getProperty("file.separator");
     
@@ -470,6 +485,7 @@ public class EAUtils
         DGraph gAClone = xosOnClones.getA().get(0).getGraphOwner();
         DGraph gBClone = xosOnClones.getB().get(0).getGraphOwner();
         
+        long graphStart = System.nanoTime();
         try
         {
             if (!GraphOperations.performCrossover(xosOnClones,fragSpace))
@@ -496,6 +512,8 @@ public class EAUtils
             mnt.increase(CounterID.FAILEDXOVERATTEMPTS_PERFORM);
             mnt.increase(CounterID.FAILEDXOVERATTEMPTS);
             return new ArrayList<Candidate>();
+        } finally {
+            mnt.recordLatencySince(PipelineStage.GRAPHBUILD, graphStart);
         }
         gAClone.setGraphId(GraphUtils.getUniqueGraphIndex());
         gBClone.setGraphId(GraphUtils.getUniqueGraphIndex());
@@ -543,11 +561,30 @@ public class EAUtils
             gOutermost.renumberGraphVertices();
             gOutermost.setLocalMsg(msgs[ig]);
             
+            // Reject without building the molecule, if possible
+            if (gOutermost.exceedsAdditiveLimits(fsParams))
+            {
+                mnt.increase(CounterID.FAILEDXOVERATTEMPTS_EVAL);
+                mnt.increase(CounterID.FAILEDXOVERATTEMPTS);
+                gOutermost.cleanup();
+                continue;
+            }
+            
+            if (EAUtils.isKnownGraph(gOutermost, settings))
+            {
+                mnt.increase(CounterID.DUPLICATEGRAPHPREBUILD);
+                mnt.increase(CounterID.FAILEDXOVERATTEMPTS);
+                gOutermost.cleanup();
+                continue;
+            }
+            
             // Consider if the result can be used to define a new candidate
             Object[] res = null;
             try
             {
+                long uidStart = System.nanoTime();
                 res = gOutermost.checkConsistency(settings);
+                mnt.recordLatencySince(PipelineStage.UIDGENERATION, uidStart);
             } catch (NullPointerException|IllegalArgumentException e)
             {
                 if (!settings.xoverGraphFailedEvalTolerant)
@@ -680,7 +717,10 @@ public class EAUtils
                 + " Gen:" + parent.getGeneration() + " Cand:" + parentMolName 
                 + "|" + parentGraphId);
         
-        if (!GraphOperations.performMutation(graph, mnt, settings))
+        long graphStart = System.nanoTime();
+        boolean mutated = GraphOperations.performMutation(graph, mnt, settings);
+        mnt.recordLatencySince(PipelineStage.GRAPHBUILD, graphStart);
+        if (!mutated)
         {
             mnt.increase(CounterID.FAILEDMUTATTEMTS_PERFORM);
             mnt.increase(CounterID.FAILEDMUTATTEMTS);
@@ -691,10 +731,29 @@ public class EAUtils
         
         graph.addCappingGroups(fragSpace);
         
+        // Reject without building the molecule, if possible
+        if (graph.exceedsAdditiveLimits(fsParams))
+        {
+            graph.cleanup();
+            mnt.increase(CounterID.FAILEDMUTATTEMTS_EVAL);
+            mnt.increase(CounterID.FAILEDMUTATTEMTS);
+            return null;
+        }
+        
+        if (EAUtils.isKnownGraph(graph, settings))
+        {
+            graph.cleanup();
+            mnt.increase(CounterID.DUPLICATEGRAPHPREBUILD);
+            mnt.increase(CounterID.FAILEDMUTATTEMTS);
+            return null;
+        }
+        
         Object[] res = null;
         try
         {
+            long uidStart = System.nanoTime();
             res = graph.checkConsistency(settings);
+            mnt.recordLatencySince(PipelineStage.UIDGENERATION, uidStart);
         } catch (NullPointerException|IllegalArgumentException e)
         {
             if (!settings.mutatedGraphFailedEvalTolerant)
@@ -806,7 +865,9 @@ public class EAUtils
         // evaluate the graph, but in a permissive manner, meaning that 
         // several filters are disabled to permit the introduction of graphs 
         // that cannot be generated automatically.
+        long uidStart = System.nanoTime();
         Object[] res = graph.checkConsistency(settings, true);
+        mnt.recordLatencySince(PipelineStage.UIDGENERATION, uidStart);
         
         if (res == null)
         {
@@ -849,7 +910,9 @@ public class EAUtils
         mnt.increase(CounterID.BUILDANEWATTEMPTS);
         mnt.increase(CounterID.NEWCANDIDATEATTEMPTS);
 
+        long graphStart = System.nanoTime();
         DGraph graph = EAUtils.buildGraph(settings);
+        mnt.recordLatencySince(PipelineStage.GRAPHBUILD, graphStart);
         if (graph == null)
         {
             mnt.increase(CounterID.FAILEDBUILDATTEMPTS_GRAPHBUILD);
@@ -858,7 +921,26 @@ public class EAUtils
         }
         graph.setLocalMsg("NEW");
         
+        // Reject without building the molecule, if possible
+        if (graph.exceedsAdditiveLimits(fsParams))
+        {
+            graph.cleanup();
+            mnt.increase(CounterID.FAILEDBUILDATTEMPTS_EVAL);
+            mnt.increase(CounterID.FAILEDBUILDATTEMPTS);
+            return null;
+        }
+        
+        if (EAUtils.isKnownGraph(graph, settings))
+        {
+            graph.cleanup();
+            mnt.increase(CounterID.DUPLICATEGRAPHPREBUILD);
+            mnt.increase(CounterID.FAILEDBUILDATTEMPTS);
+            return null;
+        }
+        
+        long uidStart = System.nanoTime();
         Object[] res = graph.checkConsistency(settings);
+        mnt.recordLatencySince(PipelineStage.UIDGENERATION, uidStart);
         
         if (res != null)
         {
@@ -992,7 +1074,9 @@ public class EAUtils
         
         graph.setLocalMsg("INITIAL_MOL_FRAGMENTED");
         
+        long uidStart = System.nanoTime();
         Object[] res = graph.checkConsistency(settings);
+        mnt.recordLatencySince(PipelineStage.UIDGENERATION, uidStart);
         if (res == null)
         {
             graph.cleanup();
@@ -1491,6 +1575,37 @@ public class EAUtils
         sb.setLength(0);
     }
 
+//------------------------------------------------------------------------------
+    
+    /**
+     * Appends the current GA population to the database of the run, if the
+     * {@link GAParameters} require to use such database.
+     * @param population the population.
+     * @param genId the index of the generation.
+     * @param settings the GA settings.
+     * @throws DENOPTIMException if the database cannot be written.
+     */
+    public static void storePopulationInRunDatabase(Population population, 
+            int genId, GAParameters settings) throws DENOPTIMException
+    {
+        if (!settings.useRunDatabase())
+            return;
+        
+        // NB: as in the population details, we consider the configured size 
+        // of the population.
+        List<Candidate> popMembers = new ArrayList<Candidate>();
+        synchronized (population)
+        {
+            int n = Math.min(population.size(), 
+                    settings.getPopulationSize());
+            for (int i=0; i<n; i++)
+            {
+                popMembers.add(population.get(i));
+            }
+        }
+        settings.getRunDatabase().appendGeneration(genId, popMembers);
+    }
+
 //------------------------------------------------------------------------------
 
     private static String getSummaryStatistics(Population popln, 
@@ -1907,13 +2022,19 @@ public class EAUtils
 //------------------------------------------------------------------------------
 
     /**
-     * Graph construction starts with selecting a random core/scaffold.
+     * Builds a graph from scratch, i.e., as done for a new candidate that
+     * does not derive from any parent. Graph construction starts with 
+     * selecting a random core/scaffold, and the outcome is reproducible as
+     * long as the randomizer of the settings is started with the same seed.
      *
-     * @return the molecular graph representation
+     * @param settings the configuration of the genetic algorithm, including
+     * the fragment space.
+     * @return the molecular graph representation, or <code>null</code> if 
+     * the construction failed.
      * @throws DENOPTIMException
      */
 
-    protected static DGraph buildGraph(GAParameters settings) 
+    public static DGraph buildGraph(GAParameters settings) 
             throws DENOPTIMException
     {
         FragmentSpaceParameters fsParams = new FragmentSpaceParameters();
@@ -1994,6 +2115,71 @@ public class EAUtils
         return graph;
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Checks if the given graph is known to be a duplicate of a graph
+     * previously registered by {@link #registerGraphHash(DGraph, GAParameters)}.
+     * The check is done only when the pre-screening is requested, duplicates
+     * are to be rejected prior to fitness evaluation, and the
+     * graph cannot be further modified by the addition of rings, which
+     * happens after building the molecular representation.
+     * @param graph the graph to check.
+     * @param settings the settings of the GA run.
+     * @return <code>true</code> only if the graph is surely a duplicate.
+     */
+    protected static boolean isKnownGraph(DGraph graph, GAParameters settings)
+    {
+        if (!settings.useGraphHashPreScreen())
+            return false;
+
+        if (settings.containsParameters(ParametersType.FIT_PARAMS)
+                && !((FitnessParameters) settings.getParameters(
+                        ParametersType.FIT_PARAMS)).checkPreFitnessUID())
+            return false;
+
+        FragmentSpaceParameters fsParams = new FragmentSpaceParameters();
+        if (settings.containsParameters(ParametersType.FS_PARAMS))
+        {
+            fsParams = (FragmentSpaceParameters)settings.getParameters(
+                    ParametersType.FS_PARAMS);
+        }
+        RingClosureParameters rcParams = new RingClosureParameters();
+        if (settings.containsParameters(ParametersType.RC_PARAMS))
+        {
+            rcParams = (RingClosureParameters)settings.getParameters(
+                    ParametersType.RC_PARAMS);
+        }
+        if (fsParams.getFragmentSpace().useAPclassBasedApproach()
+                && rcParams.allowRingClosures())
+            return false;
+
+        String hash = graph.getCanonicalHash();
+        if (hash == null)
+            return false;
+        return settings.getKnownGraphHashes().contains(hash);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Records the hash of the graph of a candidate that is being considered
+     * for fitness evaluation, so that any new graph with the same hash can be
+     * recognized as a duplicate by {@link #isKnownGraph(DGraph, GAParameters)}.
+     * Does nothing unless the pre-screening is requested.
+     * @param graph the graph to register.
+     * @param settings the settings of the GA run.
+     */
+    protected static void registerGraphHash(DGraph graph,
+            GAParameters settings)
+    {
+        if (!settings.useGraphHashPreScreen())
+            return;
+        String hash = graph.getCanonicalHash();
+        if (hash != null)
+            settings.getKnownGraphHashes().add(hash);
+    }
+
 //------------------------------------------------------------------------------
 
     /**
@@ -2698,7 +2884,7 @@ public class EAUtils
             }
            
             // Get bridge-head atoms
-            Mappings halfRingAtms = msq.getMatchesOfSMARTS(rule.getName());
+            List<int[]> halfRingAtms = msq.getMatchesOfSMARTS(rule.getName());
             // We use a string to facilitate detection of pairs of ids
             // irrespectively on the order of ids, i.e., 1-2 vs. 2-1.
             Set<String> doneIdPairs = new HashSet<String>();
@@ -3221,6 +3407,146 @@ public class EAUtils
         return usableBridges;
     }
   
+//------------------------------------------------------------------------------
+
+    /**
+     * Copies the best members of each island into other islands according 
+     * to the given topology. The migrants are selected before any island 
+     * receives migrants, so a candidate moves by at most one step per 
+     * migration. A migrant replaces the worst member of the receiving island
+     * only if the migrant is fitter than such member, so the size of the 
+     * islands does not change and no island loses members that are better 
+     * than the migrants it receives. Candidates that are already in the 
+     * receiving island are not copied again.
+     * @param islands the populations exchanging migrants.
+     * @param numMigrants the number of best members sent by each island to
+     * each of its destinations.
+     * @param topology defines the destinations of each island.
+     * @param randomizer the random number generator used by the 
+     * {@link MigrationTopology#RANDOM} topology.
+     * @return the number of migrants that entered any island.
+     */
+    public static int migrate(List<Population> islands, int numMigrants,
+            MigrationTopology topology, Randomizer randomizer)
+    {
+        int numIslands = islands.size();
+        if (numIslands < 2 || numMigrants < 1)
+            return 0;
+        
+        List<List<Candidate>> emigrants = new ArrayList<List<Candidate>>();
+        for (Population island : islands)
+        {
+            List<Candidate> best = new ArrayList<Candidate>();
+            synchronized (island)
+            {
+                Collections.sort(island, Collections.reverseOrder());
+                for (int i=0; i<Math.min(numMigrants, island.size()); i++)
+                {
+                    best.add(island.get(i));
+                }
+            }
+            emigrants.add(best);
+        }
+        
+        List<List<Candidate>> immigrants = new ArrayList<List<Candidate>>();
+        for (int i=0; i<numIslands; i++)
+        {
+            immigrants.add(new ArrayList<Candidate>());
+        }
+        for (int i=0; i<numIslands; i++)
+        {
+            switch (topology)
+            {
+                case RING:
+                    immigrants.get((i+1) % numIslands).addAll(
+                            emigrants.get(i));
+                    break;
+                    
+                case FULL:
+                    for (int j=0; j<numIslands; j++)
+                    {
+                        if (j != i)
+                            immigrants.get(j).addAll(emigrants.get(i));
+                    }
+                    break;
+                    
+                case RANDOM:
+                    int j = randomizer.nextInt(numIslands-1);
+                    if (j >= i)
+                        j++;
+                    immigrants.get(j).addAll(emigrants.get(i));
+                    break;
+            }
+        }
+        
+        int numMigrated = 0;
+        for (int i=0; i<numIslands; i++)
+        {
+            Population island = islands.get(i);
+            synchronized (island)
+            {
+                Set<String> knownUIDs = new HashSet<String>();
+                for (Candidate member : island)
+                {
+                    knownUIDs.add(member.getUID());
+                }
+                List<Candidate> incoming = immigrants.get(i);
+                Collections.sort(incoming, Collections.reverseOrder());
+                List<Candidate> accepted = new ArrayList<Candidate>();
+                for (Candidate migrant : incoming)
+                {
+                    if (island.isEmpty())
+                        break;
+                    // NB: the island is sorted, so the worst is at the end
+                    Candidate worst = island.get(island.size()-1);
+                    if (migrant.compareTo(worst) <= 0)
+                        break;
+                    if (!knownUIDs.add(migrant.getUID()))
+                        continue;
+                    island.remove(island.size()-1);
+                    Candidate clone = migrant.clone();
+                    accepted.add(clone);
+                    island.add(clone);
+                    Collections.sort(island, Collections.reverseOrder());
+                }
+                numMigrated += accepted.size();
+            }
+        }
+        return numMigrated;
+    }
+  
+//------------------------------------------------------------------------------  
+
+    /**
+     * Collects the members of all islands into a single population sorted
+     * by decreasing fitness. Since migrants are copies of candidates living 
+     * in other islands, the same candidate may be found in more than one 
+     * island: only the first copy of each candidate, as identified by its 
+     * unique identifier, is collected.
+     * @param islands the populations to merge.
+     * @param settings the GA settings used to create the merged population.
+     * @return the population collecting all islands.
+     */
+    public static Population mergeIslands(List<Population> islands, 
+            GAParameters settings)
+    {
+        Population merged = new Population(settings);
+        Set<String> knownUIDs = new HashSet<String>();
+        for (Population island : islands)
+        {
+            synchronized (island)
+            {
+                for (Candidate c : island)
+                {
+                    if (knownUIDs.add(c.getUID()))
+                        merged.add(c);
+                }
+            }
+        }
+        Collections.sort(merged, Collections.reverseOrder());
+        return merged;
+    }
+  
 //------------------------------------------------------------------------------  
     
 }
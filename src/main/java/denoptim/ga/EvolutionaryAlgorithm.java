@@ -24,10 +24,14 @@ import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -45,11 +49,15 @@ import denoptim.ga.EAUtils.CandidateSource;
 import denoptim.graph.Candidate;
 import denoptim.io.IteratingAtomContainerReader;
 import denoptim.logging.CounterID;
+import denoptim.logging.MetricsPublisher;
 import denoptim.logging.Monitor;
+import denoptim.logging.PipelineStage;
 import denoptim.programs.RunTimeParameters.ParametersType;
 import denoptim.programs.denovo.GAParameters;
 import denoptim.programs.fragmenter.FragmenterParameters;
+import denoptim.task.ExternalWaitExecutor;
 import denoptim.task.FitnessTask;
+import denoptim.task.ProcessSupervisor;
 import denoptim.task.Task;
 import denoptim.task.TasksBatchManager;
 import denoptim.utils.SizeControlledSet;
@@ -83,6 +91,19 @@ import denoptim.utils.SizeControlledSet;
  * number of candidates needed to complete the current generation.
  * It is thus possible that a candidate designed in generation <i>I</i> becomes
  * a member of generation <i>J</i>, where <i>J &ge; I</i>.</p>
+ * <p>Either scheme can be combined with an <i>island model</i>, where 
+ * several populations (i.e., islands) evolve concurrently and exchange 
+ * their best members every given number of generations. The islands share
+ * the fragment space, the memory of unique identifiers, and the service 
+ * executing fitness evaluation tasks.</p>
+ * <p>The asynchronous scheme can also run a <i>steady-state</i> evolution 
+ * where there are no proper generations: each evaluated offspring competes
+ * for a place in the population as soon as its evaluation is completed, 
+ * parents are chosen among the current population members, and new 
+ * offspring are generated as soon as there is capacity to evaluate them. 
+ * What is reported as a generation is then only a snapshot of the population
+ * taken after a given number of completed evaluations, or after a given 
+ * time.</p>
  * 
  *  
  * @author Vishwesh Venkatraman
@@ -104,7 +125,7 @@ public class EvolutionaryAlgorithm
 	/**
 	 * Flag signaling this EA was stopped
 	 */
-    private boolean stopped = false;
+    private volatile boolean stopped = false;
     
     /**
      * List of IDs of candidates to be removed from the population. This list
@@ -139,7 +160,21 @@ public class EvolutionaryAlgorithm
     /**
      * Execution service used in asynchronous parallelization scheme.
      */
-    private ThreadPoolExecutor tpe;
+    private ExecutorService tpe;
+    
+    /**
+     * Maximum number of tasks in execution in the asynchronous 
+     * parallelization scheme.
+     */
+    private int maxTasksInFlight;
+    
+    /**
+     * Number of tasks submitted to asynchronous parallelization scheme that
+     * have been found completed, per population (i.e., island) the 
+     * tasks work for. Guarded by the lock on {@link #submitted}.
+     */
+    private final Map<Population,Integer> numCompletedTasks = 
+            new IdentityHashMap<Population,Integer>();
     
     /**
      * Task manager for tasks to be executed as batches.
@@ -162,6 +197,24 @@ public class EvolutionaryAlgorithm
      */
     private Logger logger = null;
     
+    /**
+     * Publisher exporting the metrics of the monitors, or <code>null</code>
+     * if we are not exporting metrics.
+     */
+    private MetricsPublisher metricsPublisher = null;
+    
+    /**
+     * The populations evolving concurrently in the island model. When we do 
+     * not use the island model, this list contains only one population.
+     */
+    private List<Population> islands = new ArrayList<Population>();
+    
+    /**
+     * Execution service running the evolution of the islands, or 
+     * <code>null</code> if we do not use the island model.
+     */
+    private ExecutorService islandsExecutor = null;
+    
     private final String NL = System.getProperty("line.separator");
 
 //------------------------------------------------------------------------------
@@ -184,10 +237,48 @@ public class EvolutionaryAlgorithm
             futures = new HashMap<FitnessTask,Future<Object>>();
             submitted = new ArrayList<>();
             
-            tpe = new ThreadPoolExecutor(settings.getNumberOfCPU(),
-                    settings.getNumberOfCPU(), 0L,
-                    TimeUnit.MILLISECONDS,
-                    new ArrayBlockingQueue<Runnable>(1));
+            FitnessParameters fitParams = (FitnessParameters) 
+                    settings.getParameters(ParametersType.FIT_PARAMS);
+            if (fitParams != null && fitParams.useExternalWaitExecutor())
+            {
+                ExternalWaitExecutor ewe = new ExternalWaitExecutor(
+                        settings.getNumberOfCPU(), 
+                        fitParams.getMaxExternalEvaluations(), logger);
+                maxTasksInFlight = ewe.getMaxInFlight();
+                logger.log(Level.INFO, "Running up to " 
+                        + maxTasksInFlight + " fitness evaluations on "
+                        + (ewe.usesVirtualThreads() ? "virtual" : "platform")
+                        + " threads, with at most " 
+                        + settings.getNumberOfCPU() + " using CPU." + NL);
+                tpe = ewe;
+            } else {
+                maxTasksInFlight = settings.getNumberOfCPU();
+                ThreadPoolExecutor pool = new ThreadPoolExecutor(
+                        settings.getNumberOfCPU(),
+                        settings.getNumberOfCPU(), 0L,
+                        TimeUnit.MILLISECONDS,
+                        new ArrayBlockingQueue<Runnable>(1));
+                
+                // by default the ThreadPoolExecutor will throw an exception
+                pool.setRejectedExecutionHandler(new RejectedExecutionHandler()
+                {
+                    @Override
+                    public void rejectedExecution(Runnable r, 
+                            ThreadPoolExecutor executor)
+                    {
+                        try
+                        {
+                            // this will block if the queue is full
+                            executor.getQueue().put(r);
+                        }
+                        catch (InterruptedException ex)
+                        {
+                            //nothing, really
+                        }
+                    }
+                });
+                tpe = pool;
+            }
     
             Runtime.getRuntime().addShutdownHook(new Thread()
             {
@@ -217,30 +308,21 @@ public class EvolutionaryAlgorithm
                     }
                 }
             });
-    
-            // by default the ThreadPoolExecutor will throw an exception
-            tpe.setRejectedExecutionHandler(new RejectedExecutionHandler()
-            {
-                @Override
-                public void rejectedExecution(Runnable r, 
-                        ThreadPoolExecutor executor)
-                {
-                    try
-                    {
-                        // this will block if the queue is full
-                        executor.getQueue().put(r);
-                    }
-                    catch (InterruptedException ex)
-                    {
-                        //nothing, really
-                    }
-                }
-            });
         }
         
         scs = new SizeControlledSet(
                 settings.maxUIDMemory, settings.uidMemoryOnDisk, 
                 settings.getUIDFileOut());
+        
+        if (settings.getNumberOfIslands() > 1)
+        {
+            islandsExecutor = Executors.newFixedThreadPool(
+                    settings.getNumberOfIslands(), r -> {
+                        Thread t = new Thread(r, "EAIsland");
+                        t.setDaemon(true);
+                        return t;
+                    });
+        }
     }
 
 //------------------------------------------------------------------------------
@@ -251,133 +333,196 @@ public class EvolutionaryAlgorithm
         
         StopWatch watch = new StopWatch();
         watch.start();
-        if (isAsync)
+        if (isAsync && tpe instanceof ThreadPoolExecutor)
         {
-            tpe.prestartAllCoreThreads();
+            ((ThreadPoolExecutor) tpe).prestartAllCoreThreads();
         }
         Monitor mnt = new Monitor();
+        mnt.name = "MonitorRun";
         mnt.printHeader(settings.getMonitorFile());
-        
-        // Create initial population of candidates
-        EAUtils.createFolderForGeneration(0, settings);
-        Population population;
         try
         {
-            population = EAUtils.importInitialPopulation(scs, settings);
-        } catch (Exception e)
-        {
-            throw new DENOPTIMException("Unable to import initial population.", 
-                    e);
-        }
-        initializePopulation(population);
-        
-        boolean writeCandsOnDisk = ((FitnessParameters) settings.getParameters(
-                ParametersType.FIT_PARAMS)).writeCandidatesOnDisk();
-        EAUtils.outputPopulationDetails(population, 
-                EAUtils.getPathNameToGenerationDetailsFile(0, settings), 
-                settings, writeCandsOnDisk);
+            metricsPublisher = settings.getMetricsPublisher();
+            if (metricsPublisher != null)
+            {
+                metricsPublisher.addMonitor(mnt);
+            }
         
-        // Ensure that there is some variability in fitness values
-        double sdev = EAUtils.getPopulationSD(population);
-        if (sdev < settings.getMinFitnessSD())
-        {
-            String msg = "Fitness values have negligible standard deviation "
-                    + "(STDDEV=" + String.format("%.6f", sdev) + "). "
-                    + "Abbandoning evolutionary algorithm.";
-            logger.log(Level.SEVERE, msg);
-            population.trim(0);
-            return;
-        }
-
-        // Start evolution cycles, i.e., generations
-        int numStag = 0, genId = 1;
-        while (genId <= settings.getNumberOfGenerations())
-        {
-            logger.log(Level.INFO,"Starting Generation {0}"
-                    + NL, genId);
-
-            String txt = "No change";
+            // Create initial population of candidates
+            EAUtils.createFolderForGeneration(0, settings);
+            Population population;
             try
             {
-                if (!evolvePopulation(population, genId))
-                {
-                    numStag++;
-                }
-                else
-                {
-                    numStag = 0;
-                    txt = "New members introduced";
-                }
-            } catch (DENOPTIMException e)
+                population = EAUtils.importInitialPopulation(scs, settings);
+            } catch (Exception e)
             {
-                logger.log(Level.SEVERE, "Exception while running evolutionary"
-                        + "algorithm. Details: " + NL 
-                        + ExceptionUtils.getStackTraceAsString(e));
-                throw e;
+                throw new DENOPTIMException("Unable to import initial "
+                        + "population.", e);
             }
-            
-            logger.log(Level.INFO,txt + " in Generation {0}" 
-                    + NL, genId);
+            if (islandsExecutor != null)
+            {
+                distributeAmongIslands(population);
+                runOnIslands((island, islandId) -> {
+                    initializePopulation(island, islandId);
+                    return true;
+                });
+                population = mergeIslands();
+            } else {
+                islands.add(population);
+                initializePopulation(population, -1);
+            }
+        
+            boolean writeCandsOnDisk = ((FitnessParameters) 
+                    settings.getParameters(ParametersType.FIT_PARAMS))
+                    .writeCandidatesOnDisk();
+            long ioStart = System.nanoTime();
             EAUtils.outputPopulationDetails(population, 
-                    EAUtils.getPathNameToGenerationDetailsFile(genId, settings),
+                    EAUtils.getPathNameToGenerationDetailsFile(0, settings), 
                     settings, writeCandsOnDisk);
-            
-            if (stopped)
+            EAUtils.storePopulationInRunDatabase(population, 0, settings);
+            outputIslandsDetails(0, writeCandsOnDisk);
+            mnt.recordLatencySince(PipelineStage.IO, ioStart);
+        
+            // Ensure that there is some variability in fitness values
+            double sdev = EAUtils.getPopulationSD(population);
+            if (sdev < settings.getMinFitnessSD())
             {
-                logger.log(Level.SEVERE, 
-                        "EA stopped while working on generation {0}. " + NL
-                        + "Reporting data for incomplete generation {0}."
-                        + NL,genId);
-                break;
-            } else {
-                logger.log(Level.INFO,
-                        "Generation {0}" + " completed" + NL
-                        + "----------------------------------------"
-                        + "----------------------------------------" 
-                        + NL, genId);
+                String msg = "Fitness values have negligible standard "
+                        + "deviation (STDDEV=" + String.format("%.6f", sdev) 
+                        + "). "
+                        + "Abbandoning evolutionary algorithm.";
+                logger.log(Level.SEVERE, msg);
+                population.trim(0);
+                return;
             }
 
-            if (numStag >= settings.getNumberOfConvergenceGenerations())
+            if (settings.isSteadyState())
             {
-                logger.log(Level.WARNING, 
-                        "No change in population over {0} iterations. "
-                        + "Stopping EA." + NL, numStag);
-                break;
+                String snapshotFrequency = settings.getSnapshotEvaluations() 
+                        + " completed evaluations";
+                if (settings.getSnapshotPeriod() > 0)
+                    snapshotFrequency = settings.getSnapshotPeriod() 
+                        + " seconds";
+                logger.log(Level.INFO, "Running steady-state evolution. "
+                        + "Generations are snapshots of the population taken "
+                        + "every " + snapshotFrequency + "." + NL);
             }
 
-            genId++;
-        }
+            // Start evolution cycles, i.e., generations
+            int numStag = 0, genId = 1;
+            while (genId <= settings.getNumberOfGenerations())
+            {
+                logger.log(Level.INFO,"Starting Generation {0}"
+                        + NL, genId);
+
+                String txt = "No change";
+                try
+                {
+                    boolean changed = false;
+                    if (islandsExecutor != null)
+                    {
+                        changed = evolveIslands(genId);
+                        population = mergeIslands();
+                    } else {
+                        changed = evolvePopulation(population, genId, -1);
+                    }
+                    if (!changed)
+                    {
+                        numStag++;
+                    }
+                    else
+                    {
+                        numStag = 0;
+                        txt = "New members introduced";
+                    }
+                } catch (DENOPTIMException e)
+                {
+                    logger.log(Level.SEVERE, "Exception while running "
+                            + "evolutionary algorithm. Details: " + NL 
+                            + ExceptionUtils.getStackTraceAsString(e));
+                    throw e;
+                }
+            
+                logger.log(Level.INFO,txt + " in Generation {0}" 
+                        + NL, genId);
+                ioStart = System.nanoTime();
+                EAUtils.outputPopulationDetails(population, 
+                        EAUtils.getPathNameToGenerationDetailsFile(genId, 
+                                settings),
+                        settings, writeCandsOnDisk);
+                EAUtils.storePopulationInRunDatabase(population, genId, 
+                        settings);
+                outputIslandsDetails(genId, writeCandsOnDisk);
+                mnt.recordLatencySince(PipelineStage.IO, ioStart);
+            
+                if (stopped)
+                {
+                    logger.log(Level.SEVERE, 
+                            "EA stopped while working on generation {0}. " + NL
+                            + "Reporting data for incomplete generation {0}."
+                            + NL,genId);
+                    break;
+                } else {
+                    logger.log(Level.INFO,
+                            "Generation {0}" + " completed" + NL
+                            + "----------------------------------------"
+                            + "----------------------------------------" 
+                            + NL, genId);
+                }
+
+                if (numStag >= settings.getNumberOfConvergenceGenerations())
+                {
+                    logger.log(Level.WARNING, 
+                            "No change in population over {0} iterations. "
+                            + "Stopping EA." + NL, numStag);
+                    break;
+                }
+
+                genId++;
+            }
         
-        if (isAsync)
-        {
-            tpe.shutdown();
-            try
+            if (isAsync)
             {
-                // wait a bit for pending tasks to finish
-                while (!tpe.awaitTermination(5, TimeUnit.SECONDS))
+                tpe.shutdown();
+                try
                 {
-                    // do nothing
+                    // wait a bit for pending tasks to finish
+                    while (!tpe.awaitTermination(5, TimeUnit.SECONDS))
+                    {
+                        // do nothing
+                    }
                 }
+                catch (InterruptedException ex)
+                {
+                    //Do nothing
+                }
+                tpe.shutdown();
             }
-            catch (InterruptedException ex)
+            if (islandsExecutor != null)
             {
-                //Do nothing
+                islandsExecutor.shutdown();
             }
-            tpe.shutdown();
-        }
 
-        // Sort the population and trim it to desired size
-        Collections.sort(population, Collections.reverseOrder());
-        if (settings.getReplacementStrategy() == 1)
-        {
-            population.trim(settings.getPopulationSize());
-        }
+            // Sort the population and trim it to desired size
+            Collections.sort(population, Collections.reverseOrder());
+            if (settings.getReplacementStrategy() == 1)
+            {
+                population.trim(settings.getPopulationSize());
+            }
 
-        // And write final results
-        EAUtils.outputFinalResults(population, settings);
-        
-        // Termination
-        population.trim(0);
+            // And write final results
+            EAUtils.outputFinalResults(population, settings);
+            population.trim(0);
+        } finally {
+            // Termination: runs also upon early return or exception
+            FitnessParameters fitParams = (FitnessParameters) 
+                    settings.getParameters(ParametersType.FIT_PARAMS);
+            fitParams.closeFitnessCache();
+            fitParams.closeFitnessFarm();
+            fitParams.closeFitnessWorkerPool();
+            settings.closeRunDatabase();
+            settings.closeMetricsPublisher();
+        }
         watch.stop();
         logger.log(Level.INFO, "Overall time: {0}." + NL,
                 watch.toString());
@@ -396,10 +541,12 @@ public class EvolutionaryAlgorithm
      * Fills up the population with candidates build from scratch. 
      * @param population the collection of population members. This is where 
      * pre-existing and newly generated population members will be collected.
+     * @param islandId the index of the island the population belongs to, or
+     * -1 if we are not using the island model.
      * @throws DENOPTIMException
      */
 
-    private void initializePopulation(Population population) 
+    private void initializePopulation(Population population, int islandId) 
             throws DENOPTIMException
     {
         // Deal with existing initial population members
@@ -424,9 +571,11 @@ public class EvolutionaryAlgorithm
             return;
         }
         
-        Monitor mnt = new Monitor("MonitorGen",0,settings.getMonitorFile(),
+        Monitor mnt = new Monitor(getMonitorName(islandId), 0,
+                settings.getMonitorFile(),
                 settings.getMonitorDumpStep(), settings.dumpMonitor(),
                 settings.getLogger());
+        startMonitoring(mnt);
         
         // Screen molecules (these can be very many!)
         if (settings.getInitMolsToFragmentFile()!=null)
@@ -567,6 +716,8 @@ public class EvolutionaryAlgorithm
             }
             ex.printStackTrace();
             throw new DENOPTIMException(ex);
+        } finally {
+            stopMonitoring(mnt);
         }
         
         mnt.printSummary();
@@ -627,6 +778,7 @@ public class EvolutionaryAlgorithm
         if (((FitnessParameters)settings.getParameters(
                 ParametersType.FIT_PARAMS)).checkPreFitnessUID())
         {
+            EAUtils.registerGraphHash(candidate.getGraph(), settings);
             try
             {
                 if (!scs.addNewUniqueEntry(candidate.getUID()))
@@ -651,15 +803,7 @@ public class EvolutionaryAlgorithm
         // Submission is dependent on the parallelization scheme
         if (isAsync)
         {
-            submitted.add(task);
-            futures.put(task, tpe.submit(task));
-            // We keep some memory but of previous tasks, but must
-            // avoid memory leak due to storage of too many references 
-            // to submitted tasks.
-            if (submitted.size() > 2*settings.getNumberOfCPU())
-            {
-                cleanupCompleted();
-            }
+            submitAsync(task);
         } else {
             batchOfSyncParallelTasks.add(task);
             boolean submitBatch = false;
@@ -696,11 +840,71 @@ public class EvolutionaryAlgorithm
     private void submitSyncParallelBatch(List<Task> batchOfSyncParallelTasks) 
             throws DENOPTIMException
     {
-        tbm.executeTasks(batchOfSyncParallelTasks, 
-                settings.getNumberOfCPU());
+        // NB: islands take turns in using the batch manager
+        synchronized (tbm)
+        {
+            tbm.executeTasks(batchOfSyncParallelTasks, 
+                    settings.getNumberOfCPU());
+        }
         batchOfSyncParallelTasks.clear();
     }
 
+//------------------------------------------------------------------------------
+    
+    /**
+     * Submits a task to the executor of the asynchronous parallelization
+     * scheme.
+     * @param task the task to submit.
+     */
+    private void submitAsync(FitnessTask task)
+    {
+        Future<Object> future = tpe.submit(task);
+        synchronized (submitted)
+        {
+            submitted.add(task);
+            futures.put(task, future);
+            // We keep some memory of previous tasks, but must
+            // avoid memory leak due to storage of too many references 
+            // to submitted tasks.
+            if (submitted.size() > 2*maxTasksInFlight)
+            {
+                cleanupCompleted();
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Registers a monitor to the services that report to it or publish its
+     * content.
+     * @param mnt the monitor.
+     */
+    private void startMonitoring(Monitor mnt)
+    {
+        ProcessSupervisor.getInstance().addMonitor(mnt);
+        if (metricsPublisher != null)
+        {
+            metricsPublisher.addMonitor(mnt);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Removes a monitor from the services that report to it or publish its
+     * content.
+     * @param mnt the monitor.
+     */
+    private void stopMonitoring(Monitor mnt)
+    {
+        ProcessSupervisor.getInstance().removeMonitor(mnt);
+        if (metricsPublisher != null)
+        {
+            metricsPublisher.removeMonitor(mnt);
+        }
+    }
+
 //------------------------------------------------------------------------------
 
     /**
@@ -709,10 +913,13 @@ public class EvolutionaryAlgorithm
      * @param population the list of items to be evolved.
      * @param genId the number identifying this generation in the history of 
      * the population.
+     * @param islandId the index of the island the population belongs to, or
+     * -1 if we are not using the island model.
+     * @return <code>true</code> if the population has changed.
      * @throws DENOPTIMException
      */
     private boolean evolvePopulation(Population population, 
-            int genId) throws DENOPTIMException
+            int genId, int islandId) throws DENOPTIMException
     {
         EAUtils.createFolderForGeneration(genId, settings);
         
@@ -727,7 +934,11 @@ public class EvolutionaryAlgorithm
             {
                 eligibleParents.add(c);
             }
-            if (settings.parentsSurvive())
+            if (settings.isSteadyState())
+            {
+                // Offspring replace population members, if they deserve it
+                newPopSize = settings.getPopulationSize();
+            } else if (settings.parentsSurvive())
             {
                 newPopSize = settings.getNumberOfChildren() 
                         + eligibleParents.size();
@@ -738,11 +949,17 @@ public class EvolutionaryAlgorithm
             populationVersion = population.getVersionID();
         }
         
+        int completedAtStart = 0;
+        if (settings.isSteadyState())
+            completedAtStart = getNumCompletedTasks(population);
+        long startTime = System.currentTimeMillis();
+        
         int i=0;
         List<Task> syncronisedTasks = new ArrayList<>();
-        Monitor mnt = new Monitor("MonitorGen", genId, 
+        Monitor mnt = new Monitor(getMonitorName(islandId), genId, 
                 settings.getMonitorFile(),settings.getMonitorDumpStep(), 
                 settings.dumpMonitor(), settings.getLogger());
+        startMonitoring(mnt);
         try
         {
             while (i < settings.getPopulationSize() *
@@ -762,30 +979,42 @@ public class EvolutionaryAlgorithm
                             + "execution.", ex);
                 }
                 
-                synchronized (population)
+                // NB: candidates are removed from any island
+                synchronized (candidatesToRemove)
                 {
-                    synchronized (candidatesToRemove)
+                    if (candidatesToRemove.size()>0)
                     {
-                        if (candidatesToRemove.size()>0)
+                        for (Population island : islands)
                         {
-                            for (String id : candidatesToRemove)
+                            synchronized (island)
                             {
-                                Candidate c = population.getCandidateNamed(id);
-                                if (c != null)
+                                for (String id : candidatesToRemove)
                                 {
-                                    population.remove(c);
-                                    eligibleParents.remove(c);
+                                    Candidate c = island.getCandidateNamed(id);
+                                    if (c != null)
+                                    {
+                                        island.remove(c);
+                                        eligibleParents.remove(c);
+                                    }
                                 }
                             }
-                            candidatesToRemove.clear();
                         }
+                        candidatesToRemove.clear();
                     }
                 }
                 
-                synchronized (population)
+                if (settings.isSteadyState())
                 {
-                    if (population.size() >= newPopSize)
+                    if (isSnapshotDue(population, completedAtStart, 
+                            startTime))
                         break;
+                    eligibleParents = getLiveParents(population);
+                } else {
+                    synchronized (population)
+                    {
+                        if (population.size() >= newPopSize)
+                            break;
+                    }
                 }
                 
                 File srcOfCandidate = null;
@@ -837,6 +1066,8 @@ public class EvolutionaryAlgorithm
                     if (((FitnessParameters)settings.getParameters(
                             ParametersType.FIT_PARAMS)).checkPreFitnessUID())
                     {
+                        EAUtils.registerGraphHash(candidate.getGraph(),
+                                settings);
                         try
                         {
                             if (!scs.addNewUniqueEntry(candidate.getUID()))
@@ -856,19 +1087,17 @@ public class EvolutionaryAlgorithm
                             candidate,
                             sibling,
                             EAUtils.getPathNameToGenerationFolder(genId, settings), 
-                            population, mnt, settings.getUIDFileOut(), false);
+                            population, mnt, settings.getUIDFileOut(), 
+                            settings.isSteadyState());
                     
                     if (isAsync)
                     {
-                        submitted.add(task);
-                        futures.put(task, tpe.submit(task));
-                        // We keep some memory of previous tasks, but must
-                        // avoid memory leak due to storage of too many references 
-                        // to submitted tasks.
-                        if (submitted.size() > 2*settings.getNumberOfCPU())
-                        {
-                            cleanupCompleted();
-                        }
+                        submitAsync(task);
+                        // In steady state, snapshots end according to 
+                        // completed tasks or time, so we only limit the 
+                        // number of consecutive failures to make offspring.
+                        if (settings.isSteadyState())
+                            i = 0;
                     } else {
                         syncronisedTasks.add(task);
                         if (syncronisedTasks.size() 
@@ -909,6 +1138,8 @@ public class EvolutionaryAlgorithm
             }
             ex.printStackTrace();
             throw new DENOPTIMException(ex);
+        } finally {
+            stopMonitoring(mnt);
         }
         
         mnt.printSummary();
@@ -1083,6 +1314,167 @@ public class EvolutionaryAlgorithm
         return candidates;
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Work to be done on each island of the island model.
+     */
+    private interface IslandWork
+    {
+        /**
+         * @param island the population of the island.
+         * @param islandId the index of the island.
+         * @return a flag reporting the outcome of the work.
+         * @throws DENOPTIMException
+         */
+        boolean run(Population island, int islandId) throws DENOPTIMException;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Runs the given work on all islands concurrently and waits for all of
+     * them to complete.
+     * @param work the work to do on each island.
+     * @return the outcome of the work on each island.
+     * @throws DENOPTIMException if the work failed on any island. In such
+     * case the whole run is stopped.
+     */
+    private List<Boolean> runOnIslands(IslandWork work) 
+            throws DENOPTIMException
+    {
+        List<Future<Boolean>> results = new ArrayList<Future<Boolean>>();
+        for (int i=0; i<islands.size(); i++)
+        {
+            final Population island = islands.get(i);
+            final int islandId = i;
+            results.add(islandsExecutor.submit(
+                    () -> work.run(island, islandId)));
+        }
+        List<Boolean> outcome = new ArrayList<Boolean>();
+        for (Future<Boolean> result : results)
+        {
+            try
+            {
+                outcome.add(result.get());
+            } catch (ExecutionException e)
+            {
+                stopRun();
+                if (e.getCause() instanceof DENOPTIMException)
+                    throw (DENOPTIMException) e.getCause();
+                throw new DENOPTIMException(e.getCause());
+            } catch (InterruptedException e)
+            {
+                stopRun();
+                Thread.currentThread().interrupt();
+                throw new DENOPTIMException("Interrupted while waiting for "
+                        + "islands.", e);
+            }
+        }
+        return outcome;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Creates the islands and distributes the given candidates among them.
+     * The candidates are sorted by fitness and dealt to the islands in turn,
+     * so that no island takes all the best candidates.
+     * @param population the candidates to distribute.
+     */
+    private void distributeAmongIslands(Population population)
+    {
+        for (int i=0; i<settings.getNumberOfIslands(); i++)
+        {
+            islands.add(new Population(settings));
+        }
+        Collections.sort(population, Collections.reverseOrder());
+        for (int i=0; i<population.size(); i++)
+        {
+            islands.get(i % islands.size()).add(population.get(i));
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Evolves all islands by one generation and, if due, lets the islands 
+     * exchange migrants.
+     * @param genId the number identifying this generation.
+     * @return <code>true</code> if any island has changed.
+     * @throws DENOPTIMException
+     */
+    private boolean evolveIslands(int genId) throws DENOPTIMException
+    {
+        List<Boolean> outcome = runOnIslands((island, islandId) -> 
+                evolvePopulation(island, genId, islandId));
+        boolean changed = outcome.contains(true);
+        if (!stopped && genId % settings.getMigrationInterval() == 0)
+        {
+            int numMigrants = EAUtils.migrate(islands, 
+                    settings.getMigrationSize(), 
+                    settings.getMigrationTopology(), 
+                    settings.getRandomizer());
+            logger.log(Level.INFO, "Migration in generation " + genId + ": " 
+                    + numMigrants + " candidates moved among islands." + NL);
+            if (numMigrants > 0)
+                changed = true;
+        }
+        return changed;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Collects the members of all islands into a single population sorted
+     * by decreasing fitness.
+     * @return the population collecting all islands.
+     */
+    private Population mergeIslands()
+    {
+        return EAUtils.mergeIslands(islands, settings);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Writes the summary of each island next to the summary of the 
+     * generation. Does nothing if we are not using the island model.
+     * @param genId the number identifying the generation.
+     * @param printpathNames <code>true</code> to write the pathnames of the
+     * candidate files.
+     * @throws DENOPTIMException
+     */
+    private void outputIslandsDetails(int genId, boolean printpathNames) 
+            throws DENOPTIMException
+    {
+        if (islandsExecutor == null)
+            return;
+        String genSummary = EAUtils.getPathNameToGenerationDetailsFile(genId, 
+                settings);
+        for (int i=0; i<islands.size(); i++)
+        {
+            EAUtils.outputPopulationDetails(islands.get(i), 
+                    genSummary.replaceAll("\\.txt$", 
+                            "_Island" + (i+1) + ".txt"),
+                    settings, printpathNames);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param islandId the index of the island, or -1 if we are not using the
+     * island model.
+     * @return the name of the monitor of one generation.
+     */
+    private String getMonitorName(int islandId)
+    {
+        if (islandId < 0)
+            return "MonitorGen";
+        return "MonitorGenIsland" + (islandId+1);
+    }
+
 //------------------------------------------------------------------------------
 
     public void stopRun()
@@ -1102,17 +1494,21 @@ public class EvolutionaryAlgorithm
      */
     private void cleanupAsync()
     {
-        for (FitnessTask tsk: submitted)
-        {
-            tsk.stopTask();
-        }
-        for (FitnessTask tsk : futures.keySet())
+        synchronized (submitted)
         {
-            futures.get(tsk).cancel(true);
+            for (FitnessTask tsk: submitted)
+            {
+                tsk.stopTask();
+            }
+            for (FitnessTask tsk : futures.keySet())
+            {
+                futures.get(tsk).cancel(true);
+            }
+            futures.clear();
+            submitted.clear();
         }
-        futures.clear();
-        submitted.clear();
-        tpe.getQueue().clear();
+        if (tpe instanceof ThreadPoolExecutor)
+            ((ThreadPoolExecutor) tpe).getQueue().clear();
     }
     
 //------------------------------------------------------------------------------
@@ -1122,20 +1518,92 @@ public class EvolutionaryAlgorithm
      */
     private void cleanupCompleted()
     {
-        List<FitnessTask> completed = new ArrayList<FitnessTask>();
+        synchronized (submitted)
+        {
+            List<FitnessTask> completed = new ArrayList<FitnessTask>();
+    
+            for (FitnessTask t : submitted)
+            {
+                if (t.isCompleted())
+                    completed.add(t);
+            }
+    
+            for (FitnessTask t : completed)
+            {
+                submitted.remove(t);
+                futures.get(t).cancel(true);
+                futures.remove(t);
+            }
+            for (FitnessTask t : completed)
+            {
+                if (t instanceof OffspringEvaluationTask)
+                {
+                    numCompletedTasks.merge(
+                            ((OffspringEvaluationTask) t).getPopulation(), 
+                            1, Integer::sum);
+                }
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Gets the candidates eligible to become parents in the steady-state 
+     * evolution, i.e., the current members of the population. Offspring 
+     * that entered the population since the start of the snapshot are 
+     * included, and members they replaced are excluded.
+     * @param population the population.
+     * @return a copy of the current list of population members.
+     */
+    static List<Candidate> getLiveParents(Population population)
+    {
+        synchronized (population)
+        {
+            return new ArrayList<Candidate>(population);
+        }
+    }
+
+//------------------------------------------------------------------------------
 
-        for (FitnessTask t : submitted)
+    /**
+     * Gets the number of completed tasks that have been working for the 
+     * given population.
+     * @param population the population (i.e., island) of interest.
+     * @return the number of completed tasks found so far.
+     */
+    private int getNumCompletedTasks(Population population)
+    {
+        synchronized (submitted)
         {
-            if (t.isCompleted())
-                completed.add(t);
+            return numCompletedTasks.getOrDefault(population, 0);
         }
+    }
 
-        for (FitnessTask t : completed)
+//------------------------------------------------------------------------------
+
+    /**
+     * Checks if it is time to take a snapshot of the population in the 
+     * steady-state evolution. When using islands, each island counts only 
+     * the evaluations of its own offspring.
+     * @param population the population (i.e., island) being evolved.
+     * @param completedAtStart the number of completed tasks of the given 
+     * population when the current snapshot was started.
+     * @param startTime the time (milliseconds) when the current snapshot was 
+     * started.
+     * @return <code>true</code> if the current snapshot should be taken.
+     */
+    private boolean isSnapshotDue(Population population, int completedAtStart,
+            long startTime)
+    {
+        if (settings.getSnapshotPeriod() > 0)
         {
-            submitted.remove(t);
-            futures.get(t).cancel(true);
-            futures.remove(t);
+            return System.currentTimeMillis() - startTime 
+                    >= settings.getSnapshotPeriod() * 1000L;
         }
+        cleanupCompleted();
+        return getNumCompletedTasks(population) - completedAtStart 
+                >= settings.getSnapshotEvaluations();
     }
 
 //------------------------------------------------------------------------------
@@ -1145,24 +1613,27 @@ public class EvolutionaryAlgorithm
         boolean foundExceptions = false;
         if (isAsync)
         {
-            for (FitnessTask tsk : submitted)
+            synchronized (submitted)
             {
-                boolean interrupt = false;
-                synchronized (tsk.lock)
+                for (FitnessTask tsk : submitted)
                 {
-                    if (tsk.foundException())
+                    boolean interrupt = false;
+                    synchronized (tsk.lock)
                     {
-                        foundExceptions = true;
-                        logger.log(Level.SEVERE, "problems in " 
-                          + tsk.toString() + ". ErrorMessage: '" 
-                          + tsk.getErrorMessage() + "'. ExceptionInTask: "
-                          + tsk.getException());
-                        ex = tsk.getException().getCause();
-                        interrupt = true;
+                        if (tsk.foundException())
+                        {
+                            foundExceptions = true;
+                            logger.log(Level.SEVERE, "problems in " 
+                              + tsk.toString() + ". ErrorMessage: '" 
+                              + tsk.getErrorMessage() + "'. ExceptionInTask: "
+                              + tsk.getException());
+                            ex = tsk.getException().getCause();
+                            interrupt = true;
+                        }
                     }
+                    if (interrupt)
+                        break;
                 }
-                if (interrupt)
-                    break;
             }
         } else {
             // We don't really check of exceptions for synchronous scheme
@@ -1512,6 +1512,7 @@ public class GraphOperations
                     ParametersType.FS_PARAMS);
         }
         int maxHeavyAtoms = fsParams.getMaxHeavyAtom();
+        double maxMW = fsParams.getMaxMW();
         
         // return true if the append has been successful
         boolean status = false;
@@ -1624,6 +1625,13 @@ public class GraphOperations
             {
                 continue;
             }
+            double incomingMW = incomingVertex.getAdditiveDescriptors()
+                    .getMinMolecularWeight();
+            if (maxMW > 0 && (curVrtx.getGraphOwner()
+                    .getMolecularWeightLowerBound() + incomingMW) > maxMW)
+            {
+                continue;
+            }
 
             // Decide on symmetric substitution within this vertex...
             boolean cpOnSymAPs = applySymmetry(
@@ -1710,6 +1718,12 @@ public class GraphOperations
             {
                 continue;
             }
+            if (maxMW > 0 && (curVrtx.getGraphOwner()
+                    .getMolecularWeightLowerBound() + incomingMW 
+                    * symVerts.size() * symAPs.size()) > maxMW)
+            {
+                continue;
+            }
             
             // Collects all sym APs: within the vertex and outside it 
             List<AttachmentPoint> allAPsFromSymVerts = new ArrayList<>();
@@ -33,6 +33,7 @@ import denoptim.graph.Candidate;
 import denoptim.graph.DGraph;
 import denoptim.logging.CounterID;
 import denoptim.logging.Monitor;
+import denoptim.logging.PipelineStage;
 import denoptim.molecularmodeling.ThreeDimTreeBuilder;
 import denoptim.programs.RunTimeParameters.ParametersType;
 import denoptim.programs.denovo.GAParameters;
@@ -105,6 +106,16 @@ public class OffspringEvaluationTask extends FitnessTask
         fitProvUIDFile = fileUID;
     }
 
+//------------------------------------------------------------------------------
+    
+    /**
+     * @return the population this offspring competes for.
+     */
+    Population getPopulation()
+    {
+        return population;
+    }
+    
 //------------------------------------------------------------------------------
     
     @Override
@@ -117,6 +128,7 @@ public class OffspringEvaluationTask extends FitnessTask
         // blocks (not aligned, nor roto-translated)
         if (fitnessSettings.make3dTree())
         {
+            long build3dStart = System.nanoTime();
         	ThreeDimTreeBuilder tb3d = new ThreeDimTreeBuilder(
         	        fitnessSettings.getLogger(),
         	        fitnessSettings.getRandomizer());
@@ -145,6 +157,7 @@ public class OffspringEvaluationTask extends FitnessTask
         	} catch (Throwable t) {
         		//we have it already from before
         	}
+            mnt.recordLatencySince(PipelineStage.BUILD3D, build3dStart);
         }
         fitProvMol.setProperty(CDKConstants.TITLE, molName);
         fitProvMol.setProperty(DENOPTIMConstants.SMILESTAG, result.getSmiles());
@@ -160,6 +173,7 @@ public class OffspringEvaluationTask extends FitnessTask
         }
         
         // Run the fitness provider, whatever that is (internal or external)
+        long fitnessStart = System.nanoTime();
         try
         {
             // Note that in here the molecular representation of the offspring 
@@ -174,6 +188,8 @@ public class OffspringEvaluationTask extends FitnessTask
             thrownExc = ex;
             ex.printStackTrace();
             throw new DENOPTIMException(ex);
+        } finally {
+            mnt.recordLatencySince(PipelineStage.FITNESS, fitnessStart);
         }
 
         if (result.getError() != null)
@@ -189,46 +205,10 @@ public class OffspringEvaluationTask extends FitnessTask
         	{
 	            synchronized (population)
 	            {
-	                // Optionally keep the best of sibling
-	                if (population.contains(sibling) 
-	                        && gaSettings.keepBestSibling())
-	                {
-	                    if (result.getFitness()>sibling.getFitness())
-	                    {
-	                        addthisToPop = true;
-	                        population.remove(sibling);
-	                        gaSettings.getLogger().log(Level.INFO, "Replacing "
-	                                + sibling.getName() + " with its sibling "
-	                                + molName + " in population");
-	                    }
-	                } else {
-	                    if (population.size()>gaSettings.getPopulationSize()
-	                            && replaceWorstPopMember)
-	                    {
-	                        if (result.getFitness()>population.getMinFitness())
-	                        {
-	                            addthisToPop = true;
-	                        } else {
-	                            gaSettings.getLogger().log(Level.WARNING, 
-	                                    "Candidate {0} is worse than the worst "
-	                                    + "population member and does not "
-	                                    + "enter the population.", molName);
-	                        }
-	                    } else {
-    	                    addthisToPop = true;
-                            gaSettings.getLogger().log(Level.INFO, 
-                                    "Adding {0} to population", molName);
-	                    }
-	                }
-	                
+	                addthisToPop = admitToPopulation(result, sibling, 
+	                        population, gaSettings, replaceWorstPopMember);
 	                if (addthisToPop)
 	                {
-                        if (population.size()>=gaSettings.getPopulationSize()
-                                && replaceWorstPopMember)
-                        {
-                            population.remove(population.getMinFitnessMember());
-                        }
-    	                population.add(result);
     	                isWithinBestPrcentile = population.isWithinPercentile(
                                 result.getFitness(),
                                 gaSettings.getSaveRingSystemsFitnessThreshold());
@@ -250,5 +230,72 @@ public class OffspringEvaluationTask extends FitnessTask
         return result;
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Decides if an evaluated offspring should become a member of the 
+     * population and, if so, adds it to the population, possibly replacing 
+     * its sibling or the worst population member. The caller must hold the 
+     * lock on the population.
+     * @param offspring the evaluated offspring.
+     * @param sibling the sibling of the offspring, or <code>null</code>.
+     * @param population the population the offspring competes for.
+     * @param gaSettings the GA settings.
+     * @param replaceWorstPopMember use <code>true</code> to let the offspring
+     * compete with the worst member of a full population, rather than 
+     * adding it to the population in any case.
+     * @return <code>true</code> if the offspring has been added to the 
+     * population.
+     */
+    static boolean admitToPopulation(Candidate offspring, Candidate sibling,
+            Population population, GAParameters gaSettings, 
+            boolean replaceWorstPopMember)
+    {
+        boolean addthisToPop = false;
+        String molName = offspring.getName();
+        
+        // Optionally keep the best of sibling
+        if (population.contains(sibling) && gaSettings.keepBestSibling())
+        {
+            if (offspring.getFitness()>sibling.getFitness())
+            {
+                addthisToPop = true;
+                population.remove(sibling);
+                gaSettings.getLogger().log(Level.INFO, "Replacing "
+                        + sibling.getName() + " with its sibling "
+                        + molName + " in population");
+            }
+        } else {
+            if (population.size()>=gaSettings.getPopulationSize()
+                    && replaceWorstPopMember)
+            {
+                if (offspring.getFitness()>population.getMinFitness())
+                {
+                    addthisToPop = true;
+                } else {
+                    gaSettings.getLogger().log(Level.WARNING, 
+                            "Candidate {0} is worse than the worst "
+                            + "population member and does not "
+                            + "enter the population.", molName);
+                }
+            } else {
+                addthisToPop = true;
+                gaSettings.getLogger().log(Level.INFO, 
+                        "Adding {0} to population", molName);
+            }
+        }
+        
+        if (addthisToPop)
+        {
+            if (population.size()>=gaSettings.getPopulationSize()
+                    && replaceWorstPopMember)
+            {
+                population.remove(population.getMinFitnessMember());
+            }
+            population.add(offspring);
+        }
+        return addthisToPop;
+    }
+
 //------------------------------------------------------------------------------
 }
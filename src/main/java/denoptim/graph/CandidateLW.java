@@ -18,6 +18,8 @@
 
 package denoptim.graph;
 
+import java.util.Objects;
+
 
 /**
  * A light-weight candidate is a very low-demanding collection of data upon
@@ -213,6 +215,14 @@ public class CandidateLW
         
         return true;
 	}
+	
+//------------------------------------------------------------------------------
+
+    @Override
+    public int hashCode()
+    {
+        return Objects.hash(name, uid);
+    }
 
 //------------------------------------------------------------------------------        
     
@@ -47,7 +47,6 @@ import java.util.stream.Stream;
 import org.jgrapht.alg.isomorphism.VF2GraphIsomorphismInspector;
 import org.jgrapht.graph.DefaultUndirectedGraph;
 import org.openscience.cdk.graph.ConnectivityChecker;
-import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
 
 import com.google.gson.Gson;
@@ -178,6 +177,45 @@ public class DGraph implements Cloneable
      * symmetry detection
      */
     private static final String SYM_ID = "symmetryKey";
+    
+    /**
+     * Running totals of the additive descriptors of the vertices, or 
+     * <code>null</code> if they have to be collected anew.
+     */
+    private transient AdditiveTotals additiveTotals = null;
+ 
+//------------------------------------------------------------------------------
+
+    /**
+     * Running totals of the {@link VertexDescriptors} of the vertices of a 
+     * graph. {@link Template}s are only listed, since their inner graph can 
+     * change at any time, so their contribution is collected upon request.
+     */
+    private static class AdditiveTotals
+    {
+        int vertexCount = 0;
+        int heavyAtoms = 0;
+        double minMolecularWeight = 0.0;
+        int minRotatableBonds = 0;
+        List<Template> templates = new ArrayList<Template>();
+        
+        void add(Vertex v, int sign)
+        {
+            vertexCount += sign;
+            if (v instanceof Template)
+            {
+                if (sign > 0)
+                    templates.add((Template) v);
+                else
+                    templates.remove(v);
+                return;
+            }
+            VertexDescriptors vd = v.getAdditiveDescriptors();
+            heavyAtoms += sign * vd.getHeavyAtomCount();
+            minMolecularWeight += sign * vd.getMinMolecularWeight();
+            minRotatableBonds += sign * vd.getMinRotatableBondCount();
+        }
+    }
  
 //------------------------------------------------------------------------------
 
@@ -370,8 +408,9 @@ public class DGraph implements Cloneable
     public boolean detectSymVertexSets() throws DENOPTIMException
     {        
         int initialSize = symVertices.size();
-        List<Vertex> uniqueVertices = new ArrayList<>();
-        Map<String, List<Vertex>> pathMap = new HashMap<>();
+        Map<Integer, List<Vertex>> uniqueVerticesByFingerprint = 
+                new HashMap<>();
+        Map<Integer, List<Vertex>> pathMap = new LinkedHashMap<>();
         Set<Vertex> visited = new HashSet<>();
         Vertex scaffold = null;
 
@@ -386,7 +425,12 @@ public class DGraph implements Cloneable
             boolean isVertexNew = true;
             Vertex matchedVertex = null;
             
-         // Check if the vertex is the same as other in the unique vertices
+         // Only vertices with the same fingerprint can be the same, so we
+         // compare the vertex only with the unique vertices in its partition
+            List<Vertex> uniqueVertices = 
+                    uniqueVerticesByFingerprint.computeIfAbsent(
+                            vertex.getContentFingerprint(), 
+                            k -> new ArrayList<>());
             for (Vertex uniqueVertex : uniqueVertices) 
             {
              // Equality condition
@@ -454,10 +498,11 @@ public class DGraph implements Cloneable
          }
          
       // Get all path with Depth First Search (DFS) algorithm
-         dfsEncodePaths(scaffold, "", visited, pathMap);
+         dfsEncodePaths(scaffold, -1, new HashMap<Long, Integer>(), visited, 
+                 pathMap);
          
       // Detect symmetric sets based on path encodings
-         for (Map.Entry<String, List<Vertex>> entry : pathMap.entrySet()) {
+         for (Map.Entry<Integer, List<Vertex>> entry : pathMap.entrySet()) {
              List<Vertex> symVertices = entry.getValue();
              if (symVertices.size() > 1) 
              {
@@ -471,25 +516,31 @@ public class DGraph implements Cloneable
 //------------------------------------------------------------------------------    
     /**
      * Performs a depth-first search (DFS) starting from a given {@link Vertex} 
-     * to encode paths in the graph. This method appends the unique identifier 
-     * of each {@link Vertex} and its {@link AttachmentPoint}s to the current 
-     * path string as it traverses the graph. Each unique path is stored in a 
-     * map, with {@link Vertex}es collected under their respective path 
-     * encodings. This encoding helps in identifying symmetric {@link Vertex}es
-     * based on shared path signatures.
+     * to encode paths in the graph. Paths are sequences alternating the 
+     * unique identifier of each {@link Vertex} and of the 
+     * {@link AttachmentPoint} used to reach the next {@link Vertex}. Each 
+     * path is encoded as an integer that is assigned upon the first 
+     * encounter of the pair made of the encoding of the path up to the 
+     * previous step and the identifier of the last step. 
+     * {@link Vertex}es are collected under the encoding of the path that
+     * leads to them. This encoding helps in identifying symmetric 
+     * {@link Vertex}es based on shared path signatures.
      *
      * @param current The current vertex from which the DFS is initiated.
-     * @param currentPath The encoded path string accumulated up to the current 
-     * vertex.
+     * @param parentPath The encoding of the path leading to the current 
+     * vertex, or -1 for the starting vertex.
+     * @param stepIds The map of encodings for each pair of path encoding and
+     * step identifier.
      * @param visited A set of visited vertices to avoid re-visitation.
      * @param pathMap A map that aggregates vertices under their unique path 
      * encodings.
      * @throws DENOPTIMException 
      */         
     private void dfsEncodePaths(Vertex current, 
-            String currentPath,
+            int parentPath,
+            Map<Long, Integer> stepIds,
             Set<Vertex> visited,
-            Map<String, List<Vertex>> pathMap) throws DENOPTIMException {
+            Map<Integer, List<Vertex>> pathMap) throws DENOPTIMException {
         
         if (visited.contains(current)) 
         {
@@ -498,7 +549,7 @@ public class DGraph implements Cloneable
         visited.add(current);
         
         Integer vertexKey = (Integer) current.getProperty(SYM_ID);
-        currentPath += vertexKey.toString(); 
+        int currentPath = encodePathStep(parentPath, vertexKey, stepIds);
 
      // Store the current path in pathMap
         pathMap.computeIfAbsent(currentPath, k -> new ArrayList<>()).add(current);
@@ -520,7 +571,8 @@ public class DGraph implements Cloneable
              // Ensure the apKey is valid
                 if (apKey != null) {
                     dfsEncodePaths(child, 
-                        currentPath + apKey.toString(),
+                        encodePathStep(currentPath, apKey, stepIds),
+                        stepIds,
                         visited,
                         pathMap); 
                 } else {
@@ -531,6 +583,31 @@ public class DGraph implements Cloneable
         }
     }
     
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the encoding of the path obtained by extending a path by one 
+     * step. Encodings are assigned incrementally, so they are unique as long 
+     * as the same map is used for all the paths to compare.
+     * @param path the encoding of the path to extend, or -1 for the empty 
+     * path.
+     * @param step the identifier of the step.
+     * @param stepIds the map of encodings assigned so far.
+     * @return the encoding of the extended path.
+     */
+    private static int encodePathStep(int path, int step, 
+            Map<Long, Integer> stepIds)
+    {
+        long key = (((long) path) << 32) | (step & 0xFFFFFFFFL);
+        Integer id = stepIds.get(key);
+        if (id == null)
+        {
+            id = stepIds.size();
+            stepIds.put(key, id);
+        }
+        return id;
+    }
+    
 //------------------------------------------------------------------------------    
     /**
 //     * Tries to determine the set of symmetric vertices in this graph based on
@@ -908,6 +985,7 @@ public class DGraph implements Cloneable
     public void setVertexList(ArrayList<Vertex> vertices)
     {
         gVertices = vertices;
+        additiveTotals = null;
         jGraph = null;
         jGraphKernel = null;
     }
@@ -1029,6 +1107,19 @@ public class DGraph implements Cloneable
         return gRings;
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Calculates a hash that does not depend on vertex IDs nor on the order
+     * of vertexes and edges. See {@link DGraphHasher}.
+     * @return the hash or <code>null</code> if this graph cannot be hashed
+     * reliably.
+     */
+    public String getCanonicalHash()
+    {
+        return DGraphHasher.getHash(this);
+    }
+
 //------------------------------------------------------------------------------
 
     /**
@@ -1397,6 +1488,8 @@ public class DGraph implements Cloneable
                     + getGraphId());
         vertex.setGraphOwner(this);
         gVertices.add(vertex);
+        if (additiveTotals != null)
+            additiveTotals.add(vertex, 1);
         jGraph = null;
         jGraphKernel = null;
     }
@@ -1470,6 +1563,8 @@ public class DGraph implements Cloneable
 
         // remove the vertex from the graph
         gVertices.remove(vertex);
+        if (additiveTotals != null)
+            additiveTotals.add(vertex, -1);
         
         jGraph = null;
         jGraphKernel = null;
@@ -1737,6 +1832,8 @@ public class DGraph implements Cloneable
         
         // Remove the vertex
         getVertexList().remove(vertex);
+        if (additiveTotals != null)
+            additiveTotals.add(vertex, -1);
         vertex.resetGraphOwner();
         
         // Add new edges (within the graph owning the removed vertex) 
@@ -4037,6 +4134,7 @@ public class DGraph implements Cloneable
         {
             closableChains.clear();
         }
+        additiveTotals = null;
         jGraph = null;
         jGraphKernel = null;
     }
@@ -4602,14 +4700,133 @@ public class DGraph implements Cloneable
      */
     public int getHeavyAtomsCount()
     {
-        int n = 0;
-        for (Vertex v : getVertexList())
+        AdditiveTotals totals = getAdditiveTotals();
+        int n = totals.heavyAtoms;
+        for (Template t : totals.templates)
         {
-            n += v.getHeavyAtomsCount();
+            n += t.getHeavyAtomsCount();
         }
         return n;
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the running totals of the additive descriptors, collecting them
+     * anew if they have been invalidated or if the list of vertices has been
+     * altered without using the methods of this class.
+     */
+    private AdditiveTotals getAdditiveTotals()
+    {
+        AdditiveTotals totals = additiveTotals;
+        if (totals == null || totals.vertexCount != gVertices.size())
+        {
+            totals = new AdditiveTotals();
+            for (Vertex v : gVertices)
+            {
+                totals.add(v, 1);
+            }
+            additiveTotals = totals;
+        }
+        return totals;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Drops the running totals of the additive descriptors of this graph,
+     * so that they will be collected anew when needed.
+     */
+    void resetAdditiveDescriptors()
+    {
+        additiveTotals = null;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns a lower bound of the molecular weight of the molecule encoded
+     * by this graph. The bound is calculated without building the molecule
+     * and accounts only for heavy atoms.
+     * @return the lower bound of the molecular weight.
+     */
+    public double getMolecularWeightLowerBound()
+    {
+        AdditiveTotals totals = getAdditiveTotals();
+        double mw = totals.minMolecularWeight;
+        for (Template t : totals.templates)
+        {
+            mw += t.getAdditiveDescriptors().getMinMolecularWeight();
+        }
+        return mw;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns a lower bound of the number of rotatable bonds of the molecule
+     * encoded by this graph. The bound is calculated without building the 
+     * molecule. Since ring closures may make rotatable bonds cyclic, the 
+     * bound is zero for graphs that define rings.
+     * @return the lower bound of the number of rotatable bonds.
+     */
+    public int getRotatableBondsLowerBound()
+    {
+        if (gRings != null && !gRings.isEmpty())
+            return 0;
+        AdditiveTotals totals = getAdditiveTotals();
+        int n = totals.minRotatableBonds;
+        for (Template t : totals.templates)
+        {
+            n += t.getAdditiveDescriptors().getMinRotatableBondCount();
+        }
+        return n;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Checks if this graph is already too large to satisfy the limits on 
+     * number of heavy atoms and molecular weight. Since these properties can 
+     * only grow when adding vertices, a graph exceeding these limits cannot 
+     * lead to any acceptable graph by further growth.
+     * @param fsSettings the settings defining the limits.
+     * @return <code>true</code> if the graph exceeds any such limit.
+     */
+    public boolean exceedsSizeLimits(FragmentSpaceParameters fsSettings)
+    {
+        if (fsSettings.getMaxHeavyAtom() > 0 
+                && getHeavyAtomsCount() > fsSettings.getMaxHeavyAtom())
+            return true;
+        if (fsSettings.getMaxMW() > 0 
+                && getMolecularWeightLowerBound() > fsSettings.getMaxMW())
+            return true;
+        return false;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Checks if the molecule encoded by this graph is certainly going to 
+     * violate the limits on number of heavy atoms, molecular weight, or 
+     * number of rotatable bonds. This check does not build the molecule, and
+     * it is therefore meant to reject graphs before any expensive operation.
+     * A <code>false</code> result does not imply the limits are satisfied.
+     * @param fsSettings the settings defining the limits.
+     * @return <code>true</code> if the molecule encoded by this graph 
+     * certainly violates any such limit.
+     */
+    public boolean exceedsAdditiveLimits(FragmentSpaceParameters fsSettings)
+    {
+        if (exceedsSizeLimits(fsSettings))
+            return true;
+        if (fsSettings.getMaxRotatableBond() > 0 
+                && getRotatableBondsLowerBound() 
+                > fsSettings.getMaxRotatableBond())
+            return true;
+        return false;
+    }
+
 //------------------------------------------------------------------------------
 
     /**
@@ -6097,6 +6314,104 @@ public class DGraph implements Cloneable
                     ParametersType.FS_PARAMS);
         }
         
+        // Criteria that can be evaluated without building the molecule are
+        // checked first, so that we reject graphs as cheaply as possible.
+        // 0A) lower bounds of size-related properties
+        if (!permissive && exceedsAdditiveLimits(fsSettings))
+        {
+            String msg = "Evaluation of graph: size constraints violated "
+                    + "already by building blocks: heavy atoms="
+                    + getHeavyAtomsCount() + " MW>="
+                    + getMolecularWeightLowerBound() + " rotatable bonds>="
+                    + getRotatableBondsLowerBound();
+            settings.getLogger().log(Level.FINE, msg);
+            return null;
+        }
+
+        // 0B) unacceptable free APs
+        if (fsSettings.getFragmentSpace().useAPclassBasedApproach())
+        {
+            if (hasForbiddenEnd(fsSettings))
+            {
+                String msg = "Evaluation of graph: forbidden end in graph!";
+                settings.getLogger().log(Level.FINE, msg);
+                return null;
+            }
+        }
+
+        // criteria from settings of ring closures
+        if (rcSettings.allowRingClosures() && !permissive)
+        {
+            // Count rings and RCAs
+            int nPossRings = 0;
+            Set<String> doneType = new HashSet<>();
+            Map<String,String> rcaTypes = RingClosingAttractor.RCATYPEMAP;
+            for (String rcaTyp : rcaTypes.keySet())
+            {
+                if (doneType.contains(rcaTyp))
+                {
+                    continue;
+                }
+
+                int nThisType = 0;
+                int nCompType = 0;
+                for (Vertex v : getRCVertices())
+                {
+                    if (v.containsAtoms())
+                    {
+                        String symbol = v.getAdditiveDescriptors()
+                                .getFirstAtomSymbol();
+                        if (symbol == null)
+                        {
+                            symbol = MoleculeUtils.getSymbolOrLabel(
+                                    v.getIAtomContainer().getAtom(0));
+                        }
+                        if (symbol.equals(rcaTyp))
+                        {
+                            nThisType++;
+                        } else if (symbol.equals(rcaTypes.get(rcaTyp)))
+                        {
+                            nCompType++;
+                        } 
+                        if (rcaTyp.equals(rcaTypes.get(rcaTyp)))
+                        {
+                            nCompType++;
+                        }
+                    }
+                }
+
+                // check number of rca per type
+                if (nThisType > rcSettings.getMaxRcaPerType(rcaTyp) ||
+                        nCompType > rcSettings.getMaxRcaPerType(rcaTyp))
+                {
+                    String msg = "Evaluation of graph: too many RCAs! "
+                            + rcaTyp + ":" + nThisType + " "
+                            + rcaTypes.get(rcaTyp) + ":" + nCompType;
+                    settings.getLogger().log(Level.FINE, msg);
+                    return null;
+                }
+                if (nThisType < rcSettings.getMinRcaPerType(rcaTyp) ||
+                        nCompType < rcSettings.getMinRcaPerType(rcaTyp))
+                {
+                    String msg = "Evaluation of graph: too few RCAs! "
+                            + rcaTyp + ":" + nThisType + " "
+                            + rcaTypes.get(rcaTyp) + ":" + nCompType;
+                    settings.getLogger().log(Level.FINE, msg);
+                    return null;
+                }
+
+                nPossRings = nPossRings + Math.min(nThisType, nCompType);
+                doneType.add(rcaTyp);
+                doneType.add(rcaTypes.get(rcaTyp));
+            }
+            if (nPossRings < rcSettings.getMinRingClosures())
+            {
+                String msg = "Evaluation of graph: too few ring candidates";
+                settings.getLogger().log(Level.FINE, msg);
+                return null;
+            }
+        }
+
         // calculate the molecule representation
         ThreeDimTreeBuilder t3d = new ThreeDimTreeBuilder(settings.getLogger(),
                 settings.getRandomizer());
@@ -6180,85 +6495,6 @@ public class DGraph implements Cloneable
         }
         mol.setProperty("ROT_BND", nrot);
 
-        // 1D) unacceptable free APs
-        if (fsSettings.getFragmentSpace().useAPclassBasedApproach())
-        {
-            if (hasForbiddenEnd(fsSettings))
-            {
-                String msg = "Evaluation of graph: forbidden end in graph!";
-                settings.getLogger().log(Level.FINE, msg);
-                return null;
-            }
-        }
-
-        // criteria from settings of ring closures
-        if (rcSettings.allowRingClosures() && !permissive)
-        {
-            // Count rings and RCAs
-            int nPossRings = 0;
-            Set<String> doneType = new HashSet<>();
-            Map<String,String> rcaTypes = RingClosingAttractor.RCATYPEMAP;
-            for (String rcaTyp : rcaTypes.keySet())
-            {
-                if (doneType.contains(rcaTyp))
-                {
-                    continue;
-                }
-
-                int nThisType = 0;
-                int nCompType = 0;
-                for (Vertex v : getRCVertices())
-                {
-                    if (v.containsAtoms())
-                    {
-                        IAtom atm = v.getIAtomContainer().getAtom(0);
-                        if (MoleculeUtils.getSymbolOrLabel(atm).equals(rcaTyp))
-                        {
-                            nThisType++;
-                        } else if (MoleculeUtils.getSymbolOrLabel(atm).equals(
-                                rcaTypes.get(rcaTyp)))
-                        {
-                            nCompType++;
-                        } 
-                        if (rcaTyp.equals(rcaTypes.get(rcaTyp)))
-                        {
-                            nCompType++;
-                        }
-                    }
-                }
-
-                // check number of rca per type
-                if (nThisType > rcSettings.getMaxRcaPerType(rcaTyp) ||
-                        nCompType > rcSettings.getMaxRcaPerType(rcaTyp))
-                {
-                    String msg = "Evaluation of graph: too many RCAs! "
-                            + rcaTyp + ":" + nThisType + " "
-                            + rcaTypes.get(rcaTyp) + ":" + nCompType;
-                    settings.getLogger().log(Level.FINE, msg);
-                    return null;
-                }
-                if (nThisType < rcSettings.getMinRcaPerType(rcaTyp) ||
-                        nCompType < rcSettings.getMinRcaPerType(rcaTyp))
-                {
-                    String msg = "Evaluation of graph: too few RCAs! "
-                            + rcaTyp + ":" + nThisType + " "
-                            + rcaTypes.get(rcaTyp) + ":" + nCompType;
-                    settings.getLogger().log(Level.FINE, msg);
-                    return null;
-                }
-
-                nPossRings = nPossRings + Math.min(nThisType, nCompType);
-                doneType.add(rcaTyp);
-                doneType.add(rcaTypes.get(rcaTyp));
-            }
-            if (nPossRings < rcSettings.getMinRingClosures())
-            {
-                String msg = "Evaluation of graph: too few ring candidates";
-                settings.getLogger().log(Level.FINE, msg);
-                return null;
-            }
-        }
-
         // get the smiles/Inchi representation
         String inchiKey = MoleculeUtils.getInChIKeyForMolecule(mol, 
                 settings.getLogger());
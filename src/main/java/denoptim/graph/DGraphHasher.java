@@ -0,0 +1,245 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.graph;
+
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+import denoptim.graph.Template.ContractLevel;
+
+/**
+ * Calculates a canonical hash of a {@link DGraph} that can be used to
+ * detect duplicate graphs without building any molecular representation.
+ * <p>The hash depends only on the building blocks (identified by type and
+ * index in the library of building blocks), on the attachment points used
+ * to connect them, and on the bond types of the edges. Vertex IDs and the
+ * order of vertexes and edges do not affect the hash. The labels
+ * of the vertexes are refined iteratively according to those of their
+ * neighbours (i.e., colour refinement) until the partition of the vertexes
+ * does not change anymore. Since colour refinement distinguishes any pair of
+ * non-isomorphic trees, graphs with the same hash are
+ * isomorphic (and so define the same molecule), unless for a hash collision.
+ * The opposite is not true: graphs defining the same molecule may have
+ * different hash, for example, when they use symmetric attachment points.
+ * Therefore, the hash can be used to pre-screen duplicates, but it does not
+ * replace the unique identifier of the chemical entity.</p>
+ * <p>No hash is produced for graphs that are not trees (i.e., that contain
+ * {@link Ring}s) or that contain building blocks that cannot be
+ * identified by their index in the library.</p>
+ *
+ * @author Marco Foscato
+ */
+
+public class DGraphHasher
+{
+    /**
+     * Separator of fields in labels.
+     */
+    private static final String SEP = "|";
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Calculates the hash of a graph.
+     * @param graph the graph to hash.
+     * @return the hash as a hexadecimal string or <code>null</code> if the
+     * graph cannot be hashed in a way that guarantees that graphs with the
+     * same hash are the same graph.
+     */
+    public static String getHash(DGraph graph)
+    {
+        if (graph.getRings().size() > 0)
+            return null;
+
+        List<Vertex> vertexes = graph.getVertexList();
+        int n = vertexes.size();
+        Map<Vertex,Integer> positions = new IdentityHashMap<Vertex,Integer>();
+        String[] labels = new String[n];
+        for (int i=0; i<n; i++)
+        {
+            Vertex v = vertexes.get(i);
+            positions.put(v, i);
+            labels[i] = getVertexLabel(v);
+            if (labels[i] == null)
+                return null;
+        }
+
+        // Neighbours and labels of the edges as seen from each end
+        List<List<Integer>> nbrs = new ArrayList<List<Integer>>();
+        List<List<String>> edgeLabels = new ArrayList<List<String>>();
+        for (int i=0; i<n; i++)
+        {
+            nbrs.add(new ArrayList<Integer>());
+            edgeLabels.add(new ArrayList<String>());
+        }
+        for (Edge e : graph.getEdgeList())
+        {
+            AttachmentPoint apSrc = e.getSrcAP();
+            AttachmentPoint apTrg = e.getTrgAP();
+            Integer iSrc = positions.get(apSrc.getOwner());
+            Integer iTrg = positions.get(apTrg.getOwner());
+            if (iSrc == null || iTrg == null)
+                return null;
+            String srcSide = getAPLabel(apSrc);
+            String trgSide = getAPLabel(apTrg);
+            nbrs.get(iSrc).add(iTrg);
+            edgeLabels.get(iSrc).add(srcSide + SEP + e.getBondType() + SEP
+                    + trgSide);
+            nbrs.get(iTrg).add(iSrc);
+            edgeLabels.get(iTrg).add(trgSide + SEP + e.getBondType() + SEP
+                    + srcSide);
+        }
+
+        // Colour refinement
+        int numClasses = new HashSet<String>(Arrays.asList(labels)).size();
+        int iteration = 0;
+        while (iteration < n)
+        {
+            iteration++;
+            String[] newLabels = new String[n];
+            for (int i=0; i<n; i++)
+            {
+                List<String> nbrLabels = new ArrayList<String>();
+                for (int j=0; j<nbrs.get(i).size(); j++)
+                {
+                    nbrLabels.add(edgeLabels.get(i).get(j) + SEP
+                            + labels[nbrs.get(i).get(j)]);
+                }
+                Collections.sort(nbrLabels);
+                newLabels[i] = digest(labels[i] + SEP + nbrLabels);
+            }
+            labels = newLabels;
+            int newNumClasses = new HashSet<String>(Arrays.asList(labels))
+                    .size();
+            if (newNumClasses == numClasses)
+                break;
+            numClasses = newNumClasses;
+        }
+
+        List<String> sortedLabels = new ArrayList<String>(Arrays.asList(labels));
+        Collections.sort(sortedLabels);
+        return digest(n + SEP + graph.getEdgeCount() + SEP + iteration + SEP
+                + sortedLabels);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the label of the vertex that does not depend on the graph, or
+     * <code>null</code> if we cannot define a label that identifies the
+     * vertex.
+     */
+    private static String getVertexLabel(Vertex v)
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append(v.getVertexType()).append(SEP);
+        sb.append(v.getBuildingBlockType()).append(SEP);
+        sb.append(v.getBuildingBlockId()).append(SEP);
+        sb.append(v.getNumberOfAPs());
+        switch (v.getVertexType())
+        {
+            case MolecularFragment:
+            {
+                if (v.getBuildingBlockId() < 0)
+                    return null;
+                break;
+            }
+
+            case EmptyVertex:
+            {
+                // Empty vertexes do not need to come from a library, so we
+                // use their content as label.
+                for (AttachmentPoint ap : v.getAttachmentPoints())
+                {
+                    sb.append(SEP).append(ap.getAPClass());
+                }
+                Set<String> sortedKeys = new TreeSet<String>(
+                        v.uniquefyingPropertyKeys);
+                for (String key : sortedKeys)
+                {
+                    sb.append(SEP).append(key).append("=")
+                        .append(v.getProperty(key));
+                }
+                break;
+            }
+
+            case Template:
+            {
+                Template t = (Template) v;
+                sb.append(SEP).append(t.getContractLevel());
+                if (t.getBuildingBlockId() < 0
+                        || t.getContractLevel() != ContractLevel.FIXED)
+                {
+                    // The content may differ from the one in the library
+                    String innerHash = getHash(t.getInnerGraph());
+                    if (innerHash == null)
+                        return null;
+                    sb.append(SEP).append(innerHash);
+                }
+                break;
+            }
+
+            default:
+                return null;
+        }
+        return sb.toString();
+    }
+
+//------------------------------------------------------------------------------
+
+    private static String getAPLabel(AttachmentPoint ap)
+    {
+        return ap.getOwner().getIndexOfAP(ap) + SEP + ap.getAPClass();
+    }
+
+//------------------------------------------------------------------------------
+
+    private static String digest(String s)
+    {
+        MessageDigest md;
+        try
+        {
+            md = MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e)
+        {
+            // Every Java platform is required to support SHA-256
+            throw new Error("SHA-256 not available", e);
+        }
+        byte[] bytes = md.digest(s.getBytes(StandardCharsets.UTF_8));
+        StringBuilder sb = new StringBuilder();
+        for (byte b : bytes)
+        {
+            sb.append(String.format("%02x", b));
+        }
+        return sb.toString();
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -349,6 +349,14 @@ public class EmptyVertex extends Vertex
         return 0;
     }
 
+//------------------------------------------------------------------------------
+
+    @Override
+    public VertexDescriptors getAdditiveDescriptors()
+    {
+        return VertexDescriptors.EMPTY;
+    }
+
 //------------------------------------------------------------------------------
 
     public boolean containsAtoms()
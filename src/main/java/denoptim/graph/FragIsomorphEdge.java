@@ -40,6 +40,13 @@ public class FragIsomorphEdge
     public FragIsomorphEdge()
     {}
 
+//------------------------------------------------------------------------------
+    
+    public String getLabel()
+    {
+        return label;
+    }
+
 //------------------------------------------------------------------------------
     
 }
@@ -81,6 +81,12 @@ public class Fragment extends Vertex
 	private DefaultUndirectedGraph<FragIsomorphNode,FragIsomorphEdge> 
 	    jGraphFragIsomorphism;
 
+    /**
+     * Cached additive descriptors. These are calculated upon request and
+     * dropped whenever atoms, bonds, or APs change.
+     */
+    private transient volatile VertexDescriptors additiveDescriptors;
+
 	
 //-----------------------------------------------------------------------------
 
@@ -232,6 +238,20 @@ public class Fragment extends Vertex
     {
         setSymmetricAPSets(identifySymmetryRelatedAPSets(mol, 
                 getAttachmentPoints()));
+        invalidateAdditiveDescriptors();
+    }
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * Drops the cached additive descriptors of this fragment and of the
+     * graph owning it.
+     */
+    private void invalidateAdditiveDescriptors()
+    {
+        additiveDescriptors = null;
+        if (getGraphOwner() != null)
+            getGraphOwner().resetAdditiveDescriptors();
     }
     
 //------------------------------------------------------------------------------
@@ -776,6 +796,7 @@ public class Fragment extends Vertex
         clone.setSymmetricAPSets(cLstSymAPs);
         
         clone.setAsRCV(this.isRCV());
+        clone.additiveDescriptors = this.additiveDescriptors;
         clone.setProperties(this.copyStringBasedProperties());
         if (uniquefyingPropertyKeys!=null)
             clone.uniquefyingPropertyKeys.addAll(uniquefyingPropertyKeys);
@@ -836,6 +857,7 @@ public class Fragment extends Vertex
     public void addAtom(IAtom atom)
     {
         mol.addAtom(atom);
+        invalidateAdditiveDescriptors();
     }   
     
 //-----------------------------------------------------------------------------
@@ -871,12 +893,14 @@ public class Fragment extends Vertex
     public void addBond(IBond bond)
     {
         mol.addBond(bond);
+        invalidateAdditiveDescriptors();
     }
     
 //-----------------------------------------------------------------------------
     
     public IBond removeBond(int position)
     {
+        invalidateAdditiveDescriptors();
         return mol.removeBond(position);
     }
 
@@ -884,6 +908,7 @@ public class Fragment extends Vertex
    
     public IBond removeBond(IAtom atom1, IAtom atom2)
     {
+       invalidateAdditiveDescriptors();
        return mol.removeBond(atom1, atom2);
     }
     
@@ -892,6 +917,7 @@ public class Fragment extends Vertex
     public void removeBond(IBond bond)
     {
         mol.removeBond(bond);
+        invalidateAdditiveDescriptors();
     }
     
 //-----------------------------------------------------------------------------
@@ -1113,7 +1139,21 @@ public class Fragment extends Vertex
 
     public int getHeavyAtomsCount()
     {
-        return MoleculeUtils.getHeavyAtomCount(mol);
+        return getAdditiveDescriptors().getHeavyAtomCount();
+    }
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public VertexDescriptors getAdditiveDescriptors()
+    {
+        VertexDescriptors descriptors = additiveDescriptors;
+        if (descriptors == null)
+        {
+            descriptors = VertexDescriptors.calculate(mol, lstAPs);
+            additiveDescriptors = descriptors;
+        }
+        return descriptors;
     }
 
 //------------------------------------------------------------------------------
@@ -5,11 +5,8 @@ import java.util.ArrayList;
 import java.util.Comparator;
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.ExecutorService;
-import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
-import java.util.concurrent.TimeUnit;
-import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
 
 import org.jgrapht.GraphMapping;
 import org.jgrapht.alg.isomorphism.VF2GraphIsomorphismInspector;
@@ -27,7 +24,12 @@ import denoptim.io.DenoptimIO;
  * Geometry and stereochemistry are not considered.</p>
  * <p>This works with the {@link VF2GraphIsomorphismInspector}, see the
  * dedicated documentation for information of pathological cases.</p>
- * <p></p>
+ * <p>To deal with pathological cases, the time given to the VF2 algorithm is
+ * limited by a deadline that is checked, on the calling thread, every time 
+ * the algorithm compares nodes or edges. Any search that goes beyond the
+ * deadline is abandoned. Timeouts are counted globally (see 
+ * {@link #getNumberOfTimeouts()}) and only the first case met in the JVM is 
+ * saved to file.</p>
  * 
  * @author Marco Foscato
  */
@@ -57,8 +59,65 @@ public class FragmentIsomorphismInspector
      * Implementation of the Vento-Foggia 2 algorithm.
      */
     VF2GraphIsomorphismInspector<FragIsomorphNode, FragIsomorphEdge> vf2;
+    
+    /**
+     * Time (from {@link System#nanoTime()}) beyond which the running search 
+     * is abandoned. Meaningful only while {@link #deadlineArmed} is 
+     * <code>true</code>.
+     */
+    private long deadline;
+    
+    /**
+     * Flag indicating that a search with a deadline is running.
+     */
+    private boolean deadlineArmed = false;
+    
+    /**
+     * Number of comparisons since the last check of the deadline.
+     */
+    private int comparisonsSinceCheck = 0;
+    
+    /**
+     * Number of comparisons between checks of the deadline.
+     */
+    private static final int CHECKINTERVAL = 64;
+    
+    /**
+     * Number of searches run by any inspector.
+     */
+    private static final AtomicLong numSearches = new AtomicLong();
+    
+    /**
+     * Number of searches, run by any inspector, that reached the timeout.
+     */
+    private static final AtomicLong numTimeouts = new AtomicLong();
+    
+    /**
+     * Flag recording whether we have already saved a case of timeout.
+     */
+    private static final AtomicBoolean timeoutCaseSaved = new AtomicBoolean();
+    
+    /**
+     * Pathname of the file where we save the first case of timeout.
+     */
+    private static final String TIMEOUTCASEFILENAME = 
+            "denoptim_isomorphism_timedout_case.sdf";
 
     
+//------------------------------------------------------------------------------
+    
+    /**
+     * Signal used to abandon a search that went beyond its deadline.
+     */
+    @SuppressWarnings("serial")
+    private static class DeadlineExceeded extends RuntimeException
+    {
+        DeadlineExceeded()
+        {
+            super("Deadline exceeded", null, false, false);
+        }
+    }
+    
 //------------------------------------------------------------------------------
       
     /**
@@ -105,6 +164,7 @@ public class FragmentIsomorphismInspector
             @Override
             public int compare(FragIsomorphNode n1, FragIsomorphNode n2)
             {
+                checkDeadline();
                 if (ignoreAPClasses)
                 {
                     String tmpLbl1 = "ap";
@@ -125,6 +185,7 @@ public class FragmentIsomorphismInspector
             @Override
             public int compare(FragIsomorphEdge e1, FragIsomorphEdge e2)
             {
+                checkDeadline();
                 return e1.label.compareTo(e2.label);
             }
         };
@@ -136,6 +197,31 @@ public class FragmentIsomorphismInspector
         this.fragB = fragB;
     }
     
+//------------------------------------------------------------------------------
+    
+    /**
+     * Abandons the running search, if any, when its deadline has passed.
+     * @throws DeadlineExceeded if the deadline has passed.
+     */
+    private void checkDeadline()
+    {
+        if (!deadlineArmed || ++comparisonsSinceCheck < CHECKINTERVAL)
+            return;
+        comparisonsSinceCheck = 0;
+        if (System.nanoTime() - deadline > 0)
+            throw new DeadlineExceeded();
+    }
+    
+//------------------------------------------------------------------------------
+    
+    private void armDeadline()
+    {
+        numSearches.incrementAndGet();
+        comparisonsSinceCheck = 0;
+        deadline = System.nanoTime() + timeout * 1000000L;
+        deadlineArmed = true;
+    }
+    
 //------------------------------------------------------------------------------
     
     /**
@@ -144,95 +230,98 @@ public class FragmentIsomorphismInspector
      */
     public boolean isomorphismExists()
     {
-        boolean result = false;
-        final ExecutorService service = Executors.newSingleThreadExecutor();
-        Future<Boolean> future = null;
+        armDeadline();
         try {
-            future = service.submit(() -> {
-                return vf2.isomorphismExists();
-            });
-            result = future.get(timeout, TimeUnit.MILLISECONDS);
-        } catch (final TimeoutException e) {
-            if (reportTimeoutIncidents)
-            {
-                String fileName = "denoptim_isomorphism_timedout_case.sdf";
-                File file = new File(fileName);
-                System.err.println("WARNING: timeout reached when attempting "
-                    + "detection of isomerism between fragments saved to '"
-                    + file.getAbsolutePath() + "'. "
-                    + "When timeout is reaches, fragments are"
-                    + "considered to be non-isomorphic.");
-                List<Vertex> frags = new ArrayList<Vertex>();
-                frags.add(fragA);
-                frags.add(fragB);
-                try
-                {
-                    DenoptimIO.writeVertexesToSDF(new File(fileName), frags, true);
-                } catch (DENOPTIMException e1)
-                {
-                    System.err.println("WARNING: could not write to '" 
-                            + fileName + "'. Reporting fragments to STDERR:."
-                            + System.getProperty("line.separator") 
-                            + fragA.toJson()
-                            + System.getProperty("line.separator") 
-                            + fragB.toJson());
-                }
-            }
-            future.cancel(true);
-        } catch (final Exception e) {
-            throw new RuntimeException(e);
+            return vf2.isomorphismExists();
+        } catch (DeadlineExceeded e) {
+            recordTimeout();
+            return false;
         } finally {
-            service.shutdown();
+            deadlineArmed = false;
         }
-        return result;
     }
     
 //------------------------------------------------------------------------------
     
+    /**
+     * Gets an iterator over the isomorphic mappings between the two fragments.
+     * The timeout applies to the search of the first mapping, not to the 
+     * iteration by the caller.
+     * @return the iterator or <code>null</code> if the search timed out.
+     */
     public Iterator<GraphMapping<FragIsomorphNode, FragIsomorphEdge>> getMappings()
     {
-        Iterator<GraphMapping<FragIsomorphNode, FragIsomorphEdge>> mapping = null;
-        final ExecutorService service = Executors.newSingleThreadExecutor();
-        Future<Iterator<GraphMapping<FragIsomorphNode, FragIsomorphEdge>>> fut =
-                null;
+        armDeadline();
         try {
-            fut = service.submit(() -> {
-                return vf2.getMappings();
-            });
-            mapping = fut.get(timeout, TimeUnit.MILLISECONDS);
-        } catch (final TimeoutException e) {
-            if (reportTimeoutIncidents)
-            {
-                String fileName = "denoptim_isomorphism_timedout_case.sdf";
-                File file = new File(fileName);
-                System.err.println("WARNING: timeout reached when attempting "
-                    + "detection of isomerism between fragments saved to '"
-                    + file.getAbsolutePath() + "'. "
-                    + "When timeout is reaches, fragments are"
-                    + "considered to be non-isomorphic.");
-                List<Vertex> frags = new ArrayList<Vertex>();
-                frags.add(fragA);
-                frags.add(fragB);
-                try
-                {
-                    DenoptimIO.writeVertexesToSDF(new File(fileName), frags, true);
-                } catch (DENOPTIMException e1)
-                {
-                    System.err.println("WARNING: could not write to '" 
-                            + fileName + "'. Reporting fragments to STDERR:."
-                            + System.getProperty("line.separator") 
-                            + fragA.toJson()
-                            + System.getProperty("line.separator") 
-                            + fragB.toJson());
-                }
-            }
-            fut.cancel(true);
-        } catch (final Exception e) {
-            throw new RuntimeException(e);
+            Iterator<GraphMapping<FragIsomorphNode, FragIsomorphEdge>> 
+                mappings = vf2.getMappings();
+            mappings.hasNext();
+            return mappings;
+        } catch (DeadlineExceeded e) {
+            recordTimeout();
+            return null;
         } finally {
-            service.shutdown();
+            deadlineArmed = false;
         }
-        return mapping;
+    }
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * Records the occurrence of a timeout. Only the first case of timeout is
+     * reported and saved to file, if reporting is enabled.
+     */
+    private void recordTimeout()
+    {
+        numTimeouts.incrementAndGet();
+        if (!reportTimeoutIncidents 
+                || !timeoutCaseSaved.compareAndSet(false, true))
+            return;
+        
+        File file = new File(TIMEOUTCASEFILENAME);
+        System.err.println("WARNING: timeout reached when attempting "
+            + "detection of isomerism between fragments saved to '"
+            + file.getAbsolutePath() + "'. "
+            + "When timeout is reaches, fragments are "
+            + "considered to be non-isomorphic. Further cases are only "
+            + "counted.");
+        List<Vertex> frags = new ArrayList<Vertex>();
+        frags.add(fragA);
+        frags.add(fragB);
+        try
+        {
+            DenoptimIO.writeVertexesToSDF(file, frags, false);
+        } catch (DENOPTIMException e1)
+        {
+            System.err.println("WARNING: could not write to '" 
+                    + TIMEOUTCASEFILENAME + "'. Reporting fragments to "
+                    + "STDERR:."
+                    + System.getProperty("line.separator") 
+                    + fragA.toJson()
+                    + System.getProperty("line.separator") 
+                    + fragB.toJson());
+        }
+    }
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * @return the number of searches for isomorphism run so far in this JVM.
+     */
+    public static long getNumberOfSearches()
+    {
+        return numSearches.get();
+    }
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * @return the number of searches for isomorphism that reached the 
+     * timeout so far in this JVM.
+     */
+    public static long getNumberOfTimeouts()
+    {
+        return numTimeouts.get();
     }
     
 //------------------------------------------------------------------------------    
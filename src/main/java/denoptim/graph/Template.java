@@ -579,6 +579,21 @@ public class Template extends Vertex
         return innerGraph.getHeavyAtomsCount();
     }
 
+//-----------------------------------------------------------------------------
+
+    /**
+     * The descriptors of a template are collected from its inner graph upon
+     * each request, since the inner graph can change. Rotatable bonds are not
+     * counted if the inner graph defines rings.
+     */
+    @Override
+    public VertexDescriptors getAdditiveDescriptors()
+    {
+        return new VertexDescriptors(innerGraph.getHeavyAtomsCount(),
+                innerGraph.getMolecularWeightLowerBound(),
+                innerGraph.getRotatableBondsLowerBound(), null);
+    }
+
 //-----------------------------------------------------------------------------
     
     @Override
@@ -753,10 +753,46 @@ public abstract class Vertex implements Cloneable
     	return true;
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns a hash of the features compared by
+     * {@link #sameVertexFeatures(Vertex, StringBuilder)}, i.e., building block
+     * type and ID, and number and source atom of the attachment points.
+     * Since any vertex that is {@link #sameAs(Vertex)} another has the same
+     * such features, vertices with different fingerprint are never the same,
+     * and the fingerprint can be used to partition vertices before comparing
+     * them. The fingerprint does not look into the chemical content of the
+     * vertex, so its cost is only linear in the number of attachment points.
+     * @return the fingerprint.
+     */
+    public int getContentFingerprint()
+    {
+        int h = buildingBlockType == null ? -1 : buildingBlockType.ordinal();
+        h = 31 * h + buildingBlockId;
+        List<AttachmentPoint> aps = getAttachmentPoints();
+        h = 31 * h + aps.size();
+        for (AttachmentPoint ap : aps)
+        {
+            h = 31 * h + ap.getAtomPositionNumber();
+        }
+        return h;
+    }
+
 //------------------------------------------------------------------------------
 
     public abstract int getHeavyAtomsCount();
 
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the descriptors of this vertex that are additive over the
+     * vertices of a graph. These allow to bound the properties of the
+     * molecule encoded by a graph without building such molecule.
+     * @return the additive descriptors of this vertex.
+     */
+    public abstract VertexDescriptors getAdditiveDescriptors();
+
 //------------------------------------------------------------------------------
 
     public abstract boolean containsAtoms();
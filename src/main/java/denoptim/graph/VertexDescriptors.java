@@ -0,0 +1,291 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.graph;
+
+import java.util.ArrayDeque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+
+import org.openscience.cdk.config.Isotopes;
+import org.openscience.cdk.interfaces.IAtom;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
+import org.openscience.cdk.interfaces.IIsotope;
+
+import denoptim.graph.Edge.BondType;
+import denoptim.utils.MoleculeUtils;
+
+/**
+ * Descriptors of a vertex that are additive over the vertices of a graph,
+ * so that the corresponding descriptors of the molecule encoded by a graph
+ * can be bound from below without building the molecule.
+ * These descriptors are calculated once per building block and are
+ * inherited by the clones of the building block.
+ * <ul>
+ * <li>The number of heavy atoms is the exact contribution of the vertex to
+ * the heavy atom count of the molecule.</li>
+ * <li>The molecular weight considers only heavy atoms, so it is a lower
+ * bound of the contribution of the vertex: hydrogen atoms, whether explicit
+ * or implicit, only add to it. Each heavy atom contributes the lowest of its
+ * natural mass and the exact mass of its major isotope, so that the bound 
+ * never exceeds the molecular weight of the molecule, which is calculated 
+ * with natural masses. Note that for several elements, e.g., Ru, Fe, and B,
+ * the major isotope is heavier than the natural mass.</li>
+ * <li>The number of rotatable bonds considers only bonds that remain
+ * rotatable whatever is attached to the vertex, i.e., non-cyclic single
+ * bonds between heavy atoms that have at least two heavy neighbors already
+ * within the vertex, and that are not, and cannot become, adjacent to a
+ * triple bond. This is a lower bound of the contribution of the vertex as
+ * long as no ring closes through the vertex.</li>
+ * </ul>
+ *
+ * @author Marco Foscato
+ */
+
+public class VertexDescriptors
+{
+    /**
+     * Descriptors of a vertex without atoms.
+     */
+    public static final VertexDescriptors EMPTY =
+            new VertexDescriptors(0, 0.0, 0, null);
+
+    private final int heavyAtomCount;
+    private final double minMolecularWeight;
+    private final int minRotatableBondCount;
+    private final String firstAtomSymbol;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor.
+     * @param heavyAtomCount the number of heavy atoms.
+     * @param minMolecularWeight the lower bound of the molecular weight.
+     * @param minRotatableBondCount the lower bound of the number of rotatable
+     * bonds.
+     * @param firstAtomSymbol the symbol of the first atom, or
+     * <code>null</code> if there are no atoms.
+     */
+    public VertexDescriptors(int heavyAtomCount, double minMolecularWeight,
+            int minRotatableBondCount, String firstAtomSymbol)
+    {
+        this.heavyAtomCount = heavyAtomCount;
+        this.minMolecularWeight = minMolecularWeight;
+        this.minRotatableBondCount = minRotatableBondCount;
+        this.firstAtomSymbol = firstAtomSymbol;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Calculates the descriptors of a vertex from its molecular
+     * representation.
+     * @param mol the atoms and bonds of the vertex.
+     * @param aps the attachment points of the vertex.
+     * @return the descriptors.
+     */
+    public static VertexDescriptors calculate(IAtomContainer mol,
+            List<AttachmentPoint> aps)
+    {
+        if (mol == null || mol.getAtomCount() == 0)
+            return EMPTY;
+
+        int n = mol.getAtomCount();
+        boolean[] isHeavy = new boolean[n];
+        int heavyAtoms = 0;
+        double mw = 0.0;
+        for (int i=0; i<n; i++)
+        {
+            IAtom atm = mol.getAtom(i);
+            if (MoleculeUtils.isElement(atm)
+                    && !MoleculeUtils.getSymbolOrLabel(atm).equals("H"))
+            {
+                isHeavy[i] = true;
+                heavyAtoms++;
+                mw += getMinAtomMass(atm);
+            }
+        }
+
+        // Atoms that are, or may become, involved in triple bonds
+        boolean[] nearTriple = new boolean[n];
+        int[] heavyDegree = new int[n];
+        for (IBond bnd : mol.bonds())
+        {
+            int a = mol.indexOf(bnd.getBegin());
+            int b = mol.indexOf(bnd.getEnd());
+            if (isHighOrder(bnd.getOrder()))
+            {
+                nearTriple[a] = true;
+                nearTriple[b] = true;
+            }
+            if (isHeavy[a] && isHeavy[b])
+            {
+                heavyDegree[a]++;
+                heavyDegree[b]++;
+            }
+        }
+        if (aps != null)
+        {
+            for (AttachmentPoint ap : aps)
+            {
+                int a = ap.getAtomPositionNumber();
+                BondType bt = ap.getBondType();
+                if (a >= 0 && a < n
+                        && (bt == BondType.TRIPLE || bt == BondType.QUADRUPLE))
+                {
+                    nearTriple[a] = true;
+                }
+            }
+        }
+
+        int rotatable = 0;
+        for (IBond bnd : mol.bonds())
+        {
+            if (bnd.getOrder() != IBond.Order.SINGLE)
+                continue;
+            int a = mol.indexOf(bnd.getBegin());
+            int b = mol.indexOf(bnd.getEnd());
+            if (!isHeavy[a] || !isHeavy[b])
+                continue;
+            if (heavyDegree[a] < 2 || heavyDegree[b] < 2)
+                continue;
+            if (nearTriple[a] || nearTriple[b])
+                continue;
+            if (isCyclic(mol, bnd))
+                continue;
+            rotatable++;
+        }
+
+        return new VertexDescriptors(heavyAtoms, mw, rotatable,
+                MoleculeUtils.getSymbolOrLabel(mol.getAtom(0)));
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the lowest of the natural mass of an atom and the exact mass of
+     * the major isotope of its element.
+     * @param atm the atom.
+     * @return the mass, or zero if it cannot be determined. Not counting an
+     * atom keeps the bound valid.
+     */
+    private static double getMinAtomMass(IAtom atm)
+    {
+        double mass = Double.MAX_VALUE;
+        try
+        {
+            Isotopes isotopes = Isotopes.getInstance();
+            double natural = isotopes.getNaturalMass(atm);
+            if (natural > 0)
+                mass = natural;
+            IIsotope major = isotopes.getMajorIsotope(atm.getSymbol());
+            if (major != null && major.getExactMass() != null)
+                mass = Math.min(mass, major.getExactMass());
+        } catch (Throwable t)
+        {
+            return 0.0;
+        }
+        return mass == Double.MAX_VALUE ? 0.0 : mass;
+    }
+
+//------------------------------------------------------------------------------
+
+    private static boolean isHighOrder(IBond.Order order)
+    {
+        return order == IBond.Order.TRIPLE || order == IBond.Order.QUADRUPLE;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Checks if a bond belongs to a ring by searching a path between its
+     * atoms that does not use the bond itself.
+     */
+    private static boolean isCyclic(IAtomContainer mol, IBond bond)
+    {
+        IAtom start = bond.getBegin();
+        IAtom goal = bond.getEnd();
+        Set<IAtom> visited = new HashSet<IAtom>();
+        Queue<IAtom> queue = new ArrayDeque<IAtom>();
+        visited.add(start);
+        queue.add(start);
+        while (!queue.isEmpty())
+        {
+            IAtom current = queue.poll();
+            for (IBond b : mol.getConnectedBondsList(current))
+            {
+                if (b == bond)
+                    continue;
+                IAtom other = b.getOther(current);
+                if (other == goal)
+                    return true;
+                if (visited.add(other))
+                    queue.add(other);
+            }
+        }
+        return false;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of heavy atoms.
+     */
+    public int getHeavyAtomCount()
+    {
+        return heavyAtomCount;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the lower bound of the molecular weight.
+     */
+    public double getMinMolecularWeight()
+    {
+        return minMolecularWeight;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the lower bound of the number of rotatable bonds.
+     */
+    public int getMinRotatableBondCount()
+    {
+        return minRotatableBondCount;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the elemental symbol, or label, of the first atom, or
+     * <code>null</code> if there are no atoms. For ring-closing vertices this
+     * is the type of ring-closing attractor.
+     */
+    public String getFirstAtomSymbol()
+    {
+        return firstAtomSymbol;
+    }
+
+//------------------------------------------------------------------------------
+
+}
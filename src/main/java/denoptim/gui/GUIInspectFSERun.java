@@ -35,11 +35,20 @@ import java.awt.geom.Ellipse2D;
 import java.io.File;
 import java.io.FileFilter;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 
 import javax.swing.DefaultListModel;
 import javax.swing.GroupLayout;
@@ -55,6 +64,7 @@ import javax.swing.JScrollPane;
 import javax.swing.JSplitPane;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingConstants;
+import javax.swing.SwingWorker;
 import javax.swing.UIManager;
 
 import org.jfree.chart.ChartFactory;
@@ -72,13 +82,14 @@ import org.jfree.chart.plot.PlotOrientation;
 import org.jfree.chart.plot.SeriesRenderingOrder;
 import org.jfree.chart.plot.XYPlot;
 import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
+import org.jfree.data.xy.AbstractXYDataset;
 import org.jfree.data.xy.DefaultXYDataset;
 import org.jfree.data.xy.XYDataset;
 
 import denoptim.constants.DENOPTIMConstants;
 import denoptim.exception.DENOPTIMException;
 import denoptim.graph.CandidateLW;
-import denoptim.io.DenoptimIO;
+import denoptim.io.RunIndex;
 
 
 /**
@@ -111,22 +122,25 @@ public class GUIInspectFSERun extends GUICardPanel
 	private JComboBox<String> cmbPlotType;
 	
 	private ArrayList<CandidateLW> allItems;
+	
+	/**
+	 * Flag signaling that {@link #allItems} is sorted by level and fitness.
+	 */
+	private boolean allItemsSorted = false;
+	
+	/**
+	 * Flag recording the decision of the user to ignore any further error
+	 * in reading the files of the run.
+	 */
+	private boolean skippFurtherErrors = false;
+	
 	private int itemsWithFitness = 0;
 	private int minLevel = 1;
 	private int maxLevel = -1;
 	private JLabel lblTotItems;
 	
-	private Map<Integer,CandidateLW> mapItemsInByLevel;
-	private ArrayList<CandidateLW> sorted;
-	
-	// WARNING: integer key in the map is is just a 
-	// locally generated unique 
-	// identifier that has NO RELATION to level/molId/fitness
-	// The Map 'mapCandsInByLevel' serve specifically to convert
-	// the unique key into a DENOPTIMMolecule
-	
-	private DefaultXYDataset datasetAllFit;
-	private DefaultXYDataset datasetSorted;
+	private CandidatesDataset datasetAllFit;
+	private SortedCandidatesDataset datasetSorted;
 	private DefaultXYDataset datasetSelectedLev = new DefaultXYDataset();
 	private DefaultXYDataset datasetSelectedOrd = new DefaultXYDataset();
 	
@@ -351,7 +365,9 @@ public class GUIInspectFSERun extends GUICardPanel
 		System.out.println("Importing data from '" + folder + "'... ");
 		
 		allItems = new ArrayList<CandidateLW>();
-		boolean skippFurtherErrors = false;
+		allItemsSorted = false;
+		itemsWithFitness = 0;
+		List<File> itemFiles = new ArrayList<File>();
 		for (File itemFile : folder.listFiles(new FileFilter() {
 			
 			@Override
@@ -367,136 +383,13 @@ public class GUIInspectFSERun extends GUICardPanel
 				return false;
 			}
 		}))
-		{			
-			CandidateLW item = null;
-			try {
-				//WARNING: here we assume one candidate per file
-                item = DenoptimIO.readLightWeightCandidate(itemFile).get(0);
-			} catch (DENOPTIMException e1) {
-				if (!skippFurtherErrors)
-				{
-					e1.printStackTrace();
-					mainPanel.setCursor(Cursor.getPredefinedCursor(
-							Cursor.DEFAULT_CURSOR));
-	
-					JPanel msgPanel = new JPanel(new GridLayout(2, 1));
-					String msg = "<html><body width='%1s'>Could not read data "
-							+ "from '" + itemFile + "'. Hint on cause: "
-							+ e1.getMessage() + " Should we try to "
-							+ "visualize the results anyway?</html>";
-					JLabel text = new JLabel(String.format(msg, 450));
-					JCheckBox cb = new JCheckBox("Remember decision");
-					cb.setSelected(false);
-					msgPanel.add(text);
-					msgPanel.add(cb);
-					String[] options = new String[]{"Yes", "Abandon"};
-					int res = JOptionPane.showOptionDialog(this,
-							msgPanel,
-							"ERROR",
-							JOptionPane.DEFAULT_OPTION,
-			                JOptionPane.QUESTION_MESSAGE,
-			                UIManager.getIcon("OptionPane.errorIcon"),
-			                options,
-			                options[1]);
-					if (cb.isSelected())
-					{
-						skippFurtherErrors = true;
-					}
-					switch (res)
-					{
-						case 0:
-							break;
-							
-						case 1:
-							return;
-					}
-				}
-			}
-			
-			if (item.hasFitness())
-			{
-				itemsWithFitness++;
-			}
-			
-			int lev = item.getLevel();
-			if (lev > maxLevel)
-			{
-				maxLevel = lev;
-			} else if (lev < minLevel)
-			{
-				minLevel = lev;
-			}
-			
-			allItems.add(item);
+		{
+		    itemFiles.add(itemFile);
 		}
 		
-		System.out.println("Imported "+allItems.size()+" individuals.");
-		
-		lblTotItems.setText("Found "+allItems.size()+" candidates ("
-				+itemsWithFitness+" with fitness)");
-		
-		// Process data and organize them into series for the plot
-        double[][] itemsWithFitnessDataPerLevel = new double[2][itemsWithFitness];
-        mapItemsInByLevel = new HashMap<Integer,CandidateLW>();
-		int j= -1;
-        for (int i=0; i<allItems.size(); i++)
-        {
-        	CandidateLW item = allItems.get(i);
-        	if (!item.hasFitness())
-        	{
-        		continue;
-        	}
-        	
-        	// WARNING: itemId in the data is "j" and is just a unique 
-        	// identifier that has NO RELATION to generation/molId/fitness
-        	// The Map 'mapCandsInByLevel' serve specifically to convert
-        	// the itemId 'j' into a DENOPTIMMolecule
-        	
-        	j++;
-        	mapItemsInByLevel.put(j, item);
-        	itemsWithFitnessDataPerLevel[0][j] = item.getLevel();
-        	itemsWithFitnessDataPerLevel[1][j] = item.getFitness();
-        }
-        
-        sorted = new ArrayList<CandidateLW>();
-        sorted.addAll(mapItemsInByLevel.values());
-        sorted.sort(new Comparator<CandidateLW>() {
-			public int compare(CandidateLW a, CandidateLW b) {
-				return Double.compare(a.getFitness(),
-						b.getFitness());
-			}
-		});
-        allItems.sort(new Comparator<CandidateLW>() {
-            public int compare(CandidateLW c1, CandidateLW c2) {
-                int byGen = Integer.compare(c1.getLevel(), 
-                        c2.getLevel());
-                if (byGen!=0)
-                    return byGen;
-                if (c1.hasFitness() && c2.hasFitness())
-                    return Double.compare(c1.getFitness(), c2.getFitness());
-                else if (c1.hasFitness())
-                    return 1;
-                else if (c2.hasFitness())
-                    return -1;
-                return 0;
-            }
-        });
-        
-        double[][] itemsWithFitnessDataSorted = new double[2][itemsWithFitness];
-        for (int i=0; i<itemsWithFitness; i++)
-        {
-        	CandidateLW item = sorted.get(i);
-        	itemsWithFitnessDataSorted[0][i] = i;
-        	itemsWithFitnessDataSorted[1][i] = item.getFitness();
-        }
-        
-        datasetAllFit = new DefaultXYDataset(); 
-		datasetAllFit.addSeries("Candidates_with_fitness", 
-				itemsWithFitnessDataPerLevel);
-		
-		datasetSorted = new DefaultXYDataset();
-		datasetSorted.addSeries("Sorted_candidates", 
-				itemsWithFitnessDataSorted);
+		// The series are filled as the data is imported
+        datasetAllFit = new CandidatesDataset(); 
+		datasetSorted = new SortedCandidatesDataset();
 		
 		//TODO: somehow collect and display the candidates that hit a mol error
 		//      Could it be a histogram (#failed x level) below the levels plot
@@ -590,10 +483,12 @@ public class GUIInspectFSERun extends GUICardPanel
         rendererS1.setUseFillPaint(true);
      	
 		// Create the actual panels that contains the charts
+        // While data is being imported the charts follow the data, unless 
+        // the user zooms in. The view is reset once all data is imported.
         chartPanelSorted = new ChartPanel(chartBySorted);
-        resetViewInPlotOfSortedList();
+        chartBySorted.getXYPlot().getDomainAxis().setAutoRange(true);
 		chartPanelByLevel = new ChartPanel(chartByLevel);
-		resetViewInPlotByLevel();
+		chartByLevel.getXYPlot().getDomainAxis().setAutoRange(true);
 		
 		// Adapt chart size to the size of the panel
 		rightPanel.addComponentListener(new ComponentAdapter() {
@@ -630,16 +525,20 @@ public class GUIInspectFSERun extends GUICardPanel
 		
 		// Setting toolTip when on top of an series item in the chart
 		//TODO deal with superposed points by adding all their names to tip text
-		XYToolTipGenerator ttg = new XYToolTipGenerator() {
+		chartByLevel.getXYPlot().getRenderer().setSeriesToolTipGenerator(0, 
+		        new XYToolTipGenerator() {
 			public String generateToolTip(XYDataset data, int sId, int itemId)
 			{
-				return mapItemsInByLevel.get(itemId).getName();
+				return datasetAllFit.getCandidate(itemId).getName();
 			}
-		};
-		chartByLevel.getXYPlot().getRenderer().setSeriesToolTipGenerator(0, 
-				ttg);
+		});
 		chartBySorted.getXYPlot().getRenderer().setSeriesToolTipGenerator(0, 
-				ttg);
+		        new XYToolTipGenerator() {
+            public String generateToolTip(XYDataset data, int sId, int itemId)
+            {
+                return datasetSorted.getCandidate(itemId).getName();
+            }
+        });
 		
 		// Click-based selection of item, possibly displaying mol structure
 		chartPanelByLevel.addChartMouseListener(new ChartMouseListener() {
@@ -656,12 +555,13 @@ public class GUIInspectFSERun extends GUICardPanel
 					if (serId == 0)
 					{
 						int itemId = ((XYItemEntity) e.getEntity()).getItem();
-						CandidateLW item = mapItemsInByLevel.get(itemId);
+						CandidateLW item = datasetAllFit.getCandidate(itemId);
                         
                         // The even can carry only one item, but there could be 
                         // many items overlapping each other.
                         // Search for overlapping items and ask which one to the
                         // user wants to see.
+                        sortAllItems();
                         int initPos = allItems.indexOf(item);
                         double tolerance = Math.abs(chartByLevel.getXYPlot()
                                 .getRangeAxis().getRange().getLength() * 0.02);
@@ -729,7 +629,7 @@ public class GUIInspectFSERun extends GUICardPanel
 					if (serId == 0)
 					{
 						int itemId = ((XYItemEntity) e.getEntity()).getItem();
-						CandidateLW item = sorted.get(itemId);
+						CandidateLW item = datasetSorted.getCandidate(itemId);
 						renderViewWithSelectedItem(item);
 					}
 				}
@@ -749,10 +649,257 @@ public class GUIInspectFSERun extends GUICardPanel
 				"sorted");
 		rightPanel.add(chartHolderPanel,BorderLayout.CENTER);
 		
-		mainPanel.setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
+		// The actual data is imported in the background and the plots are
+		// updated as soon as any data becomes available.
+		new FSERunLoader(folder, itemFiles).execute();
 	}
 	
+//------------------------------------------------------------------------------
 
+	/**
+	 * Data read from a batch of files.
+	 */
+	private static class BatchData
+	{
+	    List<CandidateLW> items = new ArrayList<CandidateLW>();
+	    Map<File,String> errors = new HashMap<File,String>();
+	}
+	
+//------------------------------------------------------------------------------
+
+    /**
+     * Background task reading the files in parallel batches and 
+     * publishing the data of each batch as soon as it is available.
+     * The files are read via a {@link RunIndex} stored in the run folder, so 
+     * that only new or modified files are read when re-opening a run.
+     */
+	private class FSERunLoader extends SwingWorker<Void,BatchData>
+	{
+	    private final File folder;
+	    private final List<File> itemFiles;
+	    
+	    /**
+	     * Number of files in each batch.
+	     */
+	    private static final int BATCHSIZE = 200;
+	    
+	    FSERunLoader(File folder, List<File> itemFiles)
+	    {
+	        this.folder = folder;
+	        this.itemFiles = itemFiles;
+	    }
+	    
+	    @Override
+        protected Void doInBackground() throws Exception
+        {
+	        if (itemFiles.isEmpty())
+	            return null;
+            RunIndex index = new RunIndex(new File(folder, 
+                    DENOPTIMConstants.RUNINDEXFILENAME));
+            int numBatches = (itemFiles.size() + BATCHSIZE - 1) / BATCHSIZE;
+            // Reading is mostly limited by the latency of the file system, 
+            // so we use some threads even on few cores.
+            int numThreads = Math.min(numBatches, Math.max(4, 
+                    Runtime.getRuntime().availableProcessors()));
+            ExecutorService executor = Executors.newFixedThreadPool(
+                    numThreads);
+            try
+            {
+                CompletionService<BatchData> ecs = 
+                        new ExecutorCompletionService<BatchData>(executor);
+                for (int i=0; i<numBatches; i++)
+                {
+                    List<File> batch = itemFiles.subList(i*BATCHSIZE, 
+                            Math.min(itemFiles.size(), (i+1)*BATCHSIZE));
+                    ecs.submit(() -> readBatch(batch, index));
+                }
+                for (int i=0; i<numBatches && !isCancelled(); i++)
+                {
+                    publish(ecs.take().get());
+                }
+            } finally {
+                executor.shutdownNow();
+                Logger.getLogger(GUI.GUILOGGER).log(Level.FINE, "Read " 
+                        + index.getNumberOfNewEntries() 
+                        + " files not found in the index of the run.");
+                index.close();
+            }
+            return null;
+        }
+	    
+	    private BatchData readBatch(List<File> batch, RunIndex index)
+	    {
+	        BatchData data = new BatchData();
+	        for (File itemFile : batch)
+	        {
+	            if (isCancelled())
+	                break;
+	            try {
+	                //WARNING: here we assume one candidate per file
+	                data.items.add(index.getLightWeightCandidates(itemFile)
+	                        .get(0));
+	            } catch (DENOPTIMException e1) {
+	                data.errors.put(itemFile, e1.getMessage());
+	            }
+	        }
+	        return data;
+	    }
+        
+        @Override
+        protected void process(List<BatchData> chunks)
+        {
+            List<CandidateLW> newItemsWithFitness = 
+                    new ArrayList<CandidateLW>();
+            try
+            {
+                for (BatchData data : chunks)
+                {
+                    if (isCancelled())
+                        return;
+                    for (File itemFile : data.errors.keySet())
+                    {
+                        if (!askToContinueAfterError(itemFile, 
+                                data.errors.get(itemFile)))
+                        {
+                            cancel(true);
+                            return;
+                        }
+                    }
+                    for (CandidateLW item : data.items)
+                    {
+                        int lev = item.getLevel();
+                        maxLevel = Math.max(maxLevel, lev);
+                        minLevel = Math.min(minLevel, lev);
+                        allItems.add(item);
+                        if (item.hasFitness())
+                        {
+                            itemsWithFitness++;
+                            datasetAllFit.add(item);
+                            newItemsWithFitness.add(item);
+                        }
+                    }
+                }
+            } finally {
+                // Keep the datasets consistent also when abandoning
+                allItemsSorted = false;
+                datasetSorted.addAll(newItemsWithFitness);
+            }
+            updateDatasets();
+        }
+        
+        @Override
+        protected void done()
+        {
+            try
+            {
+                get();
+            } catch (CancellationException e)
+            {
+                // Abandoned by the user
+            } catch (InterruptedException | ExecutionException e)
+            {
+                JOptionPane.showMessageDialog(GUIInspectFSERun.this,
+                        "Could not complete the import of data from '" 
+                        + folder + "'! " + e.getMessage(),
+                        "Error",
+                        JOptionPane.PLAIN_MESSAGE,
+                        UIManager.getIcon("OptionPane.errorIcon"));
+            }
+            resetViewInPlotOfSortedList();
+            resetViewInPlotByLevel();
+            System.out.println("Imported "+allItems.size()+" individuals.");
+            mainPanel.setCursor(Cursor.getPredefinedCursor(
+                    Cursor.DEFAULT_CURSOR));
+        }
+	}
+	
+//------------------------------------------------------------------------------
+	
+	/**
+	 * Asks the user whether to continue after failing to read a file, 
+	 * unless the user asked to remember the decision to continue.
+	 * @return <code>true</code> if we should continue.
+	 */
+	private boolean askToContinueAfterError(File itemFile, String error)
+	{
+	    if (skippFurtherErrors)
+	        return true;
+	    
+        mainPanel.setCursor(Cursor.getPredefinedCursor(
+                Cursor.DEFAULT_CURSOR));
+
+        JPanel msgPanel = new JPanel(new GridLayout(2, 1));
+        String msg = "<html><body width='%1s'>Could not read data "
+                + "from '" + itemFile + "'. Hint on cause: "
+                + error + " Should we try to "
+                + "visualize the results anyway?</html>";
+        JLabel text = new JLabel(String.format(msg, 450));
+        JCheckBox cb = new JCheckBox("Remember decision");
+        cb.setSelected(false);
+        msgPanel.add(text);
+        msgPanel.add(cb);
+        String[] options = new String[]{"Yes", "Abandon"};
+        int res = JOptionPane.showOptionDialog(this,
+                msgPanel,
+                "ERROR",
+                JOptionPane.DEFAULT_OPTION,
+                JOptionPane.QUESTION_MESSAGE,
+                UIManager.getIcon("OptionPane.errorIcon"),
+                options,
+                options[1]);
+        if (cb.isSelected())
+        {
+            skippFurtherErrors = true;
+        }
+        mainPanel.setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        return res == 0;
+	}
+	
+//------------------------------------------------------------------------------
+
+	/**
+	 * Updates the data series of the plots according to the data imported so 
+	 * far. The items are added to the plotted data as they are imported, so 
+	 * this method only notifies the charts and does not change the view.
+	 * This method must run on the event dispatch thread.
+	 */
+	private void updateDatasets()
+	{
+		lblTotItems.setText("Found "+allItems.size()+" candidates ("
+				+itemsWithFitness+" with fitness)");
+		datasetAllFit.notifyChanged();
+		datasetSorted.notifyChanged();
+	}
+	
+//------------------------------------------------------------------------------
+
+	/**
+	 * Sorts the list of all items by level and fitness, so that we can 
+	 * quickly identify overlapping items. This is done only when needed, 
+	 * rather than upon each import of data.
+	 */
+	private void sortAllItems()
+	{
+	    if (allItemsSorted)
+	        return;
+        allItems.sort(new Comparator<CandidateLW>() {
+            public int compare(CandidateLW c1, CandidateLW c2) {
+                int byGen = Integer.compare(c1.getLevel(), 
+                        c2.getLevel());
+                if (byGen!=0)
+                    return byGen;
+                if (c1.hasFitness() && c2.hasFitness())
+                    return Double.compare(c1.getFitness(), c2.getFitness());
+                else if (c1.hasFitness())
+                    return 1;
+                else if (c2.hasFitness())
+                    return -1;
+                return 0;
+            }
+        });
+        allItemsSorted = true;
+	}
+	
 //------------------------------------------------------------------------------
     
     private CandidateLW choseAmongPossiblyOverlapping(JComponent parent,
@@ -805,7 +952,7 @@ public class GUIInspectFSERun extends GUICardPanel
 		chartByLevel.getXYPlot().setDataset(1, datasetSelectedLev);
 
 		double[][] selectedCandsDataOrd = new double[2][1]; 
-    	selectedCandsDataOrd[0][0] = sorted.indexOf(item);
+    	selectedCandsDataOrd[0][0] = datasetSorted.indexOf(item);
     	selectedCandsDataOrd[1][0] = item.getFitness();        	
         datasetSelectedOrd.removeSeries("Selected_candidates");
         datasetSelectedOrd.addSeries("Selected_candidates", selectedCandsDataOrd);
@@ -829,6 +976,189 @@ public class GUIInspectFSERun extends GUICardPanel
         openGraph.setEnabled(false);
 	}
 
+//------------------------------------------------------------------------------
+	
+	/**
+	 * Dataset of the candidates with fitness plotted by level. Candidates are 
+	 * only appended, so that adding new data does not rebuild the series.
+	 */
+	private static class CandidatesDataset extends AbstractXYDataset
+	{
+	    private static final long serialVersionUID = 1L;
+	    
+	    private final List<CandidateLW> items = new ArrayList<CandidateLW>();
+	    private double[] xValues = new double[1024];
+	    private double[] yValues = new double[1024];
+	    
+	    void add(CandidateLW item)
+	    {
+	        int pos = items.size();
+	        if (pos == xValues.length)
+	        {
+	            xValues = Arrays.copyOf(xValues, 2 * pos);
+	            yValues = Arrays.copyOf(yValues, 2 * pos);
+	        }
+	        items.add(item);
+	        xValues[pos] = item.getLevel();
+	        yValues[pos] = item.getFitness();
+	    }
+	    
+	    CandidateLW getCandidate(int item)
+	    {
+	        return items.get(item);
+	    }
+	    
+	    void notifyChanged()
+	    {
+	        fireDatasetChanged();
+	    }
+	    
+        @Override
+        public int getSeriesCount()
+        {
+            return 1;
+        }
+
+        @Override
+        public Comparable<?> getSeriesKey(int series)
+        {
+            return "Candidates_with_fitness";
+        }
+
+        @Override
+        public int getItemCount(int series)
+        {
+            return items.size();
+        }
+
+        @Override
+        public Number getX(int series, int item)
+        {
+            return xValues[item];
+        }
+
+        @Override
+        public double getXValue(int series, int item)
+        {
+            return xValues[item];
+        }
+
+        @Override
+        public Number getY(int series, int item)
+        {
+            return yValues[item];
+        }
+
+        @Override
+        public double getYValue(int series, int item)
+        {
+            return yValues[item];
+        }
+	}
+	
+//------------------------------------------------------------------------------
+	
+	/**
+	 * Dataset of the candidates with fitness sorted by fitness. The X-value
+	 * of each candidate is its position in the sorted list. New candidates are
+	 * merged into the sorted list, which is never re-sorted as a whole.
+	 */
+	private static class SortedCandidatesDataset extends AbstractXYDataset
+	{
+	    private static final long serialVersionUID = 1L;
+	    
+	    private static final Comparator<CandidateLW> BYFITNESS = 
+	            new Comparator<CandidateLW>() {
+	        public int compare(CandidateLW a, CandidateLW b) {
+	            return Double.compare(a.getFitness(), b.getFitness());
+	        }
+	    };
+	    
+	    private List<CandidateLW> items = new ArrayList<CandidateLW>();
+	    
+	    /**
+	     * Adds candidates to this dataset. 
+	     * @param newItems the candidates to add. This list gets sorted.
+	     */
+	    void addAll(List<CandidateLW> newItems)
+	    {
+	        if (newItems.isEmpty())
+	            return;
+	        newItems.sort(BYFITNESS);
+	        List<CandidateLW> merged = new ArrayList<CandidateLW>(
+	                items.size() + newItems.size());
+	        int i = 0;
+	        int j = 0;
+	        while (i < items.size() && j < newItems.size())
+	        {
+	            if (BYFITNESS.compare(items.get(i), newItems.get(j)) <= 0)
+	                merged.add(items.get(i++));
+	            else
+	                merged.add(newItems.get(j++));
+	        }
+	        merged.addAll(items.subList(i, items.size()));
+	        merged.addAll(newItems.subList(j, newItems.size()));
+	        items = merged;
+	    }
+	    
+	    CandidateLW getCandidate(int item)
+	    {
+	        return items.get(item);
+	    }
+	    
+	    int indexOf(CandidateLW item)
+	    {
+	        return items.indexOf(item);
+	    }
+	    
+	    void notifyChanged()
+	    {
+	        fireDatasetChanged();
+	    }
+	    
+        @Override
+        public int getSeriesCount()
+        {
+            return 1;
+        }
+
+        @Override
+        public Comparable<?> getSeriesKey(int series)
+        {
+            return "Sorted_candidates";
+        }
+
+        @Override
+        public int getItemCount(int series)
+        {
+            return items.size();
+        }
+
+        @Override
+        public Number getX(int series, int item)
+        {
+            return getXValue(series, item);
+        }
+
+        @Override
+        public double getXValue(int series, int item)
+        {
+            return item;
+        }
+
+        @Override
+        public Number getY(int series, int item)
+        {
+            return getYValue(series, item);
+        }
+
+        @Override
+        public double getYValue(int series, int item)
+        {
+            return items.get(item).getFitness();
+        }
+	}
+
 //-----------------------------------------------------------------------------
   	
 }
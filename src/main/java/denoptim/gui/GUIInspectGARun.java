@@ -38,12 +38,23 @@ import java.io.File;
 import java.io.FileFilter;
 import java.io.IOException;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
+import java.util.IdentityHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+import java.util.logging.Logger;
 import java.util.stream.IntStream;
 
 import javax.swing.DefaultListModel;
@@ -62,6 +73,7 @@ import javax.swing.JSplitPane;
 import javax.swing.JTextField;
 import javax.swing.ListSelectionModel;
 import javax.swing.SwingConstants;
+import javax.swing.SwingWorker;
 import javax.swing.UIManager;
 
 import org.jfree.chart.ChartMouseEvent;
@@ -79,6 +91,7 @@ import org.jfree.chart.plot.SeriesRenderingOrder;
 import org.jfree.chart.plot.XYPlot;
 import org.jfree.chart.renderer.xy.XYLineAndShapeRenderer;
 import org.jfree.chart.ui.RectangleEdge;
+import org.jfree.data.xy.AbstractXYDataset;
 import org.jfree.data.xy.DefaultXYDataset;
 import org.jfree.data.xy.XYDataset;
 
@@ -87,6 +100,8 @@ import denoptim.exception.DENOPTIMException;
 import denoptim.files.FileUtils;
 import denoptim.graph.CandidateLW;
 import denoptim.io.DenoptimIO;
+import denoptim.io.RunDatabase;
+import denoptim.io.RunIndex;
 import denoptim.logging.CounterID;
 import denoptim.utils.GeneralUtils;
 
@@ -124,18 +139,46 @@ public class GUIInspectGARun extends GUICardPanel
 	private File srcFolder;
 	
 	private ArrayList<CandidateLW> allIndividuals;
-	private int molsWithFitness = 0;
+	
+	/**
+	 * Individuals that have been replaced by an older version of the same 
+	 * candidate, but are still in {@link #allIndividuals}. They are removed
+	 * when that list is sorted.
+	 */
+	private Set<CandidateLW> obsoleteIndividuals;
+	
+	/**
+	 * Flag signaling that {@link #allIndividuals} is sorted according to 
+	 * {@link PlottedCandidatesComparator} and contains no obsolete individual.
+	 */
+	private boolean individualsSorted = false;
+	
+	/**
+	 * The imported individuals collected to find them by name and UID.
+	 */
+	private Map<CandidateLW,CandidateLW> knownIndividuals;
+	
+	/**
+	 * Properties (min, max, mean, median fitness) of the population by 
+	 * generation id.
+	 */
+	private Map<Integer,double[]> popProperties;
+	
+	/**
+	 * Flag signaling that {@link #popProperties} has changed since the last
+	 * update of the data series of the population properties.
+	 */
+	private boolean popPropertiesChanged = false;
+	
 	private boolean warnedAboutMissingCandFiles = false;
 	private JLabel lblTotItems;
-	private Map<Integer,CandidateLW> candsWithFitnessMap;
 	
-	// WARNING: itemId in the map is "j" and is just a 
-	// locally generated unique 
+	// WARNING: itemId in the dataset is just a locally generated unique 
 	// identifier that has NO RELATION to generation/molId/fitness
-	// The Map 'candsWithFitnessMap' serve specifically to convert
-	// the itemId 'j' into a reference to the appropriate object.
+	// The dataset serves also to convert the itemId into a reference to the 
+	// appropriate object.
 	
-	private DefaultXYDataset datasetAllFit = new DefaultXYDataset();;
+	private CandidatesDataset datasetAllFit = new CandidatesDataset();
 	private DefaultXYDataset datasetSelected = new DefaultXYDataset();
 	private DefaultXYDataset datasetPopMin = new DefaultXYDataset();	
 	private DefaultXYDataset datasetPopMax = new DefaultXYDataset();
@@ -693,9 +736,13 @@ public class GUIInspectGARun extends GUICardPanel
 		System.out.println("Importing data from '" + srcFolder + "'...");
 		
 		candsPerGeneration = new HashMap<Integer,List<String>>();
-		Map<Integer,double[]> popProperties = new HashMap<Integer,double[]>();
+		popProperties = new TreeMap<Integer,double[]>();
 		allIndividuals = new ArrayList<CandidateLW>();
-		int largestGenId = -1;
+		obsoleteIndividuals = Collections.newSetFromMap(
+		        new IdentityHashMap<CandidateLW,Boolean>());
+		knownIndividuals = new HashMap<CandidateLW,CandidateLW>();
+		
+		List<File> genFolders = new ArrayList<File>();
 		for (File genFolder : file.listFiles(new FileFilter() {
 			
 			@Override
@@ -709,78 +756,14 @@ public class GUIInspectGARun extends GUICardPanel
 			}
 		}))
 		{
-            //WARNING: assuming folders are named "Gen.*"
-            int genId = Integer.parseInt(genFolder.getName().substring(3));
-            int padSize = genFolder.getName().substring(3).length();
-	        String zeroedGenId = GeneralUtils.getPaddedString(padSize, genId);
-		    readOneGeneration(genFolder, "Gen" + zeroedGenId + ".txt", 
-		            genId, parent, popProperties);
-		    if (genId>largestGenId)
-		        largestGenId = genId;
-		}
-		
-		System.out.println("Imported "+allIndividuals.size()+" individuals.");
-		
-		lblTotItems.setText("Found "+allIndividuals.size()+" candidates ("
-				+molsWithFitness+" with fitness)");
-		
-		// Process data and organize then into series for the plot 
-        double[][] candsWithFitnessData = new double[2][molsWithFitness];
-        candsWithFitnessMap = new HashMap<Integer,CandidateLW>();
-        int j = -1;
-        for (int i=0; i<allIndividuals.size(); i++)
-        {
-        	CandidateLW item = allIndividuals.get(i);
-        	if (!item.hasFitness())
-        	{
-        		continue;
-        	}
-        	
-        	// WARNING: itemId in the data is "j" and is just a unique 
-        	// identifier that has NO RELATION to generation/molId/fitness
-        	// The Map 'candsWithFitnessMap' serve specifically to convert
-        	// the itemId 'j' into a DENOPTIMMolecule
-        	
-        	j++;
-        	candsWithFitnessMap.put(j, item);
-        	candsWithFitnessData[0][j] = item.getGeneration();
-        	candsWithFitnessData[1][j] = item.getFitness();
-        }
-		datasetAllFit.addSeries("Candidates_with_fitness", candsWithFitnessData);
-		
-		// We sort the list of individuals by fitness and generation so that we 
-		// can quickly identify overlapping items
-		Collections.sort(allIndividuals, new PlottedCandidatesComparator());
-		
-		int numGen = popProperties.keySet().size();
-		double[][] popMin = new double[2][numGen];
-		double[][] popMax = new double[2][numGen];
-		double[][] popMean = new double[2][numGen];
-		double[][] popMedian = new double[2][numGen];
-		for (int i=0; i<numGen; i++)
-		{
-			double[] values = popProperties.get(i);
-			popMin[0][i] = i;
-			popMin[1][i] = values[0];
-			popMax[0][i] = i;
-			popMax[1][i] = values[1];
-			popMean[0][i] = i;
-			popMean[1][i] = values[2];
-			popMedian[0][i] = i;
-			popMedian[1][i] = values[3];
-			
+		    genFolders.add(genFolder);
 		}
-		datasetPopMin.addSeries("Population_min", popMin);
-		datasetPopMax.addSeries("Population_max", popMax);
-		datasetPopMean.addSeries("Population_mean", popMean);
-		datasetPopMedian.addSeries("Population_median", popMedian);
-	
 		
 		//TODO: somehow collect and display the candidates that hit a mol error
 		//      Could it be a histogram (#failed x gen) below the evolution plot
 		
         NumberAxis xAxis = new NumberAxis("Generation");
-        xAxis.setRange(-0.5, numGen-0.5); //"-" because numGen includes 0
+        xAxis.setRange(-0.5, 0.5); // updated as generations are imported
         xAxis.setAutoRangeIncludesZero(false);
         NumberAxis yAxis = new NumberAxis("Fitness");
         yAxis.setAutoRangeIncludesZero(false);
@@ -977,7 +960,7 @@ public class GUIInspectGARun extends GUICardPanel
 			@Override
 			public String generateToolTip(XYDataset data, int sId, int itemId)
 			{
-			    CandidateLW itemOnTop = candsWithFitnessMap.get(itemId);
+			    CandidateLW itemOnTop = datasetAllFit.getCandidate(itemId);
 			    // Is there more than one item in the stack?
 			    // One overlapping neighbor is enough to say there
 			    // is more than one item in the tack.
@@ -986,7 +969,7 @@ public class GUIInspectGARun extends GUICardPanel
 			    if (overlappingItems.size()>1)
 			        return "Overlapping Items";
 			    else
-			        return candsWithFitnessMap.get(itemId).getName();
+			        return itemOnTop.getName();
 			}
 		};
 		renderer1.setDefaultToolTipGenerator(ttg);
@@ -1014,7 +997,7 @@ public class GUIInspectGARun extends GUICardPanel
 					if (serId == 0)
 					{
 						int itemId = ((XYItemEntity) e.getEntity()).getItem();
-						CandidateLW item = candsWithFitnessMap.get(itemId);
+						CandidateLW item = datasetAllFit.getCandidate(itemId);
 						
 						// The even can carry only one item, but there could be 
 						// many items overlapping each other.
@@ -1040,34 +1023,189 @@ public class GUIInspectGARun extends GUICardPanel
 		
 		buildAndFillMonitorPlot(file, parent);
 		
-		mainPanel.setCursor(Cursor.getPredefinedCursor(Cursor.DEFAULT_CURSOR));
+		// The actual data is imported in the background and the plot is
+		// updated as soon as the data of any generation becomes available.
+		new GARunLoader(genFolders, parent).execute();
 	}
 	
 //------------------------------------------------------------------------------
 
-	private void readOneGeneration(File genFolder, String summaryName,
-	        int genId,
-	        Component parent, 
-	        Map<Integer,double[]> popProperties)
-    {
+	/**
+	 * Data read from the folder of one generation.
+	 */
+	private static class GenerationData
+	{
+	    int genId;
+	    File summary;
+	    
+	    /**
+	     * Properties of the population, or <code>null</code> if the summary 
+	     * could not be read.
+	     */
+	    double[] popProps;
+	    
+	    List<CandidateLW> candidates = new ArrayList<CandidateLW>();
+	    
+	    /**
+	     * File that could not be read, or <code>null</code>.
+	     */
+	    File unreadableFile;
+	    String readError;
+	    
+	    /**
+	     * Traces of the population members, or <code>null</code> if 
+	     * candidate files were found or the traces could not be read.
+	     */
+	    List<CandidateLW> traces;
+	    
+	    /**
+	     * Pathnames to population members, or <code>null</code>.
+	     */
+	    List<String> memberPathnames;
+	    boolean membersUnreadable = false;
+	}
+	
+//------------------------------------------------------------------------------
+
+	/**
+	 * Background task reading the generation folders in parallel and 
+	 * publishing the data of each generation as soon as it is available.
+	 * The files are read via a {@link RunIndex} stored in the run folder, so 
+	 * that only new or modified files are read when re-opening a run.
+	 */
+	private class GARunLoader extends SwingWorker<Void,GenerationData>
+	{
+	    private final List<File> genFolders;
+	    private final Component parent;
+	    
+	    GARunLoader(List<File> genFolders, Component parent)
+	    {
+	        this.genFolders = genFolders;
+	        this.parent = parent;
+	    }
+	    
+	    @Override
+	    protected Void doInBackground() throws Exception
+	    {
+	        if (genFolders.isEmpty())
+	            return null;
+	        RunIndex index = new RunIndex(new File(srcFolder, 
+	                DENOPTIMConstants.RUNINDEXFILENAME));
+	        // If the run kept a database of candidates, the population 
+	        // properties are taken from there, so we do not need to read the
+	        // generation summaries for that.
+	        Map<Integer,double[]> dbProps = new HashMap<Integer,double[]>();
+	        File dbDir = new File(srcFolder, 
+	                DENOPTIMConstants.GARUNDBDIRNAME);
+	        if (dbDir.isDirectory())
+	        {
+	            RunDatabase db = null;
+	            try
+	            {
+	                db = new RunDatabase(dbDir, true);
+	                dbProps = db.getPopulationPropsByGeneration();
+	            } catch (DENOPTIMException e)
+	            {
+	                // We'll read the generation summaries instead
+	            } finally {
+	                if (db != null)
+	                    db.close();
+	            }
+	        }
+	        final Map<Integer,double[]> propsFromDb = dbProps;
+	        // Reading is mostly limited by the latency of the file system, 
+	        // so we use some threads even on few cores.
+	        int numThreads = Math.min(genFolders.size(), Math.max(4, 
+	                Runtime.getRuntime().availableProcessors()));
+	        ExecutorService executor = Executors.newFixedThreadPool(
+	                numThreads);
+	        try
+	        {
+	            CompletionService<GenerationData> ecs = 
+	                    new ExecutorCompletionService<GenerationData>(executor);
+	            for (File genFolder : genFolders)
+	            {
+	                ecs.submit(() -> readOneGeneration(genFolder, index, 
+	                        propsFromDb));
+	            }
+	            for (int i=0; i<genFolders.size(); i++)
+	            {
+	                publish(ecs.take().get());
+	            }
+	        } finally {
+	            executor.shutdownNow();
+	            Logger.getLogger(GUI.GUILOGGER).log(Level.FINE, "Read " 
+	                    + index.getNumberOfNewEntries() 
+	                    + " files not found in the index of the run.");
+	            index.close();
+	        }
+	        return null;
+	    }
+	    
+	    @Override
+	    protected void process(List<GenerationData> chunks)
+	    {
+	        for (GenerationData data : chunks)
+	        {
+	            mergeGenerationData(data, parent);
+	        }
+	        updateEvolutionDatasets();
+	    }
+	    
+	    @Override
+	    protected void done()
+	    {
+	        try
+	        {
+	            get();
+	        } catch (InterruptedException | ExecutionException e)
+	        {
+	            JOptionPane.showMessageDialog(parent,
+	                    "Could not complete the import of data from '" 
+	                    + srcFolder + "'! " + NL + e.getMessage(),
+	                    "Error",
+	                    JOptionPane.PLAIN_MESSAGE,
+	                    UIManager.getIcon("OptionPane.errorIcon"));
+	        }
+	        System.out.println("Imported "+getNumberOfIndividuals()
+	            +" individuals.");
+	        mainPanel.setCursor(Cursor.getPredefinedCursor(
+	                Cursor.DEFAULT_CURSOR));
+	    }
+	}
+	
+//------------------------------------------------------------------------------
+
+	/**
+	 * Reads the data of one generation. This method does not interact with 
+	 * the GUI, so it can run on any thread.
+	 * @param genFolder the folder of the generation.
+	 * @param index the index of the files of the run.
+	 * @param dbProps population properties found in the database of the 
+	 * run. Generation summaries are read only for generations not found in 
+	 * this map.
+	 */
+	private GenerationData readOneGeneration(File genFolder, RunIndex index,
+	        Map<Integer,double[]> dbProps)
+	{
+	    GenerationData data = new GenerationData();
+	    
+	    //WARNING: assuming folders are named "Gen.*"
+	    data.genId = Integer.parseInt(genFolder.getName().substring(3));
+	    int padSize = genFolder.getName().substring(3).length();
+	    String zeroedGenId = GeneralUtils.getPaddedString(padSize, data.genId);
+	    data.summary = new File(genFolder, "Gen" + zeroedGenId + ".txt");
+	    
         // Read Generation summary file
-        File genSummary = new File(genFolder, summaryName);
-        System.out.println("Reading "+genSummary);
-        boolean readPopMembers = false;
-        try {
-            popProperties.put(genId, DenoptimIO.readPopulationProps(
-                    genSummary));
-            readPopMembers = true;
-        } catch (DENOPTIMException e2) {
-            JOptionPane.showMessageDialog(parent,
-                    "<html>File '" + genSummary + "' not found!<br>"
-                    + "There will be holes in the min/max/mean profile."
-                    + "</html>",
-                    "Error",
-                    JOptionPane.PLAIN_MESSAGE,
-                    UIManager.getIcon("OptionPane.errorIcon"));
-            popProperties.put(genId, new double[] {
-                    Double.NaN, Double.NaN, Double.NaN, Double.NaN});
+        if (dbProps.containsKey(data.genId))
+        {
+            data.popProps = dbProps.get(data.genId);
+        } else {
+            try {
+                data.popProps = index.getPopulationProps(data.summary);
+            } catch (DENOPTIMException e2) {
+                data.popProps = null;
+            }
         }
         
         // Read candidates from file (if present)
@@ -1088,28 +1226,94 @@ public class GUIInspectGARun extends GUICardPanel
             CandidateLW one;
             try {
                 //WARNING: here we assume one candidate per file
-                one = DenoptimIO.readLightWeightCandidate(fitFile).get(0);
+                one = index.getLightWeightCandidates(fitFile).get(0);
             } catch (DENOPTIMException e1) {
-                e1.printStackTrace();
-                JOptionPane.showMessageDialog(parent,
-                        "Could not read data from to '" + fitFile + "'! "
-                        + NL + e1.getMessage(),
-                        "Error",
-                        JOptionPane.PLAIN_MESSAGE,
-                        UIManager.getIcon("OptionPane.errorIcon"));
-                return;
-            }
-            if (one.hasFitness())
-            {
-                molsWithFitness++;
+                data.unreadableFile = fitFile;
+                data.readError = e1.getMessage();
+                return data;
             }
-            one.setGeneration(genId);
-            allIndividuals.add(one);
+            one.setGeneration(data.genId);
+            data.candidates.add(one);
             foundCandidateFilesInThisGen = true;
         }
         
         // Read traces of candidates if candidate's files are not present
+        boolean readPopMembers = data.popProps != null && data.summary.exists();
         if (!foundCandidateFilesInThisGen)
+        {
+            readPopMembers = false;
+            try
+            {
+                data.traces = index.getPopulationMembersTraces(data.summary);
+            } catch (DENOPTIMException e1)
+            {
+                // Should never happen unless the file becomes unreadable
+                // between the previous read and this one.
+                Logger.getLogger(GUI.GUILOGGER).log(Level.WARNING, 
+                        "Could not read traces from '" + data.summary + "'.", 
+                        e1);
+                data.traces = new ArrayList<CandidateLW>();
+            }
+        }
+        
+        //Read population members from summary
+        if (readPopMembers)
+        {
+            try
+            {
+                data.memberPathnames = index.getPopulationMemberPathnames(
+                        data.summary);
+            } catch (DENOPTIMException e1)
+            {
+                data.membersUnreadable = true;
+            }
+        }
+        return data;
+    }
+	
+//------------------------------------------------------------------------------
+
+	/**
+	 * Adds the data of one generation to the data of the run. This method 
+	 * must run on the event dispatch thread.
+	 */
+	private void mergeGenerationData(GenerationData data, Component parent)
+    {
+	    int genId = data.genId;
+        popPropertiesChanged = true;
+        if (data.popProps != null)
+        {
+            popProperties.put(genId, data.popProps);
+        } else {
+            JOptionPane.showMessageDialog(parent,
+                    "<html>File '" + data.summary + "' not found!<br>"
+                    + "There will be holes in the min/max/mean profile."
+                    + "</html>",
+                    "Error",
+                    JOptionPane.PLAIN_MESSAGE,
+                    UIManager.getIcon("OptionPane.errorIcon"));
+            popProperties.put(genId, new double[] {
+                    Double.NaN, Double.NaN, Double.NaN, Double.NaN});
+        }
+        
+        for (CandidateLW one : data.candidates)
+        {
+            addIndividual(one);
+        }
+        
+        if (data.unreadableFile != null)
+        {
+            JOptionPane.showMessageDialog(parent,
+                    "Could not read data from to '" + data.unreadableFile 
+                    + "'! " + NL + data.readError,
+                    "Error",
+                    JOptionPane.PLAIN_MESSAGE,
+                    UIManager.getIcon("OptionPane.errorIcon"));
+            return;
+        }
+        
+        // Use traces of candidates if candidate's files are not present
+        if (data.traces != null)
         {
             if (!warnedAboutMissingCandFiles)
             {
@@ -1132,62 +1336,229 @@ public class GUIInspectGARun extends GUICardPanel
                         UIManager.getIcon("OptionPane.errorIcon"));
                 warnedAboutMissingCandFiles = true;
             }
-            readPopMembers = false;
-            try
+            for (CandidateLW cand : data.traces)
             {
-                for (CandidateLW cand : 
-                    DenoptimIO.readPopulationMembersTraces(genSummary))
+                // We keep only the oldest version of a candidate.
+                // To this end, note that the equality of CandidateLW
+                // considers only name and UID.
+                CandidateLW otherTracePfCand = knownIndividuals.get(cand);
+                if (otherTracePfCand != null)
                 {
-                    // We keep only the oldest version of a candidate.
-                    // To this end, note that the equality of CandidateLW
-                    // considers only name and UID.
-                    if (allIndividuals.contains(cand))
+                    if (otherTracePfCand.getGeneration() > genId)
                     {
-                        CandidateLW otherTracePfCand = allIndividuals.get(
-                                allIndividuals.indexOf(cand));
-                        if (otherTracePfCand.getGeneration() > genId)
-                        {
-                            allIndividuals.remove(otherTracePfCand);
-                            molsWithFitness--;
-                        } else {
-                            continue;
-                        }
+                        obsoleteIndividuals.add(otherTracePfCand);
+                        datasetAllFit.remove(otherTracePfCand);
+                    } else {
+                        continue;
                     }
-                    cand.setGeneration(genId);
-                    molsWithFitness++;
-                    allIndividuals.add(cand);
                 }
-            } catch (DENOPTIMException e1)
-            {
-                // Should never happen unless the file becomes unreadable
-                // between the previous read and this one.
-                e1.printStackTrace();
+                cand.setGeneration(genId);
+                addIndividual(cand);
             }
         }
         
-        //Read population members from summary
-        if (readPopMembers)
+        if (data.memberPathnames != null)
         {
-            try
-            {
-                List<String> membersPathnames = new ArrayList<String>(
-                        DenoptimIO.readPopulationMemberPathnames(genSummary));
-                candsPerGeneration.put(genId, membersPathnames);
-            } catch (DENOPTIMException e1)
-            {
-                e1.printStackTrace();
-                JOptionPane.showMessageDialog(parent,
-                        String.format("<html><body width='%1s'>"
-                            + "File '" + genSummary + "' has been found, "
-                            + "but pathnames to population members could "
-                            + "not be read.</html>", 400),
-                        "Error",
-                        JOptionPane.PLAIN_MESSAGE,
-                        UIManager.getIcon("OptionPane.errorIcon"));
-            }
+            candsPerGeneration.put(genId, data.memberPathnames);
+        } else if (data.membersUnreadable) {
+            JOptionPane.showMessageDialog(parent,
+                    String.format("<html><body width='%1s'>"
+                        + "File '" + data.summary + "' has been found, "
+                        + "but pathnames to population members could "
+                        + "not be read.</html>", 400),
+                    "Error",
+                    JOptionPane.PLAIN_MESSAGE,
+                    UIManager.getIcon("OptionPane.errorIcon"));
         }
     }
+	
+//------------------------------------------------------------------------------
 
+	/**
+	 * Adds an individual to the collections of imported individuals and, if 
+	 * it has fitness, to the plotted data. This method must run on the event
+	 * dispatch thread.
+	 */
+	private void addIndividual(CandidateLW item)
+	{
+	    allIndividuals.add(item);
+	    knownIndividuals.put(item, item);
+	    individualsSorted = false;
+	    if (item.hasFitness())
+	        datasetAllFit.add(item);
+	}
+	
+//------------------------------------------------------------------------------
+
+	/**
+	 * @return the number of imported individuals, excluding those that have 
+	 * been replaced by an older version of the same candidate.
+	 */
+	private int getNumberOfIndividuals()
+	{
+	    return allIndividuals.size() - obsoleteIndividuals.size();
+	}
+	
+//------------------------------------------------------------------------------
+
+	/**
+	 * Updates the data series of the evolution plot according to the data 
+	 * imported so far. The individuals are added to the plotted data as they
+	 * are merged, so the cost of this method does not depend on the number 
+	 * of individuals. This method must run on the event dispatch thread.
+	 */
+	private void updateEvolutionDatasets()
+	{
+	    lblTotItems.setText("Found " + getNumberOfIndividuals() 
+	            + " candidates (" + datasetAllFit.getItemCount(0) 
+	            + " with fitness)");
+	    
+	    datasetAllFit.notifyChanged();
+	    
+	    if (!popPropertiesChanged)
+	        return;
+	    popPropertiesChanged = false;
+	    
+	    // NB: popProperties is sorted by generation index
+        int numGen = popProperties.size();
+        double[][] popMin = new double[2][numGen];
+        double[][] popMax = new double[2][numGen];
+        double[][] popMean = new double[2][numGen];
+        double[][] popMedian = new double[2][numGen];
+        int i = 0;
+        int lastGenId = 0;
+        for (Map.Entry<Integer,double[]> entry : popProperties.entrySet())
+        {
+            int genId = entry.getKey();
+            double[] values = entry.getValue();
+            popMin[0][i] = genId;
+            popMin[1][i] = values[0];
+            popMax[0][i] = genId;
+            popMax[1][i] = values[1];
+            popMean[0][i] = genId;
+            popMean[1][i] = values[2];
+            popMedian[0][i] = genId;
+            popMedian[1][i] = values[3];
+            lastGenId = genId;
+            i++;
+        }
+        datasetPopMin.addSeries("Population_min", popMin);
+        datasetPopMax.addSeries("Population_max", popMax);
+        datasetPopMean.addSeries("Population_mean", popMean);
+        datasetPopMedian.addSeries("Population_median", popMedian);
+        
+        if (numGen > 0)
+        {
+            evoPlot.getDomainAxis().setRange(-0.5, lastGenId + 0.5);
+        }
+	}
+	
+//------------------------------------------------------------------------------
+
+	/**
+	 * Data series of the individuals with fitness. Individuals can be added
+	 * and removed at constant cost, and the listeners of the dataset are
+	 * notified only upon request, so that the plot is updated once for any 
+	 * number of changes. Removal does not preserve the order of the items,
+	 * which is irrelevant for a scatter plot.
+	 */
+	private static class CandidatesDataset extends AbstractXYDataset
+	{
+	    private static final long serialVersionUID = 1L;
+	    
+	    private final List<CandidateLW> items = new ArrayList<CandidateLW>();
+	    private double[] xValues = new double[1024];
+	    private double[] yValues = new double[1024];
+	    
+	    /**
+	     * Position of each item in the series.
+	     */
+	    private final Map<CandidateLW,Integer> positions = 
+	            new IdentityHashMap<CandidateLW,Integer>();
+	    
+	    void add(CandidateLW item)
+	    {
+	        int pos = items.size();
+	        if (pos == xValues.length)
+	        {
+	            xValues = Arrays.copyOf(xValues, 2 * pos);
+	            yValues = Arrays.copyOf(yValues, 2 * pos);
+	        }
+	        items.add(item);
+	        xValues[pos] = item.getGeneration();
+	        yValues[pos] = item.getFitness();
+	        positions.put(item, pos);
+	    }
+	    
+	    void remove(CandidateLW item)
+	    {
+	        Integer pos = positions.remove(item);
+	        if (pos == null)
+	            return;
+	        int last = items.size() - 1;
+	        CandidateLW lastItem = items.remove(last);
+	        if (pos != last)
+	        {
+	            items.set(pos, lastItem);
+	            xValues[pos] = xValues[last];
+	            yValues[pos] = yValues[last];
+	            positions.put(lastItem, pos);
+	        }
+	    }
+	    
+	    CandidateLW getCandidate(int item)
+	    {
+	        return items.get(item);
+	    }
+	    
+	    void notifyChanged()
+	    {
+	        fireDatasetChanged();
+	    }
+	    
+        @Override
+        public int getSeriesCount()
+        {
+            return 1;
+        }
+
+        @Override
+        public Comparable<?> getSeriesKey(int series)
+        {
+            return "Candidates_with_fitness";
+        }
+
+        @Override
+        public int getItemCount(int series)
+        {
+            return items.size();
+        }
+
+        @Override
+        public Number getX(int series, int item)
+        {
+            return xValues[item];
+        }
+
+        @Override
+        public double getXValue(int series, int item)
+        {
+            return xValues[item];
+        }
+
+        @Override
+        public Number getY(int series, int item)
+        {
+            return yValues[item];
+        }
+
+        @Override
+        public double getYValue(int series, int item)
+        {
+            return yValues[item];
+        }
+	}
+	
 //------------------------------------------------------------------------------
 	
     /**
@@ -1420,6 +1791,19 @@ public class GUIInspectGARun extends GUICardPanel
 	private List<CandidateLW> getOverlappingItems(CandidateLW item, 
 	        int maxNeighbours)
 	{
+	    // We sort the list of individuals by fitness and generation so that we
+	    // can quickly identify overlapping items. This is done only when 
+	    // needed, rather than upon each import of data.
+	    if (!individualsSorted)
+	    {
+	        if (!obsoleteIndividuals.isEmpty())
+	        {
+	            allIndividuals.removeIf(c -> obsoleteIndividuals.contains(c));
+	            obsoleteIndividuals.clear();
+	        }
+	        Collections.sort(allIndividuals, new PlottedCandidatesComparator());
+	        individualsSorted = true;
+	    }
         int initPos = allIndividuals.indexOf(item);
         double toleranceY = Math.abs(evoPlot.getRangeAxis()
                 .getRange().getLength() * 0.02);
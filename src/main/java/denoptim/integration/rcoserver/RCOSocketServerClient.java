@@ -431,11 +431,12 @@ public class RCOSocketServerClient
             throw new IllegalArgumentException("Could not connect to socket",e1);
         }
         
-        Runtime.getRuntime().addShutdownHook(new Thread(){public void run(){
+        Thread closeSocketHook = new Thread(){public void run(){
             try {
                 socket.close();
             } catch (IOException e) { /* failed */ }
-        }});
+        }};
+        Runtime.getRuntime().addShutdownHook(closeSocketHook);
         
         PrintWriter writerToSocket;
         try
@@ -521,6 +522,15 @@ public class RCOSocketServerClient
         {
             e.printStackTrace();
         }
+        
+        // Avoid accumulating hooks, one for each request, during long runs
+        try
+        {
+            Runtime.getRuntime().removeShutdownHook(closeSocketHook);
+        } catch (IllegalStateException e)
+        {
+            // Shutdown in progress: the hook will do its job
+        }
         return answer;
     }
 
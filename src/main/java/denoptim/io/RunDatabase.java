@@ -0,0 +1,1030 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.io;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import denoptim.exception.DENOPTIMException;
+import denoptim.graph.Candidate;
+import denoptim.graph.CandidateLW;
+import denoptim.graph.DGraph;
+
+/**
+ * Append-only, column-oriented collection of the candidates encountered
+ * during a run.
+ * <p>Each property of the candidates is stored in its own file (a column)
+ * within a dedicated folder. Numeric properties (generation and fitness)
+ * are stored as fixed-width binary values, so that the row index
+ * identifies the position of the value in the file, and they are kept in
+ * memory to answer queries such as the identification of the best candidates
+ * of the run, without reading any other file. Textual properties (name, UID,
+ * pathname to the SDF file, provenance, names of the parents, and JSON
+ * of the graph) are stored as UTF-8 data in one file and the offset of the
+ * end of each value in a second file; these are read only upon request.
+ * The list of candidates that are members of the population at each
+ * generation is stored as pairs of generation and row indexes, and each
+ * batch of such pairs is closed by a marker.</p>
+ * <p>Data is written in batches, typically once per generation, and the
+ * number of rows is defined by the shortest column, so that any partial batch
+ * written by an interrupted run is ignored (and, when opening the database
+ * for writing, removed). Likewise, population membership records are
+ * considered only up to the last complete batch, so that no generation is
+ * reported with a partial population.</p>
+ *
+ * @author Marco Foscato
+ */
+
+public class RunDatabase
+{
+    /**
+     * The folder containing the columns.
+     */
+    private final File dir;
+
+    /**
+     * Flag signaling that this instance cannot modify the database.
+     */
+    private final boolean readOnly;
+
+    /**
+     * Number of rows.
+     */
+    private int size = 0;
+
+    /**
+     * Generation in which each candidate was generated.
+     */
+    private int[] generations = new int[1024];
+
+    /**
+     * Fitness of each candidate, or NaN.
+     */
+    private double[] fitnesses = new double[1024];
+
+    /**
+     * Generation index of each population membership record.
+     */
+    private int[] memberGens = new int[1024];
+
+    /**
+     * Row index of each population membership record.
+     */
+    private int[] memberRows = new int[1024];
+
+    /**
+     * Number of population membership records.
+     */
+    private int numMemberships = 0;
+
+    /**
+     * Descriptive statistics of the fitness of the population at each
+     * generation.
+     */
+    private final Map<Integer,double[]> populationProps =
+            new HashMap<Integer,double[]>();
+
+    /**
+     * Row of each candidate by name and UID. This is built only when needed
+     * since it requires reading textual columns.
+     */
+    private Map<String,Integer> rowByKey = null;
+
+    /**
+     * Access to the files of the textual columns.
+     */
+    private final Map<String,RandomAccessFile[]> readers =
+            new HashMap<String,RandomAccessFile[]>();
+
+    /**
+     * Names of the columns with textual values.
+     */
+    public static final String NAMECOL = "name";
+    public static final String UIDCOL = "uid";
+    public static final String FILECOL = "file";
+    public static final String PROVENANCECOL = "provenance";
+    public static final String PARENTSCOL = "parents";
+    public static final String GRAPHCOL = "graph";
+    private static final String[] TEXTCOLS = new String[] {NAMECOL, UIDCOL,
+            FILECOL, PROVENANCECOL, PARENTSCOL, GRAPHCOL};
+
+    /**
+     * Names of the files of the fixed-width columns.
+     */
+    private static final String GENFILE = "generation.int";
+    private static final String FITFILE = "fitness.dbl";
+    private static final String MEMBERSFILE = "members.int";
+
+    /**
+     * Row index used to mark the end of the population membership records
+     * written in one batch.
+     */
+    private static final int ENDOFBATCH = -1;
+
+    /**
+     * Extensions of the files of the textual columns.
+     */
+    private static final String DATAEXT = ".utf8";
+    private static final String ENDSEXT = ".end";
+
+    /**
+     * Pattern of the reference to a parent in the provenance of a candidate.
+     */
+    private static final Pattern PARENTREF = Pattern.compile(
+            "Cand:([^|\\s]+)\\|");
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Opens the database in the given folder, or creates a new one if the
+     * folder does not exist or is empty.
+     * @param dir the folder containing the database.
+     * @param readOnly use <code>true</code> to prevent any modification of
+     * the database, e.g., when inspecting the database of a run that is
+     * still ongoing.
+     * @throws DENOPTIMException if the database cannot be read or created.
+     */
+    public RunDatabase(File dir, boolean readOnly) throws DENOPTIMException
+    {
+        this.dir = dir;
+        this.readOnly = readOnly;
+        if (!dir.exists())
+        {
+            if (readOnly)
+            {
+                throw new DENOPTIMException("Run database '" + dir
+                        + "' not found.");
+            }
+            if (!dir.mkdirs())
+            {
+                throw new DENOPTIMException("Could not create run database '"
+                        + dir + "'.");
+            }
+        }
+        try
+        {
+            load();
+        } catch (IOException e)
+        {
+            throw new DENOPTIMException("Could not read run database '"
+                    + dir + "'.", e);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private File getFile(String name)
+    {
+        return new File(dir, name);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Reads the numeric columns and identifies the number of complete rows.
+     */
+    private void load() throws IOException
+    {
+        int rows = (int) (getFile(GENFILE).length() / Integer.BYTES);
+        rows = Math.min(rows, (int) (getFile(FITFILE).length() / Double.BYTES));
+        for (String col : TEXTCOLS)
+        {
+            rows = Math.min(rows, (int) (getFile(col + ENDSEXT).length()
+                    / Long.BYTES));
+        }
+
+        generations = new int[Math.max(1024, rows)];
+        fitnesses = new double[Math.max(1024, rows)];
+        readBytes(GENFILE, (long) rows * Integer.BYTES).asIntBuffer().get(
+                generations, 0, rows);
+        readBytes(FITFILE, (long) rows * Double.BYTES).asDoubleBuffer().get(
+                fitnesses, 0, rows);
+
+        size = rows;
+
+        int records = (int) (getFile(MEMBERSFILE).length()
+                / (2 * Integer.BYTES));
+        memberGens = new int[Math.max(1024, records)];
+        memberRows = new int[Math.max(1024, records)];
+        IntBuffer mem = readBytes(MEMBERSFILE,
+                (long) records * 2 * Integer.BYTES).asIntBuffer();
+        // Records are accepted only once the end-of-batch marker is found, so
+        // that the population of a generation is either complete or absent.
+        int pending = 0;
+        int completeRecords = 0;
+        for (int i=0; i<records; i++)
+        {
+            int gen = mem.get();
+            int row = mem.get();
+            if (row == ENDOFBATCH)
+            {
+                numMemberships += pending;
+                pending = 0;
+                completeRecords = i + 1;
+                continue;
+            }
+            if (row >= rows)
+            {
+                // From a partially written batch
+                break;
+            }
+            memberGens[numMemberships + pending] = gen;
+            memberRows[numMemberships + pending] = row;
+            pending++;
+        }
+        int start = 0;
+        for (int i=1; i<=numMemberships; i++)
+        {
+            if (i == numMemberships || memberGens[i] != memberGens[start])
+            {
+                updatePopulationProps(start, i);
+                start = i;
+            }
+        }
+
+        if (!readOnly)
+        {
+            truncate(GENFILE, (long) rows * Integer.BYTES);
+            truncate(FITFILE, (long) rows * Double.BYTES);
+            long[] ends = new long[TEXTCOLS.length];
+            for (int i=0; i<TEXTCOLS.length; i++)
+            {
+                ends[i] = getEndOffset(TEXTCOLS[i], rows-1);
+            }
+            close();
+            for (int i=0; i<TEXTCOLS.length; i++)
+            {
+                truncate(TEXTCOLS[i] + ENDSEXT, (long) rows * Long.BYTES);
+                truncate(TEXTCOLS[i] + DATAEXT, ends[i]);
+            }
+            truncate(MEMBERSFILE, (long) completeRecords * 2 * Integer.BYTES);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Reads the first bytes of a file in one operation.
+     */
+    private ByteBuffer readBytes(String fileName, long length)
+            throws IOException
+    {
+        ByteBuffer buffer = ByteBuffer.allocate((int) length);
+        if (length == 0)
+            return buffer;
+        try (FileChannel channel = FileChannel.open(getFile(fileName).toPath(),
+                StandardOpenOption.READ))
+        {
+            while (buffer.hasRemaining())
+            {
+                if (channel.read(buffer) < 0)
+                    throw new EOFException("Unexpected end of " + fileName);
+            }
+        }
+        buffer.flip();
+        return buffer;
+    }
+
+//------------------------------------------------------------------------------
+
+    private DataInputStream openInput(String fileName) throws IOException
+    {
+        File file = getFile(fileName);
+        if (!file.exists())
+        {
+            return new DataInputStream(new BufferedInputStream(
+                    InputStream.nullInputStream()));
+        }
+        return new DataInputStream(new BufferedInputStream(
+                new FileInputStream(file), 65536));
+    }
+
+//------------------------------------------------------------------------------
+
+    private void truncate(String fileName, long length) throws IOException
+    {
+        File file = getFile(fileName);
+        if (file.exists() && file.length() > length)
+        {
+            try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+            {
+                raf.setLength(length);
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the index of the rows by name and UID of the candidate.
+     */
+    private Map<String,Integer> getRowIndex() throws DENOPTIMException
+    {
+        if (rowByKey == null)
+        {
+            try
+            {
+                String[] names = readTextColumn(NAMECOL, size);
+                String[] uids = readTextColumn(UIDCOL, size);
+                rowByKey = new HashMap<String,Integer>();
+                for (int i=0; i<size; i++)
+                {
+                    rowByKey.put(getKey(names[i], uids[i]), i);
+                }
+            } catch (IOException e)
+            {
+                throw new DENOPTIMException("Could not read run database '"
+                        + dir + "'.", e);
+            }
+        }
+        return rowByKey;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Reads sequentially the first values of a textual column.
+     */
+    private String[] readTextColumn(String col, int rows) throws IOException
+    {
+        String[] values = new String[rows];
+        try (DataInputStream ends = openInput(col + ENDSEXT);
+                DataInputStream data = openInput(col + DATAEXT))
+        {
+            long start = 0;
+            for (int i=0; i<rows; i++)
+            {
+                long end = ends.readLong();
+                byte[] bytes = new byte[(int) (end - start)];
+                data.readFully(bytes);
+                values[i] = new String(bytes, StandardCharsets.UTF_8);
+                start = end;
+            }
+        } catch (EOFException e)
+        {
+            throw new IOException("Column '" + col + "' is corrupted.", e);
+        }
+        return values;
+    }
+
+//------------------------------------------------------------------------------
+
+    private static String getKey(String name, String uid)
+    {
+        return name + "|" + uid;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Appends the results of one generation. Candidates that have not been
+     * stored before are added as new rows, and all the given candidates are
+     * recorded as members of the population of the given generation.
+     * @param genId the index of the generation.
+     * @param population the members of the population. Any
+     * <code>null</code> entry is ignored.
+     * @throws DENOPTIMException if the database cannot be written.
+     */
+    public synchronized void appendGeneration(int genId,
+            List<Candidate> population) throws DENOPTIMException
+    {
+        if (readOnly)
+        {
+            throw new DENOPTIMException("Run database '" + dir
+                    + "' is open in read-only mode.");
+        }
+        Map<String,Integer> rowByKey = getRowIndex();
+        List<Candidate> newCands = new ArrayList<Candidate>();
+        Map<String,Integer> newRows = new HashMap<String,Integer>();
+        int[] rows = new int[population.size()];
+        int numMembers = 0;
+        for (Candidate c : population)
+        {
+            if (c == null)
+                continue;
+            String key = getKey(c.getName(), c.getUID());
+            Integer row = rowByKey.get(key);
+            if (row == null)
+                row = newRows.get(key);
+            if (row == null)
+            {
+                row = size + newCands.size();
+                newRows.put(key, row);
+                newCands.add(c);
+            }
+            rows[numMembers] = row;
+            numMembers++;
+        }
+        appendCandidates(newCands);
+        rowByKey.putAll(newRows);
+
+        try (DataOutputStream mem = openOutput(MEMBERSFILE))
+        {
+            for (int i=0; i<numMembers; i++)
+            {
+                mem.writeInt(genId);
+                mem.writeInt(rows[i]);
+            }
+            mem.writeInt(genId);
+            mem.writeInt(ENDOFBATCH);
+        } catch (IOException e)
+        {
+            throw new DENOPTIMException("Could not write run database '"
+                    + dir + "'.", e);
+        }
+        ensureMembersCapacity(numMemberships + numMembers);
+        for (int i=0; i<numMembers; i++)
+        {
+            memberGens[numMemberships] = genId;
+            memberRows[numMemberships] = rows[i];
+            numMemberships++;
+        }
+        updatePopulationProps(numMemberships - numMembers, numMemberships);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Updates the statistics of the population fitness of the generation
+     * to which the given range of population membership records belongs.
+     * @param from the index of the first record in the range.
+     * @param to the index of the record after the last one in the range.
+     */
+    private void updatePopulationProps(int from, int to)
+    {
+        if (from >= to)
+            return;
+        int genId = memberGens[from];
+        if (populationProps.containsKey(genId))
+        {
+            // Records of the same generation written in more batches
+            from = 0;
+            to = numMemberships;
+        }
+        double[] values = new double[to - from];
+        int n = 0;
+        for (int i=from; i<to; i++)
+        {
+            double fitness = fitnesses[memberRows[i]];
+            if (memberGens[i] == genId && !Double.isNaN(fitness))
+            {
+                values[n] = fitness;
+                n++;
+            }
+        }
+        if (n == 0)
+            return;
+        values = Arrays.copyOf(values, n);
+        Arrays.sort(values);
+        double sum = 0.0;
+        for (double v : values)
+            sum += v;
+        int mid = n / 2;
+        double median = n % 2 == 0 ? (values[mid-1] + values[mid]) / 2.0
+                : values[mid];
+        populationProps.put(genId, new double[] {values[0], values[n-1],
+                sum / n, median});
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Appends candidates as new rows without checking whether they are
+     * already present in the database.
+     */
+    private void appendCandidates(List<Candidate> cands)
+            throws DENOPTIMException
+    {
+        if (cands.isEmpty())
+            return;
+        try
+        {
+            // Textual columns are written first: rows become visible only
+            // once the numeric columns are written.
+            for (String col : TEXTCOLS)
+            {
+                long end = getEndOffset(col, size-1);
+                try (DataOutputStream data = openOutput(col + DATAEXT);
+                        DataOutputStream ends = openOutput(col + ENDSEXT))
+                {
+                    for (Candidate c : cands)
+                    {
+                        byte[] bytes = getTextValue(c, col).getBytes(
+                                StandardCharsets.UTF_8);
+                        data.write(bytes);
+                        end += bytes.length;
+                        ends.writeLong(end);
+                    }
+                }
+            }
+            try (DataOutputStream fit = openOutput(FITFILE))
+            {
+                for (Candidate c : cands)
+                {
+                    fit.writeDouble(c.hasFitness() ? c.getFitness()
+                            : Double.NaN);
+                }
+            }
+            try (DataOutputStream gen = openOutput(GENFILE))
+            {
+                for (Candidate c : cands)
+                {
+                    gen.writeInt(c.getGeneration());
+                }
+            }
+        } catch (IOException e)
+        {
+            throw new DENOPTIMException("Could not write run database '"
+                    + dir + "'.", e);
+        }
+
+        int newSize = size + cands.size();
+        if (newSize > generations.length)
+        {
+            int capacity = Math.max(newSize, 2 * generations.length);
+            generations = Arrays.copyOf(generations, capacity);
+            fitnesses = Arrays.copyOf(fitnesses, capacity);
+        }
+        for (Candidate c : cands)
+        {
+            generations[size] = c.getGeneration();
+            fitnesses[size] = c.hasFitness() ? c.getFitness() : Double.NaN;
+            size++;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private void ensureMembersCapacity(int capacity)
+    {
+        if (capacity > memberGens.length)
+        {
+            capacity = Math.max(capacity, 2 * memberGens.length);
+            memberGens = Arrays.copyOf(memberGens, capacity);
+            memberRows = Arrays.copyOf(memberRows, capacity);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private DataOutputStream openOutput(String fileName) throws IOException
+    {
+        return new DataOutputStream(new BufferedOutputStream(
+                new FileOutputStream(getFile(fileName), true), 65536));
+    }
+
+//------------------------------------------------------------------------------
+
+    private static String getTextValue(Candidate c, String col)
+    {
+        String value = null;
+        switch (col)
+        {
+            case NAMECOL:
+                value = c.getName();
+                break;
+            case UIDCOL:
+                value = c.getUID();
+                break;
+            case FILECOL:
+                value = c.getSDFFile();
+                break;
+            case PROVENANCECOL:
+                if (c.getGraph() != null)
+                    value = c.getGraph().getLocalMsg();
+                break;
+            case PARENTSCOL:
+                if (c.getGraph() != null)
+                    value = String.join(" ", getParentNames(
+                            c.getGraph().getLocalMsg()));
+                break;
+            case GRAPHCOL:
+                if (c.getGraph() != null)
+                    value = c.getGraph().toJson();
+                break;
+        }
+        return value == null ? "" : value;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Extracts the names of the parents from the provenance of a candidate,
+     * i.e., the message describing how the graph of the candidate was
+     * generated.
+     * @param provenance the description of the generation of the graph.
+     * @return the names of the parents, or an empty list.
+     */
+    public static List<String> getParentNames(String provenance)
+    {
+        List<String> names = new ArrayList<String>();
+        if (provenance == null)
+            return names;
+        Matcher m = PARENTREF.matcher(provenance);
+        while (m.find())
+        {
+            names.add(m.group(1));
+        }
+        return names;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Reads the end offset of a value in a textual column.
+     * @return the offset, or 0 for row indexes lower than 0.
+     */
+    private long getEndOffset(String col, int row) throws IOException
+    {
+        if (row < 0)
+            return 0;
+        return getOffsets(col, row, 1)[0];
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Reads in one operation the end offsets of consecutive values in a
+     * textual column.
+     */
+    private long[] getOffsets(String col, int firstRow, int num)
+            throws IOException
+    {
+        byte[] bytes = new byte[num * Long.BYTES];
+        RandomAccessFile ends = getReaders(col)[0];
+        ends.seek((long) firstRow * Long.BYTES);
+        ends.readFully(bytes);
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        long[] offsets = new long[num];
+        for (int i=0; i<num; i++)
+        {
+            offsets[i] = buffer.getLong();
+        }
+        return offsets;
+    }
+
+//------------------------------------------------------------------------------
+
+    private RandomAccessFile[] getReaders(String col) throws IOException
+    {
+        RandomAccessFile[] pair = readers.get(col);
+        if (pair == null)
+        {
+            pair = new RandomAccessFile[] {
+                    new RandomAccessFile(getFile(col + ENDSEXT), "r"),
+                    new RandomAccessFile(getFile(col + DATAEXT), "r")};
+            readers.put(col, pair);
+        }
+        return pair;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Reads the value of a textual column.
+     * @param col the name of the column, e.g., {@link #PROVENANCECOL}.
+     * @param row the row index.
+     * @return the value.
+     * @throws DENOPTIMException if the database cannot be read.
+     */
+    public synchronized String getText(String col, int row)
+            throws DENOPTIMException
+    {
+        checkRow(row);
+        try
+        {
+            long start = 0;
+            long end;
+            if (row > 0)
+            {
+                long[] offsets = getOffsets(col, row-1, 2);
+                start = offsets[0];
+                end = offsets[1];
+            } else {
+                end = getEndOffset(col, row);
+            }
+            byte[] bytes = new byte[(int) (end - start)];
+            RandomAccessFile data = getReaders(col)[1];
+            data.seek(start);
+            data.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        } catch (IOException e)
+        {
+            throw new DENOPTIMException("Could not read column '" + col
+                    + "' of run database '" + dir + "'.", e);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private void checkRow(int row)
+    {
+        if (row < 0 || row >= size)
+        {
+            throw new IndexOutOfBoundsException("Row " + row + " not in run "
+                    + "database of size " + size);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of candidates in the database.
+     */
+    public synchronized int size()
+    {
+        return size;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Looks for a candidate.
+     * @param name the name of the candidate.
+     * @param uid the unique identifier of the candidate.
+     * @return the row index of the candidate, or -1 if not found.
+     * @throws DENOPTIMException if the database cannot be read.
+     */
+    public synchronized int getRow(String name, String uid)
+            throws DENOPTIMException
+    {
+        Integer row = getRowIndex().get(getKey(name, uid));
+        return row == null ? -1 : row;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param row the row index.
+     * @return the fitness of the candidate, or NaN if the candidate has no
+     * fitness.
+     */
+    public synchronized double getFitness(int row)
+    {
+        checkRow(row);
+        return fitnesses[row];
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param row the row index.
+     * @return the generation in which the candidate was generated.
+     */
+    public synchronized int getGeneration(int row)
+    {
+        checkRow(row);
+        return generations[row];
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param row the row index.
+     * @return the names of the parents of the candidate.
+     * @throws DENOPTIMException if the database cannot be read.
+     */
+    public List<String> getParents(int row) throws DENOPTIMException
+    {
+        String value = getText(PARENTSCOL, row);
+        if (value.isEmpty())
+            return new ArrayList<String>();
+        return new ArrayList<String>(Arrays.asList(value.split(" ")));
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param row the row index.
+     * @return the graph of the candidate, or <code>null</code> if no graph
+     * was stored.
+     * @throws DENOPTIMException if the database cannot be read.
+     */
+    public DGraph getGraph(int row) throws DENOPTIMException
+    {
+        String json = getText(GRAPHCOL, row);
+        if (json.isEmpty())
+            return null;
+        return DGraph.fromJson(json);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Creates a lightweight representation of a candidate.
+     * @param row the row index.
+     * @return the lightweight candidate.
+     * @throws DENOPTIMException if the database cannot be read.
+     */
+    public CandidateLW getCandidateLW(int row) throws DENOPTIMException
+    {
+        CandidateLW c = new CandidateLW(getText(UIDCOL, row),
+                getText(NAMECOL, row), getText(FILECOL, row));
+        double fitness = getFitness(row);
+        if (!Double.isNaN(fitness))
+            c.setFitness(fitness);
+        c.setGeneration(getGeneration(row));
+        c.setGeneratingSource(getText(PROVENANCECOL, row));
+        return c;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Identifies the candidates with the highest fitness among all those
+     * in the database, no matter the generation.
+     * @param n the maximum number of candidates to return.
+     * @return the row indexes of the best candidates sorted by decreasing
+     * fitness.
+     */
+    public synchronized int[] getBestRows(int n)
+    {
+        if (n <= 0)
+            return new int[0];
+        // Min-heap of row indexes: the root is the worst of the best rows
+        int[] heap = new int[n];
+        int heapSize = 0;
+        for (int i=0; i<size; i++)
+        {
+            double fitness = fitnesses[i];
+            if (Double.isNaN(fitness))
+                continue;
+            if (heapSize < n)
+            {
+                int pos = heapSize;
+                heapSize++;
+                while (pos > 0)
+                {
+                    int parent = (pos - 1) / 2;
+                    if (fitnesses[heap[parent]] <= fitness)
+                        break;
+                    heap[pos] = heap[parent];
+                    pos = parent;
+                }
+                heap[pos] = i;
+            } else if (fitness > fitnesses[heap[0]]) {
+                siftDown(heap, heapSize, i);
+            }
+        }
+        int[] rows = new int[heapSize];
+        for (int k=heapSize-1; k>-1; k--)
+        {
+            rows[k] = heap[0];
+            siftDown(heap, k, heap[k]);
+        }
+        return rows;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Places a row index at the root of a min-heap of row indexes sorted by
+     * fitness, and moves it down to restore the heap property.
+     */
+    private void siftDown(int[] heap, int heapSize, int row)
+    {
+        double fitness = fitnesses[row];
+        int pos = 0;
+        while (true)
+        {
+            int child = 2 * pos + 1;
+            if (child >= heapSize)
+                break;
+            if (child + 1 < heapSize
+                    && fitnesses[heap[child+1]] < fitnesses[heap[child]])
+                child++;
+            if (fitnesses[heap[child]] >= fitness)
+                break;
+            heap[pos] = heap[child];
+            pos = child;
+        }
+        heap[pos] = row;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Identifies the candidates with the highest fitness among all those
+     * in the database, no matter the generation.
+     * @param n the maximum number of candidates to return.
+     * @return the best candidates sorted by decreasing fitness.
+     * @throws DENOPTIMException if the database cannot be read.
+     */
+    public List<CandidateLW> getBestCandidates(int n) throws DENOPTIMException
+    {
+        List<CandidateLW> cands = new ArrayList<CandidateLW>();
+        for (int row : getBestRows(n))
+        {
+            cands.add(getCandidateLW(row));
+        }
+        return cands;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param genId the index of the generation.
+     * @return the row indexes of the members of the population at the given
+     * generation.
+     */
+    public synchronized int[] getPopulationRows(int genId)
+    {
+        int[] rows = new int[numMemberships];
+        int n = 0;
+        for (int i=0; i<numMemberships; i++)
+        {
+            if (memberGens[i] == genId)
+            {
+                rows[n] = memberRows[i];
+                n++;
+            }
+        }
+        return Arrays.copyOf(rows, n);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the descriptive statistics of the fitness of the population
+     * at each recorded generation. The values are those given by
+     * {@link DenoptimIO#readPopulationProps(File)}, i.e.,
+     * minimum, maximum, mean, and median.
+     * @return the statistics for each generation, sorted by generation index.
+     */
+    public synchronized Map<Integer,double[]> getPopulationPropsByGeneration()
+    {
+        List<Integer> genIds = new ArrayList<Integer>(populationProps.keySet());
+        Collections.sort(genIds);
+        Map<Integer,double[]> props = new LinkedHashMap<Integer,double[]>();
+        for (Integer genId : genIds)
+        {
+            props.put(genId, populationProps.get(genId).clone());
+        }
+        return props;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Releases the files.
+     */
+    public synchronized void close()
+    {
+        for (RandomAccessFile[] pair : readers.values())
+        {
+            for (RandomAccessFile raf : pair)
+            {
+                try
+                {
+                    raf.close();
+                } catch (IOException e)
+                {
+                    // nothing to do
+                }
+            }
+        }
+        readers.clear();
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,406 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.io;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import denoptim.exception.DENOPTIMException;
+import denoptim.graph.CandidateLW;
+
+/**
+ * Persistent index of the data that is read from the output files of a run
+ * when inspecting such run, e.g., the lightweight representation of the
+ * candidates found in the SDF files and the population properties found in
+ * the generation summaries.
+ * <p>The index is a text file with one JSON record per line. Each record
+ * is tied to the pathname, the size, and the time of last modification of
+ * the file it was made from: a record is reused only if the file has not
+ * changed since the record was made, otherwise the file is read again and
+ * a new record is appended. Therefore, the index is built incrementally,
+ * even while the run is still ongoing, and re-opening a run requires reading
+ * only the files that are new or have changed. Any incomplete record at the
+ * end of the file is ignored.</p>
+ * <p>If the index file cannot be written, e.g., because the run folder is
+ * read-only, the index is kept only in memory.</p>
+ * <p>This class is thread-safe.</p>
+ *
+ * @author Marco Foscato
+ */
+
+public class RunIndex
+{
+    /**
+     * The file containing the records.
+     */
+    private final File file;
+
+    /**
+     * Writer appending records to the file, or <code>null</code> if the file
+     * cannot be written.
+     */
+    private BufferedWriter writer = null;
+
+    /**
+     * The records by key.
+     */
+    private final Map<String,Entry> entries =
+            new ConcurrentHashMap<String,Entry>();
+
+    /**
+     * Number of records that had to be created by this instance.
+     */
+    private int numNewEntries = 0;
+
+    /**
+     * Number of records appended since the last flush of the writer.
+     */
+    private int unflushed = 0;
+
+    /**
+     * Number of records after which we flush the writer.
+     */
+    private static final int FLUSHINTERVAL = 100;
+
+    /**
+     * Converter of records to and from JSON. NaN is found in properties of
+     * populations and candidates.
+     */
+    private final Gson jsonConverter = new GsonBuilder()
+            .serializeSpecialFloatingPointValues()
+            .create();
+
+    /**
+     * Separator between records.
+     */
+    private static final char EOR = '\n';
+
+    /**
+     * Suffixes of the keys of records made from generation summaries.
+     */
+    private static final String PROPSKEY = "|props";
+    private static final String MEMBERSKEY = "|members";
+    private static final String TRACESKEY = "|traces";
+
+//------------------------------------------------------------------------------
+
+    /**
+     * A record of the data read from one file.
+     */
+    private static class Entry
+    {
+        String key;
+        long modified;
+        long length;
+        List<CandidateLW> candidates;
+        double[] values;
+        List<String> strings;
+
+        boolean isUpToDate(File source)
+        {
+            return source.lastModified() == modified
+                    && source.length() == length;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Opens an index file, or creates it if it does not exist.
+     * @param file the file collecting the records.
+     */
+    public RunIndex(File file)
+    {
+        this.file = file;
+        long lastGoodEnd = 0;
+        if (file.exists())
+        {
+            try (BufferedReader br = new BufferedReader(new InputStreamReader(
+                    new FileInputStream(file), StandardCharsets.UTF_8)))
+            {
+                String line;
+                long pos = 0;
+                while ((line = br.readLine()) != null)
+                {
+                    // NB: readLine does not tell if the line was terminated,
+                    // so an incomplete last record is detected by parsing.
+                    pos += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                    Entry entry = parse(line);
+                    if (entry == null)
+                        break;
+                    entries.put(entry.key, entry);
+                    lastGoodEnd = pos;
+                }
+            } catch (IOException e)
+            {
+                // We'll rebuild what could not be read
+                entries.clear();
+                lastGoodEnd = 0;
+            }
+        }
+        try
+        {
+            if (file.exists() && file.length() > lastGoodEnd)
+            {
+                try (RandomAccessFile raf = new RandomAccessFile(file, "rw"))
+                {
+                    raf.setLength(lastGoodEnd);
+                }
+            }
+            writer = new BufferedWriter(new OutputStreamWriter(
+                    new FileOutputStream(file, true), StandardCharsets.UTF_8));
+            if (lastGoodEnd > file.length())
+            {
+                // The last record is complete but lacks the separator
+                writer.write(EOR);
+            }
+        } catch (IOException e)
+        {
+            writer = null;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private Entry parse(String line)
+    {
+        try
+        {
+            Entry entry = jsonConverter.fromJson(line, Entry.class);
+            if (entry == null || entry.key == null)
+                return null;
+            return entry;
+        } catch (JsonParseException e)
+        {
+            return null;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private Entry lookup(String key, File source)
+    {
+        Entry entry = entries.get(key);
+        if (entry != null && entry.isUpToDate(source))
+            return entry;
+        return null;
+    }
+
+//------------------------------------------------------------------------------
+
+    private Entry newEntry(String key, File source)
+    {
+        Entry entry = new Entry();
+        entry.key = key;
+        entry.modified = source.lastModified();
+        entry.length = source.length();
+        return entry;
+    }
+
+//------------------------------------------------------------------------------
+
+    private void store(Entry entry)
+    {
+        entries.put(entry.key, entry);
+        String json = jsonConverter.toJson(entry);
+        synchronized (this)
+        {
+            numNewEntries++;
+            if (writer == null)
+                return;
+            try
+            {
+                writer.write(json);
+                writer.write(EOR);
+                unflushed++;
+                if (unflushed >= FLUSHINTERVAL)
+                {
+                    writer.flush();
+                    unflushed = 0;
+                }
+            } catch (IOException e)
+            {
+                // Keep going with the in-memory index
+                closeWriter();
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the lightweight representation of the candidates defined in
+     * an SDF file. See {@link DenoptimIO#readLightWeightCandidate(File)}.
+     * @param sdfFile the file to read.
+     * @return the candidates.
+     * @throws DENOPTIMException if the file has to be read, but it cannot be
+     * read.
+     */
+    public List<CandidateLW> getLightWeightCandidates(File sdfFile)
+            throws DENOPTIMException
+    {
+        String key = sdfFile.getAbsolutePath();
+        Entry entry = lookup(key, sdfFile);
+        if (entry == null)
+        {
+            entry = newEntry(key, sdfFile);
+            entry.candidates = DenoptimIO.readLightWeightCandidate(sdfFile);
+            store(entry);
+        }
+        return new ArrayList<CandidateLW>(entry.candidates);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the properties of the population reported in a generation
+     * summary. See {@link DenoptimIO#readPopulationProps(File)}.
+     * @param summary the generation summary.
+     * @return the minimum, maximum, mean, and median fitness.
+     * @throws DENOPTIMException if the file has to be read, but it cannot be
+     * read.
+     */
+    public double[] getPopulationProps(File summary) throws DENOPTIMException
+    {
+        String key = summary.getAbsolutePath() + PROPSKEY;
+        Entry entry = lookup(key, summary);
+        if (entry == null)
+        {
+            entry = newEntry(key, summary);
+            entry.values = DenoptimIO.readPopulationProps(summary);
+            store(entry);
+        }
+        return entry.values.clone();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the pathnames of the population members listed in a generation
+     * summary. See {@link DenoptimIO#readPopulationMemberPathnames(File)}.
+     * @param summary the generation summary.
+     * @return the pathnames.
+     * @throws DENOPTIMException if the file has to be read, but it cannot be
+     * read.
+     */
+    public List<String> getPopulationMemberPathnames(File summary)
+            throws DENOPTIMException
+    {
+        String key = summary.getAbsolutePath() + MEMBERSKEY;
+        Entry entry = lookup(key, summary);
+        if (entry == null)
+        {
+            entry = newEntry(key, summary);
+            entry.strings = DenoptimIO.readPopulationMemberPathnames(summary);
+            store(entry);
+        }
+        return new ArrayList<String>(entry.strings);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the traces of the population members listed in a generation
+     * summary. See {@link DenoptimIO#readPopulationMembersTraces(File)}.
+     * @param summary the generation summary.
+     * @return the lightweight representation of the population members.
+     * @throws DENOPTIMException if the file has to be read, but it cannot be
+     * read.
+     */
+    public List<CandidateLW> getPopulationMembersTraces(File summary)
+            throws DENOPTIMException
+    {
+        String key = summary.getAbsolutePath() + TRACESKEY;
+        Entry entry = lookup(key, summary);
+        if (entry == null)
+        {
+            entry = newEntry(key, summary);
+            entry.candidates = DenoptimIO.readPopulationMembersTraces(summary);
+            store(entry);
+        }
+        return new ArrayList<CandidateLW>(entry.candidates);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of records that had to be created by this instance,
+     * i.e., the number of files that were not found in the index.
+     */
+    public synchronized int getNumberOfNewEntries()
+    {
+        return numNewEntries;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the total number of records in this index.
+     */
+    public int size()
+    {
+        return entries.size();
+    }
+
+//------------------------------------------------------------------------------
+
+    private void closeWriter()
+    {
+        try
+        {
+            writer.close();
+        } catch (IOException e)
+        {
+            // nothing to do
+        }
+        writer = null;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Writes any pending record and releases the file.
+     */
+    public synchronized void close()
+    {
+        if (writer != null)
+        {
+            closeWriter();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -89,7 +89,13 @@ public enum CounterID
     FITNESSEVALS, FAILEDFITNESSEVALS,
     
     DUPLICATEPREFITNESS,
-    FAILEDDUPLICATEPREFITNESSDETECTION;
+    FAILEDDUPLICATEPREFITNESSDETECTION,
+    
+    DUPLICATEGRAPHPREBUILD,
+    
+    EXTERNALPROCESSES,
+    EXTERNALPROCESSESWALLTIME,
+    EXTERNALPROCESSESPEAKRSS;
     
     private String description = "";
     
@@ -224,6 +230,17 @@ public enum CounterID
         FAILEDDUPLICATEPREFITNESSDETECTION.description = "Number of failed "
                 + "attempts to compare UID with known UIDs prior to considering "
                 + "the fitness evaluation of a candidate";
+        DUPLICATEGRAPHPREBUILD.description = "Number of duplicate graphs "
+                + "detected by their hash prior to building the molecular "
+                + "representation of a candidate";
+        
+        EXTERNALPROCESSES.description = "Number of completed external "
+                + "processes";
+        EXTERNALPROCESSESWALLTIME.description = "Total wall-clock time "
+                + "(milliseconds) of the completed external processes";
+        EXTERNALPROCESSESPEAKRSS.description = "Largest peak resident set "
+                + "size (kB) among the completed external processes, "
+                + "including their sub-processes. Zero if not available";
     }
     
     private String prettyName = "";
@@ -350,6 +367,15 @@ public enum CounterID
                 "#Duplicates Pre-Fitness";
         FAILEDDUPLICATEPREFITNESSDETECTION.prettyName =
                 "#Failed Duplicate Pre-Fitness Detection";
+        DUPLICATEGRAPHPREBUILD.prettyName =
+                "#Duplicate Graphs Pre-Build";
+        
+        EXTERNALPROCESSES.prettyName =
+                "#External Processes";
+        EXTERNALPROCESSESWALLTIME.prettyName =
+                "External Processes Wall-Clock (ms)";
+        EXTERNALPROCESSESPEAKRSS.prettyName =
+                "External Processes Peak RSS (kB)";
     }
 
 //------------------------------------------------------------------------------
@@ -0,0 +1,254 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.logging;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.management.InstanceAlreadyExistsException;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+import denoptim.exception.DENOPTIMException;
+
+/**
+ * Exporter making the content of {@link Monitor}s available as an MXBean
+ * registered in the platform MBean server, so that any JMX client (e.g.,
+ * JConsole or VisualVM) can watch a live run.
+ *
+ * @author Marco Foscato
+ */
+
+public class JMXMetricsExporter implements MetricsExporter,
+    MonitorMetricsMXBean
+{
+    /**
+     * Name of the MBean of the first exporter. Further exporters living in
+     * the same JVM get a name with an instance number.
+     */
+    public static final String OBJECTNAME = "denoptim:type=Monitor";
+
+    /**
+     * The name under which this bean is registered.
+     */
+    private ObjectName objectName;
+
+    /**
+     * The most recent snapshots.
+     */
+    private volatile List<MonitorSnapshot> snapshots =
+            new ArrayList<MonitorSnapshot>();
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor that registers the bean in the platform MBean server.
+     * @throws DENOPTIMException if the bean cannot be registered.
+     */
+    public JMXMetricsExporter() throws DENOPTIMException
+    {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        try
+        {
+            int instance = 0;
+            while (true)
+            {
+                String name = OBJECTNAME;
+                if (instance > 0)
+                    name = name + ",instance=" + instance;
+                try
+                {
+                    objectName = new ObjectName(name);
+                    server.registerMBean(this, objectName);
+                    break;
+                } catch (InstanceAlreadyExistsException e)
+                {
+                    instance++;
+                }
+            }
+        } catch (JMException e)
+        {
+            throw new DENOPTIMException("Unable to register MBean.", e);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the name under which this bean is registered.
+     */
+    public ObjectName getObjectName()
+    {
+        return objectName;
+    }
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public void export(List<MonitorSnapshot> snapshots)
+    {
+        this.snapshots = new ArrayList<MonitorSnapshot>(snapshots);
+    }
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public int getGeneration()
+    {
+        List<MonitorSnapshot> current = snapshots;
+        if (current.isEmpty())
+            return 0;
+        return current.get(current.size()-1).getGenerationId();
+    }
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public String[] getMonitorNames()
+    {
+        List<MonitorSnapshot> current = snapshots;
+        String[] names = new String[current.size()];
+        for (int i=0; i<names.length; i++)
+        {
+            names[i] = current.get(i).getName();
+        }
+        return names;
+    }
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public Map<String,Long> getCounters()
+    {
+        List<MonitorSnapshot> current = snapshots;
+        Map<String,Long> map = new LinkedHashMap<String,Long>();
+        for (CounterID cid : CounterID.values())
+        {
+            long value = 0;
+            for (MonitorSnapshot snapshot : current)
+            {
+                value += snapshot.getValue(cid);
+            }
+            map.put(cid.name(), value);
+        }
+        return map;
+    }
+
+//------------------------------------------------------------------------------
+
+    private Map<PipelineStage,LatencyHistogram.Snapshot> getLatencies()
+    {
+        List<MonitorSnapshot> current = snapshots;
+        Map<PipelineStage,LatencyHistogram.Snapshot> map =
+                new LinkedHashMap<PipelineStage,LatencyHistogram.Snapshot>();
+        for (PipelineStage stage : PipelineStage.values())
+        {
+            LatencyHistogram.Snapshot hist = new LatencyHistogram()
+                    .getSnapshot();
+            for (MonitorSnapshot snapshot : current)
+            {
+                hist = hist.combine(snapshot.getLatencies(stage));
+            }
+            map.put(stage, hist);
+        }
+        return map;
+    }
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public Map<String,Long> getLatencyCounts()
+    {
+        Map<String,Long> map = new LinkedHashMap<String,Long>();
+        for (Map.Entry<PipelineStage,LatencyHistogram.Snapshot> e :
+            getLatencies().entrySet())
+        {
+            map.put(e.getKey().name(), e.getValue().getCount());
+        }
+        return map;
+    }
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public Map<String,Double> getMeanLatencies()
+    {
+        Map<String,Double> map = new LinkedHashMap<String,Double>();
+        for (Map.Entry<PipelineStage,LatencyHistogram.Snapshot> e :
+            getLatencies().entrySet())
+        {
+            map.put(e.getKey().name(), e.getValue().getMeanInSeconds());
+        }
+        return map;
+    }
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public Map<String,Double> getMedianLatencies()
+    {
+        return getQuantiles(0.5);
+    }
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public Map<String,Double> getP95Latencies()
+    {
+        return getQuantiles(0.95);
+    }
+
+//------------------------------------------------------------------------------
+
+    private Map<String,Double> getQuantiles(double q)
+    {
+        Map<String,Double> map = new LinkedHashMap<String,Double>();
+        for (Map.Entry<PipelineStage,LatencyHistogram.Snapshot> e :
+            getLatencies().entrySet())
+        {
+            map.put(e.getKey().name(), e.getValue().getQuantileInSeconds(q));
+        }
+        return map;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Unregisters the bean from the platform MBean server.
+     */
+    @Override
+    public void close()
+    {
+        try
+        {
+            ManagementFactory.getPlatformMBeanServer().unregisterMBean(
+                    objectName);
+        } catch (JMException e)
+        {
+            // Already gone
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
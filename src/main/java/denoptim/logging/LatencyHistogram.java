@@ -0,0 +1,215 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.logging;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Histogram of latencies that can be updated concurrently without locking.
+ * Latencies are collected in buckets with exponentially growing upper
+ * bounds: the upper bound of bucket <i>i</i> is 2<sup><i>i</i></sup>
+ * microseconds, and the last bucket collects anything beyond the largest
+ * bound (i.e., more than about 71 minutes).
+ *
+ * @author Marco Foscato
+ */
+
+public class LatencyHistogram
+{
+    /**
+     * Number of buckets with a finite upper bound.
+     */
+    public static final int NUMBOUNDS = 33;
+
+    /**
+     * Counts by bucket. The last one is the overflow bucket.
+     */
+    private final LongAdder[] buckets = new LongAdder[NUMBOUNDS + 1];
+
+    /**
+     * Sum of all the recorded latencies in nanoseconds.
+     */
+    private final LongAdder sumNanos = new LongAdder();
+
+//------------------------------------------------------------------------------
+
+    public LatencyHistogram()
+    {
+        for (int i=0; i<buckets.length; i++)
+        {
+            buckets[i] = new LongAdder();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Records one observation.
+     * @param nanos the latency in nanoseconds.
+     */
+    public void record(long nanos)
+    {
+        if (nanos < 0)
+            nanos = 0;
+        buckets[getBucketIndex(nanos)].increment();
+        sumNanos.add(nanos);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param nanos a latency in nanoseconds.
+     * @return the index of the bucket collecting the given latency.
+     */
+    static int getBucketIndex(long nanos)
+    {
+        long micros = nanos / 1000 + (nanos % 1000 == 0 ? 0 : 1);
+        if (micros <= 1)
+            return 0;
+        // Ceiling of log2
+        int idx = 64 - Long.numberOfLeadingZeros(micros - 1);
+        return Math.min(idx, NUMBOUNDS);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param i the index of a bucket with finite upper bound.
+     * @return the upper bound of the bucket in seconds.
+     */
+    public static double getUpperBoundInSeconds(int i)
+    {
+        return (1L << i) / 1.0e6;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Takes a snapshot of this histogram. The snapshot is taken without
+     * stopping concurrent updates, so it may or may not include the
+     * observations recorded while taking the snapshot.
+     * @return the snapshot.
+     */
+    public Snapshot getSnapshot()
+    {
+        long[] counts = new long[buckets.length];
+        long total = 0;
+        for (int i=0; i<buckets.length; i++)
+        {
+            counts[i] = buckets[i].sum();
+            total += counts[i];
+        }
+        return new Snapshot(counts, total, sumNanos.sum());
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Immutable copy of the content of a {@link LatencyHistogram}.
+     */
+    public static class Snapshot
+    {
+        private final long[] counts;
+        private final long count;
+        private final long sumNanos;
+
+        private Snapshot(long[] counts, long count, long sumNanos)
+        {
+            this.counts = counts;
+            this.count = count;
+            this.sumNanos = sumNanos;
+        }
+
+        /**
+         * Combines this snapshot with another one.
+         * @param other the other snapshot.
+         * @return a new snapshot containing the observations of both.
+         */
+        public Snapshot combine(Snapshot other)
+        {
+            long[] sum = new long[counts.length];
+            for (int i=0; i<counts.length; i++)
+            {
+                sum[i] = counts[i] + other.counts[i];
+            }
+            return new Snapshot(sum, count + other.count,
+                    sumNanos + other.sumNanos);
+        }
+
+        /**
+         * @param i the index of the bucket. Index {@link #NUMBOUNDS} refers
+         * to the overflow bucket.
+         * @return the number of observations in the given bucket.
+         */
+        public long getBucketCount(int i)
+        {
+            return counts[i];
+        }
+
+        /**
+         * @return the total number of observations.
+         */
+        public long getCount()
+        {
+            return count;
+        }
+
+        /**
+         * @return the sum of all observations in seconds.
+         */
+        public double getSumInSeconds()
+        {
+            return sumNanos / 1.0e9;
+        }
+
+        /**
+         * @return the mean latency in seconds, or 0 if there are no
+         * observations.
+         */
+        public double getMeanInSeconds()
+        {
+            if (count == 0)
+                return 0.0;
+            return getSumInSeconds() / count;
+        }
+
+        /**
+         * Estimates a quantile as the upper bound of the bucket containing it.
+         * @param q the quantile in the range [0,1].
+         * @return the estimate in seconds, or 0 if there are no observations.
+         */
+        public double getQuantileInSeconds(double q)
+        {
+            if (count == 0)
+                return 0.0;
+            long rank = (long) Math.ceil(q * count);
+            long cumulative = 0;
+            for (int i=0; i<NUMBOUNDS; i++)
+            {
+                cumulative += counts[i];
+                if (cumulative >= rank)
+                    return getUpperBoundInSeconds(i);
+            }
+            return Double.POSITIVE_INFINITY;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,49 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.logging;
+
+import java.util.List;
+
+import denoptim.exception.DENOPTIMException;
+
+/**
+ * Interface for any means of making the content of {@link Monitor}s
+ * available outside of the running program. Exporters are fed periodically
+ * by the {@link MetricsPublisher}.
+ *
+ * @author Marco Foscato
+ */
+
+public interface MetricsExporter
+{
+    /**
+     * Exports the given snapshots, which replace whatever was exported
+     * before.
+     * @param snapshots the snapshots of the monitors that are currently
+     * active.
+     * @throws DENOPTIMException if the snapshots could not be exported.
+     */
+    public void export(List<MonitorSnapshot> snapshots)
+            throws DENOPTIMException;
+
+    /**
+     * Releases any resource used by this exporter.
+     */
+    public void close();
+}
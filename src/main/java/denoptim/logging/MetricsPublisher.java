@@ -0,0 +1,195 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.logging;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import denoptim.exception.DENOPTIMException;
+
+/**
+ * Periodically takes snapshots of the registered {@link Monitor}s and feeds
+ * them to the configured {@link MetricsExporter}s. Snapshots are taken
+ * without locking, so publishing does not slow down the threads updating
+ * the monitors.
+ *
+ * @author Marco Foscato
+ */
+
+public class MetricsPublisher
+{
+    /**
+     * The monitors to publish.
+     */
+    private final List<Monitor> monitors = new CopyOnWriteArrayList<Monitor>();
+
+    /**
+     * The exporters.
+     */
+    private final List<MetricsExporter> exporters =
+            new CopyOnWriteArrayList<MetricsExporter>();
+
+    /**
+     * Period between exports in milliseconds.
+     */
+    private final long periodMillis;
+
+    /**
+     * The executor running the periodic export, or <code>null</code> if not
+     * started.
+     */
+    private ScheduledExecutorService scheduler = null;
+
+    /**
+     * Logger to use
+     */
+    private final Logger logger;
+
+    /**
+     * Flag recording that we have already reported a failure to export, so
+     * that we do not flood the log with the same warning.
+     */
+    private volatile boolean reportedFailure = false;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor.
+     * @param periodMillis the period between exports in milliseconds.
+     * @param logger the logger where to report failures.
+     */
+    public MetricsPublisher(long periodMillis, Logger logger)
+    {
+        this.periodMillis = periodMillis;
+        this.logger = logger;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Adds an exporter.
+     * @param exporter the exporter to add.
+     */
+    public void addExporter(MetricsExporter exporter)
+    {
+        exporters.add(exporter);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Registers a monitor to be published from now on.
+     * @param mnt the monitor.
+     */
+    public void addMonitor(Monitor mnt)
+    {
+        monitors.add(mnt);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Stops publishing the given monitor. The current state of the monitor
+     * is published before removing it, so that its final values are not lost.
+     * @param mnt the monitor.
+     */
+    public void removeMonitor(Monitor mnt)
+    {
+        publish();
+        monitors.remove(mnt);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Starts the periodic export on a daemon thread.
+     */
+    public synchronized void start()
+    {
+        if (scheduler != null)
+            return;
+        scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "DENOPTIM-MetricsPublisher");
+            t.setDaemon(true);
+            return t;
+        });
+        scheduler.scheduleAtFixedRate(() -> publish(), periodMillis,
+                periodMillis, TimeUnit.MILLISECONDS);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Takes a snapshot of all registered monitors and exports it with all
+     * exporters.
+     */
+    public synchronized void publish()
+    {
+        List<MonitorSnapshot> snapshots = new ArrayList<MonitorSnapshot>();
+        for (Monitor mnt : monitors)
+        {
+            snapshots.add(mnt.getSnapshot());
+        }
+        for (MetricsExporter exporter : exporters)
+        {
+            try
+            {
+                exporter.export(snapshots);
+            } catch (DENOPTIMException e)
+            {
+                if (!reportedFailure)
+                {
+                    reportedFailure = true;
+                    logger.log(Level.WARNING, "Unable to export metrics: "
+                            + e.getMessage());
+                }
+            }
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Stops the periodic export, exports the final state of the monitors, and
+     * closes all exporters.
+     */
+    public synchronized void stop()
+    {
+        if (scheduler != null)
+        {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+        publish();
+        for (MetricsExporter exporter : exporters)
+        {
+            exporter.close();
+        }
+        exporters.clear();
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -18,8 +18,9 @@
 
 package denoptim.logging;
 
-import java.util.HashMap;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -28,18 +29,18 @@ import denoptim.io.DenoptimIO;
 
 /**
  * A collection of counters user to count actions taken by the evolutionary 
- * algorithm.
+ * algorithm, and of histograms of the latency of the stages of the pipeline
+ * that produces and evaluates candidates.
+ * <p>All counters and histograms can be updated concurrently without any 
+ * locking. Accordingly, reading the counters does not stop concurrent 
+ * updates, so any report, or {@link MonitorSnapshot}, reflects the value of
+ * each counter at a slightly different time.</p>
  * 
  * @author Marco Foscato
  */
 
-public class Monitor extends HashMap<CounterID,AtomicInteger> 
+public class Monitor
 {
-    /**
-     * Version UID
-     */
-    private static final long serialVersionUID = 1L;
-    
     /**
      * A name that allows humans to understand what this is a monitor of.
      */
@@ -69,7 +70,26 @@ public class Monitor extends HashMap<CounterID,AtomicInteger>
     /**
      * Counter controlling dumps
      */
-    private int dumpsId = 0;
+    private final AtomicLong dumpsId = new AtomicLong();
+    
+    /**
+     * Counters indexed by the ordinal of the {@link CounterID}.
+     */
+    private final LongAdder[] counters = 
+            new LongAdder[CounterID.values().length];
+    
+    /**
+     * Maxima indexed by the ordinal of the {@link CounterID}. These are used 
+     * only by counters updated with {@link #updateMaximum(CounterID, int)}.
+     */
+    private final LongAccumulator[] maxima = 
+            new LongAccumulator[CounterID.values().length];
+    
+    /**
+     * Latencies indexed by the ordinal of the {@link PipelineStage}.
+     */
+    private final LatencyHistogram[] latencies = 
+            new LatencyHistogram[PipelineStage.values().length];
     
     /**
      * Logger to use
@@ -85,10 +105,14 @@ public class Monitor extends HashMap<CounterID,AtomicInteger>
      */
     public Monitor()
     {
-        super();
-        for (CounterID cid : CounterID.values())
+        for (int i=0; i<counters.length; i++)
         {
-            this.put(cid,new AtomicInteger());
+            counters[i] = new LongAdder();
+            maxima[i] = new LongAccumulator(Math::max, 0);
+        }
+        for (int i=0; i<latencies.length; i++)
+        {
+            latencies[i] = new LatencyHistogram();
         }
     }
 
@@ -116,31 +140,25 @@ public class Monitor extends HashMap<CounterID,AtomicInteger>
     
     public void changeBy(CounterID cid, int value)
     {
-        String dump = "";
-        synchronized (this)
+        counters[cid.ordinal()].add(value);
+        if (cid != CounterID.NEWCANDIDATEATTEMPTS || !dumpData)
+            return;
+        
+        // Only the thread hitting the multiple of the dump step does the dump.
+        // A non-positive step means we dump at every attempt.
+        int step = Math.max(1, dumpStep);
+        if (dumpsId.incrementAndGet() % step != 0)
+            return;
+        
+        String dump = getMonitorDataLine("DUMP");
+        try
         {
-            this.get(cid).addAndGet(value);
-            if (cid == CounterID.NEWCANDIDATEATTEMPTS)
-            {
-                dumpsId++;
-                if (dumpData && dumpsId >= dumpStep)
-                {
-                    dumpsId = 0;
-                    dump = getMonitorDataLine("DUMP");
-                }
-            }
-        }
-        if (!dump.equals(""))
+            printSnapshot(dump);
+        } catch (DENOPTIMException e)
         {
-            try
-            {
-                printSnapshot(dump);
-            } catch (DENOPTIMException e)
-            {
-                logger.log(Level.WARNING,
-                        "Unable to print monitor report: "+e.getMessage() + NL
-                        + "Monitor report: " + NL + dump);
-            }
+            logger.log(Level.WARNING,
+                    "Unable to print monitor report: "+e.getMessage() + NL
+                    + "Monitor report: " + NL + dump);
         }
     }
     
@@ -172,6 +190,79 @@ public class Monitor extends HashMap<CounterID,AtomicInteger>
         changeBy(cid,-value);
     }
     
+//------------------------------------------------------------------------------
+
+    /**
+     * Sets the value of a counter to the given value, if the latter is larger
+     * than the current value of the counter.
+     * @param cid the counter to update.
+     * @param value the candidate maximum.
+     */
+    public void updateMaximum(CounterID cid, int value)
+    {
+        maxima[cid.ordinal()].accumulate(value);
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * @param cid the counter to read.
+     * @return the current value of the given counter.
+     */
+    public long getValue(CounterID cid)
+    {
+        int i = cid.ordinal();
+        return counters[i].sum() + maxima[i].get();
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * Records the latency of one execution of a stage of the pipeline.
+     * @param stage the stage.
+     * @param nanos the latency in nanoseconds.
+     */
+    public void recordLatency(PipelineStage stage, long nanos)
+    {
+        latencies[stage.ordinal()].record(nanos);
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * Records the latency of one execution of a stage of the pipeline that
+     * started at the given time.
+     * @param stage the stage.
+     * @param startNanos the value of {@link System#nanoTime()} when the stage
+     * started.
+     */
+    public void recordLatencySince(PipelineStage stage, long startNanos)
+    {
+        recordLatency(stage, System.nanoTime() - startNanos);
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * Takes a snapshot of all counters and histograms.
+     * @return the snapshot.
+     */
+    public MonitorSnapshot getSnapshot()
+    {
+        long[] values = new long[counters.length];
+        for (CounterID cid : CounterID.values())
+        {
+            values[cid.ordinal()] = getValue(cid);
+        }
+        LatencyHistogram.Snapshot[] hists = 
+                new LatencyHistogram.Snapshot[latencies.length];
+        for (int i=0; i<latencies.length; i++)
+        {
+            hists[i] = latencies[i].getSnapshot();
+        }
+        return new MonitorSnapshot(name, generationId, values, hists);
+    }
+    
 //------------------------------------------------------------------------------
 
     public void printHeader(String pathName) throws DENOPTIMException
@@ -190,7 +281,10 @@ public class Monitor extends HashMap<CounterID,AtomicInteger>
 
     public void printSnapshot(String snapshot) throws DENOPTIMException
     {
-        DenoptimIO.writeData(monitorFile, snapshot, true);
+        synchronized (this)
+        {
+            DenoptimIO.writeData(monitorFile, snapshot, true);
+        }
     }
 
 //------------------------------------------------------------------------------
@@ -203,12 +297,9 @@ public class Monitor extends HashMap<CounterID,AtomicInteger>
     {
         StringBuilder sb = new StringBuilder();
         sb.append("RecordType MonitorName Generation ");
-        synchronized (this)
-            {
-            for (CounterID cid : CounterID.values())
-            {
-                sb.append(cid).append(" ");
-            }
+        for (CounterID cid : CounterID.values())
+        {
+            sb.append(cid).append(" ");
         }
         return sb.toString();
     }
@@ -226,12 +317,9 @@ public class Monitor extends HashMap<CounterID,AtomicInteger>
         sb.append(prefix).append(" ");
         sb.append(name).append(" ");
         sb.append(generationId).append(" ");
-        synchronized (this)
-            {
-            for (CounterID cid : CounterID.values())
-            {
-                sb.append(this.get(cid).get()).append(" ");
-            }
+        for (CounterID cid : CounterID.values())
+        {
+            sb.append(getValue(cid)).append(" ");
         }
         return sb.toString();
     }
@@ -0,0 +1,69 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.logging;
+
+import java.util.Map;
+
+/**
+ * Management interface exposing the content of the active {@link Monitor}s
+ * via JMX. Values refer to the last export made by the
+ * {@link MetricsPublisher} and are summed over all active monitors.
+ *
+ * @author Marco Foscato
+ */
+
+public interface MonitorMetricsMXBean
+{
+    /**
+     * @return the generation number of the most recent active monitor.
+     */
+    public int getGeneration();
+
+    /**
+     * @return the names of the active monitors.
+     */
+    public String[] getMonitorNames();
+
+    /**
+     * @return the value of each counter.
+     */
+    public Map<String,Long> getCounters();
+
+    /**
+     * @return the number of executions of each stage of the pipeline.
+     */
+    public Map<String,Long> getLatencyCounts();
+
+    /**
+     * @return the mean latency, in seconds, of each stage of the pipeline.
+     */
+    public Map<String,Double> getMeanLatencies();
+
+    /**
+     * @return the estimated median latency, in seconds, of each stage of the
+     * pipeline.
+     */
+    public Map<String,Double> getMedianLatencies();
+
+    /**
+     * @return the estimated 95th percentile of the latency, in seconds, of
+     * each stage of the pipeline.
+     */
+    public Map<String,Double> getP95Latencies();
+}
@@ -0,0 +1,90 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.logging;
+
+/**
+ * Immutable copy of the counters and latency histograms of a
+ * {@link Monitor}.
+ *
+ * @author Marco Foscato
+ */
+
+public class MonitorSnapshot
+{
+    private final String name;
+    private final int generationId;
+    private final long[] counters;
+    private final LatencyHistogram.Snapshot[] latencies;
+
+//------------------------------------------------------------------------------
+
+    MonitorSnapshot(String name, int generationId, long[] counters,
+            LatencyHistogram.Snapshot[] latencies)
+    {
+        this.name = name;
+        this.generationId = generationId;
+        this.counters = counters;
+        this.latencies = latencies;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the name of the monitor.
+     */
+    public String getName()
+    {
+        return name;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the generation number of the monitor.
+     */
+    public int getGenerationId()
+    {
+        return generationId;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param cid the counter.
+     * @return the value of the counter.
+     */
+    public long getValue(CounterID cid)
+    {
+        return counters[cid.ordinal()];
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param stage the stage of the pipeline.
+     * @return the latencies of the given stage.
+     */
+    public LatencyHistogram.Snapshot getLatencies(PipelineStage stage)
+    {
+        return latencies[stage.ordinal()];
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,103 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.logging;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Exporter that keeps in memory the latest snapshot of every {@link Monitor}
+ * it has been fed with, including those monitors that are no longer
+ * published, and offers the totals over all such monitors. This is meant to
+ * collect the statistics of an entire run, which is made of multiple
+ * monitors, e.g., one per generation.
+ *
+ * @author Marco Foscato
+ */
+
+public class MonitorTotalsExporter implements MetricsExporter
+{
+    /**
+     * Latest snapshot of each monitor, identified by name and generation.
+     */
+    private final Map<String, MonitorSnapshot> latest =
+            new LinkedHashMap<String, MonitorSnapshot>();
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public synchronized void export(List<MonitorSnapshot> snapshots)
+    {
+        for (MonitorSnapshot snapshot : snapshots)
+        {
+            latest.put(snapshot.getName() + "_" + snapshot.getGenerationId(),
+                    snapshot);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Nothing to release: the collected data remains available.
+     */
+    @Override
+    public void close()
+    {}
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param cid the counter.
+     * @return the sum of the given counter over all monitors.
+     */
+    public synchronized long getTotal(CounterID cid)
+    {
+        long tot = 0;
+        for (MonitorSnapshot snapshot : latest.values())
+        {
+            tot += snapshot.getValue(cid);
+        }
+        return tot;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param stage the stage of the pipeline.
+     * @return the latencies of the given stage combined over all monitors,
+     * or <code>null</code> if no monitor has been exported.
+     */
+    public synchronized LatencyHistogram.Snapshot getLatencies(
+            PipelineStage stage)
+    {
+        LatencyHistogram.Snapshot tot = null;
+        for (MonitorSnapshot snapshot : latest.values())
+        {
+            if (tot == null)
+                tot = snapshot.getLatencies(stage);
+            else
+                tot = tot.combine(snapshot.getLatencies(stage));
+        }
+        return tot;
+    }
+
+//------------------------------------------------------------------------------
+
+}
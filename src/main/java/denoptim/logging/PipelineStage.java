@@ -0,0 +1,76 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.logging;
+
+/**
+ * Identifier of a stage of the pipeline that produces and evaluates
+ * candidates. The {@link Monitor} collects the latency of each stage.
+ */
+
+public enum PipelineStage
+{
+    /**
+     * Construction of the graph of a new candidate, be it from scratch, by
+     * crossover, or by mutation.
+     */
+    GRAPHBUILD("Building of graphs"),
+
+    /**
+     * Construction of the three-dimensional molecular model from the graph.
+     */
+    BUILD3D("Building of 3D molecular models"),
+
+    /**
+     * Evaluation of the graph leading to the unique identifier of the
+     * candidate.
+     */
+    UIDGENERATION("Generation of unique identifiers"),
+
+    /**
+     * Execution of the fitness provider.
+     */
+    FITNESS("Calculation of fitness"),
+
+    /**
+     * Writing of the reports on the population.
+     */
+    IO("Writing of reports");
+
+    private final String description;
+
+//------------------------------------------------------------------------------
+
+    private PipelineStage(String description)
+    {
+        this.description = description;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return a human readable description of this stage.
+     */
+    public String getDescription()
+    {
+        return description;
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,201 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.logging;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.List;
+import java.util.Locale;
+
+import denoptim.exception.DENOPTIMException;
+
+/**
+ * Exporter writing the content of {@link Monitor}s to a text file in the
+ * exposition format of Prometheus, i.e., the format read by the textfile
+ * collector of the node exporter. The file is replaced atomically at each
+ * export, so readers never see a partially written file.
+ * <p>Each counter becomes a metric named <code>denoptim_&lt;counter&gt;</code>
+ * and each stage of the pipeline becomes a histogram named
+ * <code>denoptim_&lt;stage&gt;_latency_seconds</code>. All metrics are
+ * labelled with the name and the generation of the monitor they come from.
+ * Since there is one monitor per generation, counters restart from zero at
+ * each generation, which is seen as a counter reset by Prometheus.</p>
+ *
+ * @author Marco Foscato
+ */
+
+public class PrometheusFileExporter implements MetricsExporter
+{
+    /**
+     * The file where to write.
+     */
+    private final File file;
+
+    /**
+     * Prefix of all metric names.
+     */
+    private static final String PREFIX = "denoptim_";
+
+    private static final String NL = "\n";
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor.
+     * @param file the file where to write.
+     */
+    public PrometheusFileExporter(File file)
+    {
+        this.file = file;
+    }
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public void export(List<MonitorSnapshot> snapshots)
+            throws DENOPTIMException
+    {
+        String text = format(snapshots);
+        Path target = file.getAbsoluteFile().toPath();
+        Path tmp = target.resolveSibling(file.getName() + ".tmp");
+        try
+        {
+            Files.write(tmp, text.getBytes(StandardCharsets.UTF_8));
+            try
+            {
+                Files.move(tmp, target, StandardCopyOption.ATOMIC_MOVE,
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e)
+            {
+                Files.move(tmp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e)
+        {
+            throw new DENOPTIMException("Unable to write metrics to '"
+                    + file + "'.", e);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Formats the snapshots according to the Prometheus exposition format.
+     * @param snapshots the snapshots to format.
+     * @return the text.
+     */
+    public static String format(List<MonitorSnapshot> snapshots)
+    {
+        StringBuilder sb = new StringBuilder();
+        for (CounterID cid : CounterID.values())
+        {
+            // The peak memory is the only counter that is not cumulative
+            boolean isGauge = cid == CounterID.EXTERNALPROCESSESPEAKRSS;
+            String metric = PREFIX + cid.name().toLowerCase(Locale.ROOT);
+            if (!isGauge)
+                metric = metric + "_total";
+            sb.append("# HELP ").append(metric).append(" ")
+                .append(escapeHelp(cid.getDescription())).append(NL);
+            sb.append("# TYPE ").append(metric).append(" ")
+                .append(isGauge ? "gauge" : "counter").append(NL);
+            for (MonitorSnapshot snapshot : snapshots)
+            {
+                sb.append(metric).append(getLabels(snapshot, null))
+                    .append(" ").append(snapshot.getValue(cid)).append(NL);
+            }
+        }
+        for (PipelineStage stage : PipelineStage.values())
+        {
+            String metric = PREFIX + stage.name().toLowerCase(Locale.ROOT)
+                    + "_latency_seconds";
+            sb.append("# HELP ").append(metric).append(" ")
+                .append(escapeHelp(stage.getDescription())).append(NL);
+            sb.append("# TYPE ").append(metric).append(" histogram")
+                .append(NL);
+            for (MonitorSnapshot snapshot : snapshots)
+            {
+                LatencyHistogram.Snapshot hist = snapshot.getLatencies(stage);
+                long cumulative = 0;
+                for (int i=0; i<LatencyHistogram.NUMBOUNDS; i++)
+                {
+                    cumulative += hist.getBucketCount(i);
+                    sb.append(metric).append("_bucket")
+                        .append(getLabels(snapshot, String.valueOf(
+                            LatencyHistogram.getUpperBoundInSeconds(i))))
+                        .append(" ").append(cumulative).append(NL);
+                }
+                sb.append(metric).append("_bucket")
+                    .append(getLabels(snapshot, "+Inf"))
+                    .append(" ").append(hist.getCount()).append(NL);
+                sb.append(metric).append("_sum")
+                    .append(getLabels(snapshot, null))
+                    .append(" ").append(hist.getSumInSeconds()).append(NL);
+                sb.append(metric).append("_count")
+                    .append(getLabels(snapshot, null))
+                    .append(" ").append(hist.getCount()).append(NL);
+            }
+        }
+        return sb.toString();
+    }
+
+//------------------------------------------------------------------------------
+
+    private static String getLabels(MonitorSnapshot snapshot, String le)
+    {
+        StringBuilder sb = new StringBuilder();
+        sb.append("{monitor=\"").append(escapeLabel(snapshot.getName()))
+            .append("\",generation=\"").append(snapshot.getGenerationId())
+            .append("\"");
+        if (le != null)
+        {
+            sb.append(",le=\"").append(le).append("\"");
+        }
+        sb.append("}");
+        return sb.toString();
+    }
+
+//------------------------------------------------------------------------------
+
+    private static String escapeHelp(String text)
+    {
+        return text.replace("\\", "\\\\").replace("\n", "\\n");
+    }
+
+//------------------------------------------------------------------------------
+
+    private static String escapeLabel(String text)
+    {
+        return escapeHelp(text).replace("\"", "\\\"");
+    }
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public void close()
+    {
+        // Nothing to release: the file is written in one go at each export
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -39,8 +39,10 @@ import denoptim.files.FileUtils;
 import denoptim.gui.GUI;
 import denoptim.integration.python.Py4JGetawayServer;
 import denoptim.logging.Version;
+import denoptim.programs.benchmark.BenchmarkRunner;
 import denoptim.programs.combinatorial.FragSpaceExplorer;
 import denoptim.programs.denovo.GARunner;
+import denoptim.programs.farmworker.FarmWorker;
 import denoptim.programs.fitnessevaluator.FitnessRunner;
 import denoptim.programs.fragmenter.Fragmenter;
 import denoptim.programs.genetweeker.GeneOpsRunner;
@@ -126,7 +128,17 @@ public class Main
         /**
          * Starts a listener to Python;
          */
-        PY4J;
+        PY4J,
+        
+        /**
+         * Run the throughput benchmark with {@link BenchmarkRunner}.
+         */
+        BENCH,
+        
+        /**
+         * Run a worker of a distributed fitness farm with {@link FarmWorker}.
+         */
+        FARMWORKER;
         
         // NB: to define a new run type: 
         //  1) add the enum alternative. The order is somewhat related to the
@@ -174,6 +186,8 @@ public class Main
             FRG.description = "Fragmentation and managment of fragments";
             M2G.description = "Convert Molecules to Graphs.";
             PY4J.description = "Starts a server listening to Python";
+            BENCH.description = "Throughput BENCHmark of GA and FSE";
+            FARMWORKER.description = "Worker of a distributed fitness FARM";
             
             DRY.isCLIEnabled = false;
             FSE.isCLIEnabled = true;
@@ -188,6 +202,8 @@ public class Main
             FRG.isCLIEnabled = true;
             M2G.isCLIEnabled = true;
             PY4J.isCLIEnabled = true;
+            BENCH.isCLIEnabled = true;
+            FARMWORKER.isCLIEnabled = true;
             
             DRY.needsInputFile = false;
             FSE.needsInputFile = true;
@@ -202,6 +218,8 @@ public class Main
             FRG.needsInputFile = true;
             M2G.needsInputFile = true;
             PY4J.needsInputFile = false;
+            BENCH.needsInputFile = false;
+            FARMWORKER.needsInputFile = true;
             
             DRY.programTaskImpl = null;
             FSE.programTaskImpl = FragSpaceExplorer.class;
@@ -216,6 +234,8 @@ public class Main
             FRG.programTaskImpl = Fragmenter.class;
             M2G.programTaskImpl = Mol2Graph.class;
             PY4J.programTaskImpl = null;
+            BENCH.programTaskImpl = BenchmarkRunner.class;
+            FARMWORKER.programTaskImpl = FarmWorker.class;
         }
 
         /**
@@ -334,20 +354,20 @@ public class Main
                         + behavior.runType + ". Found " + inputFiles.size()
                         + " files: " + inputFiles, 1);
             }
-            if (behavior.runType.needsInputFile())
+            if (behavior.runType.needsInputFile() && inputFiles.size()<1)
             {
-                if (inputFiles.size()<1)
-                {   
-                    reportError("Need an input file when requesting run "
-                        + behavior.runType + ". Found " + inputFiles.size(), 1);
-                } else if (inputFiles.size()==1) {
-                    inpFile = new File(inputFiles.get(0));
-                    wDir = inpFile.getParentFile();
-                    if (wDir==null)
-                    {
-                        wDir = new File(System.getProperty("user.dir"));
-                    }
-                }
+                reportError("Need an input file when requesting run "
+                    + behavior.runType + ". Found " + inputFiles.size(), 1);
+            }
+            // Input files are optional for run types that do not need one
+            if (inputFiles.size()==1)
+            {
+                inpFile = new File(inputFiles.get(0));
+                wDir = inpFile.getParentFile();
+            }
+            if (wDir==null)
+            {
+                wDir = new File(System.getProperty("user.dir"));
             }
             runProgramTask(behavior.runType.getProgramTaskImpl(), inpFile, wDir);
             terminate();
@@ -18,11 +18,19 @@
 
 package denoptim.molecularmodeling;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 
@@ -64,7 +72,7 @@ public class RingClosureTool
     /**
      * Iteration counter for making unique filenames.
      */
-    private int itn = 0;
+    private AtomicInteger itn = new AtomicInteger(0);
 
     /**
      * File separator
@@ -80,6 +88,19 @@ public class RingClosureTool
      * Program.specific logger
      */
     private Logger logger;
+    
+    /**
+     * Pool of threads used to run ring-closing attempts in parallel. 
+     * It is shared by all instances and created only when needed.
+     */
+    private static ExecutorService sharedExecutor = null;
+    
+    /**
+     * Flag marking the threads of the shared pool. Any ring-closing task
+     * requested from within such threads runs in the calling thread.
+     */
+    private static final ThreadLocal<Boolean> IS_SHARED_WORKER = 
+            ThreadLocal.withInitial(() -> false);
 
 //------------------------------------------------------------------------------
 
@@ -98,6 +119,11 @@ public class RingClosureTool
      * Performs one or more attempts to close rings by conformational adaptation.
      * The number of attempts (i.e, different set of rings) and the list of
      * definition of each attempt are defined into the object provided as input.
+     * Attempts can be run in parallel (see 
+     * {@link MMBuilderParameters#getRCParallelAttempts()}), and further 
+     * attempts can be skipped as soon as one attempt closes all the rings 
+     * with a sufficient quality 
+     * (see {@link MMBuilderParameters#getRCEarlyStopScore()}).
      * If no ring closure is possible, returns an empty array.
      * @param mol the input molecular system 
      * @return the list of generated molecules, if any.
@@ -108,69 +134,287 @@ public class RingClosureTool
     public ArrayList<ChemicalObjectModel> attemptAllRingClosures(
             ChemicalObjectModel mol) throws DENOPTIMException
     {
-        ArrayList<ChemicalObjectModel> rcMols = new ArrayList<ChemicalObjectModel>();
-        for (int i=0; i<mol.getRCACombinations().size(); i++)
+        int maxNumRings = 0;
+        for (Set<ObjectPair> rcaComb : mol.getRCACombinations())
         {
-            Set<ObjectPair> rcaComb = mol.getRCACombinations().get(i);
-            if (rcaComb.isEmpty())
-            {
-                logger.log(Level.WARNING,"Attempt to close rings with "
-                        + "no compatible RCA combination. "
-                        + "This is most likely a mistake. Please, "
-                        + "make sure that ring-closing vertexes are"
-                        + "properly detected.");
-            }
-            if (logger.isLoggable(Level.FINE))
+            maxNumRings = Math.max(maxNumRings, rcaComb.size());
+        }
+        
+        ArrayList<ChemicalObjectModel> rcMols;
+        int numThreads = Math.min(settings.getRCParallelAttempts(), 
+                mol.getRCACombinations().size());
+        if (numThreads > 1 && !IS_SHARED_WORKER.get())
+        {
+            rcMols = attemptRingClosuresInParallel(mol, numThreads, 
+                    maxNumRings);
+        } else {
+            rcMols = new ArrayList<ChemicalObjectModel>();
+            for (int i=0; i<mol.getRCACombinations().size(); i++)
             {
-                String s = "";
-                for (ObjectPair p : rcaComb)
-                {
-                    s = s + p.getFirst() + ":" + p.getSecond() + " ";
-                }
-                logger.log(Level.FINE,"Attempting Ring Closure with RCA "
-                        + "Combination (" + i + "): " + s);
+                ChemicalObjectModel molTo3d = mol.deepcopy();
+                attemptRingClosure(molTo3d, i, 
+                        settings.getWorkingDirectory());
+                rcMols.add(molTo3d);
+                if (isGoodEnough(molTo3d, i, maxNumRings))
+                    break;
             }
+        }
+
+        // Sort
+        Collections.sort(rcMols, new RingClosedMolComparator());
+
+        return rcMols;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Gets the pool of threads shared by all instances of this class, and
+     * creates it if needed. The size of the pool is bounded by the number of
+     * available processors, no matter how many systems are processed at the 
+     * same time.
+     * @return the shared pool of threads.
+     */
+    private static synchronized ExecutorService getSharedExecutor()
+    {
+        if (sharedExecutor == null)
+        {
+            AtomicInteger threadId = new AtomicInteger(0);
+            sharedExecutor = Executors.newFixedThreadPool(
+                    Runtime.getRuntime().availableProcessors(), 
+                    r -> {
+                        Thread t = new Thread(() -> {
+                            IS_SHARED_WORKER.set(true);
+                            r.run();
+                        }, "RingClosureTool-" + threadId.incrementAndGet());
+                        t.setDaemon(true);
+                        return t;
+                    });
+        }
+        return sharedExecutor;
+    }
+
+//------------------------------------------------------------------------------
 
-            // Try to create new molecule
-            ChemicalObjectModel molTo3d = mol.deepcopy();
-            if (settings.getPSSROTTool() != null)
+    /**
+     * Runs the attempts to close rings in parallel. The calling thread runs 
+     * attempts as well, and up to <code>numThreads-1</code> helpers from the
+     * pool shared by all instances of this class (see 
+     * {@link #getSharedExecutor()}) contribute to the remaining attempts. 
+     * Therefore, progress never depends on the availability of the shared 
+     * threads. When using Tinker, each attempt uses its own working directory.
+     * @param mol the input molecular system 
+     * @param numThreads the maximum number of concurrent attempts.
+     * @param maxNumRings the maximum number of rings that can be closed in a 
+     * single attempt.
+     * @return the list of generated molecules in the same order of the 
+     * combinations of ring-closing attractors, i.e., unsorted. Attempts that
+     * were skipped because of early termination are not included.
+     * @throws DENOPTIMException
+     */
+    private ArrayList<ChemicalObjectModel> attemptRingClosuresInParallel(
+            ChemicalObjectModel mol, int numThreads, int maxNumRings) 
+                    throws DENOPTIMException
+    {
+        int numAttempts = mol.getRCACombinations().size();
+        ChemicalObjectModel[] results = new ChemicalObjectModel[numAttempts];
+        AtomicInteger nextAttempt = new AtomicInteger(0);
+        CountDownLatch attemptsDone = new CountDownLatch(numAttempts);
+        AtomicBoolean stop = new AtomicBoolean(false);
+        AtomicReference<Throwable> failure = new AtomicReference<Throwable>();
+        
+        Runnable worker = () -> {
+            int i;
+            while ((i = nextAttempt.getAndIncrement()) < numAttempts)
             {
                 try
                 {
-                    attemptRingClosureWithTinker(molTo3d, 
-                            molTo3d.getRCACombinations().get(i));
-                }  catch (TinkerException te)
-                {
-                    String msg = "ERROR! Tinker failed on task '" 
-                            + te.taskName + "'!";
-                    if (te.solution != "")
+                    if (!stop.get())
                     {
-                        msg = msg + settings.NL + te.solution;
+                        results[i] = attemptRingClosureOnCopy(mol, i);
+                        if (isGoodEnough(results[i], i, maxNumRings))
+                            stop.set(true);
                     }
-                    logger.log(Level.SEVERE, msg);
-                    throw new DENOPTIMException(msg, te);
-                } 
-            } else {
-                attemptRingClosureWithRCOServer(molTo3d, 
-                        molTo3d.getRCACombinations().get(i));
+                } catch (Throwable t) {
+                    failure.compareAndSet(null, t);
+                    stop.set(true);
+                } finally {
+                    attemptsDone.countDown();
+                }
             }
-            
-    	    // If some ring remains open, report in the MOL_ERROR field
-    	    int newRingClosed = molTo3d.getNewRingClosures().size();
-    	    if (newRingClosed < rcaComb.size())
+        };
+        
+        List<Future<?>> helpers = new ArrayList<Future<?>>();
+        for (int i=1; i<numThreads; i++)
+        {
+            helpers.add(getSharedExecutor().submit(worker));
+        }
+        worker.run();
+        try
+        {
+            attemptsDone.await();
+        } catch (InterruptedException e)
+        {
+            stop.set(true);
+            Thread.currentThread().interrupt();
+            throw new DENOPTIMException("Interrupted while waiting for "
+                    + "ring-closing attempts.", e);
+        } finally {
+            // Helpers that did not start yet have nothing left to do
+            for (Future<?> helper : helpers)
+                helper.cancel(false);
+        }
+        
+        Throwable t = failure.get();
+        if (t instanceof DENOPTIMException)
+            throw (DENOPTIMException) t;
+        if (t != null)
+            throw new DENOPTIMException("Ring-closing attempt failed.", t);
+        
+        ArrayList<ChemicalObjectModel> rcMols = 
+                new ArrayList<ChemicalObjectModel>();
+        for (ChemicalObjectModel molTo3d : results)
+        {
+            if (molTo3d != null)
+                rcMols.add(molTo3d);
+        }
+        return rcMols;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Runs a single attempt to close rings on a copy of the given system.
+     * When using Tinker, the attempt works in its own directory, which is 
+     * removed with all its content once the attempt is done.
+     * @param mol the input molecular system, which is not modified.
+     * @param i the index of the combination of ring-closing attractors.
+     * @return the copy of the system resulting from the attempt.
+     * @throws DENOPTIMException
+     */
+    private ChemicalObjectModel attemptRingClosureOnCopy(
+            ChemicalObjectModel mol, int i) throws DENOPTIMException
+    {
+        // The copy is made only when the attempt is actually run. The input
+        // system is never read by more than one thread at the time.
+        ChemicalObjectModel molTo3d;
+        synchronized (mol)
+        {
+            molTo3d = mol.deepcopy();
+        }
+        
+        String attemptWorkDir = settings.getWorkingDirectory();
+        File attemptDir = null;
+        if (settings.getPSSROTTool() != null)
+        {
+            attemptDir = new File(settings.getWorkingDirectory() 
+                    + fsep + mol.getName() + "_rca" + i);
+            attemptDir.mkdirs();
+            attemptWorkDir = attemptDir.getAbsolutePath();
+        }
+        try
+        {
+            attemptRingClosure(molTo3d, i, attemptWorkDir);
+        } finally {
+            if (attemptDir != null)
+                org.apache.commons.io.FileUtils.deleteQuietly(attemptDir);
+        }
+        return molTo3d;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Runs a single attempt to close the rings defined by one of the 
+     * combinations of ring-closing attractors of the given system.
+     * @param molTo3d the system to work with. This system will be modified.
+     * @param i the index of the combination of ring-closing attractors.
+     * @param workDir the pathname of the directory where to put any file.
+     * @throws DENOPTIMException
+     */
+    private void attemptRingClosure(ChemicalObjectModel molTo3d, int i, 
+            String workDir) throws DENOPTIMException
+    {
+        Set<ObjectPair> rcaComb = molTo3d.getRCACombinations().get(i);
+        if (rcaComb.isEmpty())
+        {
+            logger.log(Level.WARNING,"Attempt to close rings with "
+                    + "no compatible RCA combination. "
+                    + "This is most likely a mistake. Please, "
+                    + "make sure that ring-closing vertexes are"
+                    + "properly detected.");
+        }
+        if (logger.isLoggable(Level.FINE))
+        {
+            String s = "";
+            for (ObjectPair p : rcaComb)
             {
-        	    String err = "#RingClosureTool: uncomplete closure (closed "
-    				+ newRingClosed + "/" + rcaComb.size() + ")";
-                    molTo3d.getIAtomContainer().setProperty(
-        	            DENOPTIMConstants.MOLERRORTAG,err);
+                s = s + p.getFirst() + ":" + p.getSecond() + " ";
             }
-            rcMols.add(molTo3d);
+            logger.log(Level.FINE,"Attempting Ring Closure with RCA "
+                    + "Combination (" + i + "): " + s);
         }
 
-        // Sort
-        Collections.sort(rcMols, new RingClosedMolComparator());
+        if (settings.getPSSROTTool() != null)
+        {
+            try
+            {
+                attemptRingClosureWithTinker(molTo3d, rcaComb, workDir);
+            }  catch (TinkerException te)
+            {
+                String msg = "ERROR! Tinker failed on task '" 
+                        + te.taskName + "'!";
+                if (te.solution != "")
+                {
+                    msg = msg + settings.NL + te.solution;
+                }
+                logger.log(Level.SEVERE, msg);
+                throw new DENOPTIMException(msg, te);
+            } 
+        } else {
+            attemptRingClosureWithRCOServer(molTo3d, rcaComb);
+        }
+        
+	    // If some ring remains open, report in the MOL_ERROR field
+	    int newRingClosed = molTo3d.getNewRingClosures().size();
+	    if (newRingClosed < rcaComb.size())
+        {
+    	    String err = "#RingClosureTool: uncomplete closure (closed "
+				+ newRingClosed + "/" + rcaComb.size() + ")";
+                molTo3d.getIAtomContainer().setProperty(
+    	            DENOPTIMConstants.MOLERRORTAG,err);
+        }
+    }
 
-        return rcMols;
+//------------------------------------------------------------------------------
+
+    /**
+     * Checks if the result of a ring-closing attempt makes any further attempt
+     * unnecessary, i.e., the attempt has closed all the rings of the 
+     * combination, no other combination has more rings, and the 
+     * overall score of the ring closures is within the threshold given by
+     * {@link MMBuilderParameters#getRCEarlyStopScore()}.
+     * @param molTo3d the result of the attempt.
+     * @param i the index of the combination of ring-closing attractors.
+     * @param maxNumRings the maximum number of rings in any combination.
+     * @return <code>true</code> if we can skip further attempts.
+     */
+    private boolean isGoodEnough(ChemicalObjectModel molTo3d, int i, 
+            int maxNumRings)
+    {
+        double threshold = settings.getRCEarlyStopScore();
+        if (threshold < 0.0)
+            return false;
+        int numRings = molTo3d.getRCACombinations().get(i).size();
+        if (numRings < maxNumRings 
+                || molTo3d.getNewRingClosures().size() < numRings)
+            return false;
+        if (molTo3d.getNewRingClosuresQuality() > threshold)
+            return false;
+        logger.log(Level.FINE, "Ring closure with RCA combination (" + i 
+                + ") has score " + molTo3d.getNewRingClosuresQuality() 
+                + ". Skipping further attempts.");
+        return true;
     }
 
 //------------------------------------------------------------------------------
@@ -257,7 +501,7 @@ public class RingClosureTool
         String molName = chemObj.getName();
 
         // Increment iteration number (to make unique file names)
-        itn++;
+        int itn = this.itn.incrementAndGet();
 
         logger.log(Level.INFO, "Attempting Ring Closure via conformational"
                                 + " adaptation for " + molName
@@ -317,13 +561,36 @@ public class RingClosureTool
     public ChemicalObjectModel attemptRingClosureWithTinker(
             ChemicalObjectModel chemObj, Set<ObjectPair> rcaCombination) 
                     throws DENOPTIMException, TinkerException
+    {
+        return attemptRingClosureWithTinker(chemObj, rcaCombination, 
+                settings.getWorkingDirectory());
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Attempts to close rings with Tinker's PSSROT 
+     * (see {@link #attemptRingClosureWithTinker(ChemicalObjectModel, Set)})
+     * working in the given directory.
+     * @param chemObj the definition of the system to work with. This system
+     * will be modified.
+     * @param rcaCombination the combination of RingClosingAttractors.
+     * @param workDir the pathname of the directory where Tinker's files are
+     * written.
+     * @return the updated chemical object given as input.
+     * @throws DENOPTIMException
+     * @throws TinkerException 
+     */
+
+    private ChemicalObjectModel attemptRingClosureWithTinker(
+            ChemicalObjectModel chemObj, Set<ObjectPair> rcaCombination,
+            String workDir) throws DENOPTIMException, TinkerException
     {
         IAtomContainer fmol = chemObj.getIAtomContainer();
-        String workDir = settings.getWorkingDirectory();
         String molName = chemObj.getName();
 
         // Increment iteration number (to make unique file names)
-        itn++;
+        int itn = this.itn.incrementAndGet();
 
         logger.log(Level.INFO, "Attempting Ring Closure via conformational"
                                 + " adaptation for " + molName
@@ -29,6 +29,7 @@ import java.util.logging.Logger;
 
 import javax.vecmath.AxisAngle4d;
 import javax.vecmath.Matrix3d;
+import javax.vecmath.Matrix4d;
 import javax.vecmath.Point3d;
 import javax.vecmath.Vector3d;
 
@@ -589,8 +590,11 @@ public class ThreeDimTreeBuilder
             Map<IBond,ArrayList<AttachmentPoint>> apsPerBond) 
                     throws DENOPTIMException
     {   
-        logger.log(Level.FINE, "Appending 3D fragment via edge: "+edge + NL 
-                +"#Atoms on growing mol: "+mol.getAtomCount());
+        if (logger.isLoggable(Level.FINE))
+        {
+            logger.log(Level.FINE, "Appending 3D fragment via edge: "+edge + NL 
+                    +"#Atoms on growing mol: "+mol.getAtomCount());
+        }
         
         // Get the incoming fragment and its AP
         Vertex inVtx = edge.getTrgAP().getOwner();
@@ -600,7 +604,8 @@ public class ThreeDimTreeBuilder
         //Used to keep track of which atom comes from which vertex
         long idInVrx = inVtx.getVertexId();
         
-        logger.log(Level.FINE, "Incoming vertex : "+inVtx);
+        if (logger.isLoggable(Level.FINE))
+            logger.log(Level.FINE, "Incoming vertex : "+inVtx);
         
         int preNumAtms = mol.getAtomCount();
         IAtomContainer inFrag = null;
@@ -632,166 +637,48 @@ public class ThreeDimTreeBuilder
                 // between the
                 // parent vertex, which is the growing molecule (i.e., ApA)
                 // and that on the incoming building block (i.e., ApB).
+                // The operation is defined only by the points of the APs, and
+                // is then applied in a single pass over atoms and APs.
                 Point3d trgApB = new Point3d(apB.getDirectionVector());
                 Point3d srcApB = new Point3d(MoleculeUtils.getPoint3d(
                         inFrag.getAtom(apB.getAtomPositionNumber())));
-        
-                // Translate atoms and APs of incoming building block so that 
-                // trgApB is on srcApA
-                Point3d tr1 = new Point3d();
-                tr1.sub(trgApB,srcApA);
-                for (IAtom atm : inFrag.atoms())
-                {
-                	atm.setPoint3d(MoleculeUtils.getPoint3d(atm));
-                    atm.getPoint3d().sub(tr1);
-                }
-                for (AttachmentPoint ap : inVtx.getAttachmentPoints())
-                {
-                    Point3d pt = new Point3d(ap.getDirectionVector());
-                    pt.sub(tr1);
-                    ap.setDirectionVector(pt);
-                }
-                trgApB = new Point3d(apB.getDirectionVector());
-                srcApB = new Point3d(MoleculeUtils.getPoint3d(
-                        inFrag.getAtom(apB.getAtomPositionNumber())));
-        
-                //Get Vectors ApA and ApB (NOTE: inverse versus of ApB!!!)
-                Vector3d vectApA = new Vector3d();
-                Vector3d vectApB = new Vector3d();
-                vectApA.sub(trgApA,srcApA);
-                vectApB.sub(srcApB,trgApB);
-                vectApA.normalize();
-                vectApB.normalize();
-        
-                logger.log(Level.FINE, 
-                        "After 1st translation and before rotation" + NL
-                        + "srcApA "+srcApA+NL
-                        + "trgApA "+trgApA+NL
-                        + "vectApA "+vectApA+NL
-                        + "srcApB "+srcApB+NL
-                        + "trgApB "+trgApB+NL
-                        + "vectApB "+vectApB);
-        
-                // Get rotation matrix that aligns ApB to ApA
-                double rotAng = vectApA.angle(vectApB);
-                double threshold = 0.00001;
-                if (rotAng >= threshold)
-                {
-                    Vector3d rotAxis = new Vector3d();
-                    if (rotAng <= (Math.PI-0.00001))
-                    {
-                        rotAxis.cross(vectApB,vectApA);
-                    }
-                    else
-                    {
-                        rotAxis = MathUtils.getNormalDirection(vectApA);
-                    }
-                    Matrix3d rotMat = new Matrix3d();
-        	        rotAxis.normalize();
-                    rotMat.set(new AxisAngle4d(rotAxis,rotAng));
-        
-                    logger.log(Level.FINE,"rotAng "+rotAng+NL
-                            +"rotAxis "+rotAxis
-                            +"rotMat "+rotMat);
-        
-                    // Rotate atoms of incoming building block
-                    for (IAtom atm : inFrag.atoms())
-                    {
-                    	//At this point all atoms have point3d
-                        atm.getPoint3d().sub(srcApA);
-                        rotMat.transform(atm.getPoint3d());
-                        atm.getPoint3d().add(srcApA);
-                    }
-                    // Rotate APs of incoming building block
-                    for (AttachmentPoint ap : 
-                        inVtx.getAttachmentPoints())
-                    {
-                        Point3d pt = new Point3d(ap.getDirectionVector());
-                        pt.sub(srcApA);
-                        rotMat.transform(pt);
-                        pt.add(srcApA);
-                        ap.setDirectionVector(pt);
-                    }
-        
-                    // Update points defining AP vector
-                    trgApB = new Point3d(apB.getDirectionVector());
-                    srcApB = new Point3d(inFrag.getAtom(
-                            apB.getAtomPositionNumber()).getPoint3d());
-                }
-                else
-                {
-                    logger.log(Level.FINE,"RotAng below threshold. No rotation.");
-                }
-        
-                logger.log(Level.FINE, 
-                        "After rotation before 2nd translation"+NL
-                        + "srcApA "+srcApA+NL
-                        + "trgApA "+trgApA+NL
-                        + "vectApA "+vectApA+NL
-                        + "srcApB "+srcApB+NL
-                        + "trgApB "+trgApB+NL
-                        + "vectApB "+vectApB);
-            
+                
                 // Check whether this edge involves a Ring Closing Attractors
-                boolean edgeToRCA = false; 
-                //if (rcParams.getRCStrategy().equals("BONDOVERLAP"))
-                if (true)
-                {
-                    if (edge.getSrcAP().getOwner().isRCV() || 
-                            edge.getTrgAP().getOwner().isRCV())
-                    {
-                        edgeToRCA = true;
-                    }
-                }
-        
-                // Get translation vector accounting for different length of 
-                // the APs
-                vectApA.sub(trgApA,srcApA);
-                vectApB.sub(srcApB,trgApB);
-        
-                Point3d tr2 = new Point3d();
-                if (edgeToRCA)
-                {
-                    // Here we set translation vector as to move the 
-                    // incoming frag
-                    // of the length of the longest AP. This is to place RCA at 
-                    // a bonding distance from the connected atom
-                    if (vectApA.length() > vectApB.length())
-                    {
-                        tr2.add(vectApA);
-                    }
-                    else
-                    {
-                        // NOTE: in this case the RCA is on mol, thus no 
-                        // translation
-        		        // is needed because trgApB is already on top of srcApA
-                    }
-                }
-                else
+                boolean edgeToRCA = edge.getSrcAP().getOwner().isRCV() 
+                        || edge.getTrgAP().getOwner().isRCV();
+                
+                Matrix4d rotoTrans = getAlignmentRotoTranslation(srcApA, 
+                        trgApA, srcApB, trgApB, edgeToRCA);
+                if (logger.isLoggable(Level.FINE))
                 {
-                    tr2.sub(vectApA,vectApB);
-                    tr2.scale(0.5);
+                    logger.log(Level.FINE, "srcApA "+srcApA+NL
+                            + "trgApA "+trgApA+NL
+                            + "srcApB "+srcApB+NL
+                            + "trgApB "+trgApB+NL
+                            + "Roto-translation "+NL+rotoTrans);
                 }
-        
-                // Translate atoms and APs to their final position
+                
+                // Move atoms and APs to their final position
                 for (IAtom atm : inFrag.atoms())
                 {
-                    atm.getPoint3d().add(tr2);
-                    if ((atm.getPoint3d().x != atm.getPoint3d().x) ||
-                        (atm.getPoint3d().y != atm.getPoint3d().y) ||
-                        (atm.getPoint3d().z != atm.getPoint3d().z))
+                    Point3d pt = MoleculeUtils.getPoint3d(atm);
+                    rotoTrans.transform(pt);
+                    if (Double.isNaN(pt.x) || Double.isNaN(pt.y) 
+                            || Double.isNaN(pt.z))
                     {
                         String str = "ERROR! NaN coordinated from "
                                 + "rototranslation of 3D fragment. "
                                 + "Check source code. Atm: "+atm;
                         throw new DENOPTIMException(str);
                     }
+                    atm.setPoint3d(pt);
                 }
                 for (AttachmentPoint ap : inVtx.getAttachmentPoints())
                 {
                     Point3d pt = new Point3d(ap.getDirectionVector());
-                    pt.add(tr2);
-                    if ((pt.x != pt.x ) || (pt.y != pt.y ) || (pt.z != pt.z ))
+                    rotoTrans.transform(pt);
+                    if (Double.isNaN(pt.x) || Double.isNaN(pt.y) 
+                            || Double.isNaN(pt.z))
                     {
                         String str = "ERROR! NaN coordinated from "
                                 + "rototranslation of 3D fragment's APs. "
@@ -924,6 +811,111 @@ public class ThreeDimTreeBuilder
         }
     }
     
+//------------------------------------------------------------------------------
+
+    /**
+     * Defines the roto-translation that aligns the attachment point vector of
+     * an incoming building block (i.e., ApB) to that on the growing molecule
+     * (i.e., ApA) so that the two vectors are antiparallel. Unless the edge
+     * involves a ring-closing attractor, the source atom of ApB is placed
+     * at a distance from the source atom of ApA that is the average of the
+     * lengths of the two AP vectors. For edges involving ring-closing
+     * attractors, the source atom of ApB is placed at the end of the longest
+     * of the two AP vectors.
+     * The operation depends only on the
+     * four points defining the two APs, so it can be computed once and
+     * applied to any number of atoms and APs of the incoming building block.
+     * @param srcApA the source of the attachment point vector on the growing 
+     * molecule.
+     * @param trgApA the end of the attachment point vector on the growing 
+     * molecule.
+     * @param srcApB the source of the attachment point vector on the incoming 
+     * building block.
+     * @param trgApB the end of the attachment point vector on the incoming 
+     * building block.
+     * @param edgeToRCA use <code>true</code> if the edge involves a 
+     * ring-closing attractor.
+     * @return the roto-translation in the form of an affine transformation.
+     */
+    static Matrix4d getAlignmentRotoTranslation(Point3d srcApA, 
+            Point3d trgApA, Point3d srcApB, Point3d trgApB, boolean edgeToRCA)
+    {
+        // Translation that brings trgApB on srcApA
+        Vector3d tr1 = new Vector3d();
+        tr1.sub(trgApB, srcApA);
+        Point3d movedSrcApB = new Point3d(srcApB);
+        movedSrcApB.sub(tr1);
+        Point3d movedTrgApB = new Point3d(trgApB);
+        movedTrgApB.sub(tr1);
+        
+        //Get Vectors ApA and ApB (NOTE: inverse versus of ApB!!!)
+        Vector3d vectApA = new Vector3d();
+        Vector3d vectApB = new Vector3d();
+        vectApA.sub(trgApA, srcApA);
+        vectApB.sub(movedSrcApB, movedTrgApB);
+        vectApA.normalize();
+        vectApB.normalize();
+        
+        // Rotation that aligns ApB to ApA around srcApA
+        Matrix3d rotMat = new Matrix3d();
+        rotMat.setIdentity();
+        double rotAng = vectApA.angle(vectApB);
+        double threshold = 0.00001;
+        if (rotAng >= threshold)
+        {
+            Vector3d rotAxis = new Vector3d();
+            if (rotAng <= (Math.PI-0.00001))
+            {
+                rotAxis.cross(vectApB, vectApA);
+            }
+            else
+            {
+                rotAxis = MathUtils.getNormalDirection(vectApA);
+            }
+            rotAxis.normalize();
+            rotMat.set(new AxisAngle4d(rotAxis, rotAng));
+            
+            movedSrcApB.sub(srcApA);
+            rotMat.transform(movedSrcApB);
+            movedSrcApB.add(srcApA);
+            movedTrgApB.sub(srcApA);
+            rotMat.transform(movedTrgApB);
+            movedTrgApB.add(srcApA);
+        }
+        
+        // Translation accounting for the different length of the APs
+        vectApA.sub(trgApA, srcApA);
+        vectApB.sub(movedSrcApB, movedTrgApB);
+        Vector3d tr2 = new Vector3d();
+        if (edgeToRCA)
+        {
+            // Here we set translation vector as to move the incoming frag
+            // of the length of the longest AP. This is to place RCA at 
+            // a bonding distance from the connected atom.
+            // Otherwise, the RCA is on mol, thus no translation
+            // is needed because trgApB is already on top of srcApA
+            if (vectApA.length() > vectApB.length())
+            {
+                tr2.add(vectApA);
+            }
+        }
+        else
+        {
+            tr2.sub(vectApA, vectApB);
+            tr2.scale(0.5);
+        }
+        
+        // Compose: p' = R (p - tr1 - srcApA) + srcApA + tr2
+        Vector3d shift = new Vector3d(tr1);
+        shift.add(srcApA);
+        rotMat.transform(shift);
+        Vector3d translation = new Vector3d(srcApA);
+        translation.add(tr2);
+        translation.sub(shift);
+        
+        return new Matrix4d(rotMat, translation, 1.0);
+    }
+    
 //------------------------------------------------------------------------------
     
     private Point3d getRandomPoint(IAtomContainer mol)
@@ -38,6 +38,8 @@ import denoptim.fitness.FitnessParameters;
 import denoptim.fragspace.FragmentSpaceParameters;
 import denoptim.graph.rings.RingClosureParameters;
 import denoptim.main.Main.RunType;
+import denoptim.programs.benchmark.BenchmarkParameters;
+import denoptim.programs.farmworker.FarmWorkerParameters;
 import denoptim.programs.combinatorial.CEBLParameters;
 import denoptim.programs.denovo.GAParameters;
 import denoptim.programs.fitnessevaluator.FRParameters;
@@ -188,7 +190,17 @@ public abstract class RunTimeParameters
         /**
          * Parameters controlling molecule-to-graph conversion
          */
-        M2G_PARAMS;
+        M2G_PARAMS,
+        
+        /**
+         * Parameters controlling the throughput benchmark.
+         */
+        BENCH_PARAMS,
+        
+        /**
+         * Parameters controlling a worker of a fitness farm.
+         */
+        FARM_PARAMS;
         
         /**
          * The root of any keyword that is meant to be used to set any of the
@@ -215,6 +227,8 @@ public abstract class RunTimeParameters
             GLH_PARAMS.keywordRoot = "GRAPHLISTS-";
             ISO_PARAMS.keywordRoot = "ISOMORPHISM-";
             M2G_PARAMS.keywordRoot = "M2G-";
+            BENCH_PARAMS.keywordRoot = "BENCH-";
+            FARM_PARAMS.keywordRoot = "FARM-";
             
             CEBL_PARAMS.implementation = CEBLParameters.class;
             GA_PARAMS.implementation = GAParameters.class;
@@ -229,6 +243,8 @@ public abstract class RunTimeParameters
             GLH_PARAMS.implementation = GraphListsHandlerParameters.class;
             ISO_PARAMS.implementation = IsomorphismParameters.class;
             M2G_PARAMS.implementation = Mol2GraphParameters.class;
+            BENCH_PARAMS.implementation = BenchmarkParameters.class;
+            FARM_PARAMS.implementation = FarmWorkerParameters.class;
         }
 
         /**
@@ -0,0 +1,313 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.programs.benchmark;
+
+import java.lang.reflect.Field;
+import java.text.SimpleDateFormat;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.logging.Level;
+
+import denoptim.constants.DENOPTIMConstants;
+import denoptim.exception.DENOPTIMException;
+import denoptim.files.FileUtils;
+import denoptim.logging.StaticLogger;
+import denoptim.programs.RunTimeParameters;
+
+
+/**
+ * Parameters controlling the throughput benchmark. All parameters have a
+ * default value, so that the benchmark can run without any input file and
+ * results obtained on different machines are comparable.
+ *
+ * @author Marco Foscato
+ */
+
+public class BenchmarkParameters extends RunTimeParameters
+{
+    /**
+     * Largest number of threads to use.
+     */
+    protected int maxThreads = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Seed of the random number generators.
+     */
+    protected long randomSeed = 1234L;
+
+    /**
+     * Population size of the benchmark GA.
+     */
+    protected int gaPopulationSize = 20;
+
+    /**
+     * Number of children per generation of the benchmark GA.
+     */
+    protected int gaNumChildren = 10;
+
+    /**
+     * Number of generations of the benchmark GA.
+     */
+    protected int gaNumGenerations = 5;
+
+    /**
+     * Maximum level of the benchmark FSE.
+     */
+    protected int fseMaxLevel = 1;
+
+    /**
+     * Flag requesting to run the benchmark GA.
+     */
+    protected boolean runGA = true;
+
+    /**
+     * Flag requesting to run the benchmark FSE.
+     */
+    protected boolean runFSE = true;
+
+//-----------------------------------------------------------------------------
+
+    /**
+     * Constructor
+     */
+    public BenchmarkParameters()
+    {
+        super(ParametersType.BENCH_PARAMS);
+    }
+
+//-----------------------------------------------------------------------------
+
+    /**
+     * @return the numbers of threads to test, i.e., the powers of two up to
+     * the maximum number of threads, and the maximum number itself.
+     */
+    public List<Integer> getThreadCounts()
+    {
+        List<Integer> counts = new ArrayList<Integer>();
+        for (int t=1; t<maxThreads; t=t*2)
+        {
+            counts.add(t);
+        }
+        counts.add(maxThreads);
+        return counts;
+    }
+
+//-----------------------------------------------------------------------------
+
+    public long getRandomSeed()
+    {
+        return randomSeed;
+    }
+
+//-----------------------------------------------------------------------------
+
+    public int getGAPopulationSize()
+    {
+        return gaPopulationSize;
+    }
+
+//-----------------------------------------------------------------------------
+
+    public int getGANumChildren()
+    {
+        return gaNumChildren;
+    }
+
+//-----------------------------------------------------------------------------
+
+    public int getGANumGenerations()
+    {
+        return gaNumGenerations;
+    }
+
+//-----------------------------------------------------------------------------
+
+    public int getFSEMaxLevel()
+    {
+        return fseMaxLevel;
+    }
+
+//-----------------------------------------------------------------------------
+
+    public boolean runGA()
+    {
+        return runGA;
+    }
+
+//-----------------------------------------------------------------------------
+
+    public boolean runFSE()
+    {
+        return runFSE;
+    }
+
+//-----------------------------------------------------------------------------
+
+    /**
+     * Processes a keyword/value pair and assign the related parameters.
+     * @param key the keyword as string
+     * @param value the value as a string
+     * @throws DENOPTIMException
+     */
+
+    public void interpretKeyword(String key, String value)
+            throws DENOPTIMException
+    {
+        String msg = "";
+        try
+        {
+            switch (key.toUpperCase())
+            {
+                case "MAXTHREADS=":
+                    maxThreads = Integer.parseInt(value);
+                    break;
+                case "RANDOMSEED=":
+                    randomSeed = Long.parseLong(value);
+                    break;
+                case "GAPOPULATIONSIZE=":
+                    gaPopulationSize = Integer.parseInt(value);
+                    break;
+                case "GANUMCHILDREN=":
+                    gaNumChildren = Integer.parseInt(value);
+                    break;
+                case "GANUMGENERATIONS=":
+                    gaNumGenerations = Integer.parseInt(value);
+                    break;
+                case "FSEMAXLEVEL=":
+                    fseMaxLevel = Integer.parseInt(value);
+                    break;
+                case "SKIPGA":
+                    runGA = false;
+                    break;
+                case "SKIPFSE":
+                    runFSE = false;
+                    break;
+                default:
+                     msg = "Keyword " + key + " is not a known Benchmark-"
+                             + "related keyword. Check input files.";
+                     throw new DENOPTIMException(msg);
+            }
+        } catch (NumberFormatException e)
+        {
+            msg = "Unable to understand value " + key + "'" + value + "'";
+            throw new DENOPTIMException(msg);
+        }
+    }
+
+//-----------------------------------------------------------------------------
+
+    /**
+     * Evaluate consistency of input parameters.
+     * @throws DENOPTIMException
+     */
+
+    public void checkParameters() throws DENOPTIMException
+    {
+        ensureIsPositive("maxThreads", maxThreads, "MAXTHREADS");
+        ensureIsPositive("gaPopulationSize", gaPopulationSize,
+                "GAPOPULATIONSIZE");
+        ensureIsPositive("gaNumChildren", gaNumChildren, "GANUMCHILDREN");
+        ensureIsPositive("gaNumGenerations", gaNumGenerations,
+                "GANUMGENERATIONS");
+        ensureIsPositiveOrZero("fseMaxLevel", fseMaxLevel, "FSEMAXLEVEL");
+        if (!runGA && !runFSE)
+        {
+            throw new DENOPTIMException("Both GA and FSE benchmarks are "
+                    + "skipped. Nothing to do.");
+        }
+        checkOtherParameters();
+    }
+
+//----------------------------------------------------------------------------
+
+    /**
+     * Processes all parameters and initialize related objects.
+     * @throws DENOPTIMException
+     */
+
+    public void processParameters() throws DENOPTIMException
+    {
+        if (isMaster)
+            createWorkingDirectory();
+
+        processOtherParameters();
+
+        if (isMaster)
+        {
+            StaticLogger.appLogger.log(Level.INFO, "Program log file: "
+                    + logFile + DENOPTIMConstants.EOL
+                    + "Output files associated with the current run are "
+                    + "located in " + workDir);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private void createWorkingDirectory()
+    {
+        String curDir = workDir;
+        String fileSep = System.getProperty("file.separator");
+        boolean success = false;
+        while (!success)
+        {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMddkkmmss");
+            String str = "BENCH" + sdf.format(new Date());
+            workDir = curDir + fileSep + str;
+            success = FileUtils.createDirectory(workDir);
+        }
+        logFile = workDir + ".log";
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the list of parameters in a string with newline characters as
+     * delimiters.
+     * @return the list of parameters in a string with newline characters as
+     * delimiters.
+     */
+    public String getPrintedList()
+    {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append(" " + paramTypeName() + " ").append(NL);
+        for (Field f : this.getClass().getDeclaredFields())
+        {
+            try
+            {
+                sb.append(f.getName()).append(" = ").append(
+                            f.get(this)).append(NL);
+            }
+            catch (Throwable t)
+            {
+                sb.append("ERROR! Unable to print " + paramTypeName()
+                        + " parameters. Cause: " + t);
+                break;
+            }
+        }
+        for (RunTimeParameters otherCollector : otherParameters.values())
+        {
+            sb.append(otherCollector.getPrintedList());
+        }
+        return sb.toString();
+    }
+
+//----------------------------------------------------------------------------
+
+}
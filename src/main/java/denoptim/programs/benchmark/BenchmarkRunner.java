@@ -0,0 +1,524 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.programs.benchmark;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.management.GarbageCollectorMXBean;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+
+import org.apache.commons.io.filefilter.SuffixFileFilter;
+import org.apache.commons.io.filefilter.TrueFileFilter;
+
+import denoptim.combinatorial.CombinatorialExplorerByLayer;
+import denoptim.constants.DENOPTIMConstants;
+import denoptim.exception.DENOPTIMException;
+import denoptim.files.FileUtils;
+import denoptim.ga.EvolutionaryAlgorithm;
+import denoptim.ga.ExternalCmdsListener;
+import denoptim.io.DenoptimIO;
+import denoptim.logging.CounterID;
+import denoptim.logging.LatencyHistogram;
+import denoptim.logging.MetricsPublisher;
+import denoptim.logging.MonitorTotalsExporter;
+import denoptim.logging.PipelineStage;
+import denoptim.logging.StaticLogger;
+import denoptim.programs.combinatorial.CEBLParameters;
+import denoptim.programs.denovo.GAParameters;
+import denoptim.task.ProgramTask;
+
+/**
+ * Program that measures the end-to-end throughput of DENOPTIM. A genetic
+ * algorithm and a combinatorial exploration with fixed settings and random
+ * seed are run on the fragment space bundled with DENOPTIM and evaluate the
+ * fitness with an internal fitness provider, so no external tool is needed.
+ * Each experiment is repeated with an increasing number of threads and,
+ * for each run, we report the rate of candidates generation, the time spent
+ * in each stage of the pipeline (as recorded by the monitors, if any), the
+ * peak usage of heap memory, and the time spent in garbage collection.
+ * Results are written in tab-separated format in the working directory.
+ *
+ * @author Marco Foscato
+ */
+
+public class BenchmarkRunner extends ProgramTask
+{
+    /**
+     * Location of the bundled data defining the fragment space.
+     */
+    private static final String FSRESOURCEDIR = "data/benchmark/";
+
+    /**
+     * Names of the bundled files defining the fragment space.
+     */
+    private static final String[] FSFILES = {"scaff.sdf", "frags.sdf",
+            "caps.sdf", "CPMap.par"};
+
+    /**
+     * Keywords that define the fragment space using the files listed in
+     * {@link #FSFILES}.
+     */
+    private static final String[] FSKEYWORDS = {"FS-SCAFFOLDLIBFILE=",
+            "FS-FRAGMENTLIBFILE=", "FS-CAPPINGFRAGMENTLIBFILE=",
+            "FS-COMPMATRIXFILE="};
+
+    /**
+     * Name of the bundled file with further fragment space settings.
+     */
+    private static final String FSSETTINGSFILE = "fragment_space";
+
+    /**
+     * Internal fitness used by all experiments.
+     */
+    private static final String FITNESSEQUATION =
+            "FP-EQUATION=${nHBAcc + 0.2*nAtom + 3*Zagreb}";
+
+    /**
+     * Time between checks for completion of an FSE level in milliseconds.
+     */
+    private static final long FSEWAITSTEP = 100L;
+
+    /**
+     * Name of the file collecting the results.
+     */
+    private static final String RESULTSFILENAME = "benchmark_results.tsv";
+
+    /**
+     * The genetic algorithm currently running, if any.
+     */
+    private EvolutionaryAlgorithm ea = null;
+
+    /**
+     * The combinatorial exploration currently running, if any.
+     */
+    private CombinatorialExplorerByLayer cebl = null;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Creates and configures the program task.
+     * @param configFile the file containing the configuration parameters. Can
+     * be <code>null</code>, in which case we use the default parameters.
+     * @param workDir the file system location from which to run the program.
+     */
+    public BenchmarkRunner(File configFile, File workDir)
+    {
+        super(configFile, workDir);
+    }
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public void runProgram() throws Throwable
+    {
+        BenchmarkParameters settings = new BenchmarkParameters();
+        if (workDir != null)
+        {
+            settings.setWorkDirectory(workDir.getAbsolutePath());
+        }
+        if (configFilePathName != null)
+        {
+            settings.readParameterFile(configFilePathName.getAbsolutePath());
+        }
+        settings.checkParameters();
+        settings.processParameters();
+        settings.startProgramSpecificLogger(loggerIdentifier);
+        settings.printParameters();
+
+        String benchDir = settings.getWorkDirectory();
+        List<String> fsLines = extractFragmentSpace(benchDir + SEP
+                + "fragment_space");
+        String resultsFile = benchDir + SEP + RESULTSFILENAME;
+        DenoptimIO.writeData(resultsFile, BenchmarkResult.getHeader(), false);
+
+        List<BenchmarkResult> results = new ArrayList<BenchmarkResult>();
+        for (int numThreads : settings.getThreadCounts())
+        {
+            if (settings.runGA())
+            {
+                results.add(runGA(settings, fsLines, numThreads));
+                DenoptimIO.writeData(resultsFile,
+                        results.get(results.size()-1).toString(), true);
+            }
+            if (settings.runFSE())
+            {
+                results.add(runFSE(settings, fsLines, numThreads));
+                DenoptimIO.writeData(resultsFile,
+                        results.get(results.size()-1).toString(), true);
+            }
+        }
+
+        StringBuilder sb = new StringBuilder();
+        sb.append("Benchmark results:").append(DENOPTIMConstants.EOL);
+        sb.append(String.format("%-4s %7s %9s %10s %10s %12s %9s",
+                "Run", "Threads", "Wall(s)", "Candidates", "Cand/s",
+                "PeakHeap(MB)", "GC(s)")).append(DENOPTIMConstants.EOL);
+        for (BenchmarkResult result : results)
+        {
+            sb.append(result.toSummaryLine()).append(DENOPTIMConstants.EOL);
+        }
+        sb.append("Details in ").append(resultsFile);
+        settings.getLogger().log(Level.INFO, sb.toString());
+        StaticLogger.appLogger.log(Level.INFO, sb.toString());
+
+        stopLogger();
+    }
+
+//------------------------------------------------------------------------------
+
+    protected void handleThrowable()
+    {
+        if (ea != null)
+        {
+            ea.stopRun();
+        }
+        if (cebl != null)
+        {
+            cebl.stopRun();
+        }
+        super.handleThrowable();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Copies the bundled fragment space into the given folder.
+     * @param destDir the folder where to copy the files.
+     * @return the parameter lines defining the fragment space.
+     * @throws DENOPTIMException if the files cannot be copied.
+     */
+    private List<String> extractFragmentSpace(String destDir)
+            throws DENOPTIMException
+    {
+        if (!FileUtils.createDirectory(destDir))
+        {
+            throw new DENOPTIMException("Unable to create folder '" + destDir
+                    + "'.");
+        }
+        ClassLoader classLoader = this.getClass().getClassLoader();
+        List<String> lines = new ArrayList<String>();
+        for (int i=0; i<FSFILES.length; i++)
+        {
+            String pathname = destDir + SEP + FSFILES[i];
+            try (InputStream is = classLoader.getResourceAsStream(
+                    FSRESOURCEDIR + FSFILES[i]))
+            {
+                Files.copy(is, Paths.get(pathname),
+                        StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException e)
+            {
+                throw new DENOPTIMException("Unable to copy bundled file '"
+                        + FSFILES[i] + "'.", e);
+            }
+            lines.add(FSKEYWORDS[i] + pathname);
+        }
+        String pathname = destDir + SEP + FSSETTINGSFILE;
+        try (InputStream is = classLoader.getResourceAsStream(
+                FSRESOURCEDIR + FSSETTINGSFILE))
+        {
+            Files.copy(is, Paths.get(pathname),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e)
+        {
+            throw new DENOPTIMException("Unable to copy bundled file '"
+                    + FSSETTINGSFILE + "'.", e);
+        }
+        lines.addAll(DenoptimIO.readList(pathname, true));
+        return lines;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Runs the genetic algorithm with the given number of threads.
+     * @param settings the benchmark settings.
+     * @param fsLines the parameter lines defining the fragment space.
+     * @param numThreads the number of threads.
+     * @return the results of the run.
+     * @throws Throwable if the run fails.
+     */
+    private BenchmarkResult runGA(BenchmarkParameters settings,
+            List<String> fsLines, int numThreads) throws Throwable
+    {
+        settings.getLogger().log(Level.INFO, "Running GA with " + numThreads
+                + " threads.");
+        GAParameters gaSettings = new GAParameters();
+        gaSettings.setWorkingDirectory(settings.getWorkDirectory());
+        List<String> lines = new ArrayList<String>();
+        lines.add("GA-RANDOMSEED=" + settings.getRandomSeed());
+        lines.add("GA-NUMPARALLELTASKS=" + numThreads);
+        lines.add("GA-POPULATIONSIZE=" + settings.getGAPopulationSize());
+        lines.add("GA-NUMCHILDREN=" + settings.getGANumChildren());
+        lines.add("GA-NUMGENERATIONS=" + settings.getGANumGenerations());
+        // Never stop for convergence: all runs must do the same work
+        lines.add("GA-NUMCONVGEN=" + (settings.getGANumGenerations() + 1));
+        lines.add("GA-REPLACEMENTSTRATEGY=ELITIST");
+        lines.add("GA-XOVERSELECTIONMODE=TS");
+        lines.add("GA-CROSSOVERWEIGHT=0.5");
+        lines.add("GA-MUTATIONWEIGHT=0.2");
+        lines.add("GA-CONSTRUCTIONWEIGHT=0.2");
+        lines.add("GA-SYMMETRYPROBABILITY=0.0");
+        lines.add("GA-LEVELGROWTHPROBSCHEME=SIGMA");
+        lines.add("GA-LEVELGROWTHSIGMASTEEPNESS=3.0");
+        lines.add("GA-LEVELGROWTHSIGMAMIDDLE=2.5");
+        lines.addAll(fsLines);
+        lines.add(FITNESSEQUATION);
+        for (String line : lines)
+        {
+            gaSettings.readParameterLine(line);
+        }
+        gaSettings.checkParameters();
+        gaSettings.processParameters();
+
+        // The publisher is not started: monitors are exported when they are
+        // dismissed and at the end of the run.
+        MonitorTotalsExporter totals = new MonitorTotalsExporter();
+        MetricsPublisher publisher = new MetricsPublisher(
+                Long.MAX_VALUE, settings.getLogger());
+        publisher.addExporter(totals);
+        gaSettings.setMetricsPublisher(publisher);
+
+        ExternalCmdsListener ecl = new ExternalCmdsListener(
+                Paths.get(gaSettings.getInterfaceDir()), settings.getLogger());
+        BenchmarkResult result = new BenchmarkResult("GA", numThreads);
+        try
+        {
+            ea = new EvolutionaryAlgorithm(gaSettings, ecl);
+            result.startMeasurement();
+            ea.run();
+            result.stopMeasurement();
+        } finally {
+            ea = null;
+            ecl.closeWatcher();
+        }
+        result.candidates = totals.getTotal(CounterID.FITNESSEVALS);
+        result.totals = totals;
+        return result;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Runs the combinatorial exploration with the given number of threads.
+     * @param settings the benchmark settings.
+     * @param fsLines the parameter lines defining the fragment space.
+     * @param numThreads the number of threads.
+     * @return the results of the run.
+     * @throws Throwable if the run fails.
+     */
+    private BenchmarkResult runFSE(BenchmarkParameters settings,
+            List<String> fsLines, int numThreads) throws Throwable
+    {
+        settings.getLogger().log(Level.INFO, "Running FSE with " + numThreads
+                + " threads.");
+        CEBLParameters fseSettings = new CEBLParameters();
+        fseSettings.setWorkDirectory(settings.getWorkDirectory());
+        List<String> lines = new ArrayList<String>();
+        lines.add("FSE-NUMOFPROCESSORS=" + numThreads);
+        lines.add("FSE-MAXLEVEL=" + settings.getFSEMaxLevel());
+        lines.addAll(fsLines);
+        lines.add(FITNESSEQUATION);
+        for (String line : lines)
+        {
+            fseSettings.readParameterLine(line);
+        }
+        fseSettings.checkParameters();
+        fseSettings.processParameters();
+        fseSettings.setWaitStep(FSEWAITSTEP);
+        fseSettings.startRandomizer(settings.getRandomSeed());
+
+        BenchmarkResult result = new BenchmarkResult("FSE", numThreads);
+        try
+        {
+            cebl = new CombinatorialExplorerByLayer(fseSettings);
+            result.startMeasurement();
+            cebl.run();
+            result.stopMeasurement();
+        } finally {
+            cebl = null;
+        }
+        result.candidates = org.apache.commons.io.FileUtils.listFiles(
+                new File(fseSettings.getWorkDirectory()),
+                new SuffixFileFilter(DENOPTIMConstants.FITFILENAMEEXTOUT),
+                TrueFileFilter.INSTANCE).size();
+        return result;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Collects the measurements pertaining a single run.
+     */
+    private static class BenchmarkResult
+    {
+        /**
+         * The kind of run.
+         */
+        final String program;
+
+        /**
+         * Number of threads used.
+         */
+        final int numThreads;
+
+        /**
+         * Number of evaluated candidates.
+         */
+        long candidates = 0;
+
+        /**
+         * Duration of the run.
+         */
+        long wallNanos = 0;
+
+        /**
+         * Peak usage of heap memory during the run.
+         */
+        long peakHeapBytes = 0;
+
+        /**
+         * Time spent in garbage collection during the run.
+         */
+        long gcMillis = 0;
+
+        /**
+         * Content of the monitors of the run, or <code>null</code> if the
+         * program does not use monitors.
+         */
+        MonitorTotalsExporter totals = null;
+
+        BenchmarkResult(String program, int numThreads)
+        {
+            this.program = program;
+            this.numThreads = numThreads;
+        }
+
+        /**
+         * Start recording. We start from a collected heap so that runs are
+         * not affected by garbage left over by previous runs.
+         */
+        void startMeasurement()
+        {
+            System.gc();
+            for (MemoryPoolMXBean pool : ManagementFactory
+                    .getMemoryPoolMXBeans())
+            {
+                if (pool.getType() == MemoryType.HEAP)
+                    pool.resetPeakUsage();
+            }
+            gcMillis = -getGCTime();
+            wallNanos = -System.nanoTime();
+        }
+
+        void stopMeasurement()
+        {
+            wallNanos += System.nanoTime();
+            gcMillis += getGCTime();
+            // Sum of the peaks of each pool: an upper bound for the peak of
+            // the whole heap.
+            peakHeapBytes = 0;
+            for (MemoryPoolMXBean pool : ManagementFactory
+                    .getMemoryPoolMXBeans())
+            {
+                if (pool.getType() == MemoryType.HEAP)
+                    peakHeapBytes += pool.getPeakUsage().getUsed();
+            }
+        }
+
+        private static long getGCTime()
+        {
+            long tot = 0;
+            for (GarbageCollectorMXBean gc : ManagementFactory
+                    .getGarbageCollectorMXBeans())
+            {
+                tot += Math.max(0, gc.getCollectionTime());
+            }
+            return tot;
+        }
+
+        double getCandidatesPerSecond()
+        {
+            return wallNanos > 0 ? candidates / (wallNanos / 1.0e9) : 0.0;
+        }
+
+        static String getHeader()
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append("run\tthreads\twall_s\tcandidates\tcandidates_per_s"
+                    + "\tpeak_heap_bytes\tgc_s");
+            for (PipelineStage stage : PipelineStage.values())
+            {
+                String name = stage.toString().toLowerCase();
+                sb.append("\t").append(name).append("_count");
+                sb.append("\t").append(name).append("_total_s");
+                sb.append("\t").append(name).append("_mean_s");
+                sb.append("\t").append(name).append("_p95_s");
+            }
+            return sb.toString();
+        }
+
+        String toSummaryLine()
+        {
+            return String.format("%-4s %7d %9.2f %10d %10.2f %12.1f %9.2f",
+                    program, numThreads, wallNanos / 1.0e9, candidates,
+                    getCandidatesPerSecond(), peakHeapBytes / 1048576.0,
+                    gcMillis / 1000.0);
+        }
+
+        @Override
+        public String toString()
+        {
+            StringBuilder sb = new StringBuilder();
+            sb.append(program).append("\t").append(numThreads);
+            sb.append("\t").append(wallNanos / 1.0e9);
+            sb.append("\t").append(candidates);
+            sb.append("\t").append(getCandidatesPerSecond());
+            sb.append("\t").append(peakHeapBytes);
+            sb.append("\t").append(gcMillis / 1000.0);
+            for (PipelineStage stage : PipelineStage.values())
+            {
+                LatencyHistogram.Snapshot hist = null;
+                if (totals != null)
+                    hist = totals.getLatencies(stage);
+                if (hist == null)
+                {
+                    sb.append("\tNA\tNA\tNA\tNA");
+                    continue;
+                }
+                sb.append("\t").append(hist.getCount());
+                sb.append("\t").append(hist.getSumInSeconds());
+                sb.append("\t").append(hist.getMeanInSeconds());
+                sb.append("\t").append(hist.getQuantileInSeconds(0.95));
+            }
+            return sb.toString();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
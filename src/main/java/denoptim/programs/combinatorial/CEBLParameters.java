@@ -196,6 +196,18 @@ public class CEBLParameters extends RunTimeParameters
 	    return waitStep;
     }
 
+//-----------------------------------------------------------------------------
+
+    /**
+     * Sets the time between each check for completion of a level. Unlike the
+     * corresponding keyword, this allows steps shorter than one second.
+     * @param millis the time step in milliseconds.
+     */
+    public void setWaitStep(long millis)
+    {
+        this.waitStep = millis;
+    }
+
 //-----------------------------------------------------------------------------
 
     public int getMaxLevel()
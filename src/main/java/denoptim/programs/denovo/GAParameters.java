@@ -19,18 +19,26 @@
 
 package denoptim.programs.denovo;
 
+import java.io.File;
 import java.lang.reflect.Field;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.logging.Level;
 
 import denoptim.constants.DENOPTIMConstants;
 import denoptim.exception.DENOPTIMException;
 import denoptim.files.FileFormat;
+import denoptim.ga.EAUtils.MigrationTopology;
 import denoptim.graph.rings.RingClosureParameters;
+import denoptim.io.RunDatabase;
+import denoptim.logging.JMXMetricsExporter;
+import denoptim.logging.MetricsPublisher;
 import denoptim.logging.Monitor;
+import denoptim.logging.PrometheusFileExporter;
 import denoptim.logging.StaticLogger;
 import denoptim.programs.RunTimeParameters;
 import denoptim.utils.MutationType;
@@ -305,6 +313,50 @@ public class GAParameters extends RunTimeParameters
      */
     protected int parallelizationScheme = 1;
 
+    /**
+     * Number of populations (i.e., islands) evolving concurrently. Each 
+     * island has the size defined by {@link #populationSize}.
+     */
+    protected int numIslands = 1;
+
+    /**
+     * Number of generations between migrations of candidates among islands.
+     */
+    protected int migrationInterval = 5;
+
+    /**
+     * Number of best members sent by each island to each of its destinations
+     * at each migration.
+     */
+    protected int migrationSize = 2;
+
+    /**
+     * Topology defining the destinations of the migrants of each island.
+     */
+    protected MigrationTopology migrationTopology = MigrationTopology.RING;
+
+    /**
+     * Flag requesting the steady-state evolution, where each evaluated 
+     * offspring competes for a place in the population as soon as its 
+     * evaluation is completed, and new offspring are generated as soon as
+     * there is capacity to evaluate them.
+     */
+    protected boolean steadyState = false;
+
+    /**
+     * Number of completed evaluations between snapshots of the population in
+     * steady-state evolution. Non-positive values mean that we use the number
+     * of children per generation.
+     */
+    protected int snapshotEvaluations = -1;
+
+    /**
+     * Time (seconds) between snapshots of the population in steady-state 
+     * evolution. When positive, this overrides 
+     * {@link #snapshotEvaluations}.
+     */
+    protected int snapshotPeriod = 0;
+
     /**
      * Maximum number of parallel tasks
      */
@@ -428,6 +480,56 @@ public class GAParameters extends RunTimeParameters
      * members each time we report the population details on file.
      */
     protected boolean writePopOnDisk = false;
+    
+    /**
+     * Flag requesting to pre-screen new candidates by comparing the hash of 
+     * their graph with those of the graphs already considered before building
+     * any molecular representation.
+     */
+    protected boolean graphHashPreScreen = false;
+    
+    /**
+     * Flag requesting to collect the candidates of the run in a 
+     * {@link RunDatabase}.
+     */
+    protected boolean writeRunDatabase = false;
+    
+    /**
+     * The database collecting the candidates of this run. This is not a
+     * parameter, but is created upon request.
+     */
+    private RunDatabase runDatabase = null;
+    
+    /**
+     * Pathname of the file where to export the metrics of the {@link Monitor}
+     * in the text format of Prometheus. Empty means no such export.
+     */
+    protected String metricsFile = "";
+    
+    /**
+     * Flag requesting the export of the metrics of the {@link Monitor} via 
+     * JMX.
+     */
+    protected boolean exportMetricsViaJMX = false;
+    
+    /**
+     * Period, in seconds, between exports of the metrics of the 
+     * {@link Monitor}.
+     */
+    protected int metricsPeriod = 10;
+    
+    /**
+     * The publisher exporting the metrics of the {@link Monitor}s of this
+     * run. This is not a parameter, but is created upon request.
+     */
+    private MetricsPublisher metricsPublisher = null;
+    
+    /**
+     * Hashes of the graphs that have been already considered. This is not a
+     * parameter, but a memory of the run that is shared by all the tasks 
+     * that make new candidates.
+     */
+    private Set<String> knownGraphHashes = ConcurrentHashMap.newKeySet();
 
 //------------------------------------------------------------------------------
     
@@ -818,6 +920,84 @@ public class GAParameters extends RunTimeParameters
     {
         return parallelizationScheme;
     }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of populations (i.e., islands) evolving 
+     * concurrently.
+     */
+    public int getNumberOfIslands()
+    {
+        return numIslands;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of generations between migrations among islands.
+     */
+    public int getMigrationInterval()
+    {
+        return migrationInterval;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of best members sent by each island to each of its 
+     * destinations at each migration.
+     */
+    public int getMigrationSize()
+    {
+        return migrationSize;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the topology defining which islands exchange migrants.
+     */
+    public MigrationTopology getMigrationTopology()
+    {
+        return migrationTopology;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return <code>true</code> if we are configured to run the steady-state
+     * evolution, where there are no generations, but only snapshots of the
+     * population.
+     */
+    public boolean isSteadyState()
+    {
+        return steadyState;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of completed evaluations between snapshots of the 
+     * population in steady-state evolution.
+     */
+    public int getSnapshotEvaluations()
+    {
+        if (snapshotEvaluations > 0)
+            return snapshotEvaluations;
+        return numOfChildren;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the time (seconds) between snapshots of the population in 
+     * steady-state evolution, or zero if snapshots are not time-based.
+     */
+    public int getSnapshotPeriod()
+    {
+        return snapshotPeriod;
+    }
     
 //-----------------------------------------------------------------------------
     
@@ -913,6 +1093,71 @@ public class GAParameters extends RunTimeParameters
                 break;
             }
         
+            case "NUMISLANDS=":
+            {
+                if (value.length() > 0)
+                {
+                    numIslands = Integer.parseInt(value);
+                }
+                break;
+            }
+            
+            case "MIGRATIONINTERVAL=":
+            {
+                if (value.length() > 0)
+                {
+                    migrationInterval = Integer.parseInt(value);
+                }
+                break;
+            }
+            
+            case "MIGRATIONSIZE=":
+            {
+                if (value.length() > 0)
+                {
+                    migrationSize = Integer.parseInt(value);
+                }
+                break;
+            }
+            
+            case "MIGRATIONTOPOLOGY=":
+            {
+                try
+                {
+                    migrationTopology = MigrationTopology.valueOf(
+                            value.trim().toUpperCase());
+                } catch (IllegalArgumentException e)
+                {
+                    throw new DENOPTIMException("Unknown migration topology '"
+                            + value + "'.");
+                }
+                break;
+            }
+        
+            case "STEADYSTATE":
+            {
+                steadyState = true;
+                break;
+            }
+            
+            case "SNAPSHOTEVALUATIONS=":
+            {
+                if (value.length() > 0)
+                {
+                    snapshotEvaluations = Integer.parseInt(value);
+                }
+                break;
+            }
+            
+            case "SNAPSHOTPERIOD=":
+            {
+                if (value.length() > 0)
+                {
+                    snapshotPeriod = Integer.parseInt(value);
+                }
+                break;
+            }
+        
             case "PRECISIONLEVEL=":
             {
                 if (value.length() > 0)
@@ -1393,6 +1638,42 @@ public class GAParameters extends RunTimeParameters
                 break;
             }
             
+            case "GRAPHHASHPRESCREEN":
+            {
+                graphHashPreScreen = true;
+                break;
+            }
+            
+            case "RUNDATABASE":
+            {
+                writeRunDatabase = true;
+                break;
+            }
+            
+            case "METRICSFILE=":
+            {
+                if (value.length() > 0)
+                {
+                    metricsFile = value;
+                }
+                break;
+            }
+            
+            case "METRICSJMX":
+            {
+                exportMetricsViaJMX = true;
+                break;
+            }
+            
+            case "METRICSPERIOD=":
+            {
+                if (value.length() > 0)
+                {
+                    metricsPeriod = Integer.parseInt(value);
+                }
+                break;
+            }
+            
             default:
                 msg = "Keyword " + key + " is not a known GeneticAlgorithm-" 
                         + "related keyword. Check input files.";
@@ -1530,6 +1811,68 @@ public class GAParameters extends RunTimeParameters
                     + "number.";
             throw new DENOPTIMException(error);
         }
+
+        if (numIslands <= 0)
+        {
+            error = "Number of islands must be a positive number.";
+            throw new DENOPTIMException(error);
+        }
+        
+        if (migrationInterval <= 0)
+        {
+            error = "Number of generations between migrations must be a "
+                    + "positive number.";
+            throw new DENOPTIMException(error);
+        }
+        
+        if (migrationSize < 0 || migrationSize > populationSize)
+        {
+            error = "Number of migrants must be between 0 and the size of the "
+                    + "population.";
+            throw new DENOPTIMException(error);
+        }
+        
+        if (numIslands > 1)
+        {
+            int destinations = 1;
+            if (migrationTopology == MigrationTopology.FULL)
+                destinations = numIslands - 1;
+            if (migrationSize * destinations >= populationSize)
+            {
+                error = "Number of migrants (" + migrationSize + ") times "
+                        + "the number of islands each island receives from ("
+                        + destinations + ") must be smaller than the size of "
+                        + "the population (" + populationSize + ").";
+                throw new DENOPTIMException(error);
+            }
+        }
+
+        if (steadyState && parallelizationScheme == 1)
+        {
+            error = "Steady-state evolution requires the asynchronous "
+                    + "parallelization scheme.";
+            throw new DENOPTIMException(error);
+        }
+        
+        if (snapshotPeriod < 0)
+        {
+            error = "Period between snapshots of the population cannot be "
+                    + "negative.";
+            throw new DENOPTIMException(error);
+        }
+
+        if (monitorDumpStep <= 0)
+        {
+            error = "Number of attempts between dumps of the monitor must be "
+                    + "a positive number.";
+            throw new DENOPTIMException(error);
+        }
+
+        if (metricsPeriod <= 0)
+        {
+            error = "Period of metrics export must be a positive number.";
+            throw new DENOPTIMException(error);
+        }
         
         if (symmetricSubProbability < 0. ||
                             symmetricSubProbability > 1.)
@@ -1636,6 +1979,136 @@ public class GAParameters extends RunTimeParameters
         return writePopOnDisk;
     }
 
+//------------------------------------------------------------------------------
+    
+    /**
+     * @return <code>true</code> if we are configured to pre-screen new 
+     * candidates by the hash of their graph.
+     */
+    public boolean useGraphHashPreScreen()
+    {
+        return graphHashPreScreen;
+    }
+
+//------------------------------------------------------------------------------
+    
+    /**
+     * @return <code>true</code> if we are configured to collect the 
+     * candidates of this run in a {@link RunDatabase}.
+     */
+    public boolean useRunDatabase()
+    {
+        return writeRunDatabase;
+    }
+
+//------------------------------------------------------------------------------
+    
+    /**
+     * Returns the database collecting the candidates of this run. The 
+     * database is created, or opened, under the data directory of this run
+     * upon the first call of this method.
+     * @return the database or <code>null</code> if we are not configured to
+     * use one.
+     * @throws DENOPTIMException if the database cannot be created or opened.
+     */
+    public synchronized RunDatabase getRunDatabase() throws DENOPTIMException
+    {
+        if (runDatabase == null && writeRunDatabase)
+        {
+            runDatabase = new RunDatabase(new File(dataDir 
+                    + DENOPTIMConstants.FSEP 
+                    + DENOPTIMConstants.GARUNDBDIRNAME), false);
+        }
+        return runDatabase;
+    }
+
+//------------------------------------------------------------------------------
+    
+    /**
+     * Releases the database collecting the candidates of this run, if any.
+     */
+    public synchronized void closeRunDatabase()
+    {
+        if (runDatabase != null)
+        {
+            runDatabase.close();
+            runDatabase = null;
+        }
+    }
+
+//------------------------------------------------------------------------------
+    
+    /**
+     * Returns the publisher exporting the metrics of the {@link Monitor}s of 
+     * this run. The publisher is created and started upon the first call of 
+     * this method.
+     * @return the publisher or <code>null</code> if we are not configured to
+     * export metrics.
+     * @throws DENOPTIMException if any exporter cannot be created.
+     */
+    public synchronized MetricsPublisher getMetricsPublisher() 
+            throws DENOPTIMException
+    {
+        if (metricsPublisher == null 
+                && (!metricsFile.isEmpty() || exportMetricsViaJMX))
+        {
+            MetricsPublisher publisher = new MetricsPublisher(
+                    metricsPeriod * 1000L, getLogger());
+            if (!metricsFile.isEmpty())
+            {
+                publisher.addExporter(new PrometheusFileExporter(
+                        new File(metricsFile)));
+            }
+            if (exportMetricsViaJMX)
+            {
+                publisher.addExporter(new JMXMetricsExporter());
+            }
+            publisher.start();
+            metricsPublisher = publisher;
+        }
+        return metricsPublisher;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Sets the publisher exporting the metrics of the {@link Monitor}s of
+     * this run. This overrides the publisher that would otherwise be created
+     * according to the metrics-related keywords, and allows programs
+     * driving the GA to collect its metrics.
+     * @param publisher the publisher. It is stopped at the end of the run.
+     */
+    public synchronized void setMetricsPublisher(MetricsPublisher publisher)
+    {
+        this.metricsPublisher = publisher;
+    }
+
+//------------------------------------------------------------------------------
+    
+    /**
+     * Stops exporting the metrics of the {@link Monitor}s of this run, if we
+     * were doing so.
+     */
+    public synchronized void closeMetricsPublisher()
+    {
+        if (metricsPublisher != null)
+        {
+            metricsPublisher.stop();
+            metricsPublisher = null;
+        }
+    }
+
+//------------------------------------------------------------------------------
+    
+    /**
+     * @return the thread-safe collection of hashes of the graphs that have
+     * been already considered in this run.
+     */
+    public Set<String> getKnownGraphHashes()
+    {
+        return knownGraphHashes;
+    }
+
 //------------------------------------------------------------------------------
 
     /**
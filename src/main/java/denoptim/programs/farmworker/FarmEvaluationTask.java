@@ -0,0 +1,99 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.programs.farmworker;
+
+import java.io.File;
+
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import denoptim.constants.DENOPTIMConstants;
+import denoptim.exception.DENOPTIMException;
+import denoptim.fitness.FitnessParameters;
+import denoptim.graph.Candidate;
+import denoptim.io.DenoptimIO;
+import denoptim.task.FitnessTask;
+
+/**
+ * Task evaluating the fitness of a candidate received from the master of a
+ * fitness farm. The molecular representation is taken as received, i.e.,
+ * no molecular model is built, and the results are written to the output
+ * file that is sent back to the master.
+ */
+
+public class FarmEvaluationTask extends FitnessTask
+{
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @param settings the fitness settings of this worker.
+     * @param candidate the candidate to evaluate.
+     * @param mol the molecular representation of the candidate.
+     * @param workDir where files will be placed.
+     * @param basename pathname of the files of this task without extension.
+     */
+    public FarmEvaluationTask(FitnessParameters settings, Candidate candidate,
+            IAtomContainer mol, File workDir, String basename)
+    {
+        super(settings, candidate);
+        this.workDir = workDir;
+        fitProvMol = mol;
+        fitProvInputFile = basename + DENOPTIMConstants.FITFILENAMEEXTIN;
+        fitProvOutFile = basename + DENOPTIMConstants.FITFILENAMEEXTOUT;
+        fitProvPNGFile = basename + DENOPTIMConstants.CANDIDATE2DEXTENSION;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the pathname of the file with the results of this task.
+     */
+    public String getOutputFile()
+    {
+        return fitProvOutFile;
+    }
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public Object call() throws DENOPTIMException, Exception
+    {
+        try
+        {
+            runFitnessProvider();
+            if (!new File(fitProvOutFile).exists())
+            {
+                DenoptimIO.writeCandidateToFile(new File(fitProvOutFile),
+                        result, false);
+            }
+        }
+        catch (Throwable ex)
+        {
+            hasException = true;
+            errMsg = "Exception while running fitness provider";
+            thrownExc = ex;
+            throw new DENOPTIMException(ex);
+        }
+        completed = true;
+        return result;
+    }
+
+//------------------------------------------------------------------------------
+
+}
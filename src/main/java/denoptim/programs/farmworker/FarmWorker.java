@@ -0,0 +1,429 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.programs.farmworker;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.apache.commons.io.FileUtils;
+import org.openscience.cdk.interfaces.IAtomContainer;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+import denoptim.constants.DENOPTIMConstants;
+import denoptim.exception.DENOPTIMException;
+import denoptim.fitness.FitnessParameters;
+import denoptim.graph.Candidate;
+import denoptim.graph.DGraph;
+import denoptim.io.DenoptimIO;
+import denoptim.programs.RunTimeParameters.ParametersType;
+import denoptim.task.FitnessFarm;
+import denoptim.task.ProgramTask;
+
+
+/**
+ * Worker of a distributed fitness farm. The worker connects to the master
+ * (see {@link FitnessFarm}), pulls fitness evaluations, runs them according
+ * to its fitness settings, and sends back the results. The worker runs
+ * until the master stops it, or until the master cannot be reached for
+ * longer than the connection timeout.
+ *
+ * @author Marco Foscato
+ */
+
+public class FarmWorker extends ProgramTask
+{
+    /**
+     * Settings of this worker.
+     */
+    private FarmWorkerParameters settings = null;
+
+    /**
+     * Threads running the slots of this worker.
+     */
+    private final List<Thread> slotThreads = new ArrayList<Thread>();
+
+    /**
+     * Flag signaling that this worker has been stopped.
+     */
+    private volatile boolean stopped = false;
+
+    /**
+     * JSON converter
+     */
+    private final Gson jsonConverter = new Gson();
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Creates and configures the program task.
+     * @param configFile the file containing the configuration parameters.
+     * @param workDir the file system location from which to run the program.
+     */
+    public FarmWorker(File configFile, File workDir)
+    {
+        super(configFile, workDir);
+    }
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public void runProgram() throws Throwable
+    {
+        settings = new FarmWorkerParameters();
+        if (workDir != null)
+        {
+            settings.setWorkDirectory(workDir.getAbsolutePath());
+        }
+        settings.readParameterFile(configFilePathName.getAbsolutePath());
+        settings.checkParameters();
+        settings.processParameters();
+        settings.startProgramSpecificLogger(loggerIdentifier, false);
+        settings.printParameters();
+
+        FitnessParameters fitParams = (FitnessParameters)
+                settings.getParameters(ParametersType.FIT_PARAMS);
+        if (fitParams.useFitnessFarm())
+        {
+            settings.getLogger().log(Level.WARNING, "Ignoring settings of the "
+                    + "fitness farm: workers evaluate fitness locally.");
+            fitParams.disableFitnessFarm();
+        }
+
+        for (int i=0; i<settings.getNumSlots(); i++)
+        {
+            Slot slot = new Slot(i, fitParams);
+            Thread t = new Thread(slot, "FarmWorker-slot-" + i);
+            slotThreads.add(t);
+            t.start();
+        }
+        for (Thread t : slotThreads)
+        {
+            t.join();
+        }
+        fitParams.closeFitnessCache();
+        fitParams.closeFitnessWorkerPool();
+        settings.getLogger().log(Level.INFO, "Fitness farm worker completed."
+                + DENOPTIMConstants.EOL);
+    }
+
+//------------------------------------------------------------------------------
+
+    protected void handleThrowable()
+    {
+        stopped = true;
+        for (Thread t : slotThreads)
+        {
+            t.interrupt();
+        }
+        super.handleThrowable();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * A single connection to the master, which is used to evaluate one
+     * candidate at a time.
+     */
+    private class Slot implements Runnable
+    {
+        /**
+         * Identifier of this slot in the worker.
+         */
+        private final int index;
+
+        /**
+         * Fitness settings.
+         */
+        private final FitnessParameters fitParams;
+
+        /**
+         * Logger
+         */
+        private final Logger logger;
+
+        /**
+         * Writer to the master.
+         */
+        private BufferedWriter toMaster;
+
+        /**
+         * Number of jobs run by this slot.
+         */
+        private int numJobs = 0;
+
+    //--------------------------------------------------------------------------
+
+        private Slot(int index, FitnessParameters fitParams)
+        {
+            this.index = index;
+            this.fitParams = fitParams;
+            this.logger = settings.getLogger();
+        }
+
+    //--------------------------------------------------------------------------
+
+        @Override
+        public void run()
+        {
+            try
+            {
+                boolean keepGoing = true;
+                while (keepGoing && !stopped)
+                {
+                    Socket socket = connect();
+                    if (socket == null)
+                    {
+                        logger.log(Level.WARNING, "Could not connect to "
+                                + "master at " + settings.getHost() + ":"
+                                + settings.getPort() + ". Slot " + index
+                                + " stops.");
+                        break;
+                    }
+                    keepGoing = serve(socket);
+                }
+            } catch (DENOPTIMException e)
+            {
+                logger.log(Level.SEVERE, e.getMessage());
+            }
+        }
+
+    //--------------------------------------------------------------------------
+
+        /**
+         * Tries to connect to the master until the connection timeout.
+         * @return the socket or <code>null</code> if no connection could be
+         * established.
+         */
+        private Socket connect()
+        {
+            long deadline = System.currentTimeMillis()
+                    + settings.getConnectTimeoutMillis();
+            while (!stopped)
+            {
+                try
+                {
+                    return new Socket(settings.getHost(), settings.getPort());
+                } catch (IOException e)
+                {
+                    if (System.currentTimeMillis() > deadline)
+                        return null;
+                    try
+                    {
+                        Thread.sleep(1000);
+                    } catch (InterruptedException ie)
+                    {
+                        return null;
+                    }
+                }
+            }
+            return null;
+        }
+
+    //--------------------------------------------------------------------------
+
+        /**
+         * Pulls and runs jobs from the master until the connection is closed.
+         * @return <code>true</code> if the connection was lost, so we should
+         * try to connect again, or <code>false</code> if the master asked to
+         * stop.
+         * @throws DENOPTIMException if the master rejects this worker.
+         */
+        private boolean serve(Socket socket) throws DENOPTIMException
+        {
+            Thread heartbeat = null;
+            try
+            {
+                toMaster = new BufferedWriter(new OutputStreamWriter(
+                        socket.getOutputStream(), StandardCharsets.UTF_8));
+                BufferedReader fromMaster = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(),
+                                StandardCharsets.UTF_8));
+
+                JsonObject hello = new JsonObject();
+                hello.addProperty("TYPE", FitnessFarm.HELLO);
+                hello.addProperty("NAME", InetAddress.getLocalHost()
+                        .getHostName() + "-" + index);
+                hello.addProperty("FITNESSKEY", fitParams.getFitnessCacheKey());
+                if (!settings.getToken().isEmpty())
+                    hello.addProperty("TOKEN", settings.getToken());
+                send(hello);
+
+                JsonObject answer = read(fromMaster);
+                if (answer == null)
+                    return true;
+                if (FitnessFarm.REJECTED.equals(getType(answer)))
+                {
+                    throw new DENOPTIMException("Worker rejected by master: "
+                            + (answer.has("ERROR") ?
+                                    answer.get("ERROR").getAsString() : ""));
+                }
+                logger.log(Level.INFO, "Slot " + index + " connected to "
+                        + "master at " + socket.getRemoteSocketAddress());
+
+                heartbeat = new Thread(() -> {
+                    JsonObject beat = new JsonObject();
+                    beat.addProperty("TYPE", FitnessFarm.HEARTBEAT);
+                    try
+                    {
+                        while (!socket.isClosed())
+                        {
+                            Thread.sleep(settings.getHeartbeatIntervalMillis());
+                            send(beat);
+                        }
+                    } catch (InterruptedException | IOException e)
+                    {
+                        // Connection is over
+                    }
+                }, "FarmWorker-slot-" + index + "-heartbeat");
+                heartbeat.setDaemon(true);
+                heartbeat.start();
+
+                JsonObject request = new JsonObject();
+                request.addProperty("TYPE", FitnessFarm.REQUEST);
+                while (!stopped)
+                {
+                    send(request);
+                    JsonObject msg = read(fromMaster);
+                    if (msg == null)
+                        return true;
+                    String type = getType(msg);
+                    if (FitnessFarm.STOP.equals(type))
+                        return false;
+                    if (FitnessFarm.JOB.equals(type))
+                        send(evaluate(msg));
+                }
+                return false;
+            } catch (IOException | JsonParseException e)
+            {
+                logger.log(Level.WARNING, "Slot " + index + " lost connection "
+                        + "with master: " + e.getMessage());
+                return true;
+            } finally {
+                if (heartbeat != null)
+                    heartbeat.interrupt();
+                try
+                {
+                    socket.close();
+                } catch (IOException e)
+                {
+                    // nothing to do
+                }
+            }
+        }
+
+    //--------------------------------------------------------------------------
+
+        private JsonObject read(BufferedReader fromMaster) throws IOException
+        {
+            String line = fromMaster.readLine();
+            if (line == null)
+                return null;
+            return jsonConverter.fromJson(line, JsonObject.class);
+        }
+
+    //--------------------------------------------------------------------------
+
+        private String getType(JsonObject msg)
+        {
+            return msg.has("TYPE") ? msg.get("TYPE").getAsString() : "";
+        }
+
+    //--------------------------------------------------------------------------
+
+        private void send(JsonObject msg) throws IOException
+        {
+            synchronized (this)
+            {
+                toMaster.write(jsonConverter.toJson(msg));
+                toMaster.newLine();
+                toMaster.flush();
+            }
+        }
+
+    //--------------------------------------------------------------------------
+
+        /**
+         * Runs the fitness evaluation requested by the master.
+         * @param job the message defining the job.
+         * @return the message reporting the result to the master.
+         */
+        private JsonObject evaluate(JsonObject job)
+        {
+            JsonObject result = new JsonObject();
+            result.addProperty("TYPE", FitnessFarm.RESULT);
+            result.add("JOBID", job.get("JOBID"));
+
+            numJobs++;
+            String basename = settings.getWorkDirectory() + File.separator
+                    + "slot" + index + "_job" + numJobs;
+            String inpFile = basename + DENOPTIMConstants.FITFILENAMEEXTIN;
+            FarmEvaluationTask task = null;
+            try
+            {
+                Files.write(Paths.get(inpFile), job.get("MOL").getAsString()
+                        .getBytes(StandardCharsets.UTF_8));
+                IAtomContainer mol = DenoptimIO.readAllAtomContainers(
+                        new File(inpFile)).get(0);
+                DGraph graph = DGraph.fromJson(job.get("GRAPH").getAsString());
+                Candidate candidate = new Candidate(
+                        job.get("NAME").getAsString(), graph);
+                candidate.setUID(job.get("UID").getAsString());
+
+                task = new FarmEvaluationTask(fitParams, candidate, mol,
+                        new File(settings.getWorkDirectory()), basename);
+                task.call();
+
+                result.addProperty("STATUS", "SUCCESS");
+                result.addProperty("MOL", new String(Files.readAllBytes(
+                        Paths.get(task.getOutputFile())),
+                        StandardCharsets.UTF_8));
+            } catch (Throwable t)
+            {
+                logger.log(Level.WARNING, "Failed evaluation of task "
+                        + job.get("TASKID") + ": " + t);
+                result.addProperty("STATUS", "FAILURE");
+                result.addProperty("ERROR", t.toString());
+            } finally {
+                FileUtils.deleteQuietly(new File(inpFile));
+                if (task != null)
+                    FileUtils.deleteQuietly(new File(task.getOutputFile()));
+            }
+            return result;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
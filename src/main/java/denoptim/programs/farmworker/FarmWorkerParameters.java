@@ -0,0 +1,292 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.programs.farmworker;
+
+import java.lang.reflect.Field;
+import java.text.SimpleDateFormat;
+import java.util.Date;
+import java.util.logging.Level;
+
+import denoptim.constants.DENOPTIMConstants;
+import denoptim.exception.DENOPTIMException;
+import denoptim.files.FileUtils;
+import denoptim.logging.StaticLogger;
+import denoptim.programs.RunTimeParameters;
+
+
+/**
+ * Parameters controlling a worker of a distributed fitness farm. The
+ * fitness settings of the worker are given by the fitness provider
+ * parameters, which must be the same as those of the master.
+ *
+ * @author Marco Foscato
+ */
+
+public class FarmWorkerParameters extends RunTimeParameters
+{
+    /**
+     * Name or address of the host where the master runs.
+     */
+    protected String host = "localhost";
+
+    /**
+     * Port where the master listens for workers.
+     */
+    protected int port = -1;
+
+    /**
+     * Number of fitness evaluations this worker runs in parallel. Each
+     * evaluation uses its own connection to the master.
+     */
+    protected int numSlots = 1;
+
+    /**
+     * Time (seconds) between heartbeat messages sent to the master.
+     */
+    protected int heartbeatInterval = 10;
+
+    /**
+     * Maximum time (seconds) spent trying to connect to the master.
+     */
+    protected int connectTimeout = 600;
+
+    /**
+     * Token presented to the master to be accepted. Empty means no token.
+     */
+    protected String token = "";
+
+//-----------------------------------------------------------------------------
+
+    /**
+     * Constructor
+     */
+    public FarmWorkerParameters()
+    {
+        super(ParametersType.FARM_PARAMS);
+    }
+
+//-----------------------------------------------------------------------------
+
+    public String getHost()
+    {
+        return host;
+    }
+
+//-----------------------------------------------------------------------------
+
+    public int getPort()
+    {
+        return port;
+    }
+
+//-----------------------------------------------------------------------------
+
+    public int getNumSlots()
+    {
+        return numSlots;
+    }
+
+//-----------------------------------------------------------------------------
+
+    /**
+     * @return the token presented to the master, or an empty string.
+     */
+    public String getToken()
+    {
+        return token;
+    }
+
+//-----------------------------------------------------------------------------
+
+    /**
+     * @return the time (milliseconds) between heartbeat messages.
+     */
+    public long getHeartbeatIntervalMillis()
+    {
+        return heartbeatInterval * 1000L;
+    }
+
+//-----------------------------------------------------------------------------
+
+    /**
+     * @return the maximum time (milliseconds) spent trying to connect to the
+     * master.
+     */
+    public long getConnectTimeoutMillis()
+    {
+        return connectTimeout * 1000L;
+    }
+
+//-----------------------------------------------------------------------------
+
+    /**
+     * Processes a keyword/value pair and assign the related parameters.
+     * @param key the keyword as string
+     * @param value the value as a string
+     * @throws DENOPTIMException
+     */
+
+    public void interpretKeyword(String key, String value)
+            throws DENOPTIMException
+    {
+        String msg = "";
+        try
+        {
+            switch (key.toUpperCase())
+            {
+                case "HOST=":
+                    host = value.trim();
+                    break;
+                case "PORT=":
+                    port = Integer.parseInt(value);
+                    break;
+                case "NUMSLOTS=":
+                    numSlots = Integer.parseInt(value);
+                    break;
+                case "HEARTBEATINTERVAL=":
+                    heartbeatInterval = Integer.parseInt(value);
+                    break;
+                case "CONNECTTIMEOUT=":
+                    connectTimeout = Integer.parseInt(value);
+                    break;
+                case "TOKEN=":
+                    token = value.trim();
+                    break;
+                default:
+                     msg = "Keyword " + key + " is not a known fitness farm "
+                             + "worker-related keyword. Check input files.";
+                     throw new DENOPTIMException(msg);
+            }
+        } catch (NumberFormatException e)
+        {
+            msg = "Unable to understand value " + key + "'" + value + "'";
+            throw new DENOPTIMException(msg);
+        }
+    }
+
+//-----------------------------------------------------------------------------
+
+    /**
+     * Evaluate consistency of input parameters.
+     * @throws DENOPTIMException
+     */
+
+    public void checkParameters() throws DENOPTIMException
+    {
+        if (port < 1 || port > 65535)
+        {
+            throw new DENOPTIMException("Port of the master of the fitness "
+                    + "farm must be given as "
+                    + ParametersType.FARM_PARAMS.getKeywordRoot() 
+                    + "PORT with a value between 1 and 65535.");
+        }
+        ensureIsPositive("numSlots", numSlots, "NUMSLOTS");
+        ensureIsPositive("heartbeatInterval", heartbeatInterval,
+                "HEARTBEATINTERVAL");
+        ensureIsPositiveOrZero("connectTimeout", connectTimeout,
+                "CONNECTTIMEOUT");
+        if (!containsParameters(ParametersType.FIT_PARAMS))
+        {
+            throw new DENOPTIMException("No fitness provider settings found. "
+                    + "Fitness farm workers need the same "
+                    + ParametersType.FIT_PARAMS.getKeywordRoot() + " keywords "
+                    + "used by the master.");
+        }
+        checkOtherParameters();
+    }
+
+//----------------------------------------------------------------------------
+
+    /**
+     * Processes all parameters and initialize related objects.
+     * @throws DENOPTIMException
+     */
+
+    public void processParameters() throws DENOPTIMException
+    {
+        if (isMaster)
+            createWorkingDirectory();
+
+        processOtherParameters();
+
+        if (isMaster)
+        {
+            StaticLogger.appLogger.log(Level.INFO, "Program log file: "
+                    + logFile + DENOPTIMConstants.EOL
+                    + "Output files associated with the current run are "
+                    + "located in " + workDir);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private void createWorkingDirectory()
+    {
+        String curDir = workDir;
+        String fileSep = System.getProperty("file.separator");
+        boolean success = false;
+        while (!success)
+        {
+            SimpleDateFormat sdf = new SimpleDateFormat("yyyyMMddkkmmss");
+            String str = "FARMWORKER" + sdf.format(new Date());
+            workDir = curDir + fileSep + str;
+            success = FileUtils.createDirectory(workDir);
+        }
+        logFile = workDir + ".log";
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the list of parameters in a string with newline characters as
+     * delimiters.
+     * @return the list of parameters in a string with newline characters as
+     * delimiters.
+     */
+    public String getPrintedList()
+    {
+        StringBuilder sb = new StringBuilder(1024);
+        sb.append(" " + paramTypeName() + " ").append(NL);
+        for (Field f : this.getClass().getDeclaredFields())
+        {
+            try
+            {
+                Object value = f.get(this);
+                if (f.getName().equals("token") && !token.isEmpty())
+                    value = "********";
+                sb.append(f.getName()).append(" = ").append(
+                            value).append(NL);
+            }
+            catch (Throwable t)
+            {
+                sb.append("ERROR! Unable to print " + paramTypeName()
+                        + " parameters. Cause: " + t);
+                break;
+            }
+        }
+        for (RunTimeParameters otherCollector : otherParameters.values())
+        {
+            sb.append(otherCollector.getPrintedList());
+        }
+        return sb.toString();
+    }
+
+//----------------------------------------------------------------------------
+
+}
@@ -24,6 +24,7 @@ import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
 import java.util.concurrent.Future;
 import java.util.concurrent.RejectedExecutionHandler;
 import java.util.concurrent.ThreadPoolExecutor;
@@ -36,11 +37,14 @@ import org.openscience.cdk.interfaces.IAtomContainer;
 
 import denoptim.constants.DENOPTIMConstants;
 import denoptim.exception.DENOPTIMException;
+import denoptim.fitness.FitnessParameters;
 import denoptim.graph.DGraph;
 import denoptim.io.DenoptimIO;
 import denoptim.logging.StaticLogger;
+import denoptim.programs.RunTimeParameters.ParametersType;
 import denoptim.programs.combinatorial.FragSpaceExplorer;
 import denoptim.programs.denovo.GARunner;
+import denoptim.task.ExternalWaitExecutor;
 import denoptim.task.FitnessTask;
 
 
@@ -68,7 +72,7 @@ public class FPRunner
     /**
      * Asynchronous tasks manager 
      */
-    final ThreadPoolExecutor tpe;
+    final ExecutorService tpe;
     
     /**
      * The parameters controlling the 
@@ -81,6 +85,11 @@ public class FPRunner
      */
     // TODO: use getNumCPU from GAParameters to launch fitness evaluations in parallel.
     private int numThreads = 1;
+    
+    /**
+     * Maximum number of fitness evaluations in execution at any time.
+     */
+    private int maxTasksInFlight = numThreads;
 
 //-----------------------------------------------------------------------------
 
@@ -94,8 +103,46 @@ public class FPRunner
         futures = new HashMap<FitnessTask,Future<Object>>();
         submitted = new ArrayList<>(numThreads);
 
-        tpe = new ThreadPoolExecutor(numThreads, numThreads, Long.MAX_VALUE, 
-                TimeUnit.NANOSECONDS, new ArrayBlockingQueue<Runnable>(1));
+        FitnessParameters fitParams = null;
+        if (settings.containsParameters(ParametersType.FIT_PARAMS))
+        {
+            fitParams = (FitnessParameters) settings.getParameters(
+                    ParametersType.FIT_PARAMS);
+        }
+        if (fitParams != null && fitParams.useExternalWaitExecutor())
+        {
+            ExternalWaitExecutor ewe = new ExternalWaitExecutor(numThreads,
+                    fitParams.getMaxExternalEvaluations(), 
+                    settings.getLogger());
+            maxTasksInFlight = ewe.getMaxInFlight();
+            tpe = ewe;
+        } else {
+            ThreadPoolExecutor pool = new ThreadPoolExecutor(numThreads, 
+                    numThreads, Long.MAX_VALUE, TimeUnit.NANOSECONDS, 
+                    new ArrayBlockingQueue<Runnable>(1));
+            
+            // by default the ThreadPoolExecutor will throw an exception
+            pool.setRejectedExecutionHandler(new RejectedExecutionHandler()
+            {
+                @Override
+                public void rejectedExecution(Runnable r,
+                        ThreadPoolExecutor executor)
+                {
+                    try
+                    {
+                        // this will block if the queue is full
+                        executor.getQueue().put(r);
+                    }
+                    catch (InterruptedException ex)
+                    {
+                        ex.printStackTrace();
+                        String msg = "EXCEPTION in rejectedExecution.";
+                        StaticLogger.appLogger.log(Level.WARNING,msg);
+                    }
+                }
+            });
+            tpe = pool;
+        }
 
         Runtime.getRuntime().addShutdownHook(new Thread()
         {
@@ -126,27 +173,6 @@ public class FPRunner
                 }
             }
         });
-
-        // by default the ThreadPoolExecutor will throw an exception
-        tpe.setRejectedExecutionHandler(new RejectedExecutionHandler()
-        {
-            @Override
-            public void rejectedExecution(Runnable r,
-            		ThreadPoolExecutor executor)
-            {
-                try
-                {
-                    // this will block if the queue is full
-                    executor.getQueue().put(r);
-                }
-                catch (InterruptedException ex)
-                {
-                    ex.printStackTrace();
-                    String msg = "EXCEPTION in rejectedExecution.";
-                    StaticLogger.appLogger.log(Level.WARNING,msg);
-                }
-            }
-        });
     }
 
 //------------------------------------------------------------------------------
@@ -184,7 +210,8 @@ public class FPRunner
                     + iacs.size() + " in " + settings.getInputFile());
         }
         
-        tpe.prestartAllCoreThreads();
+        if (tpe instanceof ThreadPoolExecutor)
+            ((ThreadPoolExecutor) tpe).prestartAllCoreThreads();
         
         int evaluationCount = 0;
         for (int i=0; i<graphs.size(); i++)
@@ -199,7 +226,7 @@ public class FPRunner
             submitted.add(task);
             futures.put(task,tpe.submit(task));
             evaluationCount++;
-            if (evaluationCount>(numThreads*2))
+            if (evaluationCount>(maxTasksInFlight*2))
             {
                 cleanupCompleted();
             }
@@ -227,6 +254,15 @@ public class FPRunner
             FileUtils.deleteQuietly(new File(tmpFileFromProvider));
         }
         
+        if (settings.containsParameters(ParametersType.FIT_PARAMS))
+        {
+            FitnessParameters fitParams = (FitnessParameters) 
+                    settings.getParameters(ParametersType.FIT_PARAMS);
+            fitParams.closeFitnessCache();
+            fitParams.closeFitnessFarm();
+            fitParams.closeFitnessWorkerPool();
+        }
+        
         watch.stop();
         String plural = "";
         if (evaluationCount>1)
@@ -279,7 +315,8 @@ public class FPRunner
         }
         futures.clear();
         submitted.clear();
-        tpe.getQueue().clear();
+        if (tpe instanceof ThreadPoolExecutor)
+            ((ThreadPoolExecutor) tpe).getQueue().clear();
     }
 
 //------------------------------------------------------------------------------    
@@ -8,7 +8,6 @@ import java.util.logging.Logger;
 
 import org.openscience.cdk.interfaces.IAtom;
 import org.openscience.cdk.interfaces.IAtomContainer;
-import org.openscience.cdk.isomorphism.Mappings;
 
 import denoptim.constants.DENOPTIMConstants;
 import denoptim.exception.DENOPTIMException;
@@ -449,7 +448,7 @@ public class CuttingRule
             }
             
             // Get atoms matching cutting rule queries
-            Mappings atomsInAllRings = msq.getMatchesOfSMARTS(smartsName);
+            List<int[]> atomsInAllRings = msq.getMatchesOfSMARTS(smartsName);
             for (int[] atmsInOneRing : atomsInAllRings) 
             {
                 if (atmsInOneRing[0]==idxSInMol && atmsInOneRing[1]==idxTInMol)
@@ -20,9 +20,11 @@ package denoptim.programs.fragmenter;
 
 import java.io.File;
 import java.util.List;
+import java.util.logging.Level;
 
 import denoptim.fragmenter.ConformerExtractorTask;
 import denoptim.fragmenter.ParallelFragmentationAlgorithm;
+import denoptim.graph.FragmentIsomorphismInspector;
 import denoptim.graph.Vertex;
 import denoptim.graph.Vertex.BBType;
 import denoptim.io.DenoptimIO;
@@ -79,6 +81,17 @@ public class Fragmenter extends ProgramTask
             fragAlgorithm.run();
         }
         
+        if (FragmentIsomorphismInspector.getNumberOfTimeouts() > 0)
+        {
+            settings.getLogger().log(Level.WARNING, 
+                    FragmentIsomorphismInspector.getNumberOfTimeouts() 
+                    + " out of " 
+                    + FragmentIsomorphismInspector.getNumberOfSearches()
+                    + " searches for isomorphism reached the timeout. "
+                    + "In such cases, fragments were considered "
+                    + "non-isomorphic.");
+        }
+        
         stopLogger();
     }
     
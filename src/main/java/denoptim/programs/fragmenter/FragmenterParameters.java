@@ -36,6 +36,7 @@ import denoptim.constants.DENOPTIMConstants;
 import denoptim.exception.DENOPTIMException;
 import denoptim.files.FileFormat;
 import denoptim.files.FileUtils;
+import denoptim.fragmenter.CuttingRulesMatcher;
 import denoptim.fragmenter.FragmentClusterer;
 import denoptim.fragmenter.ScaffoldingPolicy;
 import denoptim.graph.DGraph;
@@ -84,6 +85,12 @@ public class FragmenterParameters extends RunTimeParameters
      */
     List<CuttingRule> cuttingRules;
     
+    /**
+     * Matcher of the cutting rules. Built upon request and shared by all the
+     * tasks of a run.
+     */
+    private CuttingRulesMatcher cuttingRulesMatcher = null;
+    
     /**
      * Number of parallel tasks to run.
      */
@@ -499,6 +506,24 @@ public class FragmenterParameters extends RunTimeParameters
         this.cuttingRules = cuttingRules;
     }
     
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the matcher of the cutting rules currently configured in this 
+     * set of parameters. The matcher is built only the first time this 
+     * method is called for a given list of cutting rules.
+     * @return the matcher of the cutting rules.
+     */
+    public synchronized CuttingRulesMatcher getCuttingRulesMatcher()
+    {
+        if (cuttingRulesMatcher == null 
+                || cuttingRulesMatcher.getRules() != cuttingRules)
+        {
+            cuttingRulesMatcher = new CuttingRulesMatcher(cuttingRules);
+        }
+        return cuttingRulesMatcher;
+    }
+    
 //------------------------------------------------------------------------------
 
     /**
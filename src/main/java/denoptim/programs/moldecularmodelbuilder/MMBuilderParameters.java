@@ -153,6 +153,20 @@ public class MMBuilderParameters extends RunTimeParameters
      */
     protected Integer rcoServerPort = 5972;
 
+    /**
+     * Maximum number of ring-closing attempts (i.e., combinations of 
+     * ring-closing attractors) that can run in parallel.
+     */
+    protected int rcParallelAttempts = 1;
+
+    /**
+     * Threshold on the overall score of the ring closures (the lower, the
+     * better) below which an attempt closing all possible rings makes any 
+     * further attempt unnecessary. A negative value disables early 
+     * termination.
+     */
+    protected double rcEarlyStopScore = -1.0;
+
 //------------------------------------------------------------------------------
     
     /**
@@ -301,6 +315,29 @@ public class MMBuilderParameters extends RunTimeParameters
         return rcoServerPort;
     }
 
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the maximum number of ring-closing attempts that can run in 
+     * parallel.
+     */
+    public int getRCParallelAttempts()
+    {
+        return rcParallelAttempts;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the threshold on the overall score of the ring closures that
+     * triggers early termination of ring-closing attempts, or a negative value
+     * if early termination is disabled.
+     */
+    public double getRCEarlyStopScore()
+    {
+        return rcEarlyStopScore;
+    }
+
 //-----------------------------------------------------------------------------
 
     /**
@@ -383,6 +420,28 @@ public class MMBuilderParameters extends RunTimeParameters
         case "RCOSERVERPORT=":
             rcoServerPort = Integer.parseInt(value);
             break;
+        case "RCPARALLELATTEMPTS=":
+            try
+            {
+                rcParallelAttempts = Integer.parseInt(value);
+            }
+            catch (Throwable t)
+            {
+                msg = "Unable to understand value " + key + "'" + value + "'";
+                throw new DENOPTIMException(msg);
+            }
+            break;
+        case "RCEARLYSTOPSCORE=":
+            try
+            {
+                rcEarlyStopScore = Double.parseDouble(value);
+            }
+            catch (Throwable t)
+            {
+                msg = "Unable to understand value " + key + "'" + value + "'";
+                throw new DENOPTIMException(msg);
+            }
+            break;
 
 /*
         case "=":
@@ -419,6 +478,12 @@ public class MMBuilderParameters extends RunTimeParameters
 				+ "be 1 or 2");
         }
 
+        if (rcParallelAttempts < 1)
+        {
+            throw new DENOPTIMException("ERROR! Parameter 'rcParallelAttempts'"
+                    + " must be a positive integer");
+        }
+
         checkOtherParameters();
     }
     
@@ -0,0 +1,520 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.task;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+import denoptim.constants.DENOPTIMConstants;
+import denoptim.exception.DENOPTIMException;
+
+/**
+ * A pool of long-lived processes running an external fitness provider.
+ * Instead of launching a new process for each candidate, each worker process
+ * is started once and then receives any number of requests via its standard
+ * input. The protocol is line-based: each request is a JSON object written on
+ * a single line, and each answer is a JSON object written on a single line of
+ * the standard output of the worker. Any other line that is written to the
+ * standard output is ignored.
+ * <p>A request contains the same information given to the
+ * script-per-candidate fitness provider as command line arguments:</p>
+ * <pre>
+ * {"INPUT": "/path/in.sdf", "OUTPUT": "/path/out.sdf", "WORKDIR": "/path",
+ *  "TASKID": 123, "UIDFILE": "/path/uid.txt"}
+ * </pre>
+ * <p>where <code>UIDFILE</code> is present only if defined. Like the
+ * script-per-candidate fitness provider, the worker must write the output SDF
+ * file, which is then processed as usual. The answer must report
+ * the outcome of the request as <code>{"STATUS": "SUCCESS"}</code> or as
+ * <code>{"STATUS": "FAILURE", "ERROR": "explanation"}</code>.</p>
+ * <p>Workers that exit unexpectedly are restarted when the next request is
+ * assigned to them. Workers that do not answer within the time limit (if
+ * any) are terminated, and then restarted as well. Since each worker handles
+ * one request at a time, requests exceeding the number of workers wait
+ * for a worker to become available.</p>
+ *
+ * @author Marco Foscato
+ */
+
+public class ExternalFitnessWorkerPool
+{
+    /**
+     * The command launching a worker process.
+     */
+    private final List<String> command;
+
+    /**
+     * Maximum time (milliseconds) allowed for answering a request.
+     * Non-positive values mean no limit.
+     */
+    private final long timeoutMillis;
+
+    /**
+     * Logger
+     */
+    private final Logger logger;
+
+    /**
+     * The workers that are not processing any request.
+     */
+    private final BlockingQueue<Worker> idleWorkers;
+
+    /**
+     * All the workers of this pool.
+     */
+    private final List<Worker> allWorkers = new ArrayList<Worker>();
+
+    /**
+     * Hook shutting down this pool when the JVM terminates.
+     */
+    private final Thread shutdownHook;
+
+    /**
+     * Flag signaling that this pool has been shut down.
+     */
+    private volatile boolean isShutDown = false;
+
+    /**
+     * JSON converter
+     */
+    private final Gson jsonConverter = new Gson();
+
+    /**
+     * Marker of the end of the standard output of a worker process. This is
+     * compared by identity, so it cannot be confused with any line written by
+     * the process.
+     */
+    private static final String EOFMARKER = new String("EOF");
+
+    /**
+     * Maximum number of lines of standard error we keep for each worker.
+     */
+    private static final int MAXERRLINES = 50;
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor. No process is started until it is needed.
+     * @param interpreter the interpreter used to run the fitness provider.
+     * @param source the pathname to the fitness provider.
+     * @param size the number of workers.
+     * @param timeoutMillis maximum time (milliseconds) allowed for answering
+     * a request. Use non-positive values for no time limit.
+     * @param logger where to log messages.
+     */
+    public ExternalFitnessWorkerPool(String interpreter, String source,
+            int size, long timeoutMillis, Logger logger)
+    {
+        this.command = new ArrayList<String>(Arrays.asList(
+                interpreter.trim().split("\\s+")));
+        this.command.add(source);
+        this.timeoutMillis = timeoutMillis;
+        this.logger = logger;
+        this.idleWorkers = new ArrayBlockingQueue<Worker>(size);
+        for (int i=0; i<size; i++)
+        {
+            Worker worker = new Worker(i);
+            allWorkers.add(worker);
+            idleWorkers.add(worker);
+        }
+        shutdownHook = new Thread(() -> shutdown(), 
+                "FitnessWorkerPool-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Submits a request to evaluate the fitness of a candidate to the first
+     * available worker. Waits for a worker to become available, if needed.
+     * @param inputFile pathname of the SDF file with the candidate.
+     * @param outputFile pathname of the SDF file to be written by the worker.
+     * @param workDir the working directory.
+     * @param taskId the identifier of the task.
+     * @param uidFile pathname of the file collecting unique identifiers, or
+     * <code>null</code>.
+     * @throws DENOPTIMException if the worker reports a failure, does not
+     * answer within the time limit, or exits while processing the request.
+     */
+    public void evaluate(String inputFile, String outputFile, String workDir,
+            int taskId, String uidFile) throws DENOPTIMException
+    {
+        JsonObject request = new JsonObject();
+        request.addProperty("INPUT", inputFile);
+        request.addProperty("OUTPUT", outputFile);
+        request.addProperty("WORKDIR", workDir);
+        request.addProperty("TASKID", taskId);
+        if (uidFile != null)
+            request.addProperty("UIDFILE", uidFile);
+
+        Worker worker;
+        try
+        {
+            worker = idleWorkers.take();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new DENOPTIMException("Interrupted while waiting for a "
+                    + "fitness provider worker.", e);
+        }
+
+        JsonObject answer;
+        try
+        {
+            answer = worker.submit(jsonConverter.toJson(request));
+        } finally {
+            idleWorkers.add(worker);
+        }
+
+        if (!answer.get("STATUS").getAsString().equals("SUCCESS"))
+        {
+            String err = "";
+            if (answer.has("ERROR"))
+                err = answer.get("ERROR").getAsString();
+            throw new DENOPTIMException("Fitness provider worker "
+                    + worker.index + " failed on task " + taskId + ": " + err);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Stops all workers. Requests submitted after this call are rejected.
+     */
+    public void shutdown()
+    {
+        if (isShutDown)
+            return;
+        isShutDown = true;
+        try
+        {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e)
+        {
+            // The JVM is already shutting down, possibly by this very hook
+        }
+        for (Worker worker : allWorkers)
+        {
+            worker.stop();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * A single long-lived process and the threads reading its output.
+     */
+    private class Worker
+    {
+        /**
+         * Identifier of this worker in the pool.
+         */
+        private final int index;
+
+        /**
+         * The running process or <code>null</code>.
+         */
+        private volatile Process proc = null;
+
+        /**
+         * Writer to the standard input of the process.
+         */
+        private BufferedWriter toProc = null;
+
+        /**
+         * Lines written by the process to its standard output.
+         */
+        private BlockingQueue<String> fromProc = null;
+
+        /**
+         * Last lines written by the process to its standard error.
+         */
+        private final Deque<String> errLines = new ArrayDeque<String>();
+
+        /**
+         * Thread reading the standard error of the process.
+         */
+        private Thread errReader = null;
+
+        /**
+         * Number of times we have started a process.
+         */
+        private int numStarts = 0;
+
+    //--------------------------------------------------------------------------
+
+        private Worker(int index)
+        {
+            this.index = index;
+        }
+
+    //--------------------------------------------------------------------------
+
+        /**
+         * Starts the process unless it is already running.
+         */
+        private synchronized void ensureRunning() throws IOException
+        {
+            if (proc != null && proc.isAlive())
+                return;
+
+            if (proc != null)
+            {
+                logger.log(Level.WARNING, "Fitness provider worker " + index
+                        + " exited with code " + proc.exitValue()
+                        + ". Restarting it." + DENOPTIMConstants.EOL
+                        + getErrorOutput());
+            }
+
+            numStarts++;
+            ProcessBuilder pb = new ProcessBuilder(command);
+            proc = pb.start();
+            toProc = new BufferedWriter(new OutputStreamWriter(
+                    proc.getOutputStream(), StandardCharsets.UTF_8));
+
+            // Each process has its own queue, so nothing written by a
+            // previous process can be mistaken as coming from the new one.
+            BlockingQueue<String> lines = new LinkedBlockingQueue<String>();
+            fromProc = lines;
+            final Process p = proc;
+            Thread outReader = new Thread(() -> {
+                try (BufferedReader br = new BufferedReader(
+                        new InputStreamReader(p.getInputStream(),
+                                StandardCharsets.UTF_8)))
+                {
+                    String line;
+                    while ((line = br.readLine()) != null)
+                        lines.add(line);
+                } catch (IOException e)
+                {
+                    // Process is gone
+                }
+                lines.add(EOFMARKER);
+            }, "FitnessWorker-" + index + "-" + numStarts + "-out");
+            outReader.setDaemon(true);
+            outReader.start();
+
+            synchronized (errLines)
+            {
+                errLines.clear();
+            }
+            errReader = new Thread(() -> {
+                try (BufferedReader br = new BufferedReader(
+                        new InputStreamReader(p.getErrorStream(),
+                                StandardCharsets.UTF_8)))
+                {
+                    String line;
+                    while ((line = br.readLine()) != null)
+                    {
+                        synchronized (errLines)
+                        {
+                            if (errLines.size() >= MAXERRLINES)
+                                errLines.removeFirst();
+                            errLines.addLast(line);
+                        }
+                    }
+                } catch (IOException e)
+                {
+                    // Process is gone
+                }
+            }, "FitnessWorker-" + index + "-" + numStarts + "-err");
+            errReader.setDaemon(true);
+            errReader.start();
+        }
+
+    //--------------------------------------------------------------------------
+
+        /**
+         * Sends a request and waits for the answer.
+         * @param request the request as a single-line string.
+         * @return the answer.
+         * @throws DENOPTIMException if no valid answer can be obtained.
+         */
+        private synchronized JsonObject submit(String request)
+                throws DENOPTIMException
+        {
+            if (isShutDown)
+                throw new DENOPTIMException("Fitness provider workers have "
+                        + "been shut down.");
+            try
+            {
+                ensureRunning();
+                toProc.write(request);
+                toProc.newLine();
+                toProc.flush();
+            } catch (IOException e)
+            {
+                stop();
+                throw new DENOPTIMException("Could not send request to "
+                        + "fitness provider worker " + index + ".", e);
+            }
+
+            long deadline = System.currentTimeMillis() + timeoutMillis;
+            while (true)
+            {
+                String line;
+                try
+                {
+                    if (timeoutMillis > 0)
+                    {
+                        line = fromProc.poll(
+                                deadline - System.currentTimeMillis(),
+                                TimeUnit.MILLISECONDS);
+                    } else {
+                        line = fromProc.take();
+                    }
+                } catch (InterruptedException e)
+                {
+                    // We cannot know what the process will write next
+                    stop();
+                    Thread.currentThread().interrupt();
+                    throw new DENOPTIMException("Interrupted while waiting "
+                            + "for fitness provider worker " + index + ".", e);
+                }
+
+                if (line == null)
+                {
+                    stop();
+                    throw new DENOPTIMException("Fitness provider worker "
+                            + index + " did not answer within " + timeoutMillis
+                            + " ms. Worker terminated.");
+                }
+                if (line == EOFMARKER)
+                {
+                    waitForErrorOutput();
+                    String err = getErrorOutput();
+                    stop();
+                    throw new DENOPTIMException("Fitness provider worker "
+                            + index + " exited while processing a request."
+                            + DENOPTIMConstants.EOL + err);
+                }
+                if (!line.trim().startsWith("{"))
+                {
+                    logger.log(Level.FINE, "Ignoring output from fitness "
+                            + "provider worker " + index + ": " + line);
+                    continue;
+                }
+                try
+                {
+                    JsonObject answer = jsonConverter.fromJson(line,
+                            JsonObject.class);
+                    if (answer != null && answer.has("STATUS")
+                            && answer.get("STATUS").isJsonPrimitive())
+                        return answer;
+                } catch (JsonParseException e)
+                {
+                    // Not an answer
+                }
+                logger.log(Level.FINE, "Ignoring output from fitness "
+                        + "provider worker " + index + ": " + line);
+            }
+        }
+
+    //--------------------------------------------------------------------------
+
+        /**
+         * Gives the process that closed its standard output a little time to
+         * exit, so that we can collect what it wrote on the standard error.
+         */
+        private void waitForErrorOutput()
+        {
+            Process p = proc;
+            Thread t = errReader;
+            try
+            {
+                if (p != null)
+                    p.waitFor(1, TimeUnit.SECONDS);
+                if (t != null)
+                    t.join(1000);
+            } catch (InterruptedException e)
+            {
+                Thread.currentThread().interrupt();
+            }
+        }
+
+    //--------------------------------------------------------------------------
+
+        private String getErrorOutput()
+        {
+            StringBuilder sb = new StringBuilder();
+            synchronized (errLines)
+            {
+                for (String line : errLines)
+                {
+                    sb.append("ERR> ").append(line)
+                        .append(DENOPTIMConstants.EOL);
+                }
+            }
+            return sb.toString();
+        }
+
+    //--------------------------------------------------------------------------
+
+        /**
+         * Terminates the process, if any. This method is not synchronized so
+         * that it can stop a worker that is waiting for an answer.
+         */
+        private void stop()
+        {
+            Process p = proc;
+            if (p == null)
+                return;
+            try
+            {
+                toProc.close();
+            } catch (IOException e)
+            {
+                // Process is gone already
+            }
+            p.destroy();
+            try
+            {
+                if (!p.waitFor(5, TimeUnit.SECONDS))
+                    p.destroyForcibly();
+            } catch (InterruptedException e)
+            {
+                p.destroyForcibly();
+                Thread.currentThread().interrupt();
+            }
+            proc = null;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,360 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.task;
+
+import java.lang.reflect.Method;
+import java.util.List;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import denoptim.logging.StaticLogger;
+
+/**
+ * Executor meant for tasks that spend most of their time waiting for
+ * an external resource, such as a child process or a server running the
+ * external fitness provider. Each task runs in its own thread, and the
+ * number of tasks in execution can be much larger than the number of CPUs.
+ * Still, the tasks compete for as many CPU permits as CPUs: each task holds
+ * a CPU permit while running, except when waiting for the external resource,
+ * i.e., between calls of {@link #beginExternalWait()} and
+ * {@link #endExternalWait()}. Therefore, the preparation of candidates
+ * and the processing of the results are never run by more threads than CPUs.
+ * Such calls can be nested: only the outermost pair releases and re-acquires
+ * the CPU permit.
+ * <p>When running on a JAVA virtual machine that supports virtual threads
+ * (i.e., JAVA 21 or later), the tasks are run by virtual threads, which
+ * makes it cheap to have hundreds of tasks in execution. Otherwise,
+ * the tasks are run by a pool of platform threads, and a warning is logged
+ * upon construction.</p>
+ * <p>Like the thread pools used in the asynchronous parallelization schemes,
+ * this executor blocks the submission of new tasks when the maximum number
+ * of tasks in execution is reached.</p>
+ *
+ * @author Marco Foscato
+ */
+
+public class ExternalWaitExecutor extends AbstractExecutorService
+{
+    /**
+     * The executor running the tasks.
+     */
+    private final ExecutorService delegate;
+
+    /**
+     * Flag recording whether tasks are run by virtual threads.
+     */
+    private final boolean usesVirtualThreads;
+
+    /**
+     * Permits to run CPU-bound code.
+     */
+    private final Semaphore cpuPermits;
+
+    /**
+     * Permits to have a task in execution.
+     */
+    private final Semaphore inFlightPermits;
+
+    /**
+     * Maximum number of tasks in execution.
+     */
+    private final int maxInFlight;
+
+    /**
+     * State of the task running in the current thread, if the task was
+     * submitted to an {@link ExternalWaitExecutor}.
+     */
+    private static final ThreadLocal<WaitState> STATE =
+            new ThreadLocal<WaitState>();
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Per-thread state of a task run by an {@link ExternalWaitExecutor}.
+     */
+    private static class WaitState
+    {
+        /**
+         * The executor running the task.
+         */
+        final ExternalWaitExecutor owner;
+
+        /**
+         * Number of calls of {@link ExternalWaitExecutor#beginExternalWait()}
+         * not yet followed by a call of
+         * {@link ExternalWaitExecutor#endExternalWait()}. The task holds a
+         * CPU permit only when this is zero.
+         */
+        int waitDepth = 0;
+
+        WaitState(ExternalWaitExecutor owner)
+        {
+            this.owner = owner;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor.
+     * @param numCPU the maximum number of tasks running CPU-bound code at
+     * any given time.
+     * @param maxInFlight the maximum number of tasks in execution, including
+     * those waiting for an external resource.
+     */
+    public ExternalWaitExecutor(int numCPU, int maxInFlight)
+    {
+        this(numCPU, maxInFlight, StaticLogger.appLogger);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor.
+     * @param numCPU the maximum number of tasks running CPU-bound code at
+     * any given time.
+     * @param maxInFlight the maximum number of tasks in execution, including
+     * those waiting for an external resource.
+     * @param logger where to log the warning about the lack of virtual 
+     * threads.
+     */
+    public ExternalWaitExecutor(int numCPU, int maxInFlight, Logger logger)
+    {
+        if (numCPU < 1 || maxInFlight < 1)
+        {
+            throw new IllegalArgumentException("Number of CPUs (" + numCPU
+                    + ") and maximum number of tasks in execution ("
+                    + maxInFlight + ") must be positive.");
+        }
+        this.cpuPermits = new Semaphore(numCPU);
+        this.maxInFlight = Math.max(numCPU, maxInFlight);
+        this.inFlightPermits = new Semaphore(this.maxInFlight);
+
+        ExecutorService virtual = null;
+        try
+        {
+            Method m = Executors.class.getMethod(
+                    "newVirtualThreadPerTaskExecutor");
+            virtual = (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException e)
+        {
+            // Virtual threads not available in this JVM
+        }
+        this.usesVirtualThreads = virtual != null;
+        this.delegate = usesVirtualThreads ? virtual
+                : Executors.newCachedThreadPool();
+        if (!usesVirtualThreads)
+        {
+            logger.log(Level.WARNING, "Virtual threads are not available "
+                    + "in this JAVA virtual machine (JAVA 21 or later is "
+                    + "needed). Using up to " + this.maxInFlight 
+                    + " platform threads for tasks waiting for external "
+                    + "resources.");
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return <code>true</code> if tasks are run by virtual threads.
+     */
+    public boolean usesVirtualThreads()
+    {
+        return usesVirtualThreads;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the maximum number of tasks in execution.
+     */
+    public int getMaxInFlight()
+    {
+        return maxInFlight;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Submits a command for execution. This method blocks until the number
+     * of tasks in execution is lower than the maximum.
+     */
+    @Override
+    public void execute(Runnable command)
+    {
+        if (delegate.isShutdown())
+        {
+            throw new RejectedExecutionException("Executor has been shut "
+                    + "down.");
+        }
+        try
+        {
+            inFlightPermits.acquire();
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting "
+                    + "to submit task.", e);
+        }
+        try
+        {
+            delegate.execute(new Runnable() {
+                @Override
+                public void run()
+                {
+                    runHoldingCPU(command);
+                }
+            });
+        } catch (RejectedExecutionException e)
+        {
+            inFlightPermits.release();
+            throw e;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private void runHoldingCPU(Runnable command)
+    {
+        try
+        {
+            try
+            {
+                cpuPermits.acquire();
+            } catch (InterruptedException e)
+            {
+                // The task was cancelled or the executor shut down before
+                // the task could start.
+                if (command instanceof Future)
+                    ((Future<?>) command).cancel(false);
+                return;
+            }
+            WaitState previous = STATE.get();
+            WaitState state = new WaitState(this);
+            STATE.set(state);
+            try
+            {
+                command.run();
+            } finally {
+                if (previous == null)
+                    STATE.remove();
+                else
+                    STATE.set(previous);
+                // A task ending while declared as waiting has already
+                // released its CPU permit.
+                if (state.waitDepth == 0)
+                    cpuPermits.release();
+            }
+        } finally {
+            inFlightPermits.release();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Declares that the current thread is about to wait for an external
+     * resource, so that its CPU permit can be used by another task.
+     * Has no effect if the current thread is not running a task
+     * submitted to an {@link ExternalWaitExecutor}. Each call must be
+     * followed by a call to {@link #endExternalWait()}, typically in a
+     * <code>finally</code> block. Calls can be nested, in which case only
+     * the outermost call releases the CPU permit.
+     */
+    public static void beginExternalWait()
+    {
+        WaitState state = STATE.get();
+        if (state == null)
+            return;
+        state.waitDepth++;
+        if (state.waitDepth == 1)
+            state.owner.cpuPermits.release();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Declares that the current thread has finished waiting for an external
+     * resource. Only the call matching the outermost call of 
+     * {@link #beginExternalWait()} blocks until a CPU permit is available.
+     * Has no effect if the current thread is not running a task
+     * submitted to an {@link ExternalWaitExecutor}, or if the current thread
+     * is not declared as waiting, so unmatched calls are harmless.
+     */
+    public static void endExternalWait()
+    {
+        WaitState state = STATE.get();
+        if (state == null || state.waitDepth == 0)
+            return;
+        state.waitDepth--;
+        if (state.waitDepth == 0)
+            state.owner.cpuPermits.acquireUninterruptibly();
+    }
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public void shutdown()
+    {
+        delegate.shutdown();
+    }
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public List<Runnable> shutdownNow()
+    {
+        return delegate.shutdownNow();
+    }
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public boolean isShutdown()
+    {
+        return delegate.isShutdown();
+    }
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public boolean isTerminated()
+    {
+        return delegate.isTerminated();
+    }
+
+//------------------------------------------------------------------------------
+
+    @Override
+    public boolean awaitTermination(long timeout, TimeUnit unit)
+            throws InterruptedException
+    {
+        return delegate.awaitTermination(timeout, unit);
+    }
+
+//------------------------------------------------------------------------------
+
+}
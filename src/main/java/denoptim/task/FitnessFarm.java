@@ -0,0 +1,862 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.task;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.net.SocketTimeoutException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingDeque;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParseException;
+
+import denoptim.exception.DENOPTIMException;
+
+/**
+ * The master side of a distributed fitness evaluation farm. The farm
+ * listens on a TCP port for connections from worker JVMs (see
+ * {@link denoptim.programs.farmworker.FarmWorker}), and assigns to them the
+ * fitness evaluations requested by the tasks running in this JVM.
+ * <p>The protocol is line-based: each message is a JSON object written on
+ * a single line, and with member <code>TYPE</code> defining the kind of
+ * message. Upon connection, the worker sends a {@value #HELLO} message with
+ * the key identifying its fitness settings
+ * (see {@link denoptim.fitness.FitnessParameters#getFitnessCacheKey()})
+ * and, if the farm requires one, the shared <code>TOKEN</code>.
+ * Workers with fitness settings different from those of the master, or 
+ * without the right token, are
+ * rejected with a {@value #REJECTED} message, the others are welcomed with
+ * a {@value #WELCOME} message. Then, the worker pulls work by sending
+ * {@value #REQUEST} messages, and the master answers with a {@value #JOB}
+ * message:</p>
+ * <pre>
+ * {"TYPE": "JOB", "JOBID": 1, "TASKID": 123, "NAME": "M00000123",
+ *  "UID": "...", "GRAPH": "graph as JSON", "MOL": "content of SDF file"}
+ * </pre>
+ * <p>Once the evaluation is done, the worker answers with a
+ * {@value #RESULT} message containing the same <code>JOBID</code> and
+ * either <code>"STATUS": "SUCCESS"</code> and the content of the SDF file
+ * produced by the fitness provider as <code>MOL</code>, or
+ * <code>"STATUS": "FAILURE"</code> and an <code>ERROR</code>.
+ * The worker sends {@value #HEARTBEAT} messages at regular intervals.
+ * Workers that do not send any message within the heartbeat timeout, or that
+ * disconnect, are considered dead, and the job they were working on (if any)
+ * is assigned to another worker, unless the job has already been
+ * re-assigned the maximum number of times. Since heartbeats are sent 
+ * independently from the evaluation, a worker that keeps beating while its 
+ * evaluation hangs is disconnected when the job exceeds the job time limit,
+ * if any, and the job is re-assigned in the same way. 
+ * When the farm is shut down, workers receive a {@value #STOP} message.</p>
+ * <p>The protocol is neither encrypted nor authenticated beyond the 
+ * optional shared token, which is sent in clear text. Therefore, the farm
+ * listens on the loopback interface unless told otherwise, and it should 
+ * be exposed only on trusted networks.</p>
+ *
+ * @author Marco Foscato
+ */
+
+public class FitnessFarm
+{
+    /**
+     * Type of message sent by workers upon connection.
+     */
+    public static final String HELLO = "HELLO";
+
+    /**
+     * Type of message accepting a worker.
+     */
+    public static final String WELCOME = "WELCOME";
+
+    /**
+     * Type of message rejecting a worker.
+     */
+    public static final String REJECTED = "REJECTED";
+
+    /**
+     * Type of message sent by workers asking for a job.
+     */
+    public static final String REQUEST = "REQUEST";
+
+    /**
+     * Type of message assigning a job to a worker.
+     */
+    public static final String JOB = "JOB";
+
+    /**
+     * Type of message reporting the results of a job.
+     */
+    public static final String RESULT = "RESULT";
+
+    /**
+     * Type of message sent by workers to signal they are alive.
+     */
+    public static final String HEARTBEAT = "HEARTBEAT";
+
+    /**
+     * Type of message asking workers to stop.
+     */
+    public static final String STOP = "STOP";
+
+    /**
+     * The socket accepting connections from workers.
+     */
+    private final ServerSocket serverSocket;
+
+    /**
+     * Maximum time (milliseconds) without any message from a worker before
+     * the worker is considered dead. Non-positive values mean no limit.
+     */
+    private final long heartbeatTimeoutMillis;
+
+    /**
+     * Maximum time (milliseconds) a worker is given to complete a job before
+     * the worker is considered dead. Non-positive values mean no limit.
+     */
+    private final long jobTimeoutMillis;
+
+    /**
+     * Maximum number of times a job is re-assigned after the death of the
+     * worker it was assigned to.
+     */
+    private final int maxRetries;
+
+    /**
+     * Token that workers must present to be accepted, or <code>null</code>
+     * to accept workers without any token.
+     */
+    private final String token;
+
+    /**
+     * Key identifying the fitness settings that workers must have, or
+     * <code>null</code> to accept any worker.
+     */
+    private final String fitnessKey;
+
+    /**
+     * Logger
+     */
+    private final Logger logger;
+
+    /**
+     * Jobs waiting to be assigned to a worker.
+     */
+    private final LinkedBlockingDeque<Job> pendingJobs =
+            new LinkedBlockingDeque<Job>();
+
+    /**
+     * Workers that have asked for a job.
+     */
+    private final BlockingQueue<WorkerConnection> idleWorkers =
+            new LinkedBlockingQueue<WorkerConnection>();
+
+    /**
+     * All workers currently connected.
+     */
+    private final List<WorkerConnection> connections =
+            new ArrayList<WorkerConnection>();
+
+    /**
+     * Source of job identifiers.
+     */
+    private final AtomicLong jobCounter = new AtomicLong(0);
+
+    /**
+     * Thread assigning jobs to workers.
+     */
+    private final Thread dispatcher;
+
+    /**
+     * Thread disconnecting workers that exceed the job time limit, or
+     * <code>null</code> if there is no such limit.
+     */
+    private final Thread watchdog;
+
+    /**
+     * Hook shutting down this farm when the JVM terminates.
+     */
+    private final Thread shutdownHook;
+
+    /**
+     * Flag signaling that this farm has been shut down.
+     */
+    private volatile boolean isShutDown = false;
+
+    /**
+     * JSON converter
+     */
+    private final Gson jsonConverter = new Gson();
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor. Starts listening for workers on the loopback interface,
+     * without any job time limit, and accepting workers without token.
+     * @param port the port where to listen for workers. Use zero to let the
+     * system choose a free port (see {@link #getPort()}).
+     * @param heartbeatTimeoutMillis maximum time (milliseconds) without any
+     * message from a worker before the worker is considered dead.
+     * Use non-positive values for no time limit.
+     * @param maxRetries maximum number of times a job is re-assigned after
+     * the death of the worker it was assigned to.
+     * @param fitnessKey key identifying the fitness settings that workers
+     * must have, or <code>null</code> to accept any worker.
+     * @param logger where to log messages.
+     * @throws DENOPTIMException if the port cannot be used.
+     */
+    public FitnessFarm(int port, long heartbeatTimeoutMillis, int maxRetries,
+            String fitnessKey, Logger logger) throws DENOPTIMException
+    {
+        this(null, port, heartbeatTimeoutMillis, 0, maxRetries, fitnessKey,
+                null, logger);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Constructor. Starts listening for workers.
+     * @param bindAddress the address of the local interface where to listen
+     * for workers, <code>*</code> for any interface, or <code>null</code> 
+     * for the loopback interface.
+     * @param port the port where to listen for workers. Use zero to let the
+     * system choose a free port (see {@link #getPort()}).
+     * @param heartbeatTimeoutMillis maximum time (milliseconds) without any
+     * message from a worker before the worker is considered dead.
+     * Use non-positive values for no time limit.
+     * @param jobTimeoutMillis maximum time (milliseconds) a worker is given
+     * to complete a job before the worker is considered dead.
+     * Use non-positive values for no time limit.
+     * @param maxRetries maximum number of times a job is re-assigned after
+     * the death of the worker it was assigned to.
+     * @param fitnessKey key identifying the fitness settings that workers
+     * must have, or <code>null</code> to accept any worker.
+     * @param token the token that workers must present to be accepted, or 
+     * <code>null</code> to accept workers without any token.
+     * @param logger where to log messages.
+     * @throws DENOPTIMException if the address or the port cannot be used.
+     */
+    public FitnessFarm(String bindAddress, int port, 
+            long heartbeatTimeoutMillis, long jobTimeoutMillis, 
+            int maxRetries, String fitnessKey, String token, Logger logger) 
+                    throws DENOPTIMException
+    {
+        this.heartbeatTimeoutMillis = heartbeatTimeoutMillis;
+        this.jobTimeoutMillis = jobTimeoutMillis;
+        this.maxRetries = maxRetries;
+        this.fitnessKey = fitnessKey;
+        this.token = (token == null || token.isEmpty()) ? null : token;
+        this.logger = logger;
+        try
+        {
+            InetAddress address = InetAddress.getLoopbackAddress();
+            if ("*".equals(bindAddress))
+                address = null;
+            else if (bindAddress != null && !bindAddress.isBlank())
+                address = InetAddress.getByName(bindAddress.trim());
+            serverSocket = new ServerSocket(port, 50, address);
+        } catch (IOException e)
+        {
+            throw new DENOPTIMException("Could not listen for fitness farm "
+                    + "workers on " + (bindAddress==null ? "loopback" 
+                            : bindAddress) + ":" + port + ".", e);
+        }
+        logger.log(Level.INFO, "Fitness farm listening for workers on "
+                + serverSocket.getInetAddress().getHostAddress() + ":"
+                + serverSocket.getLocalPort() + ".");
+
+        Thread acceptor = new Thread(() -> {
+            while (!isShutDown)
+            {
+                try
+                {
+                    Socket socket = serverSocket.accept();
+                    WorkerConnection wc = new WorkerConnection(socket);
+                    synchronized (connections)
+                    {
+                        connections.add(wc);
+                    }
+                    wc.start();
+                } catch (IOException e)
+                {
+                    if (!isShutDown)
+                        logger.log(Level.WARNING, "Could not accept fitness "
+                                + "farm worker: " + e.getMessage());
+                }
+            }
+        }, "FitnessFarm-acceptor");
+        acceptor.setDaemon(true);
+        acceptor.start();
+
+        dispatcher = new Thread(() -> {
+            try
+            {
+                while (!isShutDown)
+                {
+                    Job job = pendingJobs.take();
+                    if (job.isCancelled || job.outcome.isDone())
+                        continue;
+                    WorkerConnection wc = idleWorkers.take();
+                    if (!wc.assign(job))
+                        pendingJobs.addFirst(job);
+                }
+            } catch (InterruptedException e)
+            {
+                // Farm is shutting down
+            }
+        }, "FitnessFarm-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+
+        if (jobTimeoutMillis > 0)
+        {
+            watchdog = new Thread(() -> {
+                long period = Math.min(1000, jobTimeoutMillis);
+                try
+                {
+                    while (!isShutDown)
+                    {
+                        Thread.sleep(period);
+                        disconnectOverdueWorkers();
+                    }
+                } catch (InterruptedException e)
+                {
+                    // Farm is shutting down
+                }
+            }, "FitnessFarm-watchdog");
+            watchdog.setDaemon(true);
+            watchdog.start();
+        } else {
+            watchdog = null;
+        }
+
+        shutdownHook = new Thread(() -> shutdown(), "FitnessFarm-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Disconnects the workers that have been working on the same job for
+     * longer than the job time limit. The job is then re-assigned as for 
+     * any other dead worker.
+     */
+    private void disconnectOverdueWorkers()
+    {
+        List<WorkerConnection> toCheck;
+        synchronized (connections)
+        {
+            toCheck = new ArrayList<WorkerConnection>(connections);
+        }
+        long now = System.currentTimeMillis();
+        for (WorkerConnection wc : toCheck)
+        {
+            if (wc.isOverdue(now))
+                wc.close("job not completed within " + jobTimeoutMillis 
+                        + " ms");
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the port where this farm listens for workers.
+     */
+    public int getPort()
+    {
+        return serverSocket.getLocalPort();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of workers currently connected.
+     */
+    public int getNumberOfWorkers()
+    {
+        synchronized (connections)
+        {
+            return connections.size();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Submits the evaluation of the fitness of a candidate to the farm, and
+     * waits for any worker to complete it.
+     * @param graphJson the graph of the candidate as JSON string.
+     * @param name the name of the candidate.
+     * @param uid the unique identifier of the candidate.
+     * @param inputFile pathname of the SDF file with the candidate.
+     * @param outputFile pathname of the SDF file where to write the results
+     * produced by the worker.
+     * @param taskId the identifier of the task.
+     * @throws DENOPTIMException if the worker reports a failure, if the job
+     * could not be completed by any worker within the maximum number of
+     * re-assignments, or if the farm is shut down.
+     */
+    public void evaluate(String graphJson, String name, String uid,
+            String inputFile, String outputFile, int taskId)
+                    throws DENOPTIMException
+    {
+        if (isShutDown)
+            throw new DENOPTIMException("Fitness farm has been shut down.");
+
+        JsonObject payload = new JsonObject();
+        payload.addProperty("TYPE", JOB);
+        payload.addProperty("TASKID", taskId);
+        payload.addProperty("NAME", name);
+        payload.addProperty("UID", uid);
+        payload.addProperty("GRAPH", graphJson);
+        try
+        {
+            payload.addProperty("MOL", new String(Files.readAllBytes(
+                    Paths.get(inputFile)), StandardCharsets.UTF_8));
+        } catch (IOException e)
+        {
+            throw new DENOPTIMException("Could not read input for fitness "
+                    + "farm from '" + inputFile + "'.", e);
+        }
+        Job job = new Job(jobCounter.incrementAndGet(), taskId, payload);
+        payload.addProperty("JOBID", job.id);
+        pendingJobs.add(job);
+
+        JsonObject answer;
+        try
+        {
+            answer = job.outcome.get();
+        } catch (InterruptedException e)
+        {
+            job.isCancelled = true;
+            pendingJobs.remove(job);
+            Thread.currentThread().interrupt();
+            throw new DENOPTIMException("Interrupted while waiting for "
+                    + "fitness farm.", e);
+        } catch (ExecutionException e)
+        {
+            throw new DENOPTIMException(e.getCause().getMessage(),
+                    e.getCause());
+        }
+
+        if (!answer.has("STATUS")
+                || !answer.get("STATUS").getAsString().equals("SUCCESS"))
+        {
+            String err = "";
+            if (answer.has("ERROR"))
+                err = answer.get("ERROR").getAsString();
+            throw new DENOPTIMException("Fitness farm worker failed on task "
+                    + taskId + ": " + err);
+        }
+        try
+        {
+            Files.write(Paths.get(outputFile), answer.get("MOL")
+                    .getAsString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException | NullPointerException e)
+        {
+            throw new DENOPTIMException("Could not write results from fitness "
+                    + "farm to '" + outputFile + "'.", e);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Re-assigns a job that was assigned to a dead worker, or makes it fail
+     * if it has been re-assigned too many times already.
+     */
+    private void reassign(Job job, String reason)
+    {
+        if (job.isCancelled || job.outcome.isDone())
+            return;
+        if (isShutDown)
+        {
+            job.outcome.completeExceptionally(new DENOPTIMException(
+                    "Fitness farm has been shut down."));
+            return;
+        }
+        if (job.retries >= maxRetries)
+        {
+            job.outcome.completeExceptionally(new DENOPTIMException(
+                    "Fitness evaluation of task " + job.taskId + " failed "
+                    + "after " + (job.retries+1) + " attempts. Last cause: "
+                    + reason));
+            return;
+        }
+        job.retries++;
+        logger.log(Level.WARNING, "Re-assigning fitness evaluation of task "
+                + job.taskId + " (" + reason + ").");
+        pendingJobs.addFirst(job);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Stops all workers and rejects any pending or future evaluation.
+     */
+    public void shutdown()
+    {
+        if (isShutDown)
+            return;
+        isShutDown = true;
+        try
+        {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e)
+        {
+            // The JVM is already shutting down, possibly by this very hook
+        }
+        try
+        {
+            serverSocket.close();
+        } catch (IOException e)
+        {
+            // nothing to do
+        }
+        dispatcher.interrupt();
+        if (watchdog != null)
+            watchdog.interrupt();
+        List<WorkerConnection> toClose;
+        synchronized (connections)
+        {
+            toClose = new ArrayList<WorkerConnection>(connections);
+        }
+        for (WorkerConnection wc : toClose)
+        {
+            JsonObject msg = new JsonObject();
+            msg.addProperty("TYPE", STOP);
+            wc.send(msg);
+            wc.close("farm shut down");
+        }
+        Job job;
+        while ((job = pendingJobs.poll()) != null)
+        {
+            job.outcome.completeExceptionally(new DENOPTIMException(
+                    "Fitness farm has been shut down."));
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * A fitness evaluation to be performed by a worker.
+     */
+    private static class Job
+    {
+        /**
+         * Identifier of this job in the farm.
+         */
+        private final long id;
+
+        /**
+         * Identifier of the task requesting the job.
+         */
+        private final int taskId;
+
+        /**
+         * The message sent to workers.
+         */
+        private final JsonObject payload;
+
+        /**
+         * The result of the job.
+         */
+        private final CompletableFuture<JsonObject> outcome =
+                new CompletableFuture<JsonObject>();
+
+        /**
+         * Number of times this job has been re-assigned.
+         */
+        private int retries = 0;
+
+        /**
+         * Flag signaling that nobody is waiting for this job anymore.
+         */
+        private volatile boolean isCancelled = false;
+
+    //--------------------------------------------------------------------------
+
+        private Job(long id, int taskId, JsonObject payload)
+        {
+            this.id = id;
+            this.taskId = taskId;
+            this.payload = payload;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * The connection with a single worker and the thread reading the
+     * messages from the worker.
+     */
+    private class WorkerConnection extends Thread
+    {
+        /**
+         * The socket connected to the worker.
+         */
+        private final Socket socket;
+
+        /**
+         * Writer to the worker.
+         */
+        private BufferedWriter toWorker;
+
+        /**
+         * The job assigned to the worker, or <code>null</code>.
+         */
+        private Job currentJob = null;
+
+        /**
+         * Time (milliseconds since epoch) when the current job was assigned.
+         */
+        private long assignedAt = 0;
+
+        /**
+         * Flag signaling the connection is usable.
+         */
+        private boolean isUsable = true;
+
+    //--------------------------------------------------------------------------
+
+        private WorkerConnection(Socket socket)
+        {
+            super("FitnessFarm-worker-" + socket.getRemoteSocketAddress());
+            this.socket = socket;
+            setDaemon(true);
+        }
+
+    //--------------------------------------------------------------------------
+
+        @Override
+        public void run()
+        {
+            String reason = "disconnected";
+            try
+            {
+                if (heartbeatTimeoutMillis > 0)
+                    socket.setSoTimeout((int) heartbeatTimeoutMillis);
+                toWorker = new BufferedWriter(new OutputStreamWriter(
+                        socket.getOutputStream(), StandardCharsets.UTF_8));
+                BufferedReader fromWorker = new BufferedReader(
+                        new InputStreamReader(socket.getInputStream(),
+                                StandardCharsets.UTF_8));
+
+                JsonObject hello = jsonConverter.fromJson(
+                        fromWorker.readLine(), JsonObject.class);
+                if (hello == null || !HELLO.equals(getType(hello)))
+                {
+                    reason = "no " + HELLO + " message";
+                    return;
+                }
+                if (token != null && (!hello.has("TOKEN")
+                        || !MessageDigest.isEqual(
+                                token.getBytes(StandardCharsets.UTF_8),
+                                hello.get("TOKEN").getAsString().getBytes(
+                                        StandardCharsets.UTF_8))))
+                {
+                    JsonObject msg = new JsonObject();
+                    msg.addProperty("TYPE", REJECTED);
+                    msg.addProperty("ERROR", "Missing or wrong token.");
+                    send(msg);
+                    reason = "missing or wrong token";
+                    return;
+                }
+                if (fitnessKey != null && (!hello.has("FITNESSKEY")
+                        || !fitnessKey.equals(
+                                hello.get("FITNESSKEY").getAsString())))
+                {
+                    JsonObject msg = new JsonObject();
+                    msg.addProperty("TYPE", REJECTED);
+                    msg.addProperty("ERROR", "Fitness settings of the worker "
+                            + "differ from those of the master.");
+                    send(msg);
+                    reason = "inconsistent fitness settings";
+                    return;
+                }
+                JsonObject welcome = new JsonObject();
+                welcome.addProperty("TYPE", WELCOME);
+                send(welcome);
+                logger.log(Level.INFO, "Fitness farm worker connected from "
+                        + socket.getRemoteSocketAddress() + ".");
+
+                String line;
+                while ((line = fromWorker.readLine()) != null)
+                {
+                    JsonObject msg = jsonConverter.fromJson(line,
+                            JsonObject.class);
+                    if (msg == null)
+                        continue;
+                    switch (getType(msg))
+                    {
+                        case HEARTBEAT:
+                            break;
+                        case REQUEST:
+                            idleWorkers.add(this);
+                            break;
+                        case RESULT:
+                            takeResult(msg);
+                            break;
+                        default:
+                            logger.log(Level.FINE, "Ignoring message from "
+                                    + "fitness farm worker: " + line);
+                    }
+                }
+            } catch (SocketTimeoutException e)
+            {
+                reason = "no heartbeat within " + heartbeatTimeoutMillis
+                        + " ms";
+            } catch (IOException | JsonParseException e)
+            {
+                reason = e.getMessage();
+            } finally {
+                close(reason);
+            }
+        }
+
+    //--------------------------------------------------------------------------
+
+        private String getType(JsonObject msg)
+        {
+            return msg.has("TYPE") ? msg.get("TYPE").getAsString() : "";
+        }
+
+    //--------------------------------------------------------------------------
+
+        /**
+         * Sends the job to the worker.
+         * @return <code>false</code> if the worker was not usable, so the job
+         * has to be assigned to another worker.
+         */
+        private synchronized boolean assign(Job job)
+        {
+            if (!isUsable)
+                return false;
+            currentJob = job;
+            assignedAt = System.currentTimeMillis();
+            send(job.payload);
+            return true;
+        }
+
+    //--------------------------------------------------------------------------
+
+        /**
+         * @param now the current time (milliseconds since epoch).
+         * @return <code>true</code> if the worker has been working on its 
+         * current job for longer than the job time limit.
+         */
+        private synchronized boolean isOverdue(long now)
+        {
+            return jobTimeoutMillis > 0 && currentJob != null
+                    && now - assignedAt > jobTimeoutMillis;
+        }
+
+    //--------------------------------------------------------------------------
+
+        private synchronized void takeResult(JsonObject msg)
+        {
+            if (currentJob != null && msg.has("JOBID")
+                    && msg.get("JOBID").getAsLong() == currentJob.id)
+            {
+                Job job = currentJob;
+                currentJob = null;
+                job.outcome.complete(msg);
+            }
+        }
+
+    //--------------------------------------------------------------------------
+
+        private synchronized void send(JsonObject msg)
+        {
+            if (toWorker == null)
+                return;
+            try
+            {
+                toWorker.write(jsonConverter.toJson(msg));
+                toWorker.newLine();
+                toWorker.flush();
+            } catch (IOException e)
+            {
+                // The reading thread will notice the broken connection
+                try
+                {
+                    socket.close();
+                } catch (IOException e1)
+                {
+                    // nothing to do
+                }
+            }
+        }
+
+    //--------------------------------------------------------------------------
+
+        private void close(String reason)
+        {
+            Job orphan;
+            synchronized (this)
+            {
+                if (!isUsable)
+                    return;
+                isUsable = false;
+                orphan = currentJob;
+                currentJob = null;
+                try
+                {
+                    socket.close();
+                } catch (IOException e)
+                {
+                    // nothing to do
+                }
+            }
+            idleWorkers.remove(this);
+            synchronized (connections)
+            {
+                connections.remove(this);
+            }
+            if (!isShutDown)
+            {
+                logger.log(Level.WARNING, "Lost fitness farm worker "
+                        + socket.getRemoteSocketAddress() + ": " + reason);
+            }
+            if (orphan != null)
+                reassign(orphan, reason);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -21,11 +21,17 @@ package denoptim.task;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
 import java.util.logging.Level;
 
 import org.apache.commons.io.FileUtils;
 import org.openscience.cdk.Atom;
 import org.openscience.cdk.AtomContainer;
+import org.openscience.cdk.CDKConstants;
 import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IChemObjectBuilder;
 import org.openscience.cdk.silent.SilentChemObjectBuilder;
@@ -33,6 +39,7 @@ import org.openscience.cdk.silent.SilentChemObjectBuilder;
 import denoptim.combinatorial.GraphBuildingTask;
 import denoptim.constants.DENOPTIMConstants;
 import denoptim.exception.DENOPTIMException;
+import denoptim.fitness.FitnessCache;
 import denoptim.fitness.FitnessParameters;
 import denoptim.fitness.FitnessProvider;
 import denoptim.graph.Candidate;
@@ -103,6 +110,28 @@ public abstract class FitnessTask extends Task
      * Settings for the calculation of the fitness
      */
     protected FitnessParameters fitnessSettings;
+    
+    /**
+     * Flag recording that the outcome of the last evaluation of the fitness
+     * depends only on the candidate and can be stored for later reuse.
+     */
+    private boolean resultIsCacheable = false;
+    
+    /**
+     * Properties that are never stored in nor taken from the fitness cache 
+     * because they are specific of the candidate, not of its fitness.
+     */
+    private static final Set<Object> PROPSNOTCACHED = new HashSet<Object>(
+            Arrays.asList(DENOPTIMConstants.FITNESSTAG,
+                    DENOPTIMConstants.MOLERRORTAG,
+                    DENOPTIMConstants.UNIQUEIDTAG,
+                    DENOPTIMConstants.INCHIKEYTAG,
+                    DENOPTIMConstants.SMILESTAG,
+                    DENOPTIMConstants.GCODETAG,
+                    DENOPTIMConstants.GRAPHTAG,
+                    DENOPTIMConstants.GRAPHJSONTAG,
+                    DENOPTIMConstants.PROVENANCE,
+                    CDKConstants.TITLE));
 
 //------------------------------------------------------------------------------
     
@@ -142,9 +171,30 @@ public abstract class FitnessTask extends Task
         	fitProvMol.removeProperty(DENOPTIMConstants.PROVENANCE);
         }
         
+        // Reuse the results of any previous evaluation of the same candidate
+        FitnessCache cache = fitnessSettings.getFitnessCache();
+        String cacheUID = null;
+        FitnessCache.Entry cached = null;
+        Map<Object,Object> propsBeforeEvaluation = null;
+        if (cache != null)
+        {
+            cacheUID = getUIDForFitnessCache();
+            if (cacheUID != null)
+            {
+                cached = cache.lookup(fitnessSettings.getFitnessCacheKey(), 
+                        cacheUID);
+                propsBeforeEvaluation = new HashMap<Object,Object>(
+                        fitProvMol.getProperties());
+            }
+        }
+        
         // Run fitness provider
         boolean status = false;
-        if (fitnessSettings.useExternalFitness()) {
+        resultIsCacheable = false;
+        if (cached != null) {
+            status = useCachedResult(cached);
+        } else if (fitnessSettings.useExternalFitness() 
+                || fitnessSettings.useFitnessFarm()) {
             // Write file with input data to fitness provider
             DenoptimIO.writeSDFFile(fitProvInputFile, fitProvMol, false);
 
@@ -157,10 +207,19 @@ public abstract class FitnessTask extends Task
             status = runInternalFitness();
         }
         
+        if (cached == null && cacheUID != null && resultIsCacheable)
+        {
+            storeInFitnessCache(cache, cacheUID, propsBeforeEvaluation);
+        }
+        
         // Write the FIT file
         result.setChemicalRepresentation(fitProvMol);
+        // NB: with cached results, no external fitness provider has
+        // written the output file.
         if (this instanceof GraphBuildingTask 
-                || fitnessSettings.writeCandidatesOnDisk())
+                || fitnessSettings.writeCandidatesOnDisk()
+                || (cached != null && (fitnessSettings.useExternalFitness()
+                        || fitnessSettings.useFitnessFarm())))
         {
             DenoptimIO.writeCandidateToFile(new File(fitProvOutFile), result, 
                     false);
@@ -208,26 +267,67 @@ public abstract class FitnessTask extends Task
             sb.append(" ").append(fitProvUIDFile);
         }
         
-        String msg = "Calling external fitness provider: => " + sb + NL;
-        fitnessSettings.getLogger().log(Level.INFO, msg);
-
-        // run the process
-        processHandler = new ProcessHandler(sb.toString(),Integer.toString(id));
-
-        processHandler.runProcess();
-        if (processHandler.getExitCode() != 0)
+        String msg = "";
+        if (fitnessSettings.useFitnessFarm())
         {
-            msg = "Failed to execute fitness provider " 
-                + fitnessSettings.getExternalFitnessProviderInterpreter()
-                    .toString()
-		        + " command '" + fitnessSettings.getExternalFitnessProvider()
-		        + "' on " + fitProvInputFile;
-            fitnessSettings.getLogger().severe(msg);
-            fitnessSettings.getLogger().severe(
-            		processHandler.getErrorOutput());
-            throw new DENOPTIMException(msg);
+            msg = "Submitting to fitness farm: => " + fitProvInputFile + NL;
+            fitnessSettings.getLogger().log(Level.INFO, msg);
+            
+            // the output file is then processed as for the process below
+            ExternalWaitExecutor.beginExternalWait();
+            try
+            {
+                fitnessSettings.getFitnessFarm().evaluate(dGraph.toJson(),
+                        result.getName(), result.getUID(), fitProvInputFile,
+                        fitProvOutFile, id);
+            } finally {
+                ExternalWaitExecutor.endExternalWait();
+            }
+        } else if (fitnessSettings.usePersistentFitnessWorkers())
+        {
+            msg = "Submitting to external fitness provider workers: => " + sb 
+                    + NL;
+            fitnessSettings.getLogger().log(Level.INFO, msg);
+            
+            // the output file is then processed as for the process below
+            ExternalWaitExecutor.beginExternalWait();
+            try
+            {
+                fitnessSettings.getFitnessWorkerPool().evaluate(
+                        fitProvInputFile, fitProvOutFile, workDir.toString(),
+                        id, fitProvUIDFile);
+            } finally {
+                ExternalWaitExecutor.endExternalWait();
+            }
+        } else {
+            msg = "Calling external fitness provider: => " + sb + NL;
+            fitnessSettings.getLogger().log(Level.INFO, msg);
+    
+            // run the process
+            processHandler = new ProcessHandler(sb.toString(),
+                    Integer.toString(id));
+    
+            ExternalWaitExecutor.beginExternalWait();
+            try
+            {
+                processHandler.runProcess();
+            } finally {
+                ExternalWaitExecutor.endExternalWait();
+            }
+            if (processHandler.getExitCode() != 0)
+            {
+                msg = "Failed to execute fitness provider " 
+                    + fitnessSettings.getExternalFitnessProviderInterpreter()
+                        .toString()
+    		        + " command '" + fitnessSettings.getExternalFitnessProvider()
+    		        + "' on " + fitProvInputFile;
+                fitnessSettings.getLogger().severe(msg);
+                fitnessSettings.getLogger().severe(
+                		processHandler.getErrorOutput());
+                throw new DENOPTIMException(msg);
+            }
+            processHandler = null;
         }
-        processHandler = null;
         
         // Read results from fitness provider
         IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
@@ -313,6 +413,7 @@ public abstract class FitnessTask extends Task
 
             result.setChemicalRepresentation(processedMol);
             result.setError(err);
+            resultIsCacheable = true;
             return false;
         }
         
@@ -371,6 +472,7 @@ public abstract class FitnessTask extends Task
             fitProvMol = processedMol;
             result.setChemicalRepresentation(processedMol);
             result.setFitness(fitVal);
+            resultIsCacheable = true;
         } else {
             if (fitnessIsRequired)
             {
@@ -443,10 +545,98 @@ public abstract class FitnessTask extends Task
         } else {
             result.setFitness(fitVal);
         }
+        resultIsCacheable = true;
         
 		return true;
 	}
 
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the unique identifier of the candidate to be used to identify 
+     * it in the fitness cache, or <code>null</code> if no such identifier is
+     * available.
+     */
+    private String getUIDForFitnessCache()
+    {
+        String uid = result.getUID();
+        if (uid == null || uid.isBlank() || uid.equals("UNDEFINED"))
+        {
+            Object prop = fitProvMol.getProperty(DENOPTIMConstants.UNIQUEIDTAG);
+            if (prop == null)
+                prop = fitProvMol.getProperty(DENOPTIMConstants.INCHIKEYTAG);
+            uid = prop == null ? null : prop.toString().trim();
+        }
+        if (uid == null || uid.isBlank() || uid.equals("UNDEFINED"))
+            return null;
+        return uid;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Sets the results stored in the fitness cache as if they were 
+     * produced by the fitness provider.
+     * @param cached the results from the cache.
+     * @return <code>true</code> if the cached results contain a fitness value.
+     */
+    private boolean useCachedResult(FitnessCache.Entry cached)
+    {
+        fitnessSettings.getLogger().log(Level.FINE, "Taking fitness of " 
+                + result.getName() + " from fitness cache." + NL);
+        for (Map.Entry<String,String> prop : cached.getProperties().entrySet())
+        {
+            fitProvMol.setProperty(prop.getKey(), prop.getValue());
+        }
+        if (cached.hasFitness())
+        {
+            fitProvMol.setProperty(DENOPTIMConstants.FITNESSTAG, 
+                    cached.getFitness());
+            result.setFitness(cached.getFitness());
+            return true;
+        }
+        fitProvMol.setProperty(DENOPTIMConstants.MOLERRORTAG, 
+                cached.getError());
+        result.setError(cached.getError());
+        return false;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Stores the results of the fitness evaluation in the fitness cache.
+     * @param cache the cache.
+     * @param uid the identifier of the candidate in the cache.
+     * @param propsBefore the properties of the molecular representation 
+     * before the evaluation of the fitness. Only properties that have been
+     * added or changed by the fitness provider are stored.
+     */
+    private void storeInFitnessCache(FitnessCache cache, String uid, 
+            Map<Object,Object> propsBefore) throws DENOPTIMException
+    {
+        Map<String,String> newProps = new HashMap<String,String>();
+        for (Map.Entry<Object,Object> prop : fitProvMol.getProperties()
+                .entrySet())
+        {
+            if (prop.getValue() == null 
+                    || PROPSNOTCACHED.contains(prop.getKey())
+                    || prop.getValue().equals(propsBefore.get(prop.getKey())))
+                continue;
+            newProps.put(prop.getKey().toString(), prop.getValue().toString());
+        }
+        
+        FitnessCache.Entry entry = null;
+        if (result.hasFitness())
+        {
+            entry = new FitnessCache.Entry(result.getFitness(), newProps);
+        } else if (result.getError() != null) {
+            entry = new FitnessCache.Entry(result.getError(), newProps);
+        } else {
+            return;
+        }
+        cache.store(fitnessSettings.getFitnessCacheKey(), uid, entry);
+    }
+
 //------------------------------------------------------------------------------
 
 }
@@ -18,7 +18,6 @@
 
 package denoptim.task;
 
-import java.io.IOException;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
@@ -31,8 +30,8 @@ import denoptim.exception.DENOPTIMException;
  */
 public class ProcessHandler
 {
-    private int exitCode;
-    private transient Process proc = null;
+    private int exitCode = -1;
+    private transient volatile Process proc = null;
 
     /**
      * Content of the standard output for the process.
@@ -61,190 +60,74 @@ public class ProcessHandler
         this.id = id;
     }
     
-  //------------------------------------------------------------------------------
+//------------------------------------------------------------------------------
 
     /**
-     * Run the process associated with the command from BASH
-     * http://www.javaworld.com/javaworld/jw-12-2000/jw-1229-traps.html?page=4
-     * For any Process, the input and error streams must read even if the data
-     * written to these streams is not used by the application. The generally
-     * accepted solution for this problem is a stream gobbler thread that does
-     * nothing but consume data from an input stream until stopped.
+     * Run the process associated with the command from BASH.
+     * The process is run under the control of the {@link ProcessSupervisor},
+     * which drains the output and error streams, and destroys the process
+     * in case of shutdown of the JVM.
      * @throws DENOPTIMException 
-     * @throws Exception
      */
 
     public void runProcessInBASH() throws DENOPTIMException
     {
-        try
-        {
-            ProcessBuilder pb = new ProcessBuilder("/bin/bash", "-c", cmdStr);
-            proc = pb.start();
-
-            Runtime.getRuntime().addShutdownHook(new Thread()
-            {
-                @Override
-                public void run()
-                {
-                    proc.destroy();
-                }
-            });
-
-            // Any error message?
-            StreamGobbler errorGobbler =
-                    new StreamGobbler(proc.getErrorStream(), "ERR");
-
-            // Any output?
-            StreamGobbler outputGobbler =
-                    new StreamGobbler(proc.getInputStream(), "OUT");
-
-            errorGobbler.start();
-            outputGobbler.start();
-
-            errorGobbler.join();
-            outputGobbler.join();
-
-            exitCode = proc.waitFor();
-
-            standardOutput = outputGobbler.getMessages();
-            outputGobbler.sb.setLength(0);
-            errorOutput = errorGobbler.getMessages();
-            errorGobbler.sb.setLength(0);
-
-        }
-        catch(IllegalArgumentException iae)
-        {
-            if (proc!=null)
-                proc.destroy();
-            throw new DENOPTIMException(iae);
-        }
-        catch(NullPointerException npe)
-        {
-            if (proc!=null)
-                proc.destroy();
-            throw  new DENOPTIMException(npe);
-        }
-        catch(IOException ioe)
-        {
-            if (proc!=null)
-                proc.destroy();
-            throw  new DENOPTIMException(ioe);
-        }
-        catch(Exception e)
-        {
-            if (proc!=null)
-                proc.destroy();
-            throw  new DENOPTIMException(e);
-        }
-        finally
-        {
-            if (proc != null)
-            {
-                try {
-                    proc.getOutputStream().close();
-                    proc.getInputStream().close();
-                    proc.getErrorStream().close();
-                    proc.destroy();
-                } catch (IOException e) {
-                    e.printStackTrace();
-                }
-            }
-        }
+        run(new ProcessBuilder("/bin/bash", "-c", cmdStr));
     }
 
 //------------------------------------------------------------------------------
 
     /**
      * Run the process associated with the command.
-     * http://www.javaworld.com/javaworld/jw-12-2000/jw-1229-traps.html?page=4
-     * For any Process, the input and error streams must read even if the data
-     * written to these streams is not used by the application. The generally
-     * accepted solution for this problem is a stream gobbler thread that does
-     * nothing but consume data from an input stream until stopped.
+     * The process is run under the control of the {@link ProcessSupervisor},
+     * which drains the output and error streams, and destroys the process
+     * in case of shutdown of the JVM.
      * @throws DENOPTIMException 
-     * @throws Exception
      */
 
     public void runProcess() throws DENOPTIMException
     {
-        try
-        {
-            List<String> command = new ArrayList<String>(Arrays.asList(
-                    cmdStr.split("\\s+")));
-            ProcessBuilder pb = new ProcessBuilder(command);
-            //NB: this leads to an IOException with the following message:
-            // CreateProcess error=2, The system cannot find the file specified
-            //ProcessBuilder pb = new ProcessBuilder(cmdStr);
-            proc = pb.start();
-
-            Runtime.getRuntime().addShutdownHook(new Thread()
-            {
-                @Override
-                public void run()
-                {
-                    proc.destroy();
-                }
-            });
-
-            // Any error message?
-            StreamGobbler errorGobbler =
-                    new StreamGobbler(proc.getErrorStream(), "ERR");
-
-            // Any output?
-            StreamGobbler outputGobbler =
-                    new StreamGobbler(proc.getInputStream(), "OUT");
-
-            errorGobbler.start();
-            outputGobbler.start();
-
-            errorGobbler.join();
-            outputGobbler.join();
-
-            exitCode = proc.waitFor();
+        List<String> command = new ArrayList<String>(Arrays.asList(
+                cmdStr.split("\\s+")));
+        //NB: this leads to an IOException with the following message:
+        // CreateProcess error=2, The system cannot find the file specified
+        //ProcessBuilder pb = new ProcessBuilder(cmdStr);
+        run(new ProcessBuilder(command));
+    }
 
-            standardOutput = outputGobbler.getMessages();
-            outputGobbler.sb.setLength(0);
-            errorOutput = errorGobbler.getMessages();
-            errorGobbler.sb.setLength(0);
+//------------------------------------------------------------------------------
 
-        }
-        catch(IllegalArgumentException iae)
-        {
-            if (proc!=null)
-                proc.destroy();
-            throw new DENOPTIMException(iae);
-        }
-        catch(NullPointerException npe)
+    private void run(ProcessBuilder pb) throws DENOPTIMException
+    {
+        StreamGobbler outputGobbler = new StreamGobbler("OUT");
+        StreamGobbler errorGobbler = new StreamGobbler("ERR");
+        try
         {
-            if (proc!=null)
-                proc.destroy();
-            throw  new DENOPTIMException(npe);
+            ProcessSupervisor supervisor = ProcessSupervisor.getInstance();
+            proc = supervisor.start(pb);
+            exitCode = supervisor.supervise(proc, outputGobbler, 
+                    errorGobbler);
         }
-        catch(IOException ioe)
+        catch(InterruptedException ie)
         {
-            if (proc!=null)
-                proc.destroy();
-            throw  new DENOPTIMException(ioe);
+            Thread.currentThread().interrupt();
+            throw new DENOPTIMException(ie);
         }
         catch(Exception e)
         {
-            if (proc!=null)
-                proc.destroy();
-            throw  new DENOPTIMException(e);
+            throw new DENOPTIMException(e);
         }
         finally
         {
-            if (proc != null)
+            proc = null;
+            // Keep the entire output of failed processes for inspection
+            if (exitCode == 0)
             {
-                try {
-					proc.getOutputStream().close();
-					proc.getInputStream().close();
-					proc.getErrorStream().close();
-					proc.destroy();
-				} catch (IOException e) {
-					e.printStackTrace();
-				}
+                outputGobbler.deleteSpillFile();
+                errorGobbler.deleteSpillFile();
             }
+            standardOutput = outputGobbler.getMessages();
+            errorOutput = errorGobbler.getMessages();
         }
     }
   
@@ -285,21 +168,15 @@ public class ProcessHandler
 
 //------------------------------------------------------------------------------
 
+    /**
+     * Destroys the process, if it is running.
+     */
     public void stopProcess()
     {
-        try
-        {
-            if (proc != null)
-            {
-                proc.getOutputStream().close();
-                proc.getInputStream().close();
-                proc.getErrorStream().close();
-                proc.destroy();
-            }
-        }
-        catch (Throwable t)
+        Process p = proc;
+        if (p != null)
         {
-            // do nothing
+            p.destroy();
         }
     }
 
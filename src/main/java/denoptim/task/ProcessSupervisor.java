@@ -0,0 +1,353 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.task;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import denoptim.logging.CounterID;
+import denoptim.logging.Monitor;
+
+/**
+ * Supervisor of all the external processes launched by DENOPTIM.
+ * <p>This singleton keeps the registry of live child processes, which are
+ * all destroyed by one single shutdown hook, and a pool of reusable threads
+ * that drain the output streams of the child processes. For each completed
+ * process, the supervisor records the wall-clock time and the peak
+ * resident set size (RSS, where the platform allows to sample it) of the
+ * process and its descendants. These data are collected in global counters
+ * and reported to any {@link Monitor} registered via
+ * {@link #addMonitor(Monitor)}.</p>
+ * <p>The peak RSS is sampled when the process starts and then every 
+ * {@value #SAMPLINGINTERVAL} milliseconds. Each sample reads the 
+ * high-water mark of each process, so peaks occurring between samples 
+ * are not missed. However, processes that terminate before being sampled 
+ * (e.g., short-lived descendants) are not accounted for.</p>
+ *
+ * @author Marco Foscato
+ */
+
+public class ProcessSupervisor
+{
+    /**
+     * The only instance of this class.
+     */
+    private static final ProcessSupervisor INSTANCE = new ProcessSupervisor();
+
+    /**
+     * Time interval (milliseconds) between samplings of the memory used by
+     * a running process.
+     */
+    private static final long SAMPLINGINTERVAL = 500;
+
+    /**
+     * Live child processes.
+     */
+    private final Set<Process> liveProcesses = ConcurrentHashMap.newKeySet();
+
+    /**
+     * Pool of threads draining the output of child processes. Threads are
+     * reused, so launching many short processes does not create as many
+     * threads.
+     */
+    private final ExecutorService drainers;
+
+    /**
+     * Monitors to be informed about completed processes. Each monitor
+     * instance must be informed once, so we collect them by identity.
+     */
+    private final Set<Monitor> monitors = Collections.synchronizedSet(
+            Collections.newSetFromMap(new IdentityHashMap<Monitor,Boolean>()));
+
+    /**
+     * Number of completed processes.
+     */
+    private final AtomicLong numProcesses = new AtomicLong();
+
+    /**
+     * Total wall-clock time (milliseconds) of completed processes.
+     */
+    private final AtomicLong totalWallMillis = new AtomicLong();
+
+    /**
+     * Largest peak RSS (kB) observed among completed processes.
+     */
+    private final AtomicLong maxPeakRSS = new AtomicLong();
+
+//------------------------------------------------------------------------------
+
+    private ProcessSupervisor()
+    {
+        drainers = Executors.newCachedThreadPool(new ThreadFactory() {
+            private final AtomicInteger counter = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r)
+            {
+                Thread t = new Thread(r, "DENOPTIM-ProcessOutput-"
+                        + counter.incrementAndGet());
+                t.setDaemon(true);
+                return t;
+            }
+        });
+        Runtime.getRuntime().addShutdownHook(new Thread(
+                () -> destroyAll(), "DENOPTIM-ProcessSupervisor-Hook"));
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the process supervisor.
+     */
+    public static ProcessSupervisor getInstance()
+    {
+        return INSTANCE;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Starts a process and adds it to the registry of live processes.
+     * Any process started by this method must then be given to
+     * {@link #supervise(Process, StreamGobbler, StreamGobbler)}.
+     * @param pb the builder of the process to run.
+     * @return the process.
+     * @throws IOException if the process cannot be started.
+     */
+    public Process start(ProcessBuilder pb) throws IOException
+    {
+        Process proc = pb.start();
+        liveProcesses.add(proc);
+        return proc;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Drains the output of a process started by {@link #start(ProcessBuilder)}
+     * and waits for its completion.
+     * @param proc the process to supervise.
+     * @param outCapture collector of the standard output.
+     * @param errCapture collector of the error output.
+     * @return the exit code of the process.
+     * @throws InterruptedException if the waiting thread is interrupted. In
+     * this case the process is destroyed.
+     */
+    public int supervise(Process proc, StreamGobbler outCapture,
+            StreamGobbler errCapture) throws InterruptedException
+    {
+        long start = System.nanoTime();
+        long peakRSS = 0;
+        try
+        {
+            outCapture.setStream(proc.getInputStream());
+            errCapture.setStream(proc.getErrorStream());
+            Future<?> outFuture = drainers.submit(outCapture);
+            Future<?> errFuture = drainers.submit(errCapture);
+
+            do
+            {
+                peakRSS = Math.max(peakRSS, getPeakRSS(proc.toHandle()));
+            } while (!proc.waitFor(SAMPLINGINTERVAL, TimeUnit.MILLISECONDS));
+            try
+            {
+                outFuture.get();
+                errFuture.get();
+            } catch (ExecutionException e)
+            {
+                // Draining threads do not throw checked exceptions
+            }
+            return proc.exitValue();
+        } catch (InterruptedException e)
+        {
+            proc.destroy();
+            throw e;
+        } finally
+        {
+            try
+            {
+                proc.getOutputStream().close();
+            } catch (IOException e)
+            {
+                // nothing to do
+            }
+            liveProcesses.remove(proc);
+            recordCompletion((System.nanoTime() - start) / 1000000L,
+                    peakRSS);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Returns the sum of the peak resident set size (i.e., the high-water 
+     * mark) of a process and all its living descendants.
+     * This is possible only where the <code>/proc</code> filesystem exists.
+     * @param ph the handle of the process.
+     * @return the peak RSS in kB, or 0 if it cannot be determined.
+     */
+    private static long getPeakRSS(ProcessHandle ph)
+    {
+        List<ProcessHandle> handles = new ArrayList<ProcessHandle>();
+        handles.add(ph);
+        ph.descendants().forEach(d -> handles.add(d));
+        long rss = 0;
+        for (ProcessHandle h : handles)
+        {
+            Path status = Paths.get("/proc", String.valueOf(h.pid()),
+                    "status");
+            try
+            {
+                for (String line : Files.readAllLines(status))
+                {
+                    if (line.startsWith("VmHWM:"))
+                    {
+                        rss += Long.parseLong(
+                                line.replaceAll("[^0-9]", ""));
+                        break;
+                    }
+                }
+            } catch (IOException | NumberFormatException e)
+            {
+                // Process is gone or platform does not support this
+            }
+        }
+        return rss;
+    }
+
+//------------------------------------------------------------------------------
+
+    private void recordCompletion(long wallMillis, long peakRSS)
+    {
+        numProcesses.incrementAndGet();
+        totalWallMillis.addAndGet(wallMillis);
+        maxPeakRSS.accumulateAndGet(peakRSS, Math::max);
+
+        List<Monitor> toInform;
+        synchronized (monitors)
+        {
+            toInform = new ArrayList<Monitor>(monitors);
+        }
+        for (Monitor mnt : toInform)
+        {
+            mnt.increase(CounterID.EXTERNALPROCESSES);
+            mnt.increaseBy(CounterID.EXTERNALPROCESSESWALLTIME,
+                    (int) Math.min(wallMillis, Integer.MAX_VALUE));
+            mnt.updateMaximum(CounterID.EXTERNALPROCESSESPEAKRSS,
+                    (int) Math.min(peakRSS, Integer.MAX_VALUE));
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Registers a monitor that will be informed about the processes completed
+     * from now on.
+     * @param mnt the monitor to register.
+     */
+    public void addMonitor(Monitor mnt)
+    {
+        monitors.add(mnt);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Stops informing the given monitor about completed processes.
+     * @param mnt the monitor to remove.
+     */
+    public void removeMonitor(Monitor mnt)
+    {
+        monitors.remove(mnt);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of child processes that are currently running.
+     */
+    public int getNumberOfLiveProcesses()
+    {
+        return liveProcesses.size();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the number of processes completed since the start of this JVM.
+     */
+    public long getNumberOfCompletedProcesses()
+    {
+        return numProcesses.get();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the total wall-clock time (milliseconds) of the processes
+     * completed since the start of this JVM.
+     */
+    public long getTotalWallClockTime()
+    {
+        return totalWallMillis.get();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * @return the largest peak resident set size (kB) among the processes
+     * completed since the start of this JVM, or 0 if not known.
+     */
+    public long getMaxPeakRSS()
+    {
+        return maxPeakRSS.get();
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Destroys all live child processes.
+     */
+    public void destroyAll()
+    {
+        for (Process proc : liveProcesses)
+        {
+            proc.destroy();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -1,7 +1,7 @@
 /*
  *   DENOPTIM
  *   Copyright (C) 2019 Vishwesh Venkatraman <vishwesh.venkatraman@ntnu.no>
- * 
+ *
  *   This program is free software: you can redistribute it and/or modify
  *   it under the terms of the GNU Affero General Public License as published
  *   by the Free Software Foundation, either version 3 of the License, or
@@ -19,57 +19,189 @@
 package denoptim.task;
 
 import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.util.ArrayDeque;
+import java.util.Deque;
 
 import denoptim.constants.DENOPTIMConstants;
 
 /**
+ * Consumes the content of an output stream of a process.
  * See http://www.javaworld.com/jw-12-2000/jw-1229-traps.html?page=4
+ * <p>Only the last {@link #maxChars} characters are kept in memory, since 
+ * the end of the output is where errors are usually reported. When the 
+ * output exceeds such size, the entire output is written to a temporary 
+ * file, the pathname of which is reported at the beginning of the 
+ * messages. Such file is removed by {@link #deleteSpillFile()}.</p>
  * @author Vishwesh Venkatraman
  */
-class StreamGobbler extends Thread
+class StreamGobbler implements Runnable
 {
+    /**
+     * Default maximum number of characters kept in memory.
+     */
+    static final int DEFAULTMAXCHARS = 65536;
+
     InputStream is;
     String type;
-    StringBuilder sb;
-    
-//------------------------------------------------------------------------------    
-    
-    StreamGobbler(InputStream is, String type)
+
+    /**
+     * The last lines of the output.
+     */
+    private final Deque<String> tail = new ArrayDeque<String>();
+
+    /**
+     * Number of characters of the messages made from the lines in 
+     * {@link #tail}.
+     */
+    private int tailChars = 0;
+
+    /**
+     * Number of lines that have been removed from {@link #tail}.
+     */
+    private long numDropped = 0;
+
+    /**
+     * Maximum number of characters kept in memory.
+     */
+    private final int maxChars;
+
+    /**
+     * File collecting the entire output when this exceeds the maximum size 
+     * kept in memory, or <code>null</code> if no such file exists.
+     */
+    private File spillFile = null;
+
+//------------------------------------------------------------------------------
+
+    StreamGobbler(String type)
+    {
+        this(type, DEFAULTMAXCHARS);
+    }
+
+//------------------------------------------------------------------------------
+
+    StreamGobbler(String type, int maxChars)
     {
-        this.is = is;
         this.type = type;
-        this.sb = new StringBuilder();
+        this.maxChars = maxChars;
+    }
+
+//------------------------------------------------------------------------------
+
+    void setStream(InputStream is)
+    {
+        this.is = is;
     }
-    
-//------------------------------------------------------------------------------    
-    
+
+//------------------------------------------------------------------------------
+
     public String getMessages()
     {
+        StringBuilder sb = new StringBuilder();
+        if (numDropped > 0)
+        {
+            sb.append(type).append("> [...").append(numDropped)
+                .append(" earlier lines omitted");
+            if (spillFile != null)
+            {
+                sb.append("; entire output in file ").append(
+                        spillFile.getAbsolutePath());
+            }
+            sb.append("]").append(DENOPTIMConstants.EOL);
+        }
+        for (String line : tail)
+        {
+            sb.append(type).append("> ").append(line).append(
+                    DENOPTIMConstants.EOL);
+        }
         return sb.toString();
     }
-    
-//------------------------------------------------------------------------------    
-    
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Deletes the file collecting the entire output, if any such file has
+     * been created.
+     */
+    void deleteSpillFile()
+    {
+        if (spillFile != null)
+        {
+            spillFile.delete();
+            spillFile = null;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private int getMessageLength(String line)
+    {
+        return type.length() + 2 + line.length() 
+                + DENOPTIMConstants.EOL.length();
+    }
+
+//------------------------------------------------------------------------------
+
     @Override
     public void run()
     {
+        BufferedWriter spill = null;
         try
         {
             InputStreamReader isr = new InputStreamReader(is);
             BufferedReader br = new BufferedReader(isr);
             String line;
             while ((line = br.readLine()) != null)
-                sb.append(type).append("> ").append(line).append(
-                        DENOPTIMConstants.EOL);
-
+            {
+                if (spill != null)
+                {
+                    spill.write(line);
+                    spill.write(DENOPTIMConstants.EOL);
+                }
+                tail.addLast(line);
+                tailChars += getMessageLength(line);
+                while (tailChars > maxChars && tail.size() > 1)
+                {
+                    if (spill == null)
+                    {
+                        // NB: nothing has been dropped yet, so the tail is 
+                        // the entire output so far
+                        spillFile = File.createTempFile("denoptim_" + type 
+                                + "_", ".log");
+                        spill = new BufferedWriter(new FileWriter(spillFile));
+                        for (String previous : tail)
+                        {
+                            spill.write(previous);
+                            spill.write(DENOPTIMConstants.EOL);
+                        }
+                    }
+                    tailChars -= getMessageLength(tail.removeFirst());
+                    numDropped++;
+                }
+            }
             br.close();
         }
         catch (IOException ioe)
         {
         }
+        finally
+        {
+            if (spill != null)
+            {
+                try
+                {
+                    spill.close();
+                } catch (IOException e)
+                {
+                }
+            }
+        }
     }
 
 //------------------------------------------------------------------------------
@@ -18,17 +18,24 @@
 
 package denoptim.utils;
 
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
 import org.openscience.cdk.interfaces.IAtomContainer;
-import org.openscience.cdk.isomorphism.Mappings;
-import org.openscience.cdk.isomorphism.Pattern;
 import org.openscience.cdk.smarts.SmartsPattern;
 
 
 /**
  * Container of lists of atoms matching a list of SMARTS.
+ * <p>The SMARTS strings are compiled only once per JVM and the compiled 
+ * patterns are shared among all instances of this class (see 
+ * {@link #getCompiledPattern(String)}). The molecule is prepared (i.e.,
+ * implicit H, bond orders, ring perception, and aromaticity) only once per 
+ * instance, and each query is run only once: matches are collected in a 
+ * single pass.</p>
  *
  * @author Marco Foscato 
  */
@@ -36,38 +43,52 @@ import org.openscience.cdk.smarts.SmartsPattern;
 public class ManySMARTSQuery
 {
     //Container for all matches
-    private Map<String,Mappings> allMatches = new HashMap<>();
-
-    //Counts for all matches
-    private Map<String,Integer> numMatches = new HashMap<>();
+    private Map<String,List<int[]>> allMatches = new HashMap<>();
 
     //Utils for detecting problems
     private Throwable problem;
     private boolean problems = false;
     private String message = "";
+    
+    /**
+     * Cache of compiled SMARTS patterns shared by all instances. Compiled
+     * patterns are configured not to prepare the target molecule, because
+     * we do that once per molecule in the constructor.
+     */
+    private static final Map<String,SmartsPattern> PATTERNS_CACHE = 
+            new ConcurrentHashMap<String,SmartsPattern>();
+    
+    /**
+     * Max number of compiled patterns that we keep in the cache. Beyond this 
+     * size, the cache is flushed to avoid an unbounded growth.
+     */
+    private static final int MAXCACHESIZE = 10000;
 
 //------------------------------------------------------------------------------
 
     public ManySMARTSQuery(IAtomContainer mol, Map<String, String> smarts) {
         String err="";
         try {
+            if (!smarts.isEmpty())
+            {
+                // WARNING: assumptions on implicit H count and bond orders!
+                MoleculeUtils.setZeroImplicitHydrogensToAllAtoms(mol);
+                MoleculeUtils.ensureNoUnsetBondOrdersSilent(mol);
+                SmartsPattern.prepare(mol);
+            }
+            
             for (String smartsRef : smarts.keySet())
             {
                 //get the new query
                 String oneSmarts = smarts.get(smartsRef);
                 err = smartsRef;
                 
-                Pattern sp = SmartsPattern.create(oneSmarts);
-
-                // WARNING: assumptions on implicit H count and bond orders!
-                MoleculeUtils.setZeroImplicitHydrogensToAllAtoms(mol);
-                MoleculeUtils.ensureNoUnsetBondOrdersSilent(mol);
+                SmartsPattern sp = getCompiledPattern(oneSmarts);
                 
-                if (sp.matches(mol))
+                int[][] listOfIds = sp.matchAll(mol).toArray();
+                if (listOfIds.length > 0)
                 {
-                    Mappings listOfIds = sp.matchAll(mol);
-                    allMatches.put(smartsRef,listOfIds);
-                    numMatches.put(smartsRef,listOfIds.count());
+                    allMatches.put(smartsRef,Arrays.asList(listOfIds));
                 }
             }
         } catch (Throwable t) {
@@ -88,6 +109,44 @@ public class ManySMARTSQuery
             message = err;
         }
     }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * Gets the compiled version of the given SMARTS string from the cache of
+     * compiled patterns, or compiles and caches it if not already there.
+     * The returned pattern does not prepare the target molecule (see 
+     * {@link SmartsPattern#setPrepare(boolean)}), so the target must be 
+     * prepared with {@link SmartsPattern#prepare(IAtomContainer)} before 
+     * matching.
+     * @param smarts the SMARTS string.
+     * @return the compiled pattern.
+     * @throws IllegalArgumentException if the SMARTS cannot be parsed.
+     */
+    public static SmartsPattern getCompiledPattern(String smarts)
+    {
+        SmartsPattern sp = PATTERNS_CACHE.get(smarts);
+        if (sp == null)
+        {
+            if (PATTERNS_CACHE.size() > MAXCACHESIZE)
+                PATTERNS_CACHE.clear();
+            sp = SmartsPattern.create(smarts).setPrepare(false);
+            SmartsPattern previous = PATTERNS_CACHE.putIfAbsent(smarts, sp);
+            if (previous != null)
+                sp = previous;
+        }
+        return sp;
+    }
+    
+//------------------------------------------------------------------------------
+
+    /**
+     * Removes all compiled patterns from the cache.
+     */
+    public static void clearPatternsCache()
+    {
+        PATTERNS_CACHE.clear();
+    }
 
 //------------------------------------------------------------------------------
 
@@ -112,7 +171,11 @@ public class ManySMARTSQuery
     
 //------------------------------------------------------------------------------
     
-    public Map<String, Mappings> getAllMatches()
+    /**
+     * @return the matches of each query that has at least one match. Queries 
+     * without any match are not included.
+     */
+    public Map<String, List<int[]>> getAllMatches()
     {
     	return allMatches;
     }
@@ -121,12 +184,20 @@ public class ManySMARTSQuery
 
     public int getNumMatchesOfQuery(String query)
     {
-        return numMatches.getOrDefault(query, 0);
+        List<int[]> matches = allMatches.get(query);
+        if (matches == null)
+            return 0;
+        return matches.size();
     }
 
 //------------------------------------------------------------------------------
 
-    public Mappings getMatchesOfSMARTS(String ref)
+    /**
+     * @param ref the reference name of the query.
+     * @return the list of mappings (i.e., the indexes of the matched atoms) or
+     * <code>null</code> if the query has no match.
+     */
+    public List<int[]> getMatchesOfSMARTS(String ref)
     {
         return allMatches.get(ref);
     }
@@ -24,6 +24,7 @@ import java.io.FileReader;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.logging.Level;
 import java.util.logging.Logger;
@@ -35,7 +36,6 @@ import org.openscience.cdk.interfaces.IAtomContainer;
 import org.openscience.cdk.interfaces.IBond;
 import org.openscience.cdk.interfaces.IChemObjectBuilder;
 import org.openscience.cdk.interfaces.IRingSet;
-import org.openscience.cdk.isomorphism.Mappings;
 import org.openscience.cdk.silent.RingSet;
 import org.openscience.cdk.silent.SilentChemObjectBuilder;
 
@@ -140,7 +140,7 @@ public class RotationalSpaceUtils
                     }
         
                     //Put all matches in one list
-                    Mappings matches = msq.getMatchesOfSMARTS(name);
+                    List<int[]> matches = msq.getMatchesOfSMARTS(name);
                     for (int[] singleMatch : matches)
                     {
                         //Check assumption on number of atoms involved in each bond
@@ -438,7 +438,7 @@ public class RotationalSpaceUtils
                 }
     
                 //Put all matches in one list
-                Mappings matches = msq.getMatchesOfSMARTS(name);
+                List<int[]> matches = msq.getMatchesOfSMARTS(name);
                 for (int[] singleMatch : matches)
                 {
                     //Check assumption on number of atoms involved in each bond
@@ -0,0 +1,312 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.utils;
+
+/**
+ * Rigid-body superposition of sets of 3D points expressed as a
+ * single vector of coordinates [x1,y1,z1,x2,y2,z2,...xN,yN,zN]. The optimal
+ * rotation is found by the quaternion method (B.K.P. Horn, J. Opt. Soc. Am. A,
+ * 1987, 4, 629), which, unlike the singular value decomposition, never
+ * produces improper rotations (i.e., reflections), and works on primitive
+ * arrays without creating any intermediate object.
+ *
+ * @author Marco Foscato
+ */
+
+public class SuperpositionUtils
+{
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Calculates the radius of gyration of a set of points, i.e., the
+     * root mean square distance of the points from their geometric center.
+     * Since the RMSD upon optimal superposition of two sets of points is
+     * never smaller than the absolute difference of their radii of gyration,
+     * this value can be used to detect cheaply pairs of point sets
+     * that cannot be similar.
+     * @param coords the coordinates of the points.
+     * @return the radius of gyration.
+     */
+    public static double radiusOfGyration(double[] coords)
+    {
+        int n = coords.length/3;
+        if (n==0)
+            return 0.0;
+        double[] c = geometricCenter(coords);
+        double sum = 0.0;
+        for (int i=0; i<coords.length; i+=3)
+        {
+            double dx = coords[i] - c[0];
+            double dy = coords[i+1] - c[1];
+            double dz = coords[i+2] - c[2];
+            sum += dx*dx + dy*dy + dz*dz;
+        }
+        return Math.sqrt(sum/n);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Calculates the RMSD between two sets of points without moving them.
+     * @param coordsA the first set of points.
+     * @param coordsB the second set of points.
+     * @return the RMSD.
+     */
+    public static double rmsd(double[] coordsA, double[] coordsB)
+    {
+        int n = coordsA.length/3;
+        if (n==0)
+            return 0.0;
+        double sum = 0.0;
+        for (int i=0; i<coordsA.length; i++)
+        {
+            double d = coordsA[i] - coordsB[i];
+            sum += d*d;
+        }
+        return Math.sqrt(sum/n);
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Calculates the RMSD between two sets of points upon optimal
+     * superposition. Neither of the sets is modified.
+     * @param fixed the first set of points.
+     * @param moved the second set of points.
+     * @return the RMSD upon superposition.
+     */
+    public static double rmsdUponSuperposition(double[] fixed, double[] moved)
+    {
+        return new Superposition(fixed, moved).rmsd;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Superposes a set of points onto another.
+     * @param fixed the set of points that is not moved.
+     * @param moved the set of points to superpose onto the fixed one. This
+     * array is not modified.
+     * @return the coordinates of the moved set of points after superposition.
+     */
+    public static double[] superpose(double[] fixed, double[] moved)
+    {
+        return new Superposition(fixed, moved).transform(moved);
+    }
+
+//------------------------------------------------------------------------------
+
+    private static double[] geometricCenter(double[] coords)
+    {
+        double[] c = new double[3];
+        int n = coords.length/3;
+        for (int i=0; i<coords.length; i+=3)
+        {
+            c[0] += coords[i];
+            c[1] += coords[i+1];
+            c[2] += coords[i+2];
+        }
+        c[0] /= n;
+        c[1] /= n;
+        c[2] /= n;
+        return c;
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * The optimal roto-translation bringing a set of points onto another.
+     */
+    private static class Superposition
+    {
+        double[] centerFixed;
+        double[] centerMoved;
+        double[][] rot = new double[3][3];
+        double rmsd;
+
+        Superposition(double[] fixed, double[] moved)
+        {
+            if (fixed.length != moved.length)
+            {
+                throw new IllegalArgumentException("Cannot superpose sets of "
+                        + "points of different size (" + fixed.length/3 + ":"
+                        + moved.length/3 + ")");
+            }
+            int n = fixed.length/3;
+            if (n==0)
+            {
+                centerFixed = new double[3];
+                centerMoved = new double[3];
+                rot[0][0] = 1.0;
+                rot[1][1] = 1.0;
+                rot[2][2] = 1.0;
+                rmsd = 0.0;
+                return;
+            }
+            centerFixed = geometricCenter(fixed);
+            centerMoved = geometricCenter(moved);
+
+            // Correlation matrix and inner products of centered points
+            double sxx=0, sxy=0, sxz=0, syx=0, syy=0, syz=0, szx=0, szy=0,
+                    szz=0;
+            double g = 0.0;
+            for (int i=0; i<fixed.length; i+=3)
+            {
+                double mx = moved[i] - centerMoved[0];
+                double my = moved[i+1] - centerMoved[1];
+                double mz = moved[i+2] - centerMoved[2];
+                double fx = fixed[i] - centerFixed[0];
+                double fy = fixed[i+1] - centerFixed[1];
+                double fz = fixed[i+2] - centerFixed[2];
+                sxx += mx*fx; sxy += mx*fy; sxz += mx*fz;
+                syx += my*fx; syy += my*fy; syz += my*fz;
+                szx += mz*fx; szy += mz*fy; szz += mz*fz;
+                g += mx*mx + my*my + mz*mz + fx*fx + fy*fy + fz*fz;
+            }
+
+            double[][] k = new double[][] {
+                {sxx+syy+szz, syz-szy, szx-sxz, sxy-syx},
+                {syz-szy, sxx-syy-szz, sxy+syx, szx+sxz},
+                {szx-sxz, sxy+syx, -sxx+syy-szz, syz+szy},
+                {sxy-syx, szx+sxz, syz+szy, -sxx-syy+szz}};
+            double[] q = new double[4];
+            double lambda = largestEigenpair(k, q);
+
+            rmsd = Math.sqrt(Math.max(0.0, (g - 2.0*lambda)/n));
+
+            double q0=q[0], q1=q[1], q2=q[2], q3=q[3];
+            rot[0][0] = q0*q0 + q1*q1 - q2*q2 - q3*q3;
+            rot[0][1] = 2.0*(q1*q2 - q0*q3);
+            rot[0][2] = 2.0*(q1*q3 + q0*q2);
+            rot[1][0] = 2.0*(q1*q2 + q0*q3);
+            rot[1][1] = q0*q0 - q1*q1 + q2*q2 - q3*q3;
+            rot[1][2] = 2.0*(q2*q3 - q0*q1);
+            rot[2][0] = 2.0*(q1*q3 - q0*q2);
+            rot[2][1] = 2.0*(q2*q3 + q0*q1);
+            rot[2][2] = q0*q0 - q1*q1 - q2*q2 + q3*q3;
+        }
+
+        double[] transform(double[] coords)
+        {
+            double[] result = new double[coords.length];
+            for (int i=0; i<coords.length; i+=3)
+            {
+                double x = coords[i] - centerMoved[0];
+                double y = coords[i+1] - centerMoved[1];
+                double z = coords[i+2] - centerMoved[2];
+                for (int r=0; r<3; r++)
+                {
+                    result[i+r] = rot[r][0]*x + rot[r][1]*y + rot[r][2]*z
+                            + centerFixed[r];
+                }
+            }
+            return result;
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Finds the largest eigenvalue, and the corresponding normalized
+     * eigenvector, of a symmetric 4x4 matrix by the cyclic Jacobi method.
+     * @param matrix the symmetric matrix. It is overwritten.
+     * @param eigenvector where the eigenvector is placed.
+     * @return the largest eigenvalue.
+     */
+    private static double largestEigenpair(double[][] matrix,
+            double[] eigenvector)
+    {
+        double[][] a = matrix;
+        double[][] v = new double[4][4];
+        for (int i=0; i<4; i++)
+            v[i][i] = 1.0;
+
+        for (int sweep=0; sweep<50; sweep++)
+        {
+            double offDiag = 0.0;
+            double diag = 0.0;
+            for (int p=0; p<4; p++)
+            {
+                diag += Math.abs(a[p][p]);
+                for (int r=p+1; r<4; r++)
+                    offDiag += Math.abs(a[p][r]);
+            }
+            if (offDiag <= 1.0e-15 * diag || offDiag == 0.0)
+                break;
+
+            for (int p=0; p<3; p++)
+            {
+                for (int r=p+1; r<4; r++)
+                {
+                    if (a[p][r] == 0.0)
+                        continue;
+                    double theta = (a[r][r] - a[p][p]) / (2.0*a[p][r]);
+                    double t = Math.signum(theta)
+                            / (Math.abs(theta) + Math.sqrt(theta*theta + 1.0));
+                    if (theta == 0.0)
+                        t = 1.0;
+                    double c = 1.0 / Math.sqrt(t*t + 1.0);
+                    double s = t*c;
+                    for (int m=0; m<4; m++)
+                    {
+                        double amp = a[m][p];
+                        double amr = a[m][r];
+                        a[m][p] = c*amp - s*amr;
+                        a[m][r] = s*amp + c*amr;
+                    }
+                    for (int m=0; m<4; m++)
+                    {
+                        double apm = a[p][m];
+                        double arm = a[r][m];
+                        a[p][m] = c*apm - s*arm;
+                        a[r][m] = s*apm + c*arm;
+                    }
+                    for (int m=0; m<4; m++)
+                    {
+                        double vmp = v[m][p];
+                        double vmr = v[m][r];
+                        v[m][p] = c*vmp - s*vmr;
+                        v[m][r] = s*vmp + c*vmr;
+                    }
+                }
+            }
+        }
+
+        int best = 0;
+        for (int i=1; i<4; i++)
+        {
+            if (a[i][i] > a[best][best])
+                best = i;
+        }
+        double norm = 0.0;
+        for (int i=0; i<4; i++)
+        {
+            eigenvector[i] = v[i][best];
+            norm += eigenvector[i]*eigenvector[i];
+        }
+        norm = Math.sqrt(norm);
+        for (int i=0; i<4; i++)
+            eigenvector[i] /= norm;
+        return a[best][best];
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,95 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.fitness;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit test for {@link FitnessCache}.
+ *
+ * @author Marco Foscato
+ */
+
+public class FitnessCacheTest
+{
+    private final String SEP = System.getProperty("file.separator");
+
+    @TempDir
+    File tempDir;
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testStoreAndReload() throws Exception
+    {
+        File file = new File(tempDir.getAbsolutePath() + SEP + "cache.json");
+
+        Map<String,String> props = new HashMap<String,String>();
+        props.put("descA", "1.23");
+
+        FitnessCache cache = new FitnessCache(file);
+        assertNull(cache.lookup("setA", "UID1"));
+        cache.store("setA", "UID1", new FitnessCache.Entry(0.5, props));
+        cache.store("setA", "UID2", new FitnessCache.Entry("#Err: bad",
+                new HashMap<String,String>()));
+        cache.store("setB", "UID1", new FitnessCache.Entry(-2.0, props));
+
+        FitnessCache.Entry e = cache.lookup("setA", "UID1");
+        assertTrue(e.hasFitness());
+        assertEquals(0.5, e.getFitness(), 0.00001);
+        assertEquals("1.23", e.getProperties().get("descA"));
+        assertEquals(1, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        cache.close();
+
+        // Simulate an abrupt termination while writing a record
+        FileWriter fw = new FileWriter(file, true);
+        fw.write("{\"key\":\"setA|UID3\",\"fitn");
+        fw.close();
+
+        FitnessCache reloaded = new FitnessCache(file);
+        assertEquals(3, reloaded.size());
+        e = reloaded.lookup("setA", "UID2");
+        assertFalse(e.hasFitness());
+        assertEquals("#Err: bad", e.getError());
+        assertEquals(-2.0, reloaded.lookup("setB", "UID1").getFitness(),
+                0.00001);
+        assertNull(reloaded.lookup("setA", "UID3"));
+
+        // Newer records replace older ones with the same key
+        reloaded.store("setA", "UID2", new FitnessCache.Entry(3.0, props));
+        assertEquals(3.0, reloaded.lookup("setA", "UID2").getFitness(),
+                0.00001);
+        reloaded.close();
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,174 @@
+package denoptim.fragmenter;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ * 
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.InputStreamReader;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.smiles.SmilesParser;
+import org.openscience.cdk.tools.manipulator.AtomContainerManipulator;
+
+import denoptim.io.DenoptimIO;
+import denoptim.programs.fragmenter.CuttingRule;
+import denoptim.programs.fragmenter.FragmenterParameters;
+import denoptim.programs.fragmenter.MatchedBond;
+import denoptim.utils.ManySMARTSQuery;
+
+/**
+ * Unit test for {@link CuttingRulesMatcher}.
+ */
+public class CuttingRulesMatcherTest
+{
+    
+//------------------------------------------------------------------------------
+    
+    @Test
+    public void testIsAcyclicBondQuery() throws Exception
+    {
+        assertTrue(CuttingRulesMatcher.isAcyclicBondQuery("-!@"));
+        assertTrue(CuttingRulesMatcher.isAcyclicBondQuery("~!@"));
+        assertTrue(CuttingRulesMatcher.isAcyclicBondQuery("!@"));
+        assertFalse(CuttingRulesMatcher.isAcyclicBondQuery("-"));
+        assertFalse(CuttingRulesMatcher.isAcyclicBondQuery("-,=!@"));
+        assertFalse(CuttingRulesMatcher.isAcyclicBondQuery("-@"));
+    }
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * Compares the result of the matcher with the result of matching each
+     * complete SMARTS query of the default cutting rules.
+     */
+    @Test
+    public void testSameResultsAsCompleteQueries() throws Exception
+    {
+        List<CuttingRule> rules = new ArrayList<CuttingRule>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                this.getClass().getClassLoader().getResourceAsStream(
+                        "data/cutting_rules")));
+        DenoptimIO.readCuttingRules(reader, rules, "bundled jar");
+        
+        Logger logger = Logger.getLogger("CuttingRulesMatcherTest");
+        logger.setLevel(Level.OFF);
+        
+        CuttingRulesMatcher matcher = new CuttingRulesMatcher(rules);
+        
+        SmilesParser sp = new SmilesParser(
+                SilentChemObjectBuilder.getInstance());
+        String[] smiles = new String[] {
+                "CC(=O)Oc1ccccc1C(=O)O",
+                "CN1C=NC2=C1C(=O)N(C(=O)N2C)C",
+                "c1ccc(cc1)P(c1ccccc1)c1ccccc1",
+                "Cl[Pt](Cl)([NH3])[NH3]",
+                "CC(C)(C)c1cc(cc(c1)S(=O)(=O)N)C(F)(F)F",
+                "C1CCC(CC1)N2C=CN=C2",
+                "O=C(NCCS)c1ccc(OC)cc1Br"};
+        for (String smi : smiles)
+        {
+            IAtomContainer mol = sp.parseSmiles(smi);
+            AtomContainerManipulator.convertImplicitToExplicitHydrogens(mol);
+            
+            Map<String, List<MatchedBond>> matches = 
+                    matcher.getMatchingBonds(mol, logger);
+            
+            for (CuttingRule rule : rules)
+            {
+                Map<String,String> smarts = Map.of(rule.getName(), 
+                        rule.getWholeSMARTSRule());
+                ManySMARTSQuery msq = new ManySMARTSQuery(mol, smarts);
+                assertFalse(msq.hasProblems());
+                
+                List<MatchedBond> expected = new ArrayList<MatchedBond>();
+                if (msq.getNumMatchesOfQuery(rule.getName()) > 0)
+                {
+                    for (int[] pair : msq.getMatchesOfSMARTS(rule.getName()))
+                    {
+                        MatchedBond tb = new MatchedBond(mol.getAtom(pair[0]),
+                                mol.getAtom(pair[1]), rule);
+                        if (tb.satisfiesRuleOptions(logger))
+                            expected.add(tb);
+                    }
+                }
+                
+                List<MatchedBond> actual = matches.get(rule.getName());
+                if (expected.isEmpty())
+                {
+                    assertFalse(matches.containsKey(rule.getName()),
+                            "Unexpected match of " + rule.getName() 
+                            + " in " + smi);
+                    continue;
+                }
+                assertEquals(expected.size(), actual.size(), "Number of "
+                        + "matches of " + rule.getName() + " in " + smi);
+                for (int i=0; i<expected.size(); i++)
+                {
+                    assertSame(expected.get(i).getAtmSubClass0(), 
+                            actual.get(i).getAtmSubClass0());
+                    assertSame(expected.get(i).getAtmSubClass1(), 
+                            actual.get(i).getAtmSubClass1());
+                }
+            }
+        }
+    }
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * The matcher is built once per list of cutting rules and shared by all
+     * the tasks using the same parameters.
+     */
+    @Test
+    public void testMatcherOfParameters() throws Exception
+    {
+        List<CuttingRule> rules = new ArrayList<CuttingRule>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(
+                this.getClass().getClassLoader().getResourceAsStream(
+                        "data/cutting_rules")));
+        DenoptimIO.readCuttingRules(reader, rules, "bundled jar");
+        
+        FragmenterParameters settings = new FragmenterParameters();
+        settings.setCuttingRules(rules);
+        CuttingRulesMatcher matcher = settings.getCuttingRulesMatcher();
+        assertSame(rules, matcher.getRules());
+        assertSame(matcher, settings.getCuttingRulesMatcher());
+        
+        List<CuttingRule> otherRules = new ArrayList<CuttingRule>(rules);
+        settings.setCuttingRules(otherRules);
+        CuttingRulesMatcher otherMatcher = settings.getCuttingRulesMatcher();
+        assertNotSame(matcher, otherMatcher);
+        assertSame(otherRules, otherMatcher.getRules());
+    }
+    
+//------------------------------------------------------------------------------
+    
+}
@@ -1,5 +1,7 @@
 package denoptim.fragmenter;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.util.ArrayList;
@@ -127,6 +129,56 @@ public class DynamicCentroidClusterTest
         assertTrue(measure.compute(nearest.getPoint(), cf2.getPoint())<0.0001);
         assertTrue(nearest == cf2);
     }
+
+//------------------------------------------------------------------------------
+    
+    @Test
+    public void testRemoveAll() throws Exception
+    {
+        List<ClusterableFragment> sample = new ArrayList<ClusterableFragment>();
+        for (double d : new double[] {2.0, 1.0, 1.5})
+        {
+            IAtomContainer mol = builder.newAtomContainer();
+            mol.addAtom(new Atom("C", new Point3d(0,0,0)));
+            mol.addAtom(new Atom("H", new Point3d(d,0,0)));
+            mol.addBond(0,1,IBond.Order.SINGLE);
+            Fragment frag = new Fragment(mol, BBType.UNDEFINED);
+            frag.addAP(0, APClass.make("A:0"), new Point3d(-d,0,0));
+            ClusterableFragment cf = new ClusterableFragment(frag);
+            cf.setNaturalNodeOrder();
+            sample.add(cf);
+        }
+        
+        DynamicCentroidCluster cluster = new DynamicCentroidCluster();
+        for (ClusterableFragment cf : sample)
+            cluster.addPoint(cf);
+        
+        List<ClusterableFragment> toRemove = 
+                new ArrayList<ClusterableFragment>();
+        toRemove.add(sample.get(0));
+        cluster.removeAll(toRemove);
+        
+        // Members are removed from the cluster, not from the argument
+        assertEquals(2, cluster.getPoints().size());
+        assertFalse(cluster.getPoints().contains(sample.get(0)));
+        assertTrue(cluster.getPoints().contains(sample.get(1)));
+        assertTrue(cluster.getPoints().contains(sample.get(2)));
+        assertEquals(1, toRemove.size());
+        assertTrue(toRemove.contains(sample.get(0)));
+        
+        // Centroid reflects the remaining members: H at 1.25 from C
+        DistanceAsRMSD measure = new DistanceAsRMSD();
+        IAtomContainer molRef = builder.newAtomContainer();
+        molRef.addAtom(new Atom("C", new Point3d(0,0,0)));
+        molRef.addAtom(new Atom("H", new Point3d(1.25,0,0)));
+        molRef.addBond(0,1,IBond.Order.SINGLE);
+        Fragment fragRef = new Fragment(molRef, BBType.UNDEFINED);
+        fragRef.addAP(0, APClass.make("A:0"), new Point3d(-1.25,0,0));
+        ClusterableFragment cfRef = new ClusterableFragment(fragRef);
+        cfRef.setNaturalNodeOrder();
+        assertTrue(measure.compute(cluster.getCentroid().getPoint(), 
+                cfRef.getPoint()) < 0.0001);
+    }
     
 //------------------------------------------------------------------------------
 
@@ -1,5 +1,7 @@
 package denoptim.fragmenter;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import javax.vecmath.Point3d;
@@ -7,10 +9,13 @@ import javax.vecmath.Point3d;
 import org.junit.jupiter.api.Test;
 import org.openscience.cdk.Atom;
 import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IBond;
 import org.openscience.cdk.interfaces.IChemObjectBuilder;
 import org.openscience.cdk.silent.SilentChemObjectBuilder;
 
+import denoptim.exception.DENOPTIMException;
 import denoptim.graph.APClass;
+import denoptim.graph.FragIsomorphNode;
 import denoptim.graph.Fragment;
 import denoptim.graph.Vertex.BBType;
 
@@ -88,6 +93,79 @@ public class FragmentAlignementTest
         assertTrue(0.1<fa.getMinimumRMSD());
     }
    
+//-----------------------------------------------------------------------------
+
+    @Test
+    public void testSearchLimits() throws Exception
+    {
+        IAtomContainer mol1 = builder.newAtomContainer();
+        mol1.addAtom(new Atom("C", new Point3d(0,0,0)));
+        mol1.addAtom(new Atom("H", new Point3d(1,1,1)));
+        mol1.addAtom(new Atom("O", new Point3d(3,1,1)));
+        Fragment frag1 = new Fragment(mol1, BBType.UNDEFINED);
+        frag1.addAP(0, APClass.make("dummy:0"), new Point3d(3,0,0));
+        frag1.addAP(1, APClass.make("dummy:0"), new Point3d(3,2,0));
+        Fragment frag2 = frag1.clone();
+        
+        // Five nodes need at least six partial mappings, including the empty
+        assertThrows(DENOPTIMException.class, 
+                () -> new FragmentAlignement(frag1, frag2, 
+                        FragmentAlignement.DEFAULTTIMEOUT, 5));
+        FragmentAlignement fa = new FragmentAlignement(frag1, frag2, 
+                FragmentAlignement.DEFAULTTIMEOUT, 6);
+        assertTrue(0.0001>fa.getMinimumRMSD());
+    }
+   
+//-----------------------------------------------------------------------------
+
+    @Test
+    public void testLowestRMSDMappingOfSymmetricGroups() throws Exception
+    {
+        Point3d[] hPts = new Point3d[] {
+                new Point3d(-0.36, 1.03, 0.0),
+                new Point3d(-0.36, -0.51, 0.89),
+                new Point3d(-0.36, -0.51, -0.89),
+                new Point3d(2.36, 1.03, 0.0),
+                new Point3d(2.36, -0.51, 0.89),
+                new Point3d(2.36, -0.51, -0.89)};
+        
+        IAtomContainer mol1 = builder.newAtomContainer();
+        mol1.addAtom(new Atom("C", new Point3d(0,0,0)));
+        mol1.addAtom(new Atom("C", new Point3d(2,0,0)));
+        mol1.addBond(0, 1, IBond.Order.SINGLE);
+        for (int i=0; i<6; i++)
+        {
+            mol1.addAtom(new Atom("H", hPts[i]));
+            mol1.addBond(i<3 ? 0 : 1, i+2, IBond.Order.SINGLE);
+        }
+        Fragment frag1 = new Fragment(mol1, BBType.UNDEFINED);
+        frag1.addAP(0, APClass.make("dummy:0"), new Point3d(-0.5,0,-2));
+        
+        // Same geometry, but with the hydrogen atoms in a different order
+        int[] order = new int[] {2, 0, 1, 5, 3, 4};
+        IAtomContainer mol2 = builder.newAtomContainer();
+        mol2.addAtom(new Atom("C", new Point3d(0,0,0)));
+        mol2.addAtom(new Atom("C", new Point3d(2,0,0)));
+        mol2.addBond(0, 1, IBond.Order.SINGLE);
+        for (int i=0; i<6; i++)
+        {
+            mol2.addAtom(new Atom("H", hPts[order[i]]));
+            mol2.addBond(order[i]<3 ? 0 : 1, i+2, IBond.Order.SINGLE);
+        }
+        Fragment frag2 = new Fragment(mol2, BBType.UNDEFINED);
+        frag2.addAP(0, APClass.make("dummy:0"), new Point3d(-0.5,0,-2));
+        
+        FragmentAlignement fa = new FragmentAlignement(frag1, frag2);
+        assertTrue(0.0001>fa.getMinimumRMSD());
+        for (FragIsomorphNode n1 : frag1.getJGraphFragIsomorphism().vertexSet())
+        {
+            FragIsomorphNode n2 = fa.getLowestRMSDMapping()
+                    .getVertexCorrespondence(n1, true);
+            assertEquals(n1.getLabel(), n2.getLabel());
+            assertTrue(0.0001>n1.getPoint3d().distance(n2.getPoint3d()));
+        }
+    }
+   
 //-----------------------------------------------------------------------------
 
 }
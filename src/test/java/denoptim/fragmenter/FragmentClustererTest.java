@@ -5,13 +5,17 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import javax.vecmath.Matrix4d;
 import javax.vecmath.Point3d;
 import javax.vecmath.Vector3d;
 
 import org.apache.commons.math3.stat.descriptive.SummaryStatistics;
+import org.biojava.nbio.structure.geometry.CalcPoint;
+import org.biojava.nbio.structure.geometry.SuperPositionSVD;
 import org.junit.jupiter.api.Test;
 import org.openscience.cdk.Atom;
 import org.openscience.cdk.PseudoAtom;
@@ -609,6 +613,221 @@ public class FragmentClustererTest
         Point3d noise = rng.getNoisyPoint(noiseMagnitude);
         return new Point3d(p.x+noise.x, p.y+noise.y, p.z+noise.z);
     }
+
+//------------------------------------------------------------------------------
+    
+    /**
+     * Checks that the clustering produces the same clusters, with the same 
+     * members and centroids, as the straightforward implementation based on 
+     * SVD superposition that re-computes every RMSD, which is reproduced in
+     * {@link #referenceClustering(List, FragmenterParameters)}.
+     */
+    @Test
+    public void testEquivalenceWithReferenceImplementation() throws Exception
+    {
+        double noise = 0.25;
+        Point3d[][] templates = new Point3d[][] {
+            {new Point3d(-0.4574,-0.0273,0.3953), 
+             new Point3d(1.2914,-0.0103,-0.0437),
+             new Point3d(-1.0737,-1.1960,-0.1490),
+             new Point3d(-0.5595,-0.0346,1.4805),
+             new Point3d(-1.0796,1.1129,-0.1241)},
+            {new Point3d(0.4574,-0.0273,0.3953), 
+             new Point3d(-1.2914,-0.0103,-0.0437),
+             new Point3d(1.0737,-1.1960,-0.1490),
+             new Point3d(0.5595,-0.0346,1.4805),
+             new Point3d(1.0796,1.1129,-0.1241)},
+            {new Point3d(0.0,0.0,0.0), 
+             new Point3d(1.5,0.0,0.0),
+             new Point3d(-1.5,0.0,0.0),
+             new Point3d(0.0,1.5,0.0),
+             new Point3d(0.0,0.0,1.5)}};
+        
+        // Members of the different templates are interleaved, and some 
+        // geometries are blends of two templates, so that both merging 
+        // of clusters and moving of individual members take place.
+        List<ClusterableFragment> sample = new ArrayList<ClusterableFragment>();
+        for (int i=0; i<24; i++)
+        {
+            Point3d[] template = templates[i % templates.length];
+            if (i % 8 == 7)
+            {
+                Point3d[] other = templates[(i+1) % templates.length];
+                Point3d[] blend = new Point3d[template.length];
+                for (int k=0; k<template.length; k++)
+                {
+                    blend[k] = new Point3d();
+                    blend[k].interpolate(template[k], other[k], 0.3);
+                }
+                template = blend;
+            }
+            Point3d[] pts = new Point3d[template.length];
+            Matrix4d tM = new Matrix4d();
+            tM.rotX(i*23.0);
+            tM.setTranslation(new Vector3d(-i,i,2*i));
+            for (int k=0; k<template.length; k++)
+            {
+                pts[k] = getNoisyPoint(template[k],noise);
+                tM.transform(pts[k]);
+            }
+            IAtomContainer mol = builder.newAtomContainer();
+            mol.addAtom(new Atom("C", pts[0]));
+            mol.addAtom(new Atom("H", pts[1]));
+            mol.addAtom(new Atom("O", pts[2]));
+            mol.addBond(0,1,IBond.Order.SINGLE);
+            mol.addBond(0,2,IBond.Order.SINGLE);
+            Fragment frag = new Fragment(mol, BBType.UNDEFINED);
+            frag.addAP(0, APClass.make("A:0"), pts[3]);
+            frag.addAP(0, APClass.make("B:0"), pts[4]);
+            ClusterableFragment cf = new ClusterableFragment(frag);
+            cf.setNaturalNodeOrder();
+            sample.add(cf);
+        }
+        List<ClusterableFragment> refSample = 
+                new ArrayList<ClusterableFragment>();
+        for (ClusterableFragment cf : sample)
+            refSample.add(cf.clone());
+        
+        FragmenterParameters settings = new FragmenterParameters();
+        
+        FragmentClusterer fc = new FragmentClusterer(sample, settings);
+        fc.cluster();
+        List<DynamicCentroidCluster> clusters = fc.getClusters();
+        
+        List<DynamicCentroidCluster> refClusters = referenceClustering(
+                refSample, settings);
+        
+        assertTrue(refClusters.size() > 1);
+        assertEquals(refClusters.size(), clusters.size());
+        for (int i=0; i<refClusters.size(); i++)
+        {
+            List<Integer> refMembers = new ArrayList<Integer>();
+            for (ClusterableFragment cf : refClusters.get(i).getPoints())
+                refMembers.add(indexOf(refSample, cf));
+            List<Integer> members = new ArrayList<Integer>();
+            for (ClusterableFragment cf : clusters.get(i).getPoints())
+                members.add(indexOf(sample, cf));
+            assertEquals(refMembers, members, "Members of cluster " + i);
+            
+            double[] refCentroid = refClusters.get(i).getCentroid().getPoint();
+            double[] centroid = clusters.get(i).getCentroid().getPoint();
+            for (int k=0; k<refCentroid.length; k++)
+            {
+                assertEquals(refCentroid[k], centroid[k], 0.0001, 
+                        "Centroid of cluster " + i);
+            }
+        }
+    }
+    
+//------------------------------------------------------------------------------
+    
+    private int indexOf(List<ClusterableFragment> list, ClusterableFragment cf)
+    {
+        for (int i=0; i<list.size(); i++)
+        {
+            if (list.get(i) == cf)
+                return i;
+        }
+        return -1;
+    }
+    
+//------------------------------------------------------------------------------
+    
+    /**
+     * Reference implementation of the clustering: every superposition and 
+     * threshold is re-computed on demand with SVD.
+     */
+    private List<DynamicCentroidCluster> referenceClustering(
+            List<ClusterableFragment> data, FragmenterParameters settings)
+    {
+        List<DynamicCentroidCluster> clusters = 
+                new ArrayList<DynamicCentroidCluster>();
+        for (ClusterableFragment cf : data)
+            clusters.add(new DynamicCentroidCluster(cf));
+        
+        SuperPositionSVD svd = new SuperPositionSVD(false);
+        boolean hasChanged = true;
+        int iter = 0;
+        while (hasChanged && iter<5)
+        {
+            hasChanged = false;
+            Set<DynamicCentroidCluster> toRemoveClusters = 
+                    new HashSet<DynamicCentroidCluster>();
+            for (int i=0; i<clusters.size(); i++)
+            {   
+                DynamicCentroidCluster clusterI = clusters.get(i);
+                if (toRemoveClusters.contains(clusterI))
+                    continue;
+                
+                ClusterableFragment centroidI = clusterI.getCentroid();
+                SummaryStatistics stats = 
+                        FragmentClusterer.getRMSDStatsOfNoisyDistorsions(
+                                centroidI.getPoint(),
+                                settings.getSizeUnimodalPop(),
+                                settings.getMaxNoiseUnimodalPop());
+                double rmsdThreshold = stats.getMean() 
+                        + settings.getFactorForSDOnStatsOfUnimodalPop() 
+                        * stats.getStandardDeviation();
+                
+                for (int j=i+1; j<clusters.size(); j++)
+                {
+                    DynamicCentroidCluster clusterJ = clusters.get(j);
+                    if (toRemoveClusters.contains(clusterJ))
+                        continue;
+                    
+                    Point3d[] ptsCentroidI = 
+                            ClusterableFragment.convertToPointArray(
+                                    centroidI.getPoint());
+                    Point3d[] ptsCentroidJ = 
+                            ClusterableFragment.convertToPointArray(
+                                    clusterJ.getCentroid().getPoint());
+                    svd.superposeAndTransform(ptsCentroidI, ptsCentroidJ);
+                    double rmsd = CalcPoint.rmsd(ptsCentroidI, ptsCentroidJ);
+                    if (rmsd < rmsdThreshold)
+                    {
+                        hasChanged = true;
+                        toRemoveClusters.add(clusterJ);
+                        for (ClusterableFragment pointJ : clusterJ.getPoints())
+                        {
+                            Point3d[] ptsPointJ = 
+                                    ClusterableFragment.convertToPointArray(
+                                            pointJ.getPoint());
+                            svd.superposeAndTransform(ptsCentroidI, ptsPointJ);
+                            pointJ.setCoordsVector(ptsPointJ);
+                            clusterI.addPoint(pointJ);
+                        }
+                    } else {
+                        List<ClusterableFragment> toRemoveFromJ = 
+                                new ArrayList<ClusterableFragment>();
+                        for (ClusterableFragment pointJ : clusterJ.getPoints())
+                        {
+                            Point3d[] ptsPointJ = 
+                                    ClusterableFragment.convertToPointArray(
+                                            pointJ.getPoint());
+                            svd.superposeAndTransform(ptsCentroidI, ptsPointJ);
+                            double rmsdJ = CalcPoint.rmsd(ptsCentroidJ, 
+                                    ptsPointJ);
+                            double rmsdI = CalcPoint.rmsd(ptsCentroidI, 
+                                    ptsPointJ);
+                            if (rmsdI < rmsdJ)
+                            {
+                                hasChanged = true;
+                                pointJ.setCoordsVector(ptsPointJ);
+                                clusterI.addPoint(pointJ);
+                                toRemoveFromJ.add(pointJ);
+                            }
+                        }
+                        clusterJ.removeAll(toRemoveFromJ);
+                        if (clusterJ.getPoints().size()==0)
+                            toRemoveClusters.add(clusterJ);
+                    }
+                }
+            }
+            clusters.removeAll(toRemoveClusters);
+            iter++;
+        }
+        return clusters;
+    }
     
 //------------------------------------------------------------------------------
 
@@ -23,6 +23,8 @@ import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.util.ArrayList;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
 
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
@@ -32,6 +34,7 @@ import org.openscience.cdk.interfaces.IChemObjectBuilder;
 import org.openscience.cdk.silent.SilentChemObjectBuilder;
 
 import denoptim.constants.DENOPTIMConstants;
+import denoptim.fragmenter.FragmenterTask.StructuresChunk;
 import denoptim.io.DenoptimIO;
 import denoptim.io.IteratingAtomContainerReader;
 import denoptim.programs.fragmenter.FragmenterParameters;
@@ -58,7 +61,7 @@ public class ParallelFragmentationAlgorithmTest
 //------------------------------------------------------------------------------
 	
     @Test
-	public void testSplitInputForThreads() throws Exception
+	public void testStreamInputToQueue() throws Exception
 	{
 	    assertTrue(tempDir.isDirectory(),"Should be a directory ");
 	    String structureFile = tempDir.getAbsolutePath() + SEP + "mols.sdf";
@@ -92,24 +95,32 @@ public class ParallelFragmentationAlgorithmTest
         
         IteratingAtomContainerReader reader = new IteratingAtomContainerReader
                         (new File(settings.getStructuresFile()));
-        ParallelFragmentationAlgorithm.splitInputForThreads(settings, reader);
+        BlockingQueue<StructuresChunk> queue = 
+                new ArrayBlockingQueue<StructuresChunk>(10);
+        ParallelFragmentationAlgorithm.streamInputToQueue(settings, reader, 
+                queue, 3, () -> false);
         
-        int[] expectedEntries = {3, 2, 2};
+        int[] expectedEntries = {3, 3, 1};
+        int[] expectedFirstIndex = {0, 3, 6};
         for (int i=0; i<3; i++)
         {
-            String newStructureFile = ParallelFragmentationAlgorithm
-                    .getStructureFileNameBatch(settings, i);
-            File structFile = new File(newStructureFile);
-            assertTrue(newStructureFile.contains(tempDir.getAbsolutePath()));
-            assertTrue(structFile.exists());
-
-            ArrayList<String> lines = DenoptimIO.readList(newStructureFile);
-            int n = 0;
-            for (String line : lines)
-                if (line.contains((CharSequence) DENOPTIMConstants.FORMULASTR))
-                    n++;
-            assertEquals(expectedEntries[i],n);
+            StructuresChunk chunk = queue.take();
+            assertEquals(expectedFirstIndex[i], chunk.firstIndex);
+            assertEquals(expectedEntries[i], chunk.mols.size());
+            for (int j=0; j<chunk.mols.size(); j++)
+            {
+                assertEquals("formula-" + (chunk.firstIndex + j),
+                        chunk.mols.get(j).getProperty(
+                                DENOPTIMConstants.FORMULASTR));
+            }
+        }
+        
+        // One end marker per task
+        for (int i=0; i<3; i++)
+        {
+            assertTrue(FragmenterTask.ENDOFINPUT == queue.take());
         }
+        assertTrue(queue.isEmpty());
 	}
 
 //------------------------------------------------------------------------------
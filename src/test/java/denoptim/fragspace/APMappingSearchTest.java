@@ -0,0 +1,146 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.fragspace;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+
+import denoptim.graph.APClass;
+import denoptim.graph.APMapping;
+import denoptim.graph.AttachmentPoint;
+import denoptim.graph.EmptyVertex;
+import denoptim.utils.Randomizer;
+
+/**
+ * Unit test
+ *
+ * @author Marco Foscato
+ */
+
+public class APMappingSearchTest
+{
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testNeedyAPsAsConstraints() throws Exception
+    {
+        APClass apc = APClass.make("A", 0);
+        EmptyVertex vA = new EmptyVertex();
+        EmptyVertex vB = new EmptyVertex();
+        for (int i=0; i<3; i++)
+        {
+            vA.addAP(apc);
+            vB.addAP(apc);
+        }
+        vB.addAP(apc);
+        AttachmentPoint a0 = vA.getAP(0);
+        AttachmentPoint a1 = vA.getAP(1);
+        AttachmentPoint a2 = vA.getAP(2);
+        AttachmentPoint b0 = vB.getAP(0);
+        AttachmentPoint b1 = vB.getAP(1);
+        AttachmentPoint b2 = vB.getAP(2);
+        AttachmentPoint b3 = vB.getAP(3);
+
+        LinkedHashMap<AttachmentPoint,List<AttachmentPoint>> options =
+                new LinkedHashMap<AttachmentPoint,List<AttachmentPoint>>();
+        options.put(a0, new ArrayList<AttachmentPoint>(
+                Arrays.asList(b0, b1, null)));
+        options.put(a1, new ArrayList<AttachmentPoint>(
+                Arrays.asList(b0, b1, null)));
+        options.put(a2, new ArrayList<AttachmentPoint>(
+                Arrays.asList(b2, null)));
+        List<AttachmentPoint> keys = new ArrayList<AttachmentPoint>(
+                options.keySet());
+
+        APMappingSearch search = new APMappingSearch(keys, options, null,
+                new ArrayList<AttachmentPoint>(), Arrays.asList(b1, b2));
+        assertTrue(search.hasAnyMapping());
+
+        List<APMapping> all = new ArrayList<APMapping>();
+        for (APMapping apm : search)
+        {
+            all.add(apm);
+        }
+        assertEquals(4, all.size());
+        for (APMapping apm : all)
+        {
+            assertTrue(apm.containsValue(b1));
+            assertTrue(apm.get(a2) == b2);
+        }
+        assertTrue(all.get(0).get(a0) == b0);
+        assertTrue(all.get(0).get(a1) == b1);
+        assertFalse(all.get(3).containsKey(a0));
+
+        // Random sampling is uniform among valid mappings
+        Randomizer rng = new Randomizer(1L);
+        Map<Integer,Integer> counts = new HashMap<Integer,Integer>();
+        for (int i=0; i<4000; i++)
+        {
+            APMapping apm = search.getRandomMapping(rng);
+            int idx = all.indexOf(apm);
+            assertTrue(idx > -1);
+            counts.merge(idx, 1, Integer::sum);
+        }
+        for (int idx=0; idx<all.size(); idx++)
+        {
+            assertTrue(counts.get(idx) > 800 && counts.get(idx) < 1200);
+        }
+
+        // A needy AP that cannot be mapped makes the space empty
+        search = new APMappingSearch(keys, options, null,
+                new ArrayList<AttachmentPoint>(), Arrays.asList(b1, b3));
+        assertFalse(search.hasAnyMapping());
+        assertFalse(search.iterator().hasNext());
+        assertNull(search.getRandomMapping(rng));
+
+        // Needy keys must be mapped, and fixed pairs are always present
+        APMapping fixed = new APMapping();
+        fixed.put(a2, b2);
+        options.remove(a2);
+        keys.remove(a2);
+        search = new APMappingSearch(keys, options, fixed,
+                Arrays.asList(a0, a1, a2), new ArrayList<AttachmentPoint>());
+        all.clear();
+        for (APMapping apm : search)
+        {
+            all.add(apm);
+        }
+        assertEquals(2, all.size());
+        for (APMapping apm : all)
+        {
+            assertEquals(3, apm.size());
+            assertTrue(apm.get(a2) == b2);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+}
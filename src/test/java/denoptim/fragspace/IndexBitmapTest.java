@@ -0,0 +1,89 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.fragspace;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+import java.util.TreeSet;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test
+ *
+ * @author Marco Foscato
+ */
+
+public class IndexBitmapTest
+{
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testAddAndIntersection() throws Exception
+    {
+        Random rng = new Random(1L);
+        IndexBitmap a = new IndexBitmap();
+        IndexBitmap b = new IndexBitmap();
+        TreeSet<Integer> refA = new TreeSet<Integer>();
+        TreeSet<Integer> refB = new TreeSet<Integer>();
+        
+        // Dense region (bitmap chunks) and sparse regions (array chunks)
+        for (int i=0; i<20000; i++)
+        {
+            int x = rng.nextInt(10000);
+            a.add(x);
+            refA.add(x);
+            int y = rng.nextInt(300000);
+            a.add(y);
+            refA.add(y);
+        }
+        for (int i=0; i<8000; i++)
+        {
+            int x = rng.nextInt(70000);
+            b.add(x);
+            refB.add(x);
+        }
+        
+        assertEquals(refA.size(), a.getCardinality());
+        assertEquals(refB.size(), b.getCardinality());
+        assertArrayEquals(refA.stream().mapToInt(Integer::intValue).toArray(),
+                a.toArray());
+        assertTrue(a.contains(refA.first()));
+        assertFalse(b.contains(70001));
+        assertFalse(b.contains(-1));
+        
+        TreeSet<Integer> refAB = new TreeSet<Integer>(refA);
+        refAB.retainAll(refB);
+        int[] expected = refAB.stream().mapToInt(Integer::intValue).toArray();
+        assertArrayEquals(expected, a.and(b).toArray());
+        assertArrayEquals(expected, b.and(a).toArray());
+        assertArrayEquals(a.toArray(), a.and(a).toArray());
+        
+        assertTrue(a.and(new IndexBitmap()).isEmpty());
+        assertEquals(refA.size(), a.getCardinality());
+    }
+
+//------------------------------------------------------------------------------
+
+}
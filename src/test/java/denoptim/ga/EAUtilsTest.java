@@ -55,6 +55,7 @@ import denoptim.fragmenter.ScaffoldingPolicy;
 import denoptim.fragspace.FragmentSpace;
 import denoptim.fragspace.FragmentSpaceParameters;
 import denoptim.ga.EAUtils.CandidateSource;
+import denoptim.ga.EAUtils.MigrationTopology;
 import denoptim.graph.APClass;
 import denoptim.graph.AttachmentPoint;
 import denoptim.graph.Candidate;
@@ -2573,6 +2574,104 @@ public class EAUtilsTest
         assertEquals(1, lst.size());
     }
     
+//------------------------------------------------------------------------------
+    
+    @Test
+    public void testMigrate() throws Exception
+    {
+        GAParameters gaParams = new GAParameters();
+        List<Population> islands = makeIslands(gaParams, 3, 4);
+        
+        int num = EAUtils.migrate(islands, 1, MigrationTopology.RING, 
+                new Randomizer());
+        
+        // Only island 0 receives a migrant fitter than its worst member
+        assertEquals(1, num);
+        for (int i=0; i<3; i++)
+        {
+            Population island = islands.get(i);
+            assertEquals(4, island.size());
+            Set<String> uids = island.stream().map(c -> c.getUID())
+                    .collect(Collectors.toSet());
+            int from = (i + 2) % 3;
+            assertEquals(i==0, uids.contains("I" + from + "M3"), 
+                    "Unexpected migration from island " + from + " to " + i);
+            assertEquals(i!=0, uids.contains("I" + i + "M0"), 
+                    "Unexpected replacement in island " + i);
+        }
+        
+        islands = makeIslands(gaParams, 3, 4);
+        num = EAUtils.migrate(islands, 1, MigrationTopology.FULL, 
+                new Randomizer());
+        assertEquals(3, num);
+        for (Population island : islands)
+        {
+            assertEquals(4, island.size());
+        }
+        // Island 0 receives the best from all the others, but keeps its own
+        // best members.
+        Set<String> uids = islands.get(0).stream().map(c -> c.getUID())
+                .collect(Collectors.toSet());
+        assertTrue(uids.contains("I0M3"));
+        assertTrue(uids.contains("I0M2"));
+        assertTrue(uids.contains("I1M3"));
+        assertTrue(uids.contains("I2M3"));
+        // Migrants that are worse than the receiver's members are rejected
+        uids = islands.get(2).stream().map(c -> c.getUID())
+                .collect(Collectors.toSet());
+        assertFalse(uids.contains("I0M3"));
+        assertFalse(uids.contains("I1M3"));
+        
+        // Candidates already in an island are not copied again
+        islands = makeIslands(gaParams, 2, 2);
+        Candidate shared = islands.get(0).get(1).clone();
+        islands.get(1).set(0, shared);
+        num = EAUtils.migrate(islands, 1, MigrationTopology.RANDOM, 
+                new Randomizer());
+        assertEquals(1, num);
+    }
+    
+//------------------------------------------------------------------------------
+    
+    @Test
+    public void testMergeIslands() throws Exception
+    {
+        GAParameters gaParams = new GAParameters();
+        List<Population> islands = makeIslands(gaParams, 3, 4);
+        EAUtils.migrate(islands, 1, MigrationTopology.FULL, new Randomizer());
+        
+        Population merged = EAUtils.mergeIslands(islands, gaParams);
+        
+        Set<String> uids = merged.stream().map(c -> c.getUID())
+                .collect(Collectors.toSet());
+        assertEquals(merged.size(), uids.size(), "Duplicate candidates");
+        // I0M0, I0M1, and I1M0 have been replaced by migrants
+        assertEquals(9, merged.size());
+        for (int i=1; i<merged.size(); i++)
+        {
+            assertTrue(merged.get(i-1).compareTo(merged.get(i)) >= 0);
+        }
+    }
+    
+//------------------------------------------------------------------------------
+    
+    private List<Population> makeIslands(GAParameters gaParams, 
+            int numIslands, int size)
+    {
+        List<Population> islands = new ArrayList<Population>();
+        for (int i=0; i<numIslands; i++)
+        {
+            Population island = new Population(gaParams);
+            for (int j=0; j<size; j++)
+            {
+                island.add(new Candidate("I" + i + "M" + j, new DGraph(), 
+                        i*10.0 + j, "I" + i + "M" + j, "C"));
+            }
+            islands.add(island);
+        }
+        return islands;
+    }
+    
 //------------------------------------------------------------------------------
     
 }
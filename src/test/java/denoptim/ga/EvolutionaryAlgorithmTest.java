@@ -0,0 +1,93 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.ga;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import denoptim.graph.Candidate;
+import denoptim.graph.DGraph;
+import denoptim.programs.denovo.GAParameters;
+
+/**
+ * Unit test
+ *
+ * @author Marco Foscato
+ */
+
+public class EvolutionaryAlgorithmTest
+{
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testSteadyStateReplacementAndParents() throws Exception
+    {
+        GAParameters gaParams = new GAParameters();
+        gaParams.setPopulationSize(3);
+        gaParams.interpretKeyword("GA-PARALLELIZATION=ASYNCHRONOUS");
+        gaParams.interpretKeyword("GA-STEADYSTATE");
+        assertTrue(gaParams.isSteadyState());
+
+        Population population = new Population(gaParams);
+        for (int i=0; i<3; i++)
+        {
+            population.add(new Candidate("M" + i, new DGraph(),
+                    10.0 + i, "M" + i, "C"));
+        }
+        Candidate worst = population.getMinFitnessMember();
+        List<Candidate> parentsAtStart =
+                EvolutionaryAlgorithm.getLiveParents(population);
+        assertEquals(3, parentsAtStart.size());
+
+        // A worse offspring does not enter the full population, so it cannot
+        // become a parent.
+        Candidate worse = new Candidate("W", new DGraph(), 1.0, "W", "C");
+        assertFalse(OffspringEvaluationTask.admitToPopulation(worse, null,
+                population, gaParams, gaParams.isSteadyState()));
+        List<Candidate> parents =
+                EvolutionaryAlgorithm.getLiveParents(population);
+        assertEquals(3, parents.size());
+        assertFalse(parents.contains(worse));
+        assertTrue(parents.contains(worst));
+
+        // A better offspring replaces the worst member and immediately
+        // becomes eligible as parent, while the replaced member does not.
+        Candidate better = new Candidate("B", new DGraph(), 20.0, "B", "C");
+        assertTrue(OffspringEvaluationTask.admitToPopulation(better, null,
+                population, gaParams, gaParams.isSteadyState()));
+        parents = EvolutionaryAlgorithm.getLiveParents(population);
+        assertEquals(3, parents.size());
+        assertTrue(parents.contains(better));
+        assertFalse(parents.contains(worst));
+
+        // The list of parents is a copy of the population at the time it was
+        // taken: changes of the population do not alter it.
+        assertTrue(parentsAtStart.contains(worst));
+        assertFalse(parentsAtStart.contains(better));
+    }
+
+//------------------------------------------------------------------------------
+
+}
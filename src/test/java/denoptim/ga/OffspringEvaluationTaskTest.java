@@ -0,0 +1,113 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.ga;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import org.junit.jupiter.api.Test;
+
+import denoptim.graph.Candidate;
+import denoptim.graph.DGraph;
+import denoptim.programs.denovo.GAParameters;
+
+/**
+ * Unit test
+ *
+ * @author Marco Foscato
+ */
+
+public class OffspringEvaluationTaskTest
+{
+
+//------------------------------------------------------------------------------
+
+    private Population makePopulation(GAParameters gaParams, int size)
+    {
+        Population population = new Population(gaParams);
+        for (int i=0; i<size; i++)
+        {
+            population.add(new Candidate("M" + i, new DGraph(),
+                    10.0 + i, "M" + i, "C"));
+        }
+        return population;
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testAdmitToFullPopulation() throws Exception
+    {
+        GAParameters gaParams = new GAParameters();
+        gaParams.setPopulationSize(3);
+        Population population = makePopulation(gaParams, 3);
+        Candidate worst = population.getMinFitnessMember();
+
+        // A worse offspring must not evict the worst member of a population
+        // that is exactly full.
+        Candidate worse = new Candidate("W", new DGraph(), 1.0, "W", "C");
+        assertFalse(OffspringEvaluationTask.admitToPopulation(worse, null,
+                population, gaParams, true));
+        assertEquals(3, population.size());
+        assertTrue(population.contains(worst));
+        assertFalse(population.contains(worse));
+
+        // Same fitness as the worst member is not enough
+        Candidate equal = new Candidate("E", new DGraph(),
+                worst.getFitness(), "E", "C");
+        assertFalse(OffspringEvaluationTask.admitToPopulation(equal, null,
+                population, gaParams, true));
+        assertEquals(3, population.size());
+        assertTrue(population.contains(worst));
+
+        // A better offspring replaces the worst member
+        Candidate better = new Candidate("B", new DGraph(), 11.5, "B", "C");
+        assertTrue(OffspringEvaluationTask.admitToPopulation(better, null,
+                population, gaParams, true));
+        assertEquals(3, population.size());
+        assertFalse(population.contains(worst));
+        assertTrue(population.contains(better));
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testAdmitWithoutReplacement() throws Exception
+    {
+        GAParameters gaParams = new GAParameters();
+        gaParams.setPopulationSize(3);
+
+        // Population not yet full: even the worst offspring enters
+        Population population = makePopulation(gaParams, 2);
+        Candidate worse = new Candidate("W", new DGraph(), 1.0, "W", "C");
+        assertTrue(OffspringEvaluationTask.admitToPopulation(worse, null,
+                population, gaParams, true));
+        assertEquals(3, population.size());
+
+        // Without replacement of the worst member, offspring are just added
+        Candidate worse2 = new Candidate("W2", new DGraph(), 0.5, "W2", "C");
+        assertTrue(OffspringEvaluationTask.admitToPopulation(worse2, null,
+                population, gaParams, false));
+        assertEquals(4, population.size());
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,111 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.graph;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+import org.junit.jupiter.api.Test;
+
+import denoptim.graph.Edge.BondType;
+
+/**
+ * Unit test for {@link DGraphHasher}.
+ *
+ * @author Marco Foscato
+ */
+
+public class DGraphHasherTest
+{
+
+//------------------------------------------------------------------------------
+
+    /**
+     * Builds a linear graph A-B-C where A uses AP <code>apOnA</code>.
+     * @param reversed if <code>true</code> the vertexes are added in
+     * reversed order, with different IDs, and the edges are reversed.
+     */
+    private DGraph makeChain(int apOnA, BondType bt, boolean reversed)
+            throws Exception
+    {
+        APClass apcA = APClass.make("a", 0);
+        APClass apcB = APClass.make("b", 0);
+
+        EmptyVertex vA = new EmptyVertex(reversed ? 13 : 1);
+        vA.setBuildingBlockId(1);
+        vA.addAP(apcA);
+        vA.addAP(apcA);
+
+        EmptyVertex vB = new EmptyVertex(reversed ? 12 : 2);
+        vB.setBuildingBlockId(2);
+        vB.addAP(apcA);
+        vB.addAP(apcB);
+
+        EmptyVertex vC = new EmptyVertex(reversed ? 11 : 3);
+        vC.setBuildingBlockId(3);
+        vC.addAP(apcB);
+
+        DGraph graph = new DGraph();
+        if (reversed)
+        {
+            graph.addVertex(vC);
+            graph.addVertex(vB);
+            graph.addVertex(vA);
+            graph.addEdge(new Edge(vC.getAP(0), vB.getAP(1), bt));
+            graph.addEdge(new Edge(vB.getAP(0), vA.getAP(apOnA), bt));
+        } else {
+            graph.addVertex(vA);
+            graph.addVertex(vB);
+            graph.addVertex(vC);
+            graph.addEdge(new Edge(vA.getAP(apOnA), vB.getAP(0), bt));
+            graph.addEdge(new Edge(vB.getAP(1), vC.getAP(0), bt));
+        }
+        return graph;
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testGetHash() throws Exception
+    {
+        DGraph g = makeChain(0, BondType.SINGLE, false);
+        String hash = g.getCanonicalHash();
+        assertNotNull(hash);
+        assertEquals(hash, g.getCanonicalHash());
+        assertEquals(hash, g.clone().getCanonicalHash());
+        assertEquals(hash,
+                makeChain(0, BondType.SINGLE, true).getCanonicalHash());
+
+        assertNotEquals(hash,
+                makeChain(1, BondType.SINGLE, false).getCanonicalHash());
+        assertNotEquals(hash,
+                makeChain(0, BondType.DOUBLE, false).getCanonicalHash());
+
+        // No hash for cyclic graphs
+        DGraph cyclic = makeChain(0, BondType.SINGLE, false);
+        cyclic.addRing(cyclic.getVertexAtPosition(0),
+                cyclic.getVertexAtPosition(2), BondType.SINGLE);
+        assertNull(cyclic.getCanonicalHash());
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -59,6 +59,7 @@ import denoptim.graph.Template.ContractLevel;
 import denoptim.graph.Vertex.BBType;
 import denoptim.graph.Vertex.VertexType;
 import denoptim.graph.rings.PathSubGraph;
+import denoptim.utils.MoleculeUtils;
 import denoptim.utils.MutationType;
 
 
@@ -1458,6 +1459,114 @@ public class DGraphTest
                 "Number of edges after removal of 2 unused RCVs.");
     }
     
+//------------------------------------------------------------------------------
+    
+    @Test
+    public void testAdditiveDescriptors() throws Exception
+    {
+        prepare();
+        
+        // Butane: only the central bond is rotatable
+        Fragment frg1 = new Fragment(1);
+        IAtom[] c = new IAtom[4];
+        for (int i=0; i<4; i++)
+        {
+            c[i] = new Atom("C", new Point3d(new double[]{i*1.0, 0.0, 0.0}));
+            frg1.addAtom(c[i]);
+            if (i>0)
+                frg1.addBond(new Bond(c[i-1], c[i], IBond.Order.SINGLE));
+        }
+        frg1.addAP(0, APCA, new Point3d(new double[]{-1.0, 0.0, 0.0}));
+        
+        VertexDescriptors vd = frg1.getAdditiveDescriptors();
+        assertEquals(4, vd.getHeavyAtomCount());
+        assertEquals(48.0, vd.getMinMolecularWeight(), 0.001);
+        assertEquals(1, vd.getMinRotatableBondCount());
+        assertEquals("C", vd.getFirstAtomSymbol());
+        
+        // A triple bond that can be formed on an AP prevents rotation
+        Fragment frg1b = frg1.clone();
+        frg1b.addAP(1, APClass.make("t", 0, BondType.TRIPLE), 
+                new Point3d(new double[]{1.0, 1.0, 0.0}));
+        assertEquals(0, frg1b.getAdditiveDescriptors()
+                .getMinRotatableBondCount());
+        
+        // Bonds in rings are not rotatable
+        Fragment frg1c = frg1.clone();
+        frg1c.addBond(new Bond(frg1c.getAtom(0), frg1c.getAtom(3), 
+                IBond.Order.SINGLE));
+        assertEquals(0, frg1c.getAdditiveDescriptors()
+                .getMinRotatableBondCount());
+        
+        Fragment frg2 = new Fragment(2);
+        IAtom o = new Atom("O", new Point3d(new double[]{0.0, 0.0, 0.0}));
+        frg2.addAtom(o);
+        frg2.addAtom(new Atom("H", new Point3d(new double[]{1.0, 0.0, 0.0})));
+        frg2.addBond(new Bond(o, frg2.getAtom(1), IBond.Order.SINGLE));
+        frg2.addAP(0, APCA, new Point3d(new double[]{-1.0, 0.0, 0.0}));
+        
+        DGraph graph = new DGraph();
+        graph.addVertex(frg1);
+        assertEquals(4, graph.getHeavyAtomsCount());
+        graph.appendVertexOnAP(frg1.getAP(0), frg2.getAP(0));
+        assertEquals(5, graph.getHeavyAtomsCount());
+        assertEquals(63.995, graph.getMolecularWeightLowerBound(), 0.001);
+        assertEquals(1, graph.getRotatableBondsLowerBound());
+        
+        FragmentSpaceParameters fsp = new FragmentSpaceParameters();
+        assertFalse(graph.exceedsAdditiveLimits(fsp));
+        fsp.interpretKeyword("MAXROTATABLEBOND=", "0");
+        assertFalse(graph.exceedsSizeLimits(fsp));
+        assertTrue(graph.exceedsAdditiveLimits(fsp));
+        fsp.interpretKeyword("MAXHEAVYATOM=", "4");
+        assertTrue(graph.exceedsSizeLimits(fsp));
+        
+        // Changes of the vertices are reflected by the graph
+        frg2.addAtom(new Atom("N", new Point3d(new double[]{0.0, 1.0, 0.0})));
+        assertEquals(6, graph.getHeavyAtomsCount());
+        graph.removeVertex(frg2);
+        assertEquals(4, graph.getHeavyAtomsCount());
+        assertEquals(48.0, graph.getMolecularWeightLowerBound(), 0.001);
+    }
+    
+//------------------------------------------------------------------------------
+    
+    @Test
+    public void testMolecularWeightLowerBoundWithMetals() throws Exception
+    {
+        prepare();
+        
+        // The major isotopes of Ru and Fe are heavier than their natural mass
+        Fragment frg = new Fragment(1);
+        IAtom ru = new Atom("Ru", new Point3d(new double[]{0.0, 0.0, 0.0}));
+        ru.setImplicitHydrogenCount(0);
+        frg.addAtom(ru);
+        IAtom fe = new Atom("Fe", new Point3d(new double[]{2.0, 0.0, 0.0}));
+        fe.setImplicitHydrogenCount(0);
+        frg.addAtom(fe);
+        IAtom cl = new Atom("Cl", new Point3d(new double[]{-2.0, 0.0, 0.0}));
+        cl.setImplicitHydrogenCount(0);
+        frg.addAtom(cl);
+        frg.addBond(new Bond(ru, fe, IBond.Order.SINGLE));
+        frg.addBond(new Bond(ru, cl, IBond.Order.SINGLE));
+        frg.addAP(1, APCA, new Point3d(new double[]{3.0, 0.0, 0.0}));
+        
+        DGraph graph = new DGraph();
+        graph.addVertex(frg);
+        
+        double exactMW = MoleculeUtils.getMolecularWeight(
+                frg.getIAtomContainer());
+        assertTrue(graph.getMolecularWeightLowerBound() <= exactMW,
+                "Lower bound " + graph.getMolecularWeightLowerBound() 
+                + " exceeds molecular weight " + exactMW);
+        
+        // The graph sits just under the limit, and must not be rejected
+        FragmentSpaceParameters fsp = new FragmentSpaceParameters();
+        fsp.interpretKeyword("MAXMW=", String.valueOf(exactMW + 0.01));
+        assertFalse(graph.exceedsSizeLimits(fsp));
+        assertFalse(graph.exceedsAdditiveLimits(fsp));
+    }
+    
 //------------------------------------------------------------------------------
     
     @Test
@@ -71,9 +71,12 @@ public class FragmentIsomorphismInspectorTest
         inspector.reportTimeoutIncidents = false;
         assertTrue(inspector.isomorphismExists());
         
+        long timeoutsBefore = FragmentIsomorphismInspector.getNumberOfTimeouts();
         inspector = new FragmentIsomorphismInspector(a, b, 1, false); // 0.001 s
         inspector.reportTimeoutIncidents = false;
         assertFalse(inspector.isomorphismExists());
+        assertTrue(FragmentIsomorphismInspector.getNumberOfTimeouts() 
+                > timeoutsBefore);
     }
     
 //------------------------------------------------------------------------------
@@ -122,6 +122,7 @@ public class VertexTest
         vB.addAP();
         //NB: vertex ID must be ignores by the sameAs method
     	assertTrue(vA.sameAs(vB, reason));	
+        assertEquals(vA.getContentFingerprint(), vB.getContentFingerprint());
     	
     	// ... one can use properties to uniquefy empty vertexes
     	String k = "MyPropKey";
@@ -131,6 +132,7 @@ public class VertexTest
         vB.setUniquefyingProperty(k);
         // if the value of the uniquefying property is the same
         assertTrue(vA.sameAs(vB, reason));  
+        assertEquals(vA.getContentFingerprint(), vB.getContentFingerprint());
         
         // otherwise
         vB.setProperty(k, 456);
@@ -155,6 +157,8 @@ public class VertexTest
         //NB: vertex ID must be ignores by the sameAs method
 
         assertFalse(vA.sameAs(vB, reason));
+        assertNotEquals(vA.getContentFingerprint(), 
+                vB.getContentFingerprint());
     }
     
 //------------------------------------------------------------------------------
@@ -0,0 +1,169 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.io;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import denoptim.graph.Candidate;
+import denoptim.graph.CandidateLW;
+import denoptim.graph.DGraph;
+
+/**
+ * Unit test for {@link RunDatabase}.
+ *
+ * @author Marco Foscato
+ */
+
+public class RunDatabaseTest
+{
+    private final String SEP = System.getProperty("file.separator");
+
+    @TempDir
+    File tempDir;
+
+//------------------------------------------------------------------------------
+
+    private Candidate makeCandidate(String name, int genId, double fitness,
+            String provenance)
+    {
+        DGraph g = new DGraph();
+        g.setLocalMsg(provenance);
+        Candidate c = new Candidate(name, g);
+        c.setUID("UID-" + name);
+        c.setFitness(fitness);
+        c.setGeneration(genId);
+        c.setSDFFile("/some/path/" + name + ".sdf");
+        return c;
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testAppendQueryAndReload() throws Exception
+    {
+        File dir = new File(tempDir.getAbsolutePath() + SEP + "db");
+
+        Candidate a = makeCandidate("M1", 0, 1.0, "NEW");
+        Candidate b = makeCandidate("M2", 0, 3.0, "NEW");
+        Candidate c = makeCandidate("M3", 0, 2.0, "NEW");
+        Candidate d = makeCandidate("M4", 1, 5.0,
+                "Xover: Gen:0 Cand:M2|2|[1] X Gen:0 Cand:M3|3|[1]");
+        Candidate e = makeCandidate("M5", 1, 0.5, "Mutation: Gen:0 Cand:M1|1");
+
+        RunDatabase db = new RunDatabase(dir, false);
+        db.appendGeneration(0, Arrays.asList(b, c, a));
+        db.appendGeneration(1, Arrays.asList(d, b, c));
+        List<Candidate> withRejected = new ArrayList<Candidate>();
+        withRejected.add(d);
+        withRejected.add(null);
+        withRejected.add(e);
+        db.appendGeneration(2, withRejected);
+        assertEquals(5, db.size());
+        db.close();
+
+        // Simulate an abrupt termination while writing a batch
+        FileOutputStream fos = new FileOutputStream(new File(dir,
+                "generation.int"), true);
+        fos.write(new byte[] {0, 0, 0, 2, 0, 0});
+        fos.close();
+        fos = new FileOutputStream(new File(dir, "name.utf8"), true);
+        fos.write("M6".getBytes());
+        fos.close();
+        // ...and while writing the population of a generation made only of
+        // candidates that are already stored.
+        long membersLength = new File(dir, "members.int").length();
+        DataOutputStream dos = new DataOutputStream(new FileOutputStream(
+                new File(dir, "members.int"), true));
+        dos.writeInt(3);
+        dos.writeInt(0);
+        dos.writeInt(3);
+        dos.close();
+
+        RunDatabase reader = new RunDatabase(dir, true);
+        assertEquals(5, reader.size());
+        assertEquals(0, reader.getPopulationRows(3).length);
+        assertFalse(reader.getPopulationPropsByGeneration().containsKey(3));
+        reader.close();
+
+        RunDatabase reloaded = new RunDatabase(dir, false);
+        assertEquals(5, reloaded.size());
+        assertEquals(5 * Integer.BYTES, new File(dir,
+                "generation.int").length());
+        assertEquals(membersLength, new File(dir, "members.int").length());
+
+        int[] best = reloaded.getBestRows(2);
+        assertEquals(2, best.length);
+        assertEquals("M4", reloaded.getText(RunDatabase.NAMECOL, best[0]));
+        assertEquals("M2", reloaded.getText(RunDatabase.NAMECOL, best[1]));
+
+        List<CandidateLW> top = reloaded.getBestCandidates(10);
+        assertEquals(5, top.size());
+        assertEquals("UID-M4", top.get(0).getUid());
+        assertEquals(1, top.get(0).getGeneration());
+        assertEquals("/some/path/M4.sdf", top.get(0).getPathToFile());
+        assertEquals("M5", top.get(4).getName());
+
+        int rowD = reloaded.getRow("M4", "UID-M4");
+        assertEquals(Arrays.asList("M2", "M3"), reloaded.getParents(rowD));
+        assertEquals(Arrays.asList("M1"), reloaded.getParents(
+                reloaded.getRow("M5", "UID-M5")));
+        assertEquals(0, reloaded.getParents(
+                reloaded.getRow("M1", "UID-M1")).size());
+        assertEquals(-1, reloaded.getRow("M6", "UID-M6"));
+
+        assertArrayEquals(new int[] {rowD, reloaded.getRow("M5", "UID-M5")},
+                reloaded.getPopulationRows(2));
+
+        Map<Integer,double[]> props =
+                reloaded.getPopulationPropsByGeneration();
+        assertEquals(3, props.size());
+        assertArrayEquals(new double[] {1.0, 3.0, 2.0, 2.0}, props.get(0),
+                0.00001);
+        assertArrayEquals(new double[] {2.0, 5.0, 10.0/3.0, 3.0}, props.get(1),
+                0.00001);
+        assertArrayEquals(new double[] {0.5, 5.0, 2.75, 2.75}, props.get(2),
+                0.00001);
+
+        // Appending after recovery
+        Candidate f = makeCandidate("M6", 3, 4.0, "NEW");
+        reloaded.appendGeneration(3, Arrays.asList(d, f));
+        assertEquals(6, reloaded.size());
+        assertArrayEquals(new int[] {rowD, 5}, reloaded.getPopulationRows(3));
+        assertEquals("M6", reloaded.getText(RunDatabase.NAMECOL, 5));
+        assertEquals("UID-M6", reloaded.getText(RunDatabase.UIDCOL, 5));
+        assertFalse(reloaded.getText(RunDatabase.GRAPHCOL, 5).isEmpty());
+        reloaded.close();
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,117 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.io;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openscience.cdk.Atom;
+import org.openscience.cdk.CDKConstants;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.interfaces.IChemObjectBuilder;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+
+import denoptim.constants.DENOPTIMConstants;
+import denoptim.graph.CandidateLW;
+
+/**
+ * Unit test for {@link RunIndex}.
+ *
+ * @author Marco Foscato
+ */
+
+public class RunIndexTest
+{
+    private final String SEP = System.getProperty("file.separator");
+
+    @TempDir
+    File tempDir;
+
+//------------------------------------------------------------------------------
+
+    private void writeCandidate(File file, String name, double fitness)
+            throws Exception
+    {
+        IChemObjectBuilder builder = SilentChemObjectBuilder.getInstance();
+        IAtomContainer iac = builder.newAtomContainer();
+        iac.addAtom(new Atom("C"));
+        iac.setProperty(DENOPTIMConstants.UNIQUEIDTAG, "UID-" + name);
+        iac.setProperty(CDKConstants.TITLE, name);
+        iac.setProperty(DENOPTIMConstants.FITNESSTAG, fitness);
+        DenoptimIO.writeSDFFile(file.getAbsolutePath(), iac, false);
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testIncrementalIndex() throws Exception
+    {
+        File indexFile = new File(tempDir.getAbsolutePath() + SEP
+                + DENOPTIMConstants.RUNINDEXFILENAME);
+        File sdfA = new File(tempDir.getAbsolutePath() + SEP + "A_out.sdf");
+        File sdfB = new File(tempDir.getAbsolutePath() + SEP + "B_out.sdf");
+        writeCandidate(sdfA, "A", 1.5);
+        writeCandidate(sdfB, "B", 2.5);
+
+        RunIndex index = new RunIndex(indexFile);
+        List<CandidateLW> cands = index.getLightWeightCandidates(sdfA);
+        assertEquals("A", cands.get(0).getName());
+        assertEquals(1.5, cands.get(0).getFitness(), 0.00001);
+        index.getLightWeightCandidates(sdfB);
+        index.getLightWeightCandidates(sdfA);
+        assertEquals(2, index.getNumberOfNewEntries());
+        index.close();
+
+        // Simulate an abrupt termination while writing a record
+        FileWriter fw = new FileWriter(indexFile, true);
+        fw.write("{\"key\":\"" + sdfA.getAbsolutePath().replace("\\", "\\\\")
+                + "\",\"mod");
+        fw.close();
+
+        // Change one of the files
+        writeCandidate(sdfB, "B", 3.5);
+        sdfB.setLastModified(sdfB.lastModified() + 2000);
+
+        RunIndex reopened = new RunIndex(indexFile);
+        assertEquals(2, reopened.size());
+        cands = reopened.getLightWeightCandidates(sdfA);
+        assertEquals("UID-A", cands.get(0).getUid());
+        assertEquals(0, reopened.getNumberOfNewEntries());
+        cands = reopened.getLightWeightCandidates(sdfB);
+        assertEquals(3.5, cands.get(0).getFitness(), 0.00001);
+        assertEquals(1, reopened.getNumberOfNewEntries());
+        reopened.close();
+
+        RunIndex third = new RunIndex(indexFile);
+        assertEquals(3.5, third.getLightWeightCandidates(sdfB).get(0)
+                .getFitness(), 0.00001);
+        assertEquals(0, third.getNumberOfNewEntries());
+        assertFalse(third.getLightWeightCandidates(sdfA).isEmpty());
+        third.close();
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,215 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.logging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+/**
+ * Unit test for {@link Monitor} and the export of its content.
+ *
+ * @author Marco Foscato
+ */
+
+public class MonitorTest
+{
+    private final String SEP = System.getProperty("file.separator");
+
+    @TempDir
+    File tempDir;
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testConcurrentUpdates() throws Exception
+    {
+        String monitorFile = tempDir.getAbsolutePath() + SEP + "mnt.eaMonitor";
+        Monitor mnt = new Monitor("MonitorGen", 3, monitorFile, 10, true,
+                Logger.getLogger("MonitorTest"));
+
+        int numThreads = 8;
+        int numIncrements = 1000;
+        List<Thread> threads = new ArrayList<Thread>();
+        for (int t=0; t<numThreads; t++)
+        {
+            final int id = t;
+            threads.add(new Thread(() -> {
+                for (int i=0; i<numIncrements; i++)
+                {
+                    mnt.increase(CounterID.NEWCANDIDATEATTEMPTS);
+                    mnt.increaseBy(CounterID.FITNESSEVALS, 2);
+                    mnt.updateMaximum(CounterID.EXTERNALPROCESSESPEAKRSS,
+                            id * numIncrements + i);
+                }
+            }));
+        }
+        for (Thread t : threads)
+            t.start();
+        for (Thread t : threads)
+            t.join();
+
+        assertEquals(numThreads * numIncrements,
+                mnt.getValue(CounterID.NEWCANDIDATEATTEMPTS));
+        assertEquals(2 * numThreads * numIncrements,
+                mnt.getValue(CounterID.FITNESSEVALS));
+        assertEquals(numThreads * numIncrements - 1,
+                mnt.getValue(CounterID.EXTERNALPROCESSESPEAKRSS));
+
+        // One dump every 10 attempts
+        List<String> lines = Files.readAllLines(new File(monitorFile).toPath());
+        assertEquals(numThreads * numIncrements / 10, lines.size());
+        for (String line : lines)
+        {
+            assertTrue(line.startsWith("DUMP MonitorGen 3 "));
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testNonPositiveDumpStep() throws Exception
+    {
+        String monitorFile = tempDir.getAbsolutePath() + SEP + "mnt0.eaMonitor";
+        Monitor mnt = new Monitor("MonitorGen", 1, monitorFile, 0, true,
+                Logger.getLogger("MonitorTest"));
+        for (int i=0; i<3; i++)
+        {
+            mnt.increase(CounterID.NEWCANDIDATEATTEMPTS);
+        }
+        List<String> lines = Files.readAllLines(new File(monitorFile).toPath());
+        assertEquals(3, lines.size());
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testLatencyHistogram() throws Exception
+    {
+        assertEquals(0, LatencyHistogram.getBucketIndex(0));
+        assertEquals(0, LatencyHistogram.getBucketIndex(1000));
+        assertEquals(1, LatencyHistogram.getBucketIndex(1001));
+        assertEquals(10, LatencyHistogram.getBucketIndex(1024000));
+        assertEquals(LatencyHistogram.NUMBOUNDS,
+                LatencyHistogram.getBucketIndex(Long.MAX_VALUE));
+
+        Monitor mnt = new Monitor();
+        mnt.recordLatency(PipelineStage.FITNESS, 1000000L);
+        mnt.recordLatency(PipelineStage.FITNESS, 3000000L);
+        mnt.recordLatency(PipelineStage.FITNESS, 5000000000L);
+        LatencyHistogram.Snapshot hist = mnt.getSnapshot().getLatencies(
+                PipelineStage.FITNESS);
+        assertEquals(3, hist.getCount());
+        assertEquals(5.004, hist.getSumInSeconds(), 0.000001);
+        assertEquals(0.001024, hist.getQuantileInSeconds(0.3), 0.000001);
+        assertEquals(0.004096, hist.getQuantileInSeconds(0.5), 0.000001);
+        assertEquals(0, mnt.getSnapshot().getLatencies(
+                PipelineStage.BUILD3D).getCount());
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testPrometheusExport() throws Exception
+    {
+        Monitor mnt = new Monitor();
+        mnt.name = "MonitorGen";
+        mnt.generationId = 2;
+        mnt.increaseBy(CounterID.FITNESSEVALS, 5);
+        mnt.recordLatency(PipelineStage.GRAPHBUILD, 1500L);
+
+        File file = new File(tempDir.getAbsolutePath() + SEP + "metrics.prom");
+        MetricsPublisher publisher = new MetricsPublisher(60000L,
+                Logger.getLogger("MonitorTest"));
+        publisher.addExporter(new PrometheusFileExporter(file));
+        publisher.addMonitor(mnt);
+        publisher.publish();
+
+        List<String> lines = Files.readAllLines(file.toPath(),
+                StandardCharsets.UTF_8);
+        assertTrue(lines.contains("# TYPE denoptim_fitnessevals_total counter"));
+        assertTrue(lines.contains("denoptim_fitnessevals_total"
+                + "{monitor=\"MonitorGen\",generation=\"2\"} 5"));
+        assertTrue(lines.contains("denoptim_graphbuild_latency_seconds_bucket"
+                + "{monitor=\"MonitorGen\",generation=\"2\",le=\"1.0E-6\"} 0"));
+        assertTrue(lines.contains("denoptim_graphbuild_latency_seconds_bucket"
+                + "{monitor=\"MonitorGen\",generation=\"2\",le=\"2.0E-6\"} 1"));
+        assertTrue(lines.contains("denoptim_graphbuild_latency_seconds_count"
+                + "{monitor=\"MonitorGen\",generation=\"2\"} 1"));
+
+        // Final values of removed monitors are exported before removal
+        mnt.increase(CounterID.FITNESSEVALS);
+        publisher.removeMonitor(mnt);
+        lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertTrue(lines.contains("denoptim_fitnessevals_total"
+                + "{monitor=\"MonitorGen\",generation=\"2\"} 6"));
+
+        publisher.stop();
+        lines = Files.readAllLines(file.toPath(), StandardCharsets.UTF_8);
+        assertTrue(lines.stream().noneMatch(l -> l.contains("MonitorGen")));
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testTotalsExport() throws Exception
+    {
+        MetricsPublisher publisher = new MetricsPublisher(60000L,
+                Logger.getLogger("MonitorTest"));
+        MonitorTotalsExporter totals = new MonitorTotalsExporter();
+        publisher.addExporter(totals);
+        assertNull(totals.getLatencies(PipelineStage.FITNESS));
+
+        Monitor run = new Monitor();
+        run.name = "MonitorRun";
+        run.recordLatency(PipelineStage.IO, 2000L);
+        publisher.addMonitor(run);
+        for (int genId=0; genId<3; genId++)
+        {
+            Monitor mnt = new Monitor();
+            mnt.name = "MonitorGen";
+            mnt.generationId = genId;
+            publisher.addMonitor(mnt);
+            publisher.publish();
+            mnt.increaseBy(CounterID.FITNESSEVALS, 2);
+            mnt.recordLatency(PipelineStage.FITNESS, 1000000L);
+            publisher.removeMonitor(mnt);
+        }
+        publisher.stop();
+
+        assertEquals(6, totals.getTotal(CounterID.FITNESSEVALS));
+        assertEquals(3, totals.getLatencies(PipelineStage.FITNESS).getCount());
+        assertEquals(0.003, totals.getLatencies(
+                PipelineStage.FITNESS).getSumInSeconds(), 0.000001);
+        assertEquals(1, totals.getLatencies(PipelineStage.IO).getCount());
+    }
+
+//------------------------------------------------------------------------------
+
+}
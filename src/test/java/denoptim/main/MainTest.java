@@ -96,7 +96,12 @@ public class MainTest
         assertEquals(0, b.exitStatus, "Exit status");
         assertEquals(RunType.FSE, b.runType, "Type of run");
         assertTrue(b.cmd.getArgList().contains(inputPathName),"Input file");
-        
+
+        b = Main.defineProgramBehavior(new String[] {
+                "-"+CLIOptions.run.getOpt(), "BENCH"});
+        assertEquals(0, b.exitStatus, "Exit status");
+        assertEquals(RunType.BENCH, b.runType, "Type of run");
+
         //
         // Testing the request for a specific type of run (wrong request)
         //
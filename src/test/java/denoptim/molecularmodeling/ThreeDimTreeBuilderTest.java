@@ -20,6 +20,7 @@ package denoptim.molecularmodeling;
  */
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import java.io.File;
 import java.util.ArrayList;
@@ -28,6 +29,7 @@ import java.util.HashMap;
 import java.util.HashSet;
 import java.util.logging.Logger;
 
+import javax.vecmath.Matrix4d;
 import javax.vecmath.Point3d;
 
 import org.junit.jupiter.api.Test;
@@ -446,6 +448,45 @@ public class ThreeDimTreeBuilderTest
         //DenoptimIO.writeGraphToSDF(new File("/tmp/g4.sdf"), g4, false, true, logger, rng);
     }
     
+//------------------------------------------------------------------------------
+    
+    @Test
+    public void testGetAlignmentRotoTranslation() throws Exception
+    {
+        double thr = 0.000001;
+        Point3d srcApA = new Point3d(0.0, 0.0, 0.0);
+        Point3d trgApA = new Point3d(0.0, 0.0, 1.5);
+        Point3d srcApB = new Point3d(5.0, 5.0, 5.0);
+        Point3d trgApB = new Point3d(6.0, 5.0, 5.0);
+        
+        Matrix4d m = ThreeDimTreeBuilder.getAlignmentRotoTranslation(srcApA,
+                trgApA, srcApB, trgApB, false);
+        Point3d newSrcApB = new Point3d(srcApB);
+        m.transform(newSrcApB);
+        Point3d newTrgApB = new Point3d(trgApB);
+        m.transform(newTrgApB);
+        assertTrue(newSrcApB.distance(new Point3d(0.0, 0.0, 1.25)) < thr);
+        assertTrue(newTrgApB.distance(new Point3d(0.0, 0.0, 0.25)) < thr);
+        
+        // With RCA the incoming fragment is moved by the longest AP vector
+        m = ThreeDimTreeBuilder.getAlignmentRotoTranslation(srcApA,
+                trgApA, srcApB, trgApB, true);
+        newSrcApB = new Point3d(srcApB);
+        m.transform(newSrcApB);
+        newTrgApB = new Point3d(trgApB);
+        m.transform(newTrgApB);
+        assertTrue(newSrcApB.distance(new Point3d(0.0, 0.0, 2.5)) < thr);
+        assertTrue(newTrgApB.distance(new Point3d(0.0, 0.0, 1.5)) < thr);
+        
+        // Antiparallel AP vectors require no rotation
+        trgApB = new Point3d(5.0, 5.0, 4.0);
+        m = ThreeDimTreeBuilder.getAlignmentRotoTranslation(srcApA,
+                trgApA, srcApB, trgApB, false);
+        newSrcApB = new Point3d(srcApB);
+        m.transform(newSrcApB);
+        assertTrue(newSrcApB.distance(new Point3d(0.0, 0.0, 1.25)) < thr);
+    }
+    
 //------------------------------------------------------------------------------
     
 }
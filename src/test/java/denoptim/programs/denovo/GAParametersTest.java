@@ -21,6 +21,7 @@ package denoptim.programs.denovo;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.junit.jupiter.api.condition.OS.WINDOWS;
 
@@ -32,6 +33,7 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.condition.DisabledOnOs;
 import org.junit.jupiter.api.io.TempDir;
 
+import denoptim.exception.DENOPTIMException;
 import denoptim.files.FileUtils;
 import denoptim.io.DenoptimIO;
 import denoptim.programs.RunTimeParameters.ParametersType;
@@ -97,6 +99,66 @@ public class GAParametersTest
         assertTrue(Math.abs(3.0-r[2]) < t);
     }
     
+//------------------------------------------------------------------------------
+    
+    @Test
+    public void testSteadyStateKeywords() throws Exception
+    {
+        GAParameters gaParams = new GAParameters();
+        gaParams.interpretKeyword("GA-NUMCHILDREN=7");
+        gaParams.interpretKeyword("GA-STEADYSTATE");
+        assertTrue(gaParams.isSteadyState());
+        assertEquals(7, gaParams.getSnapshotEvaluations());
+        assertEquals(0, gaParams.getSnapshotPeriod());
+        
+        // Steady state needs the asynchronous scheme
+        assertThrows(DENOPTIMException.class, 
+                () -> gaParams.checkParameters());
+        gaParams.interpretKeyword("GA-PARALLELIZATION=ASYNCHRONOUS");
+        gaParams.checkParameters();
+        
+        gaParams.interpretKeyword("GA-SNAPSHOTEVALUATIONS=20");
+        assertEquals(20, gaParams.getSnapshotEvaluations());
+        gaParams.interpretKeyword("GA-SNAPSHOTPERIOD=60");
+        assertEquals(60, gaParams.getSnapshotPeriod());
+    }
+    
+//------------------------------------------------------------------------------
+    
+    @Test
+    public void testMonitorDumpStepMustBePositive() throws Exception
+    {
+        GAParameters gaParams = new GAParameters();
+        gaParams.interpretKeyword("GA-MONITORDUMPSTEP=0");
+        assertThrows(DENOPTIMException.class, 
+                () -> gaParams.checkParameters());
+        gaParams.interpretKeyword("GA-MONITORDUMPSTEP=10");
+        gaParams.checkParameters();
+    }
+    
+//------------------------------------------------------------------------------
+    
+    @Test
+    public void testMigrationSizeMustLeaveRoomForResidents() throws Exception
+    {
+        GAParameters gaParams = new GAParameters();
+        gaParams.interpretKeyword("GA-POPULATIONSIZE=10");
+        gaParams.interpretKeyword("GA-NUMISLANDS=4");
+        gaParams.interpretKeyword("GA-MIGRATIONSIZE=3");
+        gaParams.interpretKeyword("GA-MIGRATIONTOPOLOGY=RING");
+        gaParams.checkParameters();
+        
+        gaParams.interpretKeyword("GA-MIGRATIONTOPOLOGY=FULL");
+        assertThrows(DENOPTIMException.class, 
+                () -> gaParams.checkParameters());
+        
+        gaParams.interpretKeyword("GA-MIGRATIONSIZE=3");
+        gaParams.interpretKeyword("GA-MIGRATIONTOPOLOGY=RING");
+        gaParams.interpretKeyword("GA-POPULATIONSIZE=3");
+        assertThrows(DENOPTIMException.class, 
+                () -> gaParams.checkParameters());
+    }
+    
 //------------------------------------------------------------------------------
     
     @Test
@@ -0,0 +1,130 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.programs.farmworker;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.smiles.SmilesParser;
+
+import denoptim.constants.DENOPTIMConstants;
+import denoptim.fitness.FitnessParameters;
+import denoptim.graph.DGraph;
+import denoptim.io.DenoptimIO;
+import denoptim.task.FitnessFarm;
+
+/**
+ * Unit test for {@link FarmWorker}. A real worker, with an internal fitness
+ * provider, serves a {@link FitnessFarm} on localhost.
+ *
+ * @author Marco Foscato
+ */
+
+public class FarmWorkerTest
+{
+    private static final Logger LOGGER = Logger.getLogger("FarmWorkerTest");
+
+    private static final String EQUATION = "FP-Equation=${Zagreb}";
+
+    @TempDir
+    File tempDir;
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testEvaluationByWorker() throws Exception
+    {
+        FitnessParameters fitParams = new FitnessParameters();
+        fitParams.readParameterLine(EQUATION);
+        FitnessFarm farm = new FitnessFarm(null, 0, 5000, 60000, 0,
+                fitParams.getFitnessCacheKey(), "secret", LOGGER);
+        ExecutorService es = Executors.newFixedThreadPool(2);
+        try
+        {
+            // A worker without the right token is rejected and stops
+            Future<Object> rejected = es.submit(() -> makeWorker("bad",
+                    farm.getPort(), "wrong").call());
+            rejected.get(30, TimeUnit.SECONDS);
+            assertEquals(0, farm.getNumberOfWorkers());
+
+            Future<Object> worker = es.submit(() -> makeWorker("good",
+                    farm.getPort(), "secret").call());
+
+            IAtomContainer mol = new SmilesParser(
+                    SilentChemObjectBuilder.getInstance()).parseSmiles("CCO");
+            File inp = new File(tempDir, "cand_inp.sdf");
+            File out = new File(tempDir, "cand_out.sdf");
+            DenoptimIO.writeSDFFile(inp.getAbsolutePath(), mol);
+            farm.evaluate(new DGraph().toJson(), "M00000001", "UID1",
+                    inp.getAbsolutePath(), out.getAbsolutePath(), 1);
+
+            List<IAtomContainer> results = DenoptimIO.readAllAtomContainers(
+                    out);
+            assertEquals(1, results.size());
+            Object fitness = results.get(0).getProperty(
+                    DENOPTIMConstants.FITNESSTAG);
+            assertNotNull(fitness, "Fitness not reported by the worker");
+            assertTrue(Double.parseDouble(fitness.toString()) > 0.0);
+
+            // Workers stop when the farm shuts down
+            farm.shutdown();
+            worker.get(30, TimeUnit.SECONDS);
+        } finally {
+            farm.shutdown();
+            es.shutdownNow();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private FarmWorker makeWorker(String name, int port, String token)
+            throws Exception
+    {
+        File workDir = new File(tempDir, name);
+        workDir.mkdirs();
+        File paramsFile = new File(workDir, "params");
+        List<String> lines = Arrays.asList(
+                "FARM-PORT=" + port,
+                "FARM-TOKEN=" + token,
+                "FARM-HEARTBEATINTERVAL=1",
+                "FARM-CONNECTTIMEOUT=10",
+                EQUATION);
+        Files.write(paramsFile.toPath(), lines, StandardCharsets.UTF_8);
+        return new FarmWorker(paramsFile, workDir);
+    }
+
+//------------------------------------------------------------------------------
+
+}
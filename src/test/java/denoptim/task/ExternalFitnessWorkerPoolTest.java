@@ -0,0 +1,207 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import denoptim.exception.DENOPTIMException;
+
+/**
+ * Unit test for {@link ExternalFitnessWorkerPool}. The workers run a tiny
+ * bash script that talks the protocol of the pool, and behaves according to
+ * the name of the input file of each request.
+ *
+ * @author Marco Foscato
+ */
+
+public class ExternalFitnessWorkerPoolTest
+{
+    private static final Logger LOGGER = Logger.getLogger(
+            "ExternalFitnessWorkerPoolTest");
+
+    /**
+     * Script emulating a persistent fitness provider. It writes its PID to
+     * the output file of successful requests.
+     */
+    private static final String SCRIPT = String.join("\n",
+            "while read -r line; do",
+            "  [[ $line =~ \\\"OUTPUT\\\":\\\"([^\\\"]*)\\\" ]] "
+                    + "&& out=${BASH_REMATCH[1]}",
+            "  case \"$line\" in",
+            "    *CRASH*) echo 'crashing' >&2; exit 3 ;;",
+            "    *SLEEP*) sleep 30 ;;",
+            "    *FAIL*) echo '{\"STATUS\": \"FAILURE\", \"ERROR\": \"bad\"}';;",
+            "    *MALFORMED*)",
+            "      echo 'some noise'",
+            "      echo '{not json'",
+            "      echo '{\"STATUS\": null}'",
+            "      echo '{\"OTHER\": 1}'",
+            "      echo $$ > \"$out\"",
+            "      echo '{\"STATUS\": \"SUCCESS\"}' ;;",
+            "    *)",
+            "      sleep 0.3",
+            "      echo $$ > \"$out\"",
+            "      echo '{\"STATUS\": \"SUCCESS\"}' ;;",
+            "  esac",
+            "done",
+            "");
+
+    @TempDir
+    File tempDir;
+
+    private File script;
+
+//------------------------------------------------------------------------------
+
+    @BeforeEach
+    public void setUp() throws Exception
+    {
+        assumeTrue(new File("/bin/bash").canExecute(), "Requires bash");
+        script = new File(tempDir, "worker.sh");
+        Files.write(script.toPath(), SCRIPT.getBytes(StandardCharsets.UTF_8));
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testRestartOnCrash() throws Exception
+    {
+        ExternalFitnessWorkerPool pool = new ExternalFitnessWorkerPool(
+                "/bin/bash", script.getAbsolutePath(), 1, 0, LOGGER);
+        try
+        {
+            String pid1 = evaluate(pool, "first");
+            DENOPTIMException e = assertThrows(DENOPTIMException.class,
+                    () -> evaluate(pool, "CRASH"));
+            assertTrue(e.getMessage().contains("crashing"));
+            String pid2 = evaluate(pool, "second");
+            assertNotEquals(pid1, pid2);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testTimeout() throws Exception
+    {
+        ExternalFitnessWorkerPool pool = new ExternalFitnessWorkerPool(
+                "/bin/bash", script.getAbsolutePath(), 1, 1000, LOGGER);
+        try
+        {
+            String pid1 = evaluate(pool, "first");
+            long start = System.currentTimeMillis();
+            assertThrows(DENOPTIMException.class,
+                    () -> evaluate(pool, "SLEEP"));
+            assertTrue(System.currentTimeMillis() - start < 20000);
+            // The worker is restarted
+            String pid2 = evaluate(pool, "second");
+            assertNotEquals(pid1, pid2);
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testBackPressure() throws Exception
+    {
+        ExternalFitnessWorkerPool pool = new ExternalFitnessWorkerPool(
+                "/bin/bash", script.getAbsolutePath(), 2, 0, LOGGER);
+        ExecutorService es = Executors.newFixedThreadPool(6);
+        try
+        {
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i=0; i<6; i++)
+            {
+                final String name = "cand" + i;
+                results.add(es.submit(() -> evaluate(pool, name)));
+            }
+            Set<String> pids = new HashSet<String>();
+            for (Future<String> result : results)
+            {
+                pids.add(result.get(30, TimeUnit.SECONDS));
+            }
+            // Requests waited for one of the two workers
+            assertTrue(pids.size() <= 2, "Too many processes: " + pids);
+        } finally {
+            es.shutdown();
+            pool.shutdown();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testFailuresAndMalformedReplies() throws Exception
+    {
+        ExternalFitnessWorkerPool pool = new ExternalFitnessWorkerPool(
+                "/bin/bash", script.getAbsolutePath(), 1, 10000, LOGGER);
+        try
+        {
+            String pid1 = evaluate(pool, "MALFORMED");
+            DENOPTIMException e = assertThrows(DENOPTIMException.class,
+                    () -> evaluate(pool, "FAIL"));
+            assertTrue(e.getMessage().contains("bad"));
+            // Neither malformed replies nor failures kill the worker
+            assertEquals(pid1, evaluate(pool, "last"));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private String evaluate(ExternalFitnessWorkerPool pool, String name)
+            throws Exception
+    {
+        File inp = new File(tempDir, name + "_inp.sdf");
+        File out = new File(tempDir, name + "_out.sdf");
+        pool.evaluate(inp.getAbsolutePath(), out.getAbsolutePath(),
+                tempDir.getAbsolutePath(), 1, null);
+        return new String(Files.readAllBytes(out.toPath()),
+                StandardCharsets.UTF_8).trim();
+    }
+
+//------------------------------------------------------------------------------
+
+}
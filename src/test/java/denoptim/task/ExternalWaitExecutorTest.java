@@ -0,0 +1,182 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for {@link ExternalWaitExecutor}.
+ *
+ * @author Marco Foscato
+ */
+
+public class ExternalWaitExecutorTest
+{
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testCPUAndWaitLimits() throws Exception
+    {
+        int numTasks = 8;
+        ExternalWaitExecutor ewe = new ExternalWaitExecutor(2, numTasks);
+        assertEquals(numTasks, ewe.getMaxInFlight());
+
+        AtomicInteger usingCPU = new AtomicInteger(0);
+        AtomicInteger maxUsingCPU = new AtomicInteger(0);
+        CountDownLatch allWaiting = new CountDownLatch(numTasks);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i=0; i<numTasks; i++)
+        {
+            futures.add(ewe.submit(new Runnable() {
+                @Override
+                public void run()
+                {
+                    useCPU(usingCPU, maxUsingCPU);
+                    ExternalWaitExecutor.beginExternalWait();
+                    try
+                    {
+                        // All tasks must reach this point despite having
+                        // fewer CPU permits than tasks
+                        allWaiting.countDown();
+                        allWaiting.await();
+                    } catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        ExternalWaitExecutor.endExternalWait();
+                    }
+                    useCPU(usingCPU, maxUsingCPU);
+                }
+            }));
+        }
+        for (Future<?> f : futures)
+        {
+            f.get(30, TimeUnit.SECONDS);
+        }
+        assertTrue(maxUsingCPU.get() <= 2, "Too many tasks using CPU: "
+                + maxUsingCPU.get());
+
+        ewe.shutdown();
+        assertTrue(ewe.awaitTermination(10, TimeUnit.SECONDS));
+        assertTrue(ewe.isTerminated());
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testNestedAndUnmatchedWaits() throws Exception
+    {
+        ExternalWaitExecutor ewe = new ExternalWaitExecutor(1, 2);
+        CountDownLatch otherTaskDone = new CountDownLatch(1);
+        Future<?> waiting = ewe.submit(new Runnable() {
+            @Override
+            public void run()
+            {
+                // Unmatched end: no effect
+                ExternalWaitExecutor.endExternalWait();
+                ExternalWaitExecutor.beginExternalWait();
+                ExternalWaitExecutor.beginExternalWait();
+                ExternalWaitExecutor.endExternalWait();
+                try
+                {
+                    // Still waiting: the only CPU permit must be available
+                    // to the other task
+                    assertTrue(otherTaskDone.await(30, TimeUnit.SECONDS));
+                } catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                } finally {
+                    ExternalWaitExecutor.endExternalWait();
+                    ExternalWaitExecutor.endExternalWait();
+                }
+            }
+        });
+        Future<?> other = ewe.submit(new Runnable() {
+            @Override
+            public void run()
+            {
+                otherTaskDone.countDown();
+            }
+        });
+        other.get(30, TimeUnit.SECONDS);
+        waiting.get(30, TimeUnit.SECONDS);
+
+        // A task ending while declared as waiting must not release its
+        // permit twice.
+        ewe.submit(new Runnable() {
+            @Override
+            public void run()
+            {
+                ExternalWaitExecutor.beginExternalWait();
+            }
+        }).get(30, TimeUnit.SECONDS);
+
+        AtomicInteger usingCPU = new AtomicInteger(0);
+        AtomicInteger maxUsingCPU = new AtomicInteger(0);
+        List<Future<?>> futures = new ArrayList<Future<?>>();
+        for (int i=0; i<6; i++)
+        {
+            futures.add(ewe.submit(new Runnable() {
+                @Override
+                public void run()
+                {
+                    useCPU(usingCPU, maxUsingCPU);
+                }
+            }));
+        }
+        for (Future<?> f : futures)
+        {
+            f.get(30, TimeUnit.SECONDS);
+        }
+        assertEquals(1, maxUsingCPU.get());
+
+        ewe.shutdown();
+        assertTrue(ewe.awaitTermination(10, TimeUnit.SECONDS));
+    }
+
+//------------------------------------------------------------------------------
+
+    private void useCPU(AtomicInteger usingCPU, AtomicInteger maxUsingCPU)
+    {
+        int now = usingCPU.incrementAndGet();
+        maxUsingCPU.accumulateAndGet(now, Math::max);
+        try
+        {
+            Thread.sleep(5);
+        } catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        usingCPU.decrementAndGet();
+    }
+
+//------------------------------------------------------------------------------
+
+}
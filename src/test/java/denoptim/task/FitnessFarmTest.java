@@ -0,0 +1,361 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonObject;
+
+import denoptim.exception.DENOPTIMException;
+
+/**
+ * Unit test for {@link FitnessFarm}. Workers are emulated by threads
+ * talking the farm protocol on localhost.
+ *
+ * @author Marco Foscato
+ */
+
+public class FitnessFarmTest
+{
+    private static final Logger LOGGER = Logger.getLogger("FitnessFarmTest");
+
+    private final Gson gson = new Gson();
+
+    @TempDir
+    File tempDir;
+
+    /**
+     * What an emulated worker does with the first job it receives.
+     */
+    private enum Behavior {EVALUATE, DIE, HANG, STALL};
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testMultipleWorkers() throws Exception
+    {
+        FitnessFarm farm = new FitnessFarm(0, 5000, 1, "key", LOGGER);
+        List<Thread> workers = new ArrayList<Thread>();
+        try
+        {
+            for (int i=0; i<3; i++)
+            {
+                workers.add(startWorker(farm.getPort(), "key",
+                        Behavior.EVALUATE));
+            }
+            ExecutorService es = Executors.newFixedThreadPool(6);
+            List<Future<String>> results = new ArrayList<Future<String>>();
+            for (int i=0; i<12; i++)
+            {
+                final int taskId = i;
+                results.add(es.submit(() -> evaluate(farm, taskId)));
+            }
+            for (int i=0; i<12; i++)
+            {
+                assertEquals("mol" + i + " evaluated",
+                        results.get(i).get(30, TimeUnit.SECONDS));
+            }
+            es.shutdown();
+        } finally {
+            farm.shutdown();
+        }
+        for (Thread t : workers)
+        {
+            t.join(5000);
+            assertTrue(!t.isAlive(), "Worker should have been stopped");
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testReassignmentOnWorkerDeath() throws Exception
+    {
+        checkReassignment(Behavior.DIE);
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testReassignmentOnMissingHeartbeat() throws Exception
+    {
+        checkReassignment(Behavior.HANG);
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testReassignmentOnJobTimeout() throws Exception
+    {
+        checkReassignment(Behavior.STALL);
+    }
+
+//------------------------------------------------------------------------------
+
+    private void checkReassignment(Behavior failure) throws Exception
+    {
+        // Only a stalling worker keeps beating, so only the job time limit
+        // can detect it
+        long jobTimeout = failure == Behavior.STALL ? 1000 : 0;
+        FitnessFarm farm = new FitnessFarm(null, 0, 1000, jobTimeout, 1, null, 
+                null, LOGGER);
+        ExecutorService es = Executors.newSingleThreadExecutor();
+        try
+        {
+            Thread failing = startWorker(farm.getPort(), "any", failure);
+            waitForWorkers(farm, 1);
+            Future<String> result = es.submit(() -> evaluate(farm, 1));
+            // The job can only be taken by the failing worker
+            failing.join(10000);
+            waitForWorkers(farm, 0);
+            startWorker(farm.getPort(), "any", Behavior.EVALUATE);
+            assertEquals("mol1 evaluated", result.get(30, TimeUnit.SECONDS));
+        } finally {
+            es.shutdown();
+            farm.shutdown();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private void waitForWorkers(FitnessFarm farm, int num) throws Exception
+    {
+        long deadline = System.currentTimeMillis() + 10000;
+        while (farm.getNumberOfWorkers() != num
+                && System.currentTimeMillis() < deadline)
+        {
+            Thread.sleep(20);
+        }
+        assertEquals(num, farm.getNumberOfWorkers());
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testMaxRetries() throws Exception
+    {
+        FitnessFarm farm = new FitnessFarm(0, 5000, 1, null, LOGGER);
+        try
+        {
+            startWorker(farm.getPort(), "any", Behavior.DIE);
+            startWorker(farm.getPort(), "any", Behavior.DIE);
+            assertThrows(DENOPTIMException.class, () -> evaluate(farm, 1));
+        } finally {
+            farm.shutdown();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testRejectWorkerWithoutToken() throws Exception
+    {
+        FitnessFarm farm = new FitnessFarm(null, 0, 5000, 0, 1, "key", 
+                "secret", LOGGER);
+        try
+        {
+            assertEquals(FitnessFarm.REJECTED, sayHello(farm, hello("key")));
+            JsonObject hello = hello("key");
+            hello.addProperty("TOKEN", "wrong");
+            assertEquals(FitnessFarm.REJECTED, sayHello(farm, hello));
+            hello.addProperty("TOKEN", "secret");
+            assertEquals(FitnessFarm.WELCOME, sayHello(farm, hello));
+        } finally {
+            farm.shutdown();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private String sayHello(FitnessFarm farm, JsonObject hello) 
+            throws Exception
+    {
+        try (Socket socket = new Socket("localhost", farm.getPort()))
+        {
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                    socket.getOutputStream(), StandardCharsets.UTF_8));
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), StandardCharsets.UTF_8));
+            send(out, hello);
+            JsonObject answer = gson.fromJson(in.readLine(), JsonObject.class);
+            return answer.get("TYPE").getAsString();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testRejectWorkerWithDifferentSettings() throws Exception
+    {
+        FitnessFarm farm = new FitnessFarm(0, 5000, 1, "key", LOGGER);
+        try (Socket socket = new Socket("localhost", farm.getPort()))
+        {
+            BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                    socket.getOutputStream(), StandardCharsets.UTF_8));
+            BufferedReader in = new BufferedReader(new InputStreamReader(
+                    socket.getInputStream(), StandardCharsets.UTF_8));
+            send(out, hello("otherKey"));
+            JsonObject answer = gson.fromJson(in.readLine(), JsonObject.class);
+            assertEquals(FitnessFarm.REJECTED,
+                    answer.get("TYPE").getAsString());
+        } finally {
+            farm.shutdown();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private String evaluate(FitnessFarm farm, int taskId) throws Exception
+    {
+        File inp = new File(tempDir, "task" + taskId + "_inp.sdf");
+        File out = new File(tempDir, "task" + taskId + "_out.sdf");
+        Files.write(inp.toPath(), ("mol" + taskId).getBytes(
+                StandardCharsets.UTF_8));
+        farm.evaluate("{}", "M" + taskId, "UID" + taskId,
+                inp.getAbsolutePath(), out.getAbsolutePath(), taskId);
+        return new String(Files.readAllBytes(out.toPath()),
+                StandardCharsets.UTF_8);
+    }
+
+//------------------------------------------------------------------------------
+
+    private JsonObject hello(String key)
+    {
+        JsonObject hello = new JsonObject();
+        hello.addProperty("TYPE", FitnessFarm.HELLO);
+        hello.addProperty("FITNESSKEY", key);
+        return hello;
+    }
+
+//------------------------------------------------------------------------------
+
+    private void send(BufferedWriter out, JsonObject msg) throws IOException
+    {
+        synchronized (out)
+        {
+            out.write(gson.toJson(msg));
+            out.newLine();
+            out.flush();
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    private Thread startWorker(int port, String key, Behavior behavior)
+    {
+        final boolean[] beating = new boolean[] {true};
+        Thread t = new Thread(() -> {
+            try (Socket socket = new Socket("localhost", port))
+            {
+                BufferedWriter out = new BufferedWriter(new OutputStreamWriter(
+                        socket.getOutputStream(), StandardCharsets.UTF_8));
+                BufferedReader in = new BufferedReader(new InputStreamReader(
+                        socket.getInputStream(), StandardCharsets.UTF_8));
+                send(out, hello(key));
+                in.readLine();
+                Thread heartbeat = new Thread(() -> {
+                    JsonObject beat = new JsonObject();
+                    beat.addProperty("TYPE", FitnessFarm.HEARTBEAT);
+                    try
+                    {
+                        while (beating[0])
+                        {
+                            send(out, beat);
+                            Thread.sleep(100);
+                        }
+                    } catch (IOException | InterruptedException e)
+                    {
+                        // Worker is gone
+                    }
+                });
+                heartbeat.setDaemon(true);
+                heartbeat.start();
+                JsonObject request = new JsonObject();
+                request.addProperty("TYPE", FitnessFarm.REQUEST);
+                while (true)
+                {
+                    send(out, request);
+                    String line = in.readLine();
+                    if (line == null)
+                        return;
+                    JsonObject job = gson.fromJson(line, JsonObject.class);
+                    if (!FitnessFarm.JOB.equals(job.get("TYPE").getAsString()))
+                        return;
+                    switch (behavior)
+                    {
+                        case DIE:
+                            return;
+                        case HANG:
+                            // Keep the connection open, but silent
+                            beating[0] = false;
+                            Thread.sleep(3000);
+                            return;
+                        case STALL:
+                            // Keep beating, but never complete the job
+                            Thread.sleep(3000);
+                            return;
+                        default:
+                            break;
+                    }
+                    JsonObject result = new JsonObject();
+                    result.addProperty("TYPE", FitnessFarm.RESULT);
+                    result.add("JOBID", job.get("JOBID"));
+                    result.addProperty("STATUS", "SUCCESS");
+                    result.addProperty("MOL", job.get("MOL").getAsString()
+                            + " evaluated");
+                    send(out, result);
+                }
+            } catch (IOException | InterruptedException e)
+            {
+                // Worker is gone
+            } finally {
+                beating[0] = false;
+            }
+        });
+        t.setDaemon(true);
+        t.start();
+        return t;
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,92 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.task;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import denoptim.constants.DENOPTIMConstants;
+
+/**
+ * Unit test for {@link StreamGobbler}.
+ *
+ * @author Marco Foscato
+ */
+
+public class StreamGobblerTest
+{
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testBoundedCapture() throws Exception
+    {
+        StringBuilder sb = new StringBuilder();
+        for (int i=0; i<10; i++)
+        {
+            sb.append("line").append(i).append("\n");
+        }
+        byte[] data = sb.toString().getBytes(StandardCharsets.UTF_8);
+
+        StreamGobbler small = new StreamGobbler("OUT");
+        small.setStream(new ByteArrayInputStream(data));
+        small.run();
+        assertEquals("OUT> line0" + DENOPTIMConstants.EOL,
+                small.getMessages().substring(0, 10
+                        + DENOPTIMConstants.EOL.length()));
+        assertTrue(small.getMessages().contains("OUT> line9"));
+
+        // Only the tail is kept in memory, and the entire output in the file
+        StreamGobbler bounded = new StreamGobbler("ERR", 30);
+        bounded.setStream(new ByteArrayInputStream(data));
+        bounded.run();
+        String msg = bounded.getMessages();
+        assertFalse(msg.contains("ERR> line0"));
+        assertTrue(msg.endsWith("ERR> line9" + DENOPTIMConstants.EOL));
+        String tailMsg = msg.substring(msg.indexOf(DENOPTIMConstants.EOL)
+                + DENOPTIMConstants.EOL.length());
+        assertTrue(tailMsg.length() <= 30);
+        assertTrue(msg.contains("entire output in file"));
+
+        String pathname = msg.substring(msg.indexOf("file ") + 5,
+                msg.indexOf("]"));
+        File spill = new File(pathname);
+        List<String> spilled = Files.readAllLines(spill.toPath());
+        assertEquals(10, spilled.size());
+        assertEquals("line0", spilled.get(0));
+        assertEquals("line9", spilled.get(spilled.size()-1));
+
+        bounded.deleteSpillFile();
+        assertFalse(spill.exists());
+        assertFalse(bounded.getMessages().contains("entire output in file"));
+        assertTrue(bounded.getMessages().contains("earlier lines omitted"));
+    }
+
+//------------------------------------------------------------------------------
+
+}
@@ -0,0 +1,102 @@
+package denoptim.utils;
+
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2019 Marco Foscato <marco.foscato@uib.no>
+ * 
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.openscience.cdk.interfaces.IAtomContainer;
+import org.openscience.cdk.silent.SilentChemObjectBuilder;
+import org.openscience.cdk.smiles.SmilesParser;
+
+/**
+ * Unit test for ManySMARTSQuery
+ * 
+ * @author Marco Foscato
+ */
+
+public class ManySMARTSQueryTest
+{
+    
+//------------------------------------------------------------------------------
+    
+    @Test
+    public void testMatches() throws Exception
+    {
+        SmilesParser sp = new SmilesParser(
+                SilentChemObjectBuilder.getInstance());
+        IAtomContainer mol = sp.parseSmiles("OCC(=O)c1ccccc1");
+        
+        Map<String,String> smarts = new HashMap<String,String>();
+        smarts.put("carbonyl", "[#6]=[#8]");
+        smarts.put("aromC", "c");
+        smarts.put("aromCC", "c:c");
+        smarts.put("none", "[#7]");
+        
+        ManySMARTSQuery msq = new ManySMARTSQuery(mol, smarts);
+        assertFalse(msq.hasProblems());
+        assertEquals(1, msq.getNumMatchesOfQuery("carbonyl"));
+        assertEquals(6, msq.getNumMatchesOfQuery("aromC"));
+        assertEquals(12, msq.getNumMatchesOfQuery("aromCC"));
+        assertEquals(0, msq.getNumMatchesOfQuery("none"));
+        assertNull(msq.getMatchesOfSMARTS("none"));
+        assertEquals(3, msq.getAllMatches().size());
+        
+        List<int[]> hits = msq.getMatchesOfSMARTS("carbonyl");
+        assertEquals(2, hits.get(0).length);
+        assertEquals("C", mol.getAtom(hits.get(0)[0]).getSymbol());
+        assertEquals("O", mol.getAtom(hits.get(0)[1]).getSymbol());
+        
+        // Re-running the same queries uses the compiled patterns
+        IAtomContainer mol2 = sp.parseSmiles("NCC=O");
+        ManySMARTSQuery msq2 = new ManySMARTSQuery(mol2, smarts);
+        assertFalse(msq2.hasProblems());
+        assertEquals(1, msq2.getNumMatchesOfQuery("carbonyl"));
+        assertEquals(0, msq2.getNumMatchesOfQuery("aromC"));
+        assertEquals(1, msq2.getNumMatchesOfQuery("none"));
+    }
+    
+//------------------------------------------------------------------------------
+    
+    @Test
+    public void testCompiledPatternsCache() throws Exception
+    {
+        assertSame(ManySMARTSQuery.getCompiledPattern("[#6]~[#8]"),
+                ManySMARTSQuery.getCompiledPattern("[#6]~[#8]"));
+        
+        Map<String,String> smarts = new HashMap<String,String>();
+        smarts.put("wrong", "[#6]~[#8");
+        SmilesParser sp = new SmilesParser(
+                SilentChemObjectBuilder.getInstance());
+        ManySMARTSQuery msq = new ManySMARTSQuery(sp.parseSmiles("CO"), 
+                smarts);
+        assertTrue(msq.hasProblems());
+    }
+    
+//------------------------------------------------------------------------------
+    
+}
@@ -0,0 +1,122 @@
+/*
+ *   DENOPTIM
+ *   Copyright (C) 2022 Marco Foscato <marco.foscato@uib.no>
+ *
+ *   This program is free software: you can redistribute it and/or modify
+ *   it under the terms of the GNU Affero General Public License as published
+ *   by the Free Software Foundation, either version 3 of the License, or
+ *   (at your option) any later version.
+ *
+ *   This program is distributed in the hope that it will be useful,
+ *   but WITHOUT ANY WARRANTY; without even the implied warranty of
+ *   MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ *   GNU Affero General Public License for more details.
+ *
+ *   You should have received a copy of the GNU Affero General Public License
+ *   along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package denoptim.utils;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+/**
+ * Unit test for {@link SuperpositionUtils}.
+ *
+ * @author Marco Foscato
+ */
+
+public class SuperpositionUtilsTest
+{
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testSuperpose() throws Exception
+    {
+        Random rng = new Random(1L);
+        for (int iter=0; iter<100; iter++)
+        {
+            int n = 2 + rng.nextInt(10);
+            double[] fixed = new double[n*3];
+            for (int i=0; i<fixed.length; i++)
+                fixed[i] = 3.0 * rng.nextGaussian();
+
+            // Random rotation from a random unit quaternion
+            double[] q = new double[4];
+            double norm = 0.0;
+            for (int i=0; i<4; i++)
+            {
+                q[i] = rng.nextGaussian();
+                norm += q[i]*q[i];
+            }
+            norm = Math.sqrt(norm);
+            for (int i=0; i<4; i++)
+                q[i] /= norm;
+            double[][] r = new double[][] {
+                {q[0]*q[0]+q[1]*q[1]-q[2]*q[2]-q[3]*q[3],
+                    2*(q[1]*q[2]-q[0]*q[3]), 2*(q[1]*q[3]+q[0]*q[2])},
+                {2*(q[1]*q[2]+q[0]*q[3]),
+                    q[0]*q[0]-q[1]*q[1]+q[2]*q[2]-q[3]*q[3],
+                    2*(q[2]*q[3]-q[0]*q[1])},
+                {2*(q[1]*q[3]-q[0]*q[2]), 2*(q[2]*q[3]+q[0]*q[1]),
+                    q[0]*q[0]-q[1]*q[1]-q[2]*q[2]+q[3]*q[3]}};
+            double[] moved = new double[n*3];
+            for (int i=0; i<fixed.length; i+=3)
+            {
+                for (int k=0; k<3; k++)
+                {
+                    moved[i+k] = r[k][0]*fixed[i] + r[k][1]*fixed[i+1]
+                            + r[k][2]*fixed[i+2] + 5.0;
+                }
+            }
+
+            assertEquals(0.0, SuperpositionUtils.rmsdUponSuperposition(fixed,
+                    moved), 0.0001);
+            double[] superposed = SuperpositionUtils.superpose(fixed, moved);
+            assertEquals(0.0, SuperpositionUtils.rmsd(fixed, superposed),
+                    0.0001);
+
+            // With noise, the RMSD is that of the superposed points and is
+            // never lower than the difference of the radii of gyration.
+            for (int i=0; i<moved.length; i++)
+                moved[i] += 0.3 * rng.nextGaussian();
+            double rmsd = SuperpositionUtils.rmsdUponSuperposition(fixed,
+                    moved);
+            superposed = SuperpositionUtils.superpose(fixed, moved);
+            assertEquals(rmsd, SuperpositionUtils.rmsd(fixed, superposed),
+                    0.0001);
+            double lowerBound = Math.abs(
+                    SuperpositionUtils.radiusOfGyration(fixed)
+                    - SuperpositionUtils.radiusOfGyration(moved));
+            assertTrue(lowerBound <= rmsd + 0.0001);
+        }
+    }
+
+//------------------------------------------------------------------------------
+
+    @Test
+    public void testRMSDUponSuperposition() throws Exception
+    {
+        double[] pA = new double[] {0,0,0,   1,0,0};
+        double[] pB = new double[] {0,0,0,   0,0,1};
+        assertEquals(0.0, SuperpositionUtils.rmsdUponSuperposition(pA, pB),
+                0.0001);
+        pB = new double[] {0,0,0,   6,0,0};
+        assertEquals(2.5, SuperpositionUtils.rmsdUponSuperposition(pA, pB),
+                0.0001);
+        
+        // Mirror images cannot be superposed by proper rotations
+        pA = new double[] {0,0,0,   1,0,0,   0,1,0,   0,0,1};
+        pB = new double[] {0,0,0,   1,0,0,   0,1,0,   0,0,-1};
+        assertTrue(SuperpositionUtils.rmsdUponSuperposition(pA, pB) > 0.1);
+    }
+
+//------------------------------------------------------------------------------
+
+}